@@ -0,0 +1,101 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+/**
+ * Checks that the running totals of {@link Cart} match a full recomputation.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CartTest {
+
+  @Test
+  public void totalsIncludeTaxAndShipping() {
+    final Cart cart = new Cart(725, 499);
+    assertEquals(Money.zero(), cart.getTotal());
+
+    cart.add("a", "A", Money.ofMinor(5020), 1);
+    assertEquals(Money.ofMinor(5020), cart.getSubtotal());
+    // 7.25% of 50.20 is 3.6395, rounded half up.
+    assertEquals(Money.ofMinor(364), cart.getTax());
+    assertEquals(Money.ofMinor(5020 + 364 + 499), cart.getTotal());
+
+    cart.remove("a");
+    assertTrue(cart.isEmpty());
+    assertEquals(Money.zero(), cart.getTotal());
+  }
+
+  @Test
+  public void runningTotalsMatchRecomputation() {
+    final Cart cart = new Cart();
+    final Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      final String id = "item" + random.nextInt(300);
+      final int version = cart.getVersion();
+      final boolean changed;
+      switch (random.nextInt(3)) {
+        case 0:
+          cart.add(id, id, Money.ofMinor(id.hashCode() & 0xFFFF), 1 + random.nextInt(5));
+          changed = true;
+          break;
+        case 1:
+          changed = cart.setQuantity(id, random.nextInt(4));
+          break;
+        default:
+          changed = cart.remove(id);
+          break;
+      }
+      if (changed) {
+        assertNotEquals(version, cart.getVersion());
+      } else {
+        assertEquals(version, cart.getVersion());
+      }
+
+      long subtotal = 0;
+      int itemCount = 0;
+      for (Cart.Line line : cart.getLines()) {
+        subtotal += line.getTotal().getMinorUnits();
+        itemCount += line.getQuantity();
+      }
+      assertEquals(subtotal, cart.getSubtotal().getMinorUnits());
+      assertEquals(itemCount, cart.getItemCount());
+    }
+  }
+
+  @Test
+  public void zeroQuantityRemovesLine() {
+    final Cart cart = new Cart();
+    cart.add("a", "A", Money.ofMinor(100), 2);
+    assertTrue(cart.setQuantity("a", 0));
+    assertFalse(cart.setQuantity("a", 1));
+    assertEquals(0, cart.getLineCount());
+  }
+}
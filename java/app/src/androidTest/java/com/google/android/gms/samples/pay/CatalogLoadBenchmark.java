@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.samples.pay.data.CatalogRepository;
+import com.google.android.gms.samples.pay.data.CompiledCatalog;
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Compares loading the catalog from JSON with mapping the catalog compiled by the build, up to
+ * the first product shown by the product list.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogLoadBenchmark {
+
+  @Rule
+  public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+  @Test
+  public void parseJson() throws Exception {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      try (InputStream input = new BufferedInputStream(
+          context.getResources().openRawResource(R.raw.tshirts))) {
+        final ProductCatalog catalog = CatalogRepository.parse(
+            new InputStreamReader(input, "UTF-8"), imageName -> 0);
+        catalog.getTitle(0);
+      }
+    }
+  }
+
+  @Test
+  public void mapCompiled() throws Exception {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      final ProductCatalog catalog =
+          ProductCatalog.of(CompiledCatalog.open(context), imageName -> 0);
+      catalog.getTitle(0);
+    }
+  }
+
+  @Test
+  public void readAllCompiledStrings() throws Exception {
+    // The worst case for lazy strings: every product is shown, e.g. by a search over the catalog.
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      final ProductCatalog catalog =
+          ProductCatalog.of(CompiledCatalog.open(context), imageName -> 0);
+      for (int i = 0; i < catalog.size(); i++) {
+        catalog.getTitle(i);
+        catalog.getDescription(i);
+      }
+    }
+  }
+}
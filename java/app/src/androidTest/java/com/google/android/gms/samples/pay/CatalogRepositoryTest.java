@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.data.CatalogRepository;
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Checks how the JSON catalog is parsed, prices in particular.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogRepositoryTest {
+
+  private static ProductCatalog parse(String json) throws IOException {
+    return CatalogRepository.parse(new StringReader(json), imageName -> 0);
+  }
+
+  private static long parsePrice(String price) throws IOException {
+    return parse("[{\"price\":" + price + "}]").getPriceMinorUnits(0);
+  }
+
+  @Test
+  public void parsesPricesWithoutRounding() throws IOException {
+    assertEquals(1475, parsePrice("14.75"));
+    assertEquals(1400, parsePrice("14"));
+    assertEquals(1450, parsePrice("14.5"));
+    assertEquals(50, parsePrice("0.5"));
+    // Digits beyond the cents are truncated, not rounded.
+    assertEquals(1479, parsePrice("14.799"));
+    assertEquals(-350, parsePrice("-3.5"));
+    assertEquals(-1479, parsePrice("-14.799"));
+    // Prices may be quoted.
+    assertEquals(1475, parsePrice("\"14.75\""));
+    // 18 digits once padded to the cents.
+    assertEquals(999_999_999_999_999_999L, parsePrice("9999999999999999.99"));
+  }
+
+  @Test
+  public void rejectsMalformedPrices() throws IOException {
+    final String[] prices = {
+        "\"\"", "\"-\"", "\".\"", "\"1.2.3\"", "\"1,50\"", "\"12a\"", "\"--1\"", "1e3",
+        // More digits than a long holds once padded to the cents.
+        "99999999999999999.99", "12345678901234567890",
+    };
+    for (String price : prices) {
+      try {
+        parsePrice(price);
+        fail("Accepted " + price);
+      } catch (NumberFormatException expected) {
+        // Expected.
+      }
+    }
+  }
+
+  @Test
+  public void defaultsMissingAndNullFields() throws IOException {
+    final ProductCatalog catalog = parse("[{\"name\":\"tee\",\"title\":null,\"price\":null,"
+        + "\"sizes\":[\"S\",\"M\"],\"extra\":{\"a\":1}},{}]");
+
+    assertEquals(2, catalog.size());
+    assertEquals("tee", catalog.getName(0));
+    assertEquals("", catalog.getTitle(0));
+    assertEquals("", catalog.getCategory(0));
+    assertEquals("", catalog.getDescription(0));
+    assertEquals(0, catalog.getPriceMinorUnits(0));
+    assertEquals("", catalog.getName(1));
+    assertEquals(1, catalog.getCategories().length);
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsTruncatedJson() throws IOException {
+    parse("[{\"name\":\"tee\"");
+  }
+}
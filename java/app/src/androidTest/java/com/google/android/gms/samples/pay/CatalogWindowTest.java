@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+import com.google.android.gms.samples.pay.list.CatalogWindow;
+import com.google.android.gms.samples.pay.list.ProductRow;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks the synthetic catalogs and the pages of products shown by the product list.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogWindowTest {
+
+  private static ProductCatalog createSource() {
+    return new ProductCatalog.Builder(2)
+        .add("a", "A", "tees", 1475, "First", "ts_10_11019a")
+        .add("b", "B", "hoodies", 3000, "Second", "missing")
+        .build(imageName -> imageName.equals("ts_10_11019a") ? 42 : 0);
+  }
+
+  @Test
+  public void repeatCopiesProductsInOrder() {
+    final ProductCatalog catalog = ProductCatalog.repeat(createSource(), 100_000);
+
+    assertEquals(100_000, catalog.size());
+    assertEquals("A", catalog.getTitle(0));
+    assertEquals("B", catalog.getTitle(99_999));
+    assertEquals("tees", catalog.getCategory(50_000));
+    assertEquals(3000, catalog.getPriceMinorUnits(50_001));
+    assertEquals(42, catalog.getImageResId(2));
+    assertEquals(0, catalog.getImageResId(3));
+    assertEquals(2, catalog.getCategories().length);
+  }
+
+  @Test
+  public void rowsKeepTheirIdsAcrossPages() {
+    final ProductCatalog catalog = ProductCatalog.repeat(createSource(), 250);
+    final CatalogWindow firstPage = new CatalogWindow(catalog, 100);
+    final CatalogWindow secondPage = new CatalogWindow(catalog, 200);
+    final CatalogWindow lastPage = new CatalogWindow(catalog, 250);
+
+    assertEquals(100, firstPage.size());
+    assertFalse(secondPage.isComplete());
+    assertTrue(lastPage.isComplete());
+
+    final ProductRow row = secondPage.get(150);
+    assertEquals(150, row.getId());
+    assertEquals(row.getId(), lastPage.get(150).getId());
+    assertEquals("A", row.getTitle());
+    assertEquals("tees", row.getCategory());
+  }
+}
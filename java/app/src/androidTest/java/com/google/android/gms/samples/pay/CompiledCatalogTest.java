@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.samples.pay.data.CatalogRepository;
+import com.google.android.gms.samples.pay.data.CompiledCatalog;
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks that the catalog compiled by the build holds the same products as the JSON catalog.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CompiledCatalogTest {
+
+  private static ProductCatalog parseJson(Context context) throws IOException {
+    try (Reader reader = new InputStreamReader(
+        context.getResources().openRawResource(R.raw.tshirts), StandardCharsets.UTF_8)) {
+      return CatalogRepository.parse(reader, imageName -> imageName.hashCode());
+    }
+  }
+
+  @Test
+  public void compiledCatalogMatchesJson() throws IOException {
+    final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    final ProductCatalog expected = parseJson(context);
+    final ProductCatalog actual =
+        ProductCatalog.of(CompiledCatalog.open(context), imageName -> imageName.hashCode());
+
+    assertEquals(expected.size(), actual.size());
+    assertArrayEquals(expected.getCategories(), actual.getCategories());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getName(i), actual.getName(i));
+      assertEquals(expected.getTitle(i), actual.getTitle(i));
+      assertEquals(expected.getDescription(i), actual.getDescription(i));
+      assertEquals(expected.getCategoryIndex(i), actual.getCategoryIndex(i));
+      assertEquals(expected.getPriceMinorUnits(i), actual.getPriceMinorUnits(i));
+      assertEquals(expected.getImageName(i), actual.getImageName(i));
+      assertEquals(expected.getImageResId(i), actual.getImageResId(i));
+    }
+  }
+
+  @Test
+  public void indexesCoverEveryProduct() throws IOException {
+    final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    final CompiledCatalog catalog = CompiledCatalog.open(context);
+
+    int categorized = 0;
+    for (int category = 0; category < catalog.getCategories().length; category++) {
+      for (int product : catalog.getProductsInCategory(category)) {
+        assertEquals(category, catalog.getCategoryIndex(product));
+        categorized++;
+      }
+    }
+    assertEquals(catalog.size(), categorized);
+
+    final int[] byPrice = catalog.getProductsByPrice(Long.MIN_VALUE, Long.MAX_VALUE);
+    assertEquals(catalog.size(), byPrice.length);
+    for (int i = 1; i < byPrice.length; i++) {
+      assertTrue(catalog.getPriceMinorUnits(byPrice[i - 1])
+          <= catalog.getPriceMinorUnits(byPrice[i]));
+    }
+    for (int product : catalog.getProductsByPrice(1000, 1999)) {
+      assertTrue(catalog.getPriceMinorUnits(product) >= 1000);
+      assertTrue(catalog.getPriceMinorUnits(product) <= 1999);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherFiles() throws IOException {
+    CompiledCatalog.wrap(
+        ByteBuffer.wrap("[{\"name\": \"tee\"}]".getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.common.api.ApiException;
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.samples.pay.backend.LocalPaymentsBackend;
+import com.google.android.gms.samples.pay.util.PaymentDataExtractor;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.wallet.PaymentData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class LocalPaymentsBackendTest {
+
+  @Test
+  public void defaultScriptSucceedsImmediately() throws IOException {
+    final LocalPaymentsBackend backend = new LocalPaymentsBackend.Builder().build();
+
+    final Task<Boolean> ready = backend.isReadyToPay("{}");
+    assertTrue(ready.isSuccessful());
+    assertTrue(ready.getResult());
+
+    final Task<PaymentData> paymentData = backend.loadPaymentData("{}");
+    assertTrue(paymentData.isSuccessful());
+    assertEquals("examplePaymentMethodToken",
+        PaymentDataExtractor.extract(paymentData.getResult().toJson()).getToken());
+    assertEquals(1, backend.getPaymentDataCallCount());
+  }
+
+  @Test
+  public void failuresFollowTheScriptedRate() {
+    final LocalPaymentsBackend backend = new LocalPaymentsBackend.Builder()
+        .addPaymentDataFailure(CommonStatusCodes.CANCELED, 0.2)
+        .addPaymentDataFailure(CommonStatusCodes.INTERNAL_ERROR, 0.05)
+        .setSeed(1)
+        .build();
+
+    int canceled = 0;
+    int internalErrors = 0;
+    for (int i = 0; i < 10_000; i++) {
+      final Task<PaymentData> task = backend.loadPaymentData("{}");
+      if (!task.isSuccessful()) {
+        final int statusCode = ((ApiException) task.getException()).getStatusCode();
+        if (statusCode == CommonStatusCodes.CANCELED) {
+          canceled++;
+        } else if (statusCode == CommonStatusCodes.INTERNAL_ERROR) {
+          internalErrors++;
+        }
+      }
+    }
+    assertAbout(2_000, canceled, 200);
+    assertAbout(500, internalErrors, 100);
+  }
+
+  @Test
+  public void latencyDelaysCompletion() throws InterruptedException {
+    final LocalPaymentsBackend backend = new LocalPaymentsBackend.Builder()
+        .setReady(false)
+        .setReadinessLatency(LocalPaymentsBackend.fixedLatency(50))
+        .build();
+
+    final long startNanos = System.nanoTime();
+    final Task<Boolean> task = backend.isReadyToPay("{}");
+    assertFalse(task.isComplete());
+
+    final CountDownLatch completed = new CountDownLatch(1);
+    task.addOnCompleteListener(Runnable::run, completedTask -> completed.countDown());
+    assertTrue(completed.await(5, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(50));
+    assertFalse(task.getResult());
+  }
+
+  private static void assertAbout(long expected, long actual, long delta) {
+    assertTrue("Expected " + expected + " +/- " + delta + " but was " + actual,
+        Math.abs(expected - actual) <= delta);
+  }
+}
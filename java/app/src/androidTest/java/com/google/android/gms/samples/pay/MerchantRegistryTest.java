@@ -0,0 +1,152 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import android.text.TextUtils;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.merchant.MerchantRegistry;
+import com.google.android.gms.samples.pay.util.PaymentConfiguration;
+import com.google.android.gms.samples.pay.util.PaymentsUtil;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Checks that merchant profiles are validated when loaded, and that each merchant gets its own
+ * requests.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MerchantRegistryTest {
+
+  private static final String EXAMPLE = "{"
+      + "\"id\":\"example\",\"merchantName\":\"Example Merchant\","
+      + "\"gatewayParameters\":{\"gateway\":\"example\","
+      + "\"gatewayMerchantId\":\"exampleGatewayMerchantId\"},"
+      + "\"countryCode\":\"US\",\"currencyCode\":\"USD\","
+      + "\"allowedCardNetworks\":[\"AMEX\",\"DISCOVER\",\"JCB\",\"MASTERCARD\",\"VISA\"],"
+      + "\"allowedAuthMethods\":[\"PAN_ONLY\",\"CRYPTOGRAM_3DS\"],"
+      + "\"shippingCountries\":[\"US\",\"GB\"]}";
+
+  private static final String UK = "{"
+      + "\"id\":\"uk\",\"merchantName\":\"Example UK\",\"unknownField\":[1,2],"
+      + "\"gatewayParameters\":{\"gateway\":\"other\",\"gatewayMerchantId\":\"uk\"},"
+      + "\"countryCode\":\"GB\",\"currencyCode\":\"GBP\",\"catalogExchangeRate\":\"0.79\","
+      + "\"allowedCardNetworks\":[\"VISA\"],\"allowedAuthMethods\":[\"PAN_ONLY\"],"
+      + "\"shippingCountries\":[\"GB\"]}";
+
+  private static MerchantRegistry parse(String defaultMerchantId, String... merchants)
+      throws IOException {
+    return MerchantRegistry.parse(new StringReader("{\"defaultMerchantId\":\""
+        + defaultMerchantId + "\",\"merchants\":[" + TextUtils.join(",", merchants) + "]}"));
+  }
+
+  @Test
+  public void profilesHaveTheirOwnRequests() throws IOException, JSONException {
+    final MerchantRegistry registry = parse("example", EXAMPLE, UK);
+    assertEquals(2, registry.size());
+    assertSame(registry.get("example"), registry.getDefault());
+    assertNull(registry.get("missing"));
+
+    // The default profile produces the same requests as the constants.
+    final PaymentConfiguration example = registry.get("example");
+    final PaymentConfiguration defaults = PaymentConfiguration.getInstance();
+    assertEquals(defaults.getAllowedPaymentMethods(), example.getAllowedPaymentMethods());
+    assertEquals(defaults.getIsReadyToPayRequest(), example.getIsReadyToPayRequest());
+    assertEquals(
+        PaymentsUtil.getPaymentDataRequest("12.34").toString(),
+        example.getPaymentDataRequestTemplate().render("12.34"));
+
+    final Cart cart = new Cart("GBP", 2000, 399);
+    cart.add("a", "A", Money.ofMinor(5020, "GBP"), 2);
+    final JSONObject request =
+        new JSONObject(registry.get("uk").getPaymentDataRequestJson(cart));
+    final JSONObject transactionInfo = request.getJSONObject("transactionInfo");
+    assertEquals("GBP", transactionInfo.getString("currencyCode"));
+    assertEquals("GB", transactionInfo.getString("countryCode"));
+    // 100.40 + 20% VAT + 3.99 for the shipping fee of the cart.
+    assertEquals("124.47", transactionInfo.getString("totalPrice"));
+    assertEquals("Example UK", request.getJSONObject("merchantInfo").getString("merchantName"));
+    final JSONObject cardParameters = request.getJSONArray("allowedPaymentMethods")
+        .getJSONObject(0).getJSONObject("parameters");
+    assertEquals("[\"VISA\"]", cardParameters.getJSONArray("allowedCardNetworks").toString());
+    assertEquals("other", request.getJSONArray("allowedPaymentMethods").getJSONObject(0)
+        .getJSONObject("tokenizationSpecification").getJSONObject("parameters")
+        .getString("gateway"));
+  }
+
+  @Test
+  public void cartsAreOnlyChargedInTheirCurrency() throws IOException {
+    final MerchantRegistry registry = parse("example", EXAMPLE, UK);
+    final Cart cart = new Cart();
+    cart.add("a", "A", Money.ofMinor(5020), 2);
+    try {
+      registry.get("uk").getPaymentDataRequestJson(cart);
+      fail("Charged a USD cart in GBP");
+    } catch (IllegalArgumentException expected) {
+      // Expected.
+    }
+
+    // Catalog prices are converted rather than relabeled: $50.20 at 0.79 is £39.66.
+    assertEquals(Money.ofMinor(3966, "GBP"),
+        registry.get("uk").getProfile().toMerchantPrice(5020));
+    assertEquals(Money.ofMinor(5020), registry.get("example").getProfile().toMerchantPrice(5020));
+
+    final Cart ukCart = new Cart("GBP", 0, 0);
+    try {
+      ukCart.add("a", "A", Money.ofMinor(5020), 1);
+      fail("Added a USD price to a GBP cart");
+    } catch (IllegalArgumentException expected) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void invalidRegistriesAreRejected() throws IOException {
+    assertRejected("example", EXAMPLE, EXAMPLE);
+    assertRejected("uk", EXAMPLE);
+    assertRejected("example", EXAMPLE, UK.replace("\"GBP\"", "\"pounds\""));
+    assertRejected("example", EXAMPLE, UK.replace("\"catalogExchangeRate\":\"0.79\",", ""));
+    assertRejected("example", EXAMPLE, UK.replace("\"0.79\"", "\"-1\""));
+    assertRejected("example", EXAMPLE, UK.replace("\"VISA\"", "\"VISTA\""));
+    assertRejected("example", EXAMPLE, UK.replace("\"gateway\":\"other\",", ""));
+    assertRejected("example", EXAMPLE, UK.replace("\"merchantName\":\"Example UK\",", ""));
+  }
+
+  private static void assertRejected(String defaultMerchantId, String... merchants)
+      throws IOException {
+    try {
+      parse(defaultMerchantId, merchants);
+      fail("Accepted " + TextUtils.join(",", merchants));
+    } catch (IllegalArgumentException expected) {
+      // Rejected as a whole.
+    }
+  }
+}
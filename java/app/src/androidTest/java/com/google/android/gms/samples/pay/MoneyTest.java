@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.util.PaymentsUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.math.BigDecimal;
+
+/**
+ * Checks the formatting and arithmetic of {@link Money}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MoneyTest {
+
+  private static final long[] AMOUNTS = {
+      0, 1, 5, 10, 99, 100, 5020, -1, -5020, 123456789, Long.MAX_VALUE, Long.MIN_VALUE
+  };
+
+  @Test
+  public void decimalStringMatchesBigDecimal() {
+    for (long amount : AMOUNTS) {
+      for (int fractionDigits = 0; fractionDigits <= 3; fractionDigits++) {
+        assertEquals(
+            BigDecimal.valueOf(amount, fractionDigits).toPlainString(),
+            Money.appendDecimal(new StringBuilder(), amount, fractionDigits).toString());
+      }
+    }
+  }
+
+  @Test
+  public void formatsDefaultCurrency() {
+    assertEquals("50.20", Money.ofMinor(5020).toDecimalString());
+    assertEquals("$50.20", Money.ofMinor(5020).toDisplayString());
+    assertEquals("-$0.05", Money.ofMinor(-5).toDisplayString());
+    assertEquals("-$92233720368547758.08", Money.ofMinor(Long.MIN_VALUE).toDisplayString());
+  }
+
+  @Test
+  public void arithmeticIsExact() {
+    assertEquals(Money.ofMinor(15060), Money.ofMinor(5020).times(3));
+    assertEquals(Money.ofMinor(5000), Money.ofMinor(5020).minus(Money.ofMinor(20)));
+    try {
+      Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1));
+      fail("Expected an overflow");
+    } catch (ArithmeticException expected) {
+      // Expected.
+    }
+    try {
+      Money.ofMinor(Long.MAX_VALUE / 2 + 1).times(2);
+      fail("Expected an overflow");
+    } catch (ArithmeticException expected) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void requestsRejectOtherCurrencies() {
+    final Money price = Money.ofMinor(5020, "GBP");
+    assertEquals(price, price.requireCurrency("GBP"));
+    try {
+      PaymentsUtil.getPaymentDataRequestJson(price);
+      fail("Charged GBP as " + Constants.CURRENCY_CODE);
+    } catch (IllegalArgumentException expected) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void paymentDataRequestMatchesDecimalString() {
+    for (long amount : AMOUNTS) {
+      final Money price = Money.ofMinor(amount);
+      assertEquals(
+          PaymentsUtil.getPaymentDataRequestJson(price.toDecimalString()),
+          PaymentsUtil.getPaymentDataRequestJson(price));
+    }
+  }
+}
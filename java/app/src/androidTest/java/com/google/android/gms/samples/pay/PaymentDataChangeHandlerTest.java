@@ -0,0 +1,157 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.merchant.MerchantProfile;
+import com.google.android.gms.samples.pay.shipping.PaymentDataChangeHandler;
+import com.google.android.gms.samples.pay.shipping.ShippingOption;
+import com.google.android.gms.samples.pay.shipping.ShippingRates;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Checks the updates sent back to the payment sheet when the shipping address or option changes.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PaymentDataChangeHandlerTest {
+
+  private static final ShippingOption STANDARD =
+      new ShippingOption("standard", "Standard", "5 days", Money.ofMinor(500));
+  private static final ShippingOption EXPRESS =
+      new ShippingOption("express", "Express", "1 day", Money.ofMinor(1500));
+
+  private ShippingRates rates;
+  private PaymentDataChangeHandler handler;
+  private Cart cart;
+
+  @Before
+  public void setUp() {
+    rates = new ShippingRates();
+    rates.update("US", Arrays.asList(STANDARD, EXPRESS));
+    rates.update("GB", Collections.singletonList(EXPRESS));
+    handler = new PaymentDataChangeHandler(rates);
+
+    cart = new Cart(0, 0);
+    cart.add("a", "A", Money.ofMinor(2000), 1);
+  }
+
+  private static String change(String trigger, String countryCode, String optionId) {
+    return "{\"callbackTrigger\":\"" + trigger + "\","
+        + "\"shippingAddress\":{\"countryCode\":\"" + countryCode + "\",\"postalCode\":\"94043\"},"
+        + "\"shippingOptionData\":{\"id\":\"" + optionId + "\"}}";
+  }
+
+  private static void assertUpdate(String update, String totalPrice, String selectedOptionId)
+      throws JSONException {
+    final JSONObject json = new JSONObject(update);
+    assertEquals(totalPrice,
+        json.getJSONObject("newTransactionInfo").getString("totalPrice"));
+    assertEquals(selectedOptionId, json.getJSONObject("newShippingOptionParameters")
+        .getString("defaultSelectedOptionId"));
+  }
+
+  private static String getErrorReason(String update) throws JSONException {
+    return new JSONObject(update).getJSONObject("error").getString("reason");
+  }
+
+  private static String getErrorIntent(String update) throws JSONException {
+    return new JSONObject(update).getJSONObject("error").getString("intent");
+  }
+
+  @Test
+  public void updatesFollowTheSelectedOption() throws IOException, JSONException {
+    assertEquals("OTHER_ERROR",
+        getErrorReason(handler.onPaymentDataChanged(change("INITIALIZE", "US", "standard"))));
+
+    handler.startSession(cart, MerchantProfile.DEFAULT);
+    assertUpdate(handler.onPaymentDataChanged(change("INITIALIZE", "US", "express")),
+        "25.00", "standard");
+    assertUpdate(handler.onPaymentDataChanged(change("SHIPPING_OPTION", "US", "express")),
+        "35.00", "express");
+    // The options offered depend on the address, so the default one is selected again.
+    assertUpdate(handler.onPaymentDataChanged(change("SHIPPING_ADDRESS", "US", "express")),
+        "25.00", "standard");
+    assertUpdate(handler.onPaymentDataChanged(change("SHIPPING_OPTION", "GB", "standard")),
+        "35.00", "express");
+    assertEquals("SHIPPING_ADDRESS_UNSERVICEABLE",
+        getErrorReason(handler.onPaymentDataChanged(change("SHIPPING_ADDRESS", "FR", "x"))));
+
+    handler.endSession();
+    final String error = handler.onPaymentDataChanged(change("SHIPPING_OPTION", "US", "express"));
+    assertEquals("OTHER_ERROR", getErrorReason(error));
+    assertEquals("SHIPPING_OPTION", getErrorIntent(error));
+    assertEquals("SHIPPING_ADDRESS", getErrorIntent(PaymentDataChangeHandler.getOtherError("{")));
+  }
+
+  @Test
+  public void defaultRatesAreInTheMerchantCurrency() throws IOException, JSONException {
+    final MerchantProfile british = new MerchantProfile.Builder("uk")
+        .setMerchantName("Example UK")
+        .setGatewayParameters(Constants.PAYMENT_GATEWAY_TOKENIZATION_PARAMETERS)
+        .setCountryCode("GB")
+        .setCurrencyCode("GBP")
+        .setCatalogExchangeRate(new BigDecimal("0.79"))
+        .setAllowedCardNetworks(Constants.SUPPORTED_NETWORKS)
+        .setAllowedAuthMethods(Constants.SUPPORTED_METHODS)
+        .setShippingCountries(Collections.singletonList("GB"))
+        .build();
+    final Cart britishCart = new Cart("GBP", 0, 0);
+    britishCart.add("a", "A", Money.ofMinor(2000, "GBP"), 1);
+
+    final PaymentDataChangeHandler defaultHandler = new PaymentDataChangeHandler(null);
+    defaultHandler.startSession(britishCart, british);
+    final JSONObject update = new JSONObject(
+        defaultHandler.onPaymentDataChanged(change("INITIALIZE", "GB", "")));
+    assertEquals("GBP", update.getJSONObject("newTransactionInfo").getString("currencyCode"));
+    // 4.99 converted at 0.79, and only to the countries the merchant ships to.
+    assertUpdate(update.toString(), "23.94", "standard");
+    assertEquals("SHIPPING_ADDRESS_UNSERVICEABLE", getErrorReason(
+        defaultHandler.onPaymentDataChanged(change("INITIALIZE", "US", ""))));
+    defaultHandler.endSession();
+  }
+
+  @Test
+  public void rateChangesOnlyUpdateTheirCountry() throws IOException, JSONException {
+    handler.startSession(cart, MerchantProfile.DEFAULT);
+    final String britishUpdate = handler.onPaymentDataChanged(change("INITIALIZE", "GB", ""));
+
+    rates.update("US", Collections.singletonList(
+        new ShippingOption("standard", "Standard", "5 days", Money.ofMinor(0))));
+    assertUpdate(handler.onPaymentDataChanged(change("INITIALIZE", "US", "")), "20.00", "standard");
+    assertSame(britishUpdate, handler.onPaymentDataChanged(change("INITIALIZE", "GB", "")));
+
+    rates.remove("GB");
+    assertEquals("SHIPPING_ADDRESS_UNSERVICEABLE",
+        getErrorReason(handler.onPaymentDataChanged(change("INITIALIZE", "GB", ""))));
+  }
+}
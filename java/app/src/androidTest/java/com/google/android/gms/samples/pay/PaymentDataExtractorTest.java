@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.util.PaymentDataExtractor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+@RunWith(AndroidJUnit4.class)
+public class PaymentDataExtractorTest {
+
+  private static final String PAYMENT_DATA = "{"
+      + "\"apiVersion\":2,\"apiVersionMinor\":0,"
+      + "\"shippingAddress\":{\"name\":\"Shipping Name\",\"address1\":\"1 Main St\","
+      + "\"countryCode\":\"US\",\"postalCode\":\"94043\"},"
+      + "\"paymentMethodData\":{"
+      + "\"description\":\"Visa •••• 1234\",\"type\":\"CARD\","
+      + "\"info\":{\"cardNetwork\":\"VISA\",\"cardDetails\":\"1234\","
+      + "\"billingAddress\":{\"address3\":\"\",\"name\":\"Billing Name\",\"locality\":\"City\","
+      + "\"phoneNumber\":[\"+1\",\"555\"],\"countryCode\":\"US\"}},"
+      + "\"tokenizationData\":{\"type\":\"PAYMENT_GATEWAY\","
+      + "\"token\":\"examplePaymentMethodToken\"}},"
+      + "\"email\":\"user@example.com\"}";
+
+  @Test
+  public void extractsBillingNameAndToken() throws IOException {
+    final PaymentDataExtractor.Result result = PaymentDataExtractor.extract(PAYMENT_DATA);
+    assertEquals("Billing Name", result.getBillingName());
+    assertEquals("examplePaymentMethodToken", result.getToken());
+  }
+
+  @Test
+  public void missingFieldsAreNull() throws IOException {
+    final PaymentDataExtractor.Result result = PaymentDataExtractor.extract(
+        "{\"paymentMethodData\":{\"info\":{\"billingAddress\":[]},\"tokenizationData\":{}}}");
+    assertNull(result.getBillingName());
+    assertNull(result.getToken());
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsNonObjectResponses() throws IOException {
+    PaymentDataExtractor.extract("[]");
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.util.PaymentsJsonWriter;
+import com.google.android.gms.samples.pay.util.PaymentsUtil;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures the time and allocations needed to produce the PaymentDataRequest JSON on every tap of
+ * the Google Pay button, before and after precompiling the request.
+ *
+ * <p>Run with {@code ./gradlew connectedAndroidTest}; results are reported in the instrumentation
+ * output and in the {@code *-benchmarkData.json} file pulled from the device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PaymentDataRequestBenchmark {
+
+  private static final String PRICE = "50.20";
+
+  @Rule
+  public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  @Test
+  public void buildJsonObjectTree() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      PaymentsUtil.getPaymentDataRequest(PRICE).toString();
+    }
+  }
+
+  @Test
+  public void renderCompiledTemplate() {
+    // Compile the template outside of the measured loop, as it happens once per process.
+    PaymentsUtil.getPaymentDataRequestTemplate();
+
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      PaymentsUtil.getPaymentDataRequestJson(PRICE);
+    }
+  }
+
+  @Test
+  public void streamJsonWriter() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      PaymentsJsonWriter.getPaymentDataRequest(PRICE);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.util.PaymentsExecutors;
+import com.google.android.gms.samples.pay.util.PaymentsUtil;
+import com.google.android.gms.wallet.PaymentDataRequest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures how long a tap on the Google Pay button blocks the thread it is handled on, when the
+ * request is built and parsed right there as before, and when it is handed over to
+ * {@link PaymentsExecutors#background()}.
+ *
+ * <p>The cart changes before every tap, so the request can't be served from a cache.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PaymentTapBenchmark {
+
+  @Rule
+  public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  private final Cart cart = new Cart();
+  private int quantity;
+
+  @Before
+  public void setUp() {
+    for (int i = 0; i < 5; i++) {
+      cart.add("item" + i, "Men's Tech Shell Full-Zip #" + i, Money.ofMinor(5020 + i), 1);
+    }
+    PaymentsUtil.getPaymentDataRequestTemplate();
+  }
+
+  @Test
+  public void buildRequestOnCallingThread() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      cart.setQuantity("item0", 1 + (++quantity & 3));
+      PaymentDataRequest.fromJson(PaymentsUtil.getPaymentDataRequestJson(cart));
+    }
+  }
+
+  @Test
+  public void handOverToBackgroundExecutor() throws InterruptedException {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      cart.setQuantity("item0", 1 + (++quantity & 3));
+      final Cart snapshot = new Cart(cart);
+      final CountDownLatch done = new CountDownLatch(1);
+      PaymentsExecutors.background().execute(() -> {
+        PaymentDataRequest.fromJson(PaymentsUtil.getPaymentDataRequestJson(snapshot));
+        done.countDown();
+      });
+
+      // Only the hand-over counts, not the time until the background work is done.
+      state.pauseTiming();
+      done.await();
+      state.resumeTiming();
+    }
+  }
+}
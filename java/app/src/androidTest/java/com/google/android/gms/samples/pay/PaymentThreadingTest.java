@@ -0,0 +1,191 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.app.Application;
+import android.app.Instrumentation;
+import android.os.Build;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+
+import androidx.lifecycle.Observer;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.samples.pay.backend.LocalPaymentsBackend;
+import com.google.android.gms.samples.pay.backend.PaymentsBackend;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.viewmodel.CheckoutViewModel;
+import com.google.android.gms.samples.pay.viewmodel.CheckoutViewModel.PaymentState;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.wallet.PaymentData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that a payment session does its JSON work off the main thread.
+ *
+ * <p>The request builder and the response parser report themselves to {@link StrictMode} as slow
+ * calls, so a main thread policy detecting custom slow calls catches them if they run there.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PaymentThreadingTest {
+
+  private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+
+  private final List<Violation> violations = new CopyOnWriteArrayList<>();
+  private final AtomicBoolean backendCalledOnMainThread = new AtomicBoolean();
+  private final BlockingQueue<PaymentState> states = new LinkedBlockingQueue<>();
+  private final Observer<PaymentState> observer = states::add;
+
+  private StrictMode.ThreadPolicy previousPolicy;
+  private CheckoutViewModel model;
+
+  @Before
+  public void setUp() {
+    // StrictMode penalty listeners need API level 28.
+    assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.P);
+
+    final LocalPaymentsBackend localBackend = new LocalPaymentsBackend.Builder().build();
+    final PaymentsBackend backend = new PaymentsBackend() {
+      @Override
+      public Task<Boolean> isReadyToPay(String isReadyToPayRequestJson) {
+        return localBackend.isReadyToPay(isReadyToPayRequestJson);
+      }
+
+      @Override
+      public Task<PaymentData> loadPaymentData(String paymentDataRequestJson) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+          backendCalledOnMainThread.set(true);
+        }
+        return localBackend.loadPaymentData(paymentDataRequestJson);
+      }
+    };
+
+    instrumentation.runOnMainSync(() -> {
+      previousPolicy = StrictMode.getThreadPolicy();
+      StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+          .detectCustomSlowCalls()
+          .penaltyListener(Runnable::run, violations::add)
+          .build());
+
+      model = new CheckoutViewModel(
+          (Application) instrumentation.getTargetContext().getApplicationContext(), backend);
+      model.paymentState.observeForever(observer);
+    });
+    states.clear();
+  }
+
+  /**
+   * Selects a merchant and waits until the model has resolved it.
+   *
+   * @return whether the merchant could be resolved.
+   */
+  private boolean selectMerchant(String merchantId) throws InterruptedException {
+    final BlockingQueue<Boolean> unavailable = new LinkedBlockingQueue<>();
+    final Observer<Boolean> unavailableObserver = unavailable::add;
+    instrumentation.runOnMainSync(() -> {
+      model.selectMerchant(merchantId);
+      // The outcome is posted to the main thread, so only the current value is received here.
+      model.merchantUnavailable.observeForever(unavailableObserver);
+      unavailable.clear();
+    });
+    try {
+      final Boolean result = unavailable.poll(5, TimeUnit.SECONDS);
+      assertNotNull("Timed out resolving " + merchantId, result);
+      return !result;
+    } finally {
+      instrumentation.runOnMainSync(
+          () -> model.merchantUnavailable.removeObserver(unavailableObserver));
+    }
+  }
+
+  @After
+  public void tearDown() {
+    if (model != null) {
+      instrumentation.runOnMainSync(() -> {
+        model.paymentState.removeObserver(observer);
+        StrictMode.setThreadPolicy(previousPolicy);
+      });
+    }
+  }
+
+  @Test
+  public void paymentSessionRunsJsonWorkInTheBackground() throws InterruptedException {
+    assertTrue(selectMerchant(null));
+    instrumentation.runOnMainSync(() -> {
+      model.getCart().add("ts_10_11019a", "Men's Tech Shell Full-Zip", Money.ofMinor(5020), 1);
+      assertTrue(model.requestPayment());
+    });
+    awaitState(PaymentState.READY);
+
+    instrumentation.runOnMainSync(() -> {
+      final Task<PaymentData> task = model.takePaymentDataTask();
+      assertNotNull(task);
+      model.onPaymentResult(CommonStatusCodes.SUCCESS, task.getResult());
+    });
+    awaitState(PaymentState.COMPLETED);
+
+    final AtomicReference<String> billingName = new AtomicReference<>();
+    instrumentation.runOnMainSync(() -> billingName.set(model.takeCompletedPayment()));
+    assertEquals("Jane Doe", billingName.get());
+
+    assertTrue(violations.toString(), violations.isEmpty());
+    assertFalse(backendCalledOnMainThread.get());
+  }
+
+  @Test
+  public void unknownMerchantsCantBePaid() throws InterruptedException {
+    assertFalse(selectMerchant("missing"));
+    instrumentation.runOnMainSync(() -> {
+      assertNull(model.paymentConfiguration.getValue());
+      assertNull(model.getCart());
+      assertFalse(model.requestPayment());
+    });
+    assertTrue(states.isEmpty());
+  }
+
+  private void awaitState(PaymentState expected) throws InterruptedException {
+    while (true) {
+      final PaymentState state = states.poll(5, TimeUnit.SECONDS);
+      assertNotNull("Timed out waiting for " + expected, state);
+      if (state == expected) {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.samples.pay.metrics.LatencyHistogram;
+import com.google.android.gms.samples.pay.metrics.PaymentsMetrics;
+import com.google.android.gms.samples.pay.metrics.PaymentsMetrics.Interaction;
+import com.google.android.gms.samples.pay.metrics.StripedCounter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class PaymentsMetricsTest {
+
+  @Test
+  public void percentilesAreWithinBucketPrecision() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (long micros = 1; micros <= 10_000; micros++) {
+      histogram.record(micros * 1_000);
+    }
+
+    final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(10_000, snapshot.getCount());
+    assertEquals(10_000_000, snapshot.getMaxNanos());
+    assertWithin(5_000_000, snapshot.getPercentileNanos(50));
+    assertWithin(9_900_000, snapshot.getPercentileNanos(99));
+    assertWithin(5_000_500, snapshot.getMeanNanos());
+  }
+
+  @Test
+  public void concurrentRecordingLosesNothing() throws InterruptedException {
+    final PaymentsMetrics metrics = new PaymentsMetrics();
+    final StripedCounter counter = new StripedCounter(2);
+    final Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          metrics.record(Interaction.IS_READY_TO_PAY, System.nanoTime() - i,
+              i % 2 == 0 ? CommonStatusCodes.SUCCESS : CommonStatusCodes.CANCELED);
+          counter.increment(i % 2);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    final PaymentsMetrics.Snapshot snapshot = metrics.snapshotAndReset();
+    assertEquals(40_000, snapshot.getLatency(Interaction.IS_READY_TO_PAY).getCount());
+    assertEquals(20_000,
+        snapshot.getOutcomeCount(Interaction.IS_READY_TO_PAY, CommonStatusCodes.SUCCESS));
+    assertEquals(20_000,
+        snapshot.getOutcomeCount(Interaction.IS_READY_TO_PAY, CommonStatusCodes.CANCELED));
+    assertEquals(20_000, counter.get(0));
+    assertEquals(20_000, counter.get(1));
+
+    // Everything was reported by the previous snapshot.
+    assertEquals(0, metrics.snapshot().getLatency(Interaction.IS_READY_TO_PAY).getCount());
+  }
+
+  @Test
+  public void unknownStatusCodesAreGrouped() {
+    final PaymentsMetrics metrics = new PaymentsMetrics();
+    metrics.recordOutcome(Interaction.LOAD_PAYMENT_DATA, 405);
+    metrics.recordOutcome(Interaction.LOAD_PAYMENT_DATA, -1);
+
+    assertEquals(2, metrics.snapshot().getOtherOutcomeCount(Interaction.LOAD_PAYMENT_DATA));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("Expected about " + expected + " but was " + actual,
+        Math.abs(actual - expected) <= expected / 8);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.util.PaymentConfiguration;
+import com.google.android.gms.samples.pay.util.PaymentsJsonWriter;
+import com.google.android.gms.samples.pay.util.PaymentsUtil;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Iterator;
+
+/**
+ * Checks the optimized request paths in {@link PaymentsUtil} against the {@code JSONObject}
+ * builders they replace.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PaymentsUtilTest {
+
+  private static final String[] PRICES = {
+      "50.2", "0.00", "1234567.89", "", "\"quoted\\/price\"", "tab\tnew\nline\u0001"
+  };
+
+  @Test
+  public void paymentDataRequestTemplateIsByteIdentical() {
+    for (String price : PRICES) {
+      assertEquals(
+          PaymentsUtil.getPaymentDataRequest(price).toString(),
+          PaymentsUtil.getPaymentDataRequestJson(price));
+    }
+  }
+
+  @Test
+  public void cartPaymentDataRequestIsByteIdentical() {
+    final Cart cart = new Cart();
+    assertEquals(
+        PaymentsUtil.getPaymentDataRequest(cart).toString(),
+        PaymentsUtil.getPaymentDataRequestJson(cart));
+
+    for (int i = 0; i < PRICES.length; i++) {
+      cart.add("item" + i, PRICES[i], Money.ofMinor(1999 + i), i + 1);
+    }
+    assertEquals(
+        PaymentsUtil.getPaymentDataRequest(cart).toString(),
+        PaymentsUtil.getPaymentDataRequestJson(cart));
+  }
+
+  @Test
+  public void shippingIsShownAsShippingOption() throws JSONException {
+    final Cart cart = new Cart();
+    cart.add("item", "Item", Money.ofMinor(1999), 1);
+    final JSONArray displayItems = new JSONObject(PaymentsUtil.getPaymentDataRequestJson(cart))
+        .getJSONObject("transactionInfo").getJSONArray("displayItems");
+    final JSONObject shipping = displayItems.getJSONObject(displayItems.length() - 1);
+    assertEquals("SHIPPING_OPTION", shipping.getString("type"));
+    assertEquals(cart.getShipping().toDecimalString(), shipping.getString("price"));
+  }
+
+  @Test
+  public void streamedIsReadyToPayRequestIsEquivalent() throws JSONException {
+    assertJsonEquivalent(
+        PaymentsUtil.getIsReadyToPayRequest(),
+        new JSONObject(PaymentsJsonWriter.getIsReadyToPayRequest()));
+  }
+
+  @Test
+  public void streamedAllowedPaymentMethodsAreEquivalent() throws JSONException {
+    assertJsonEquivalent(
+        PaymentsUtil.getAllowedPaymentMethods(),
+        new JSONArray(PaymentsJsonWriter.getAllowedPaymentMethods()));
+  }
+
+  @Test
+  public void sharedConfigurationIsEquivalent() throws JSONException {
+    final PaymentConfiguration configuration = PaymentConfiguration.getInstance();
+    assertEquals(
+        PaymentsUtil.getIsReadyToPayRequest().toString(),
+        configuration.getIsReadyToPayRequest());
+    assertEquals(
+        PaymentsUtil.getIsReadyToPayRequest().getJSONArray("allowedPaymentMethods").toString(),
+        configuration.getBaseAllowedPaymentMethods());
+    assertEquals(
+        PaymentsUtil.getAllowedPaymentMethods().toString(),
+        configuration.getAllowedPaymentMethods());
+  }
+
+  @Test
+  public void streamedPaymentDataRequestIsEquivalent() throws JSONException {
+    for (String price : PRICES) {
+      assertJsonEquivalent(
+          PaymentsUtil.getPaymentDataRequest(price),
+          new JSONObject(PaymentsJsonWriter.getPaymentDataRequest(price)));
+    }
+  }
+
+  /**
+   * Compares two JSON values structurally. Object keys may appear in any order.
+   */
+  private static void assertJsonEquivalent(Object expected, Object actual) throws JSONException {
+    if (expected instanceof JSONObject) {
+      assertTrue("Expected an object, got " + actual, actual instanceof JSONObject);
+      final JSONObject expectedObject = (JSONObject) expected;
+      final JSONObject actualObject = (JSONObject) actual;
+      assertEquals(expectedObject.length(), actualObject.length());
+      for (Iterator<String> keys = expectedObject.keys(); keys.hasNext(); ) {
+        final String key = keys.next();
+        assertTrue("Missing key " + key, actualObject.has(key));
+        assertJsonEquivalent(expectedObject.get(key), actualObject.get(key));
+      }
+    } else if (expected instanceof JSONArray) {
+      assertTrue("Expected an array, got " + actual, actual instanceof JSONArray);
+      final JSONArray expectedArray = (JSONArray) expected;
+      final JSONArray actualArray = (JSONArray) actual;
+      assertEquals(expectedArray.length(), actualArray.length());
+      for (int i = 0; i < expectedArray.length(); i++) {
+        assertJsonEquivalent(expectedArray.get(i), actualArray.get(i));
+      }
+    } else {
+      assertEquals(expected, actual);
+    }
+  }
+}
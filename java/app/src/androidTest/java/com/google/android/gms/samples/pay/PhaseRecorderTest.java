@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.metrics.PhaseRecorder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class PhaseRecorderTest {
+
+  @Test
+  public void disabledRecorderRecordsNothing() {
+    final PhaseRecorder recorder = new PhaseRecorder(8, false);
+    final int span = recorder.begin(PhaseRecorder.INITIALIZE_UI);
+    recorder.end(span);
+    recorder.mark(PhaseRecorder.PAY_BUTTON_VISIBLE);
+
+    assertEquals(PhaseRecorder.NO_SPAN, span);
+    assertTrue(recorder.getPhases().isEmpty());
+  }
+
+  @Test
+  public void phasesAreRecordedInOrder() {
+    final PhaseRecorder recorder = new PhaseRecorder(8, false);
+    recorder.setOriginNanos(System.nanoTime());
+    recorder.setEnabled(true);
+
+    final int outer = recorder.begin(PhaseRecorder.INITIALIZE_UI);
+    final int inner = recorder.begin(PhaseRecorder.PAY_BUTTON_INITIALIZE);
+    recorder.end(inner);
+    recorder.end(outer);
+    final int async = recorder.beginAsync(PhaseRecorder.IS_READY_TO_PAY);
+    recorder.mark(PhaseRecorder.PAY_BUTTON_VISIBLE);
+
+    final List<PhaseRecorder.Phase> phases = recorder.getPhases();
+    assertEquals(4, phases.size());
+    final PhaseRecorder.Phase initializeUi = phases.get(0);
+    final PhaseRecorder.Phase buttonInitialize = phases.get(1);
+    assertEquals(PhaseRecorder.INITIALIZE_UI, initializeUi.getName());
+    assertTrue(initializeUi.getStartNanos() >= 0);
+    assertTrue(buttonInitialize.getStartNanos() >= initializeUi.getStartNanos());
+    assertTrue(buttonInitialize.getEndNanos() <= initializeUi.getEndNanos());
+
+    assertFalse(recorder.getPhase(PhaseRecorder.IS_READY_TO_PAY).isFinished());
+    recorder.end(async);
+    final PhaseRecorder.Phase isReadyToPay = recorder.getPhase(PhaseRecorder.IS_READY_TO_PAY);
+    assertNotNull(isReadyToPay);
+    assertTrue(isReadyToPay.getDurationNanos() >= 0);
+    assertEquals(0, recorder.getPhase(PhaseRecorder.PAY_BUTTON_VISIBLE).getDurationNanos());
+    assertNull(recorder.getPhase(PhaseRecorder.FIRST_FRAME));
+  }
+
+  @Test
+  public void spansOpenedBeforeResetAreIgnored() {
+    final PhaseRecorder recorder = new PhaseRecorder(8, false);
+    recorder.setEnabled(true);
+
+    final int stale = recorder.beginAsync(PhaseRecorder.IS_READY_TO_PAY);
+    recorder.reset();
+    final int span = recorder.beginAsync(PhaseRecorder.FIRST_FRAME);
+    recorder.end(stale);
+
+    assertFalse(recorder.getPhase(PhaseRecorder.FIRST_FRAME).isFinished());
+    recorder.end(span);
+    assertTrue(recorder.getPhase(PhaseRecorder.FIRST_FRAME).isFinished());
+    assertEquals(1, recorder.getPhases().size());
+  }
+
+  @Test
+  public void fullRecorderDropsPhases() {
+    final PhaseRecorder recorder = new PhaseRecorder(1, false);
+    recorder.setEnabled(true);
+
+    recorder.end(recorder.begin(PhaseRecorder.INITIALIZE_UI));
+    final int span = recorder.begin(PhaseRecorder.PAY_BUTTON_INITIALIZE);
+    recorder.end(span);
+
+    assertEquals(PhaseRecorder.NO_SPAN, span);
+    assertEquals(1, recorder.getPhases().size());
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.samples.pay.merchant.MerchantProfile;
+import com.google.android.gms.samples.pay.merchant.MerchantRegistry;
+import com.google.android.gms.samples.pay.util.JsonStringWriter;
+import com.google.android.gms.samples.pay.util.PaymentConfiguration;
+import com.google.android.gms.samples.pay.util.PaymentsJsonWriter;
+import com.google.android.gms.samples.pay.util.PaymentsUtil;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Collections;
+
+/**
+ * Checks that the requests generated at build time from {@code res/raw/merchants.json} are the
+ * same as the ones built at runtime.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PrecompiledPaymentRequestsTest {
+
+  private static String readMerchants() throws IOException {
+    final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    try (InputStream input = context.getResources().openRawResource(R.raw.merchants)) {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      for (int read; (read = input.read(buffer)) > 0; ) {
+        output.write(buffer, 0, read);
+      }
+      return output.toString("UTF-8");
+    }
+  }
+
+  @Test
+  public void defaultMerchantMatchesConstants() throws JSONException {
+    final PaymentConfiguration configuration = PaymentConfiguration.getInstance();
+
+    // Constants configure the same payment methods as a merchant of the file.
+    assertTrue(configuration.isPrecompiled());
+    assertEquals(PaymentsUtil.getAllowedPaymentMethods().toString(),
+        configuration.getAllowedPaymentMethods());
+    assertEquals(PaymentsUtil.getIsReadyToPayRequest().toString(),
+        configuration.getIsReadyToPayRequest());
+    assertEquals(
+        PaymentsUtil.getIsReadyToPayRequest().getJSONArray("allowedPaymentMethods").toString(),
+        configuration.getBaseAllowedPaymentMethods());
+  }
+
+  @Test
+  public void everyMerchantMatchesRuntimeRequests() throws IOException, JSONException {
+    final String merchants = readMerchants();
+    final MerchantRegistry registry = MerchantRegistry.parse(new StringReader(merchants));
+    final JSONArray profiles = new JSONObject(merchants).getJSONArray("merchants");
+
+    for (int i = 0; i < profiles.length(); i++) {
+      final PaymentConfiguration configuration =
+          registry.get(profiles.getJSONObject(i).getString("id"));
+      final MerchantProfile profile = configuration.getProfile();
+      final String baseAllowedPaymentMethods = PaymentsJsonWriter.writeBaseAllowedPaymentMethods(
+          new JsonStringWriter(), profile).toString();
+
+      assertTrue(profile.getId(), configuration.isPrecompiled());
+      assertEquals(baseAllowedPaymentMethods, configuration.getBaseAllowedPaymentMethods());
+      assertEquals(
+          PaymentsJsonWriter.writeAllowedPaymentMethods(new JsonStringWriter(), profile)
+              .toString(),
+          configuration.getAllowedPaymentMethods());
+
+      final JSONObject isReadyToPayRequest =
+          new JSONObject(configuration.getIsReadyToPayRequest());
+      assertEquals(2, isReadyToPayRequest.getInt("apiVersion"));
+      assertEquals(0, isReadyToPayRequest.getInt("apiVersionMinor"));
+      assertEquals(baseAllowedPaymentMethods,
+          isReadyToPayRequest.getJSONArray("allowedPaymentMethods").toString());
+    }
+  }
+
+  @Test
+  public void otherMerchantsAreSerializedAtRuntime() {
+    final MerchantProfile profile = new MerchantProfile.Builder("other")
+        .setMerchantName(Constants.MERCHANT_NAME)
+        .setGatewayParameters(Collections.singletonMap("gateway", "other"))
+        .setCountryCode(Constants.COUNTRY_CODE)
+        .setCurrencyCode(Constants.CURRENCY_CODE)
+        .setAllowedCardNetworks(Constants.SUPPORTED_NETWORKS)
+        .setAllowedAuthMethods(Constants.SUPPORTED_METHODS)
+        .setShippingCountries(Constants.SHIPPING_SUPPORTED_COUNTRIES)
+        .build();
+    final PaymentConfiguration configuration = PaymentConfiguration.of(profile);
+
+    assertFalse(configuration.isPrecompiled());
+    assertEquals(
+        PaymentsJsonWriter.writeAllowedPaymentMethods(new JsonStringWriter(), profile).toString(),
+        configuration.getAllowedPaymentMethods());
+  }
+}
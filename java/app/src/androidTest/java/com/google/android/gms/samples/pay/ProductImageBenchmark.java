@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.BitmapFactory;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.samples.pay.image.ImageLoader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures the time and allocations needed to decode the product image of the checkout screen,
+ * at full resolution and at the size of the view that displays it.
+ *
+ * <p>Run with {@code ./gradlew connectedAndroidTest}; results are reported in the instrumentation
+ * output and in the {@code *-benchmarkData.json} file pulled from the device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductImageBenchmark {
+
+  // Height of the product image in activity_checkout.xml.
+  private static final int IMAGE_HEIGHT_DP = 350;
+
+  @Rule
+  public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  @Test
+  public void decodeFullResolution() {
+    final Resources resources = getContext().getResources();
+
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      BitmapFactory.decodeResource(resources, R.drawable.ts_10_11019a);
+    }
+  }
+
+  @Test
+  public void decodeAtViewSize() {
+    final Context context = getContext();
+    final DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+    final int height = (int) TypedValue.applyDimension(
+        TypedValue.COMPLEX_UNIT_DIP, IMAGE_HEIGHT_DP, metrics);
+    final ImageLoader loader = ImageLoader.getInstance(context);
+
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      loader.decode(R.drawable.ts_10_11019a, metrics.widthPixels, height);
+    }
+  }
+
+  private static Context getContext() {
+    return InstrumentationRegistry.getInstrumentation().getTargetContext();
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.samples.pay.activity.ProductListActivity;
+import com.google.android.gms.samples.pay.metrics.LatencyHistogram;
+import com.google.android.gms.samples.pay.viewmodel.ProductListViewModel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures frame times while scrolling the product list through a synthetic catalog of 100,000
+ * products, page after page.
+ *
+ * <p>The list is scrolled by a fixed distance on every frame, so every frame binds new rows and
+ * regularly loads and diffs a new page. The frame time percentiles and the number of frames that
+ * took more than one and a half refresh periods are reported in the instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductListScrollBenchmark {
+
+  private static final String TAG = "ProductListScroll";
+
+  private static final int SYNTHETIC_SIZE = 100_000;
+  private static final int FRAMES = 1200;
+  // About two rows per frame.
+  private static final int SCROLL_DP_PER_FRAME = 192;
+  private static final long LOAD_TIMEOUT_MILLIS = 10_000;
+  private static final long SCROLL_TIMEOUT_SECONDS = 120;
+
+  @Test
+  public void scrollSyntheticCatalog() throws InterruptedException {
+    final Intent intent = new Intent(
+        InstrumentationRegistry.getInstrumentation().getTargetContext(), ProductListActivity.class)
+        .putExtra(ProductListActivity.EXTRA_SYNTHETIC_SIZE, SYNTHETIC_SIZE);
+
+    try (ActivityScenario<ProductListActivity> scenario = ActivityScenario.launch(intent)) {
+      final RecyclerView[] list = new RecyclerView[1];
+      final float[] refreshRate = new float[1];
+      scenario.onActivity(activity -> {
+        list[0] = activity.findViewById(R.id.productList);
+        refreshRate[0] = getRefreshRate(activity);
+      });
+      waitForProducts(scenario, list[0]);
+
+      final LatencyHistogram frameTimes = new LatencyHistogram();
+      final long jankThresholdNanos = (long) (1.5e9 / refreshRate[0]);
+      final int[] jankyFrames = new int[1];
+      final CountDownLatch done = new CountDownLatch(1);
+      scenario.onActivity(activity -> {
+        final int scrollPx = Math.round(
+            SCROLL_DP_PER_FRAME * activity.getResources().getDisplayMetrics().density);
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+          private long lastFrameNanos;
+          private int frames;
+
+          @Override
+          public void doFrame(long frameTimeNanos) {
+            if (lastFrameNanos != 0) {
+              final long frameNanos = frameTimeNanos - lastFrameNanos;
+              frameTimes.record(frameNanos);
+              if (frameNanos > jankThresholdNanos) {
+                jankyFrames[0]++;
+              }
+            }
+            lastFrameNanos = frameTimeNanos;
+            if (++frames > FRAMES) {
+              done.countDown();
+              return;
+            }
+            list[0].scrollBy(0, scrollPx);
+            Choreographer.getInstance().postFrameCallback(this);
+          }
+        });
+      });
+      assertTrue("Scrolling timed out", done.await(SCROLL_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+      final int[] loaded = new int[1];
+      scenario.onActivity(activity -> loaded[0] = list[0].getAdapter().getItemCount());
+      report(frameTimes.snapshot(), jankyFrames[0], loaded[0]);
+      assertTrue("Only " + loaded[0] + " products loaded",
+          loaded[0] > ProductListViewModel.PAGE_SIZE);
+    }
+  }
+
+  private static void waitForProducts(
+      ActivityScenario<ProductListActivity> scenario, RecyclerView list)
+      throws InterruptedException {
+    final long deadline = SystemClock.uptimeMillis() + LOAD_TIMEOUT_MILLIS;
+    final int[] count = new int[1];
+    while (SystemClock.uptimeMillis() < deadline) {
+      scenario.onActivity(activity -> count[0] = list.getAdapter().getItemCount());
+      if (count[0] > 0) {
+        return;
+      }
+      Thread.sleep(50);
+    }
+    throw new AssertionError("The catalog wasn't shown in " + LOAD_TIMEOUT_MILLIS + " ms");
+  }
+
+  @SuppressWarnings("deprecation")
+  private static float getRefreshRate(Activity activity) {
+    return activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+  }
+
+  private static void report(LatencyHistogram.Snapshot frameTimes, int jankyFrames, int loaded) {
+    final Bundle status = new Bundle();
+    status.putLong("frames", frameTimes.getCount());
+    status.putLong("frameTimeP50Micros", toMicros(frameTimes.getPercentileNanos(50)));
+    status.putLong("frameTimeP90Micros", toMicros(frameTimes.getPercentileNanos(90)));
+    status.putLong("frameTimeP99Micros", toMicros(frameTimes.getPercentileNanos(99)));
+    status.putLong("frameTimeMaxMicros", toMicros(frameTimes.getMaxNanos()));
+    status.putInt("jankyFrames", jankyFrames);
+    status.putInt("productsLoaded", loaded);
+    Log.i(TAG, status.toString());
+    InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+  }
+
+  private static long toMicros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.samples.pay.util.ReadinessCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks that the answers of different merchants are cached side by side.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReadinessCacheTest {
+
+  private ReadinessCache cache;
+
+  @Before
+  public void setUp() {
+    final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    context.getSharedPreferences("google_pay_readiness", Context.MODE_PRIVATE)
+        .edit().clear().commit();
+    cache = new ReadinessCache(context, ReadinessCache.DEFAULT_TTL_MILLIS);
+  }
+
+  @Test
+  public void requestsHaveTheirOwnEntries() {
+    cache.put("{\"merchant\":1}", true);
+    cache.put("{\"merchant\":2}", false);
+    assertEquals(Boolean.TRUE, cache.get("{\"merchant\":1}"));
+    assertEquals(Boolean.FALSE, cache.get("{\"merchant\":2}"));
+
+    cache.invalidate("{\"merchant\":2}");
+    assertNull(cache.get("{\"merchant\":2}"));
+    assertEquals(Boolean.TRUE, cache.get("{\"merchant\":1}"));
+  }
+
+  @Test
+  public void entriesAreBounded() {
+    for (int i = 0; i <= ReadinessCache.MAX_ENTRIES; i++) {
+      cache.put("{\"merchant\":" + i + "}", true);
+    }
+    int cached = 0;
+    for (int i = 0; i <= ReadinessCache.MAX_ENTRIES; i++) {
+      if (cache.get("{\"merchant\":" + i + "}") != null) {
+        cached++;
+      }
+    }
+    assertEquals(ReadinessCache.MAX_ENTRIES, cached);
+    assertTrue(cache.get("{\"merchant\":" + ReadinessCache.MAX_ENTRIES + "}"));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.samples.pay.backend.LocalPaymentsBackend;
+import com.google.android.gms.samples.pay.backend.ReadinessCoordinator;
+import com.google.android.gms.tasks.Task;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class ReadinessCoordinatorTest {
+
+  @Test
+  public void concurrentRequestsShareOneCall() throws InterruptedException {
+    final LocalPaymentsBackend backend = new LocalPaymentsBackend.Builder()
+        .setReadinessLatency(LocalPaymentsBackend.fixedLatency(100))
+        .build();
+    final ReadinessCoordinator coordinator = new ReadinessCoordinator(backend, 60_000);
+
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch completed = new CountDownLatch(threads);
+    for (int i = 0; i < threads; i++) {
+      new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        coordinator.isReadyToPay("{}")
+            .addOnCompleteListener(Runnable::run, task -> completed.countDown());
+      }).start();
+    }
+    start.countDown();
+    assertTrue(completed.await(5, TimeUnit.SECONDS));
+
+    assertEquals(1, backend.getReadinessCallCount());
+    assertEquals(1, coordinator.getBackendCallCount());
+    assertEquals(threads - 1, coordinator.getCoalescedCallCount());
+
+    // A late caller gets the completed answer without another call.
+    final Task<Boolean> late = coordinator.isReadyToPay("{}");
+    assertTrue(late.isSuccessful());
+    assertTrue(late.getResult());
+    assertEquals(1, backend.getReadinessCallCount());
+    assertEquals(1, coordinator.getCachedCallCount());
+    assertEquals(threads, coordinator.getSavedCallCount());
+
+    // Different requests are not coalesced.
+    coordinator.isReadyToPay("{\"apiVersion\":2}");
+    assertEquals(2, backend.getReadinessCallCount());
+  }
+
+  @Test
+  public void failuresAreRetried() {
+    final LocalPaymentsBackend backend = new LocalPaymentsBackend.Builder()
+        .addReadinessFailure(CommonStatusCodes.INTERNAL_ERROR, 1)
+        .build();
+    final ReadinessCoordinator coordinator = new ReadinessCoordinator(backend, 60_000);
+
+    assertFalse(coordinator.isReadyToPay("{}").isSuccessful());
+    assertFalse(coordinator.isReadyToPay("{}").isSuccessful());
+    assertEquals(2, backend.getReadinessCallCount());
+    assertEquals(0, coordinator.getSavedCallCount());
+  }
+
+  @Test
+  public void answersExpireAndCanBeInvalidated() {
+    final LocalPaymentsBackend backend = new LocalPaymentsBackend.Builder().build();
+
+    final ReadinessCoordinator noReuse = new ReadinessCoordinator(backend, -1);
+    noReuse.isReadyToPay("{}");
+    noReuse.isReadyToPay("{}");
+    assertEquals(2, backend.getReadinessCallCount());
+
+    final ReadinessCoordinator coordinator = new ReadinessCoordinator(backend, 60_000);
+    final Task<Boolean> first = coordinator.isReadyToPay("{}");
+    assertSame(first, coordinator.isReadyToPay("{}"));
+    coordinator.invalidate();
+    coordinator.isReadyToPay("{}");
+    assertEquals(4, backend.getReadinessCallCount());
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.samples.pay.data.CatalogRepository;
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+import com.google.android.gms.samples.pay.search.SearchIndex;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures search queries over a synthetic catalog of 100,000 products, in which every product
+ * shares its words with thousands of others, and the cost of updating one product of it. Queries
+ * are measured both on a new index, which merges the postings of the prefix, and once the merge
+ * is kept with the index.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchIndexBenchmark {
+
+  private static final int SYNTHETIC_SIZE = 100_000;
+  private static final int LIMIT = 200;
+
+  private static ProductCatalog catalog;
+  private static SearchIndex.Builder builder;
+  private static SearchIndex index;
+
+  @Rule
+  public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+  @BeforeClass
+  public static void buildIndex() throws Exception {
+    final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    try (Reader reader = new InputStreamReader(
+        context.getResources().openRawResource(R.raw.tshirts), StandardCharsets.UTF_8)) {
+      catalog = ProductCatalog.repeat(
+          CatalogRepository.parse(reader, imageName -> 0), SYNTHETIC_SIZE);
+    }
+    builder = new SearchIndex.Builder();
+    for (int i = 0; i < catalog.size(); i++) {
+      builder.put(i, catalog.getTitle(i), catalog.getCategory(i), catalog.getDescription(i));
+    }
+    index = builder.build();
+  }
+
+  @Test
+  public void searchFirstLetter() {
+    // Merged once, then served from the ranked head of the merged postings.
+    index.search("t", LIMIT);
+
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      index.search("t", LIMIT);
+    }
+  }
+
+  @Test
+  public void searchFirstLetterCold() {
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      // A new version of the index, which hasn't merged any prefix yet.
+      state.pauseTiming();
+      final SearchIndex fresh = builder.build();
+      state.resumeTiming();
+      fresh.search("t", LIMIT);
+    }
+  }
+
+  @Test
+  public void searchSeveralTerms() {
+    index.search("organic cotton tee", LIMIT);
+
+    final BenchmarkState state = benchmarkRule.getState();
+    while (state.keepRunning()) {
+      index.search("organic cotton tee", LIMIT);
+    }
+  }
+
+  @Test
+  public void updateOneProduct() {
+    final BenchmarkState state = benchmarkRule.getState();
+    int version = 0;
+    while (state.keepRunning()) {
+      builder.put(0, catalog.getTitle(0) + " v" + (++version), catalog.getCategory(0),
+          catalog.getDescription(0));
+      builder.build();
+    }
+  }
+}
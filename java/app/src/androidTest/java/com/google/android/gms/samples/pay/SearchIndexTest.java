@@ -0,0 +1,97 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.search.SearchIndex;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks the text analysis, ranking and incremental updates of {@link SearchIndex}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchIndexTest {
+
+  // A description escaped twice, as found in the bundled catalog.
+  private static final String ESCAPED_DESCRIPTION = "Sometimes even the subtlest of actions "
+      + "can make a big difference. This tee highlights all of the icons &amp;amp; features "
+      + "available in your Gmail inbox!&lt;div&gt;&lt;br&gt;&lt;/div&gt;&lt;div&gt;Fabric: "
+      + "100% cotton&lt;/div&gt;";
+
+  private static SearchIndex.Builder createBuilder() {
+    final SearchIndex.Builder builder = new SearchIndex.Builder();
+    builder.put(0, "YouTube Organic Cotton T-Shirt - Grey", "mens_tshirts",
+        "Stay casual and cool in this 100% organic pre-shrunk cotton T-shirt.");
+    builder.put(1, "Inbox - Subtle Actions T-Shirt", "mens_tshirts", ESCAPED_DESCRIPTION);
+    builder.put(2, "Google Cotton Hoodie", "hoodies", "A warm hoodie.");
+    return builder;
+  }
+
+  @Test
+  public void markupIsNotIndexed() {
+    final SearchIndex index = createBuilder().build();
+
+    assertEquals(0, index.search("div", 10).length);
+    assertEquals(0, index.search("amp", 10).length);
+    assertEquals(0, index.search("lt", 10).length);
+    assertArrayEquals(new int[] {1}, index.search("fabric", 10));
+    assertArrayEquals(new int[] {1}, index.search("GMAIL inbox", 10));
+  }
+
+  @Test
+  public void resultsAreRankedByField() {
+    final SearchIndex index = createBuilder().build();
+
+    // The last term is a prefix: "cot" matches cotton in titles first, then in descriptions.
+    assertArrayEquals(new int[] {0, 2, 1}, index.search("cot", 10));
+    assertArrayEquals(new int[] {0, 2}, index.search("cot", 2));
+    // Whole terms rank above longer terms sharing the prefix.
+    assertArrayEquals(new int[] {2}, index.search("hoodie", 10));
+    // Every term must match.
+    assertArrayEquals(new int[] {0}, index.search("organic cotton t", 10));
+    assertEquals(0, index.search("organ hoodie", 10).length);
+    assertArrayEquals(new int[] {0, 1}, index.search("tshirts", 10));
+  }
+
+  @Test
+  public void updatesAreIncremental() {
+    final SearchIndex.Builder builder = createBuilder();
+    final SearchIndex before = builder.build();
+
+    assertFalse(builder.put(2, "Google Cotton Hoodie", "hoodies", "A warm hoodie."));
+    assertTrue(builder.put(2, "Google Wool Hoodie", "hoodies", "A warm hoodie."));
+    assertTrue(builder.remove(0));
+    final SearchIndex after = builder.build();
+
+    // Earlier snapshots are unaffected.
+    assertArrayEquals(new int[] {0, 2, 1}, before.search("cotton", 10));
+    assertArrayEquals(new int[] {1}, after.search("cotton", 10));
+    assertArrayEquals(new int[] {2}, after.search("wool", 10));
+    assertEquals(0, after.search("youtube", 10).length);
+
+    assertTrue(builder.removeFrom(1));
+    assertEquals(0, builder.build().getTermCount());
+  }
+}
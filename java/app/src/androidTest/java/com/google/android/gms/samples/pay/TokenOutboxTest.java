@@ -0,0 +1,333 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.samples.pay.outbox.HttpTokenSender;
+import com.google.android.gms.samples.pay.outbox.SubmissionClient;
+import com.google.android.gms.samples.pay.outbox.TokenOutbox;
+import com.google.android.gms.tasks.Task;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+@RunWith(AndroidJUnit4.class)
+public class TokenOutboxTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private StandInServer server;
+  private File directory;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StandInServer();
+    directory = folder.newFolder("outbox");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.close();
+  }
+
+  private TokenOutbox.Builder newOutbox() {
+    final SubmissionClient client = new SubmissionClient.Builder(server.getUrl())
+        .setTimeoutMillis(5_000)
+        .build();
+    return new TokenOutbox.Builder(directory, new HttpTokenSender(client))
+        .setBackoff(10, 50);
+  }
+
+  @Test
+  public void concurrentTokensAreDeliveredAndCompacted() throws Exception {
+    final TokenOutbox outbox = newOutbox()
+        .setBatchSize(20)
+        .setCompactionThresholdBytes(1024)
+        .build();
+
+    final int threads = 8;
+    final int tokensPerThread = 50;
+    final List<Thread> producers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final int producer = t;
+      final Thread thread = new Thread(() -> {
+        for (int i = 0; i < tokensPerThread; i++) {
+          outbox.enqueue("token-" + producer + "-" + i);
+        }
+      });
+      thread.start();
+      producers.add(thread);
+    }
+    for (Thread thread : producers) {
+      thread.join();
+    }
+
+    final int total = threads * tokensPerThread;
+    awaitUntil(() -> outbox.getDeliveredCount() == total);
+    assertEquals(total, server.tokens.size());
+    assertEquals(0, outbox.getWaitingCount());
+    // Batches were compressed and sent over a kept-alive connection.
+    assertTrue(server.compressedRequests.get() > 0);
+    assertTrue(server.connections.get() < server.requests.get());
+    outbox.close();
+
+    // Only the records written since the last compaction are left.
+    assertTrue(new File(directory, "outbox.log").length() < 2048);
+  }
+
+  @Test
+  public void storedTokensSurviveRestartAndIncompleteWrites() throws Exception {
+    server.failures.set(Integer.MAX_VALUE);
+    final TokenOutbox outbox = newOutbox().build();
+    final List<Task<Long>> tasks = new ArrayList<>();
+    for (int i = 1; i <= 3; i++) {
+      tasks.add(outbox.enqueue("token-" + i));
+    }
+    awaitUntil(() -> tasks.get(2).isComplete() && server.keys.containsKey(1L));
+    final String key = server.keys.get(1L);
+    outbox.close();
+
+    // Simulate a record cut short by the process dying.
+    try (OutputStream output = new FileOutputStream(new File(directory, "outbox.log"), true)) {
+      output.write(new byte[] {0, 0, 0, 40, 1, 2, 3});
+    }
+
+    server.failures.set(0);
+    final TokenOutbox reopened = newOutbox().build();
+    awaitUntil(() -> reopened.getDeliveredCount() == 3);
+    assertEquals("token-1", server.tokens.get(1L));
+    assertEquals("token-3", server.tokens.get(3L));
+    // Retried with the key it was stored with.
+    assertEquals(key, server.keys.get(1L));
+    assertNotEquals(key, server.keys.get(3L));
+
+    final Task<Long> next = reopened.enqueue("token-4");
+    awaitUntil(next::isComplete);
+    assertEquals(4L, (long) next.getResult());
+    awaitUntil(() -> reopened.getDeliveredCount() == 4);
+    reopened.close();
+  }
+
+  @Test
+  public void failedBatchesAreRetried() throws Exception {
+    server.failures.set(3);
+    final TokenOutbox outbox = newOutbox().build();
+    // A token too large to store is rejected on its own.
+    final Task<Long> tooLarge = outbox.enqueue(new String(new char[1 << 20]));
+    final Task<Long> stored = outbox.enqueue("token");
+    assertTrue(tooLarge.isComplete());
+    assertFalse(tooLarge.isSuccessful());
+
+    awaitUntil(() -> outbox.getDeliveredCount() == 1);
+    assertEquals(1L, (long) stored.getResult());
+    assertEquals(4, server.requests.get());
+    assertEquals(0, outbox.getWaitingCount());
+    outbox.close();
+  }
+
+  @Test
+  public void closedOutboxRejectsTokens() throws Exception {
+    final TokenOutbox outbox = newOutbox().build();
+    outbox.close();
+    outbox.close();
+
+    final Task<Long> task = outbox.enqueue("token");
+    assertTrue(task.isComplete());
+    assertFalse(task.isSuccessful());
+    outbox.deliverNow();
+  }
+
+  private static void awaitUntil(Callable<Boolean> condition) throws Exception {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.call()) {
+      assertTrue("Timed out", System.nanoTime() < deadline);
+      Thread.sleep(5);
+    }
+  }
+
+  /**
+   * A minimal HTTP/1.1 server standing in for the merchant backend. It answers 503 to the given
+   * number of requests, then 200, and records the tokens it received by id, as well as the
+   * idempotency keys of every request. Connections are kept alive and request bodies may be
+   * gzip-compressed.
+   */
+  private static final class StandInServer implements Closeable {
+
+    final AtomicInteger failures = new AtomicInteger();
+    final AtomicInteger connections = new AtomicInteger();
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicInteger compressedRequests = new AtomicInteger();
+    final Map<Long, String> tokens = new ConcurrentHashMap<>();
+    final Map<Long, String> keys = new ConcurrentHashMap<>();
+
+    private final ServerSocket socket;
+
+    StandInServer() throws IOException {
+      socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+      final Thread thread = new Thread(() -> {
+        while (!socket.isClosed()) {
+          try {
+            serve(socket.accept());
+          } catch (IOException e) {
+            // Closed.
+          }
+        }
+      });
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    URL getUrl() {
+      try {
+        return new URL("http://127.0.0.1:" + socket.getLocalPort() + "/tokens");
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    private void serve(Socket connection) {
+      connections.incrementAndGet();
+      final Thread thread = new Thread(() -> {
+        try (Socket closing = connection) {
+          final InputStream input = new BufferedInputStream(closing.getInputStream());
+          while (handle(input, closing.getOutputStream())) {
+            // Keep the connection alive until the client closes it.
+          }
+        } catch (IOException | JSONException e) {
+          // A request cut short.
+        }
+      });
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    private boolean handle(InputStream input, OutputStream output)
+        throws IOException, JSONException {
+      if (readLine(input) == null) {
+        return false;
+      }
+      int contentLength = 0;
+      boolean gzip = false;
+      for (String line = readLine(input); line != null && !line.isEmpty();
+          line = readLine(input)) {
+        final String header = line.toLowerCase(Locale.US);
+        if (header.startsWith("content-length:")) {
+          contentLength = Integer.parseInt(header.substring(15).trim());
+        } else if (header.startsWith("content-encoding:")) {
+          gzip = header.contains("gzip");
+        }
+      }
+      final byte[] body = new byte[contentLength];
+      new DataInputStream(input).readFully(body);
+      InputStream bodyInput = new ByteArrayInputStream(body);
+      if (gzip) {
+        compressedRequests.incrementAndGet();
+        bodyInput = new GZIPInputStream(bodyInput);
+      }
+      final JSONArray entries =
+          new JSONObject(new String(readFully(bodyInput), StandardCharsets.UTF_8))
+              .getJSONArray("tokens");
+      for (int i = 0; i < entries.length(); i++) {
+        final JSONObject entry = entries.getJSONObject(i);
+        keys.put(entry.getLong("id"), entry.getString("idempotencyKey"));
+      }
+      requests.incrementAndGet();
+
+      final int status;
+      if (failures.getAndDecrement() > 0) {
+        status = 503;
+      } else {
+        failures.set(0);
+        for (int i = 0; i < entries.length(); i++) {
+          final JSONObject entry = entries.getJSONObject(i);
+          tokens.put(entry.getLong("id"), entry.getString("token"));
+        }
+        status = 200;
+      }
+      output.write(("HTTP/1.1 " + status + " X\r\nContent-Length: 0\r\n\r\n")
+          .getBytes(StandardCharsets.US_ASCII));
+      output.flush();
+      return true;
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+      final StringBuilder line = new StringBuilder();
+      for (int c = input.read(); c != '\n'; c = input.read()) {
+        if (c < 0) {
+          return line.length() == 0 ? null : line.toString();
+        }
+        if (c != '\r') {
+          line.append((char) c);
+        }
+      }
+      return line.toString();
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[1024];
+      for (int count = input.read(buffer); count >= 0; count = input.read(buffer)) {
+        output.write(buffer, 0, count);
+      }
+      return output.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+}
@@ -20,6 +20,7 @@ import com.google.android.gms.wallet.WalletConstants;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 /**
@@ -27,16 +28,18 @@ import java.util.List;
  * Please take a look at PaymentsUtil.java to see where the constants are used and to potentially
  * remove ones not relevant to your integration.
  *
+ * <p>The merchant configuration is read from the default merchant of {@code res/raw/merchants.json}
+ * through the generated {@code DefaultMerchant} class, so that it is only configured in one place.
+ *
  * <p>Required changes:
  * <ol>
- * <li> Update SUPPORTED_NETWORKS and SUPPORTED_METHODS if required (consult your processor if
- *      unsure)
- * <li> Update CURRENCY_CODE to the currency you use.
- * <li> Update SHIPPING_SUPPORTED_COUNTRIES to list the countries where you currently ship. If this
+ * <li> Update the allowedCardNetworks and allowedAuthMethods of the default merchant in
+ *      merchants.json if required (consult your processor if unsure)
+ * <li> Update its currencyCode to the currency you use.
+ * <li> Update its shippingCountries to list the countries where you currently ship. If this
  *      is not applicable to your app, remove the relevant bits from PaymentsUtil.java.
- * <li> If you're integrating with your {@code PAYMENT_GATEWAY}, update
- *      PAYMENT_GATEWAY_TOKENIZATION_NAME and PAYMENT_GATEWAY_TOKENIZATION_PARAMETERS per the
- *      instructions they provided. You don't need to update DIRECT_TOKENIZATION_PUBLIC_KEY.
+ * <li> If you're integrating with your {@code PAYMENT_GATEWAY}, update its gatewayParameters per
+ *      the instructions they provided. You don't need to update DIRECT_TOKENIZATION_PUBLIC_KEY.
  * <li> If you're using {@code DIRECT} integration, please edit protocol version and public key as
  *      per the instructions.
  */
@@ -57,12 +60,8 @@ public class Constants {
    *
    * @value #SUPPORTED_NETWORKS
    */
-  public static final List<String> SUPPORTED_NETWORKS = Arrays.asList(
-      "AMEX",
-      "DISCOVER",
-      "JCB",
-      "MASTERCARD",
-      "VISA");
+  public static final List<String> SUPPORTED_NETWORKS =
+      Arrays.asList(DefaultMerchant.ALLOWED_CARD_NETWORKS);
 
   /**
    * The Google Pay API may return cards on file on Google.com (PAN_ONLY) and/or a device token on
@@ -70,23 +69,29 @@ public class Constants {
    *
    * @value #SUPPORTED_METHODS
    */
-  public static final List<String> SUPPORTED_METHODS = Arrays.asList(
-      "PAN_ONLY",
-      "CRYPTOGRAM_3DS");
+  public static final List<String> SUPPORTED_METHODS =
+      Arrays.asList(DefaultMerchant.ALLOWED_AUTH_METHODS);
+
+  /**
+   * The merchant name shown to the user on the payment sheet.
+   *
+   * @value #MERCHANT_NAME
+   */
+  public static final String MERCHANT_NAME = DefaultMerchant.MERCHANT_NAME;
 
   /**
    * Required by the API, but not visible to the user.
    *
    * @value #COUNTRY_CODE Your local country
    */
-  public static final String COUNTRY_CODE = "US";
+  public static final String COUNTRY_CODE = DefaultMerchant.COUNTRY_CODE;
 
   /**
    * Required by the API, but not visible to the user.
    *
    * @value #CURRENCY_CODE Your local currency
    */
-  public static final String CURRENCY_CODE = "USD";
+  public static final String CURRENCY_CODE = DefaultMerchant.CURRENCY_CODE;
 
   /**
    * Supported countries for shipping (use ISO 3166-1 alpha-2 country codes). Relevant only when
@@ -94,7 +99,38 @@ public class Constants {
    *
    * @value #SHIPPING_SUPPORTED_COUNTRIES
    */
-  public static final List<String> SHIPPING_SUPPORTED_COUNTRIES = Arrays.asList("US", "GB");
+  public static final List<String> SHIPPING_SUPPORTED_COUNTRIES =
+      Arrays.asList(DefaultMerchant.SHIPPING_COUNTRIES);
+
+  /**
+   * Sales tax applied to the cart subtotal, in basis points (1/100th of a percent).
+   *
+   * @value #TAX_RATE_BASIS_POINTS
+   */
+  public static final int TAX_RATE_BASIS_POINTS = 725;
+
+  /**
+   * Flat shipping fee charged on non-empty carts, in minor units of {@link #CURRENCY_CODE}.
+   *
+   * @value #SHIPPING_PRICE_MINOR_UNITS
+   */
+  public static final long SHIPPING_PRICE_MINOR_UNITS = 499;
+
+  /**
+   * Fee of the express shipping option offered on the payment sheet, in minor units of
+   * {@link #CURRENCY_CODE}.
+   *
+   * @value #EXPRESS_SHIPPING_PRICE_MINOR_UNITS
+   */
+  public static final long EXPRESS_SHIPPING_PRICE_MINOR_UNITS = 1499;
+
+  /**
+   * The endpoint of your backend that receives payment tokens, posted in batches by the
+   * {@code TokenOutbox}. Leave empty to only log the tokens.
+   *
+   * @value #MERCHANT_TOKENS_ENDPOINT
+   */
+  public static final String MERCHANT_TOKENS_ENDPOINT = "";
 
   /**
    * The name of your payment processor/gateway. Please refer to their documentation for more
@@ -102,21 +138,23 @@ public class Constants {
    *
    * @value #PAYMENT_GATEWAY_TOKENIZATION_NAME
    */
-  public static final String PAYMENT_GATEWAY_TOKENIZATION_NAME = "example";
+  public static final String PAYMENT_GATEWAY_TOKENIZATION_NAME = DefaultMerchant.GATEWAY;
 
   /**
    * Custom parameters required by the processor/gateway.
    * In many cases, your processor / gateway will only require a gatewayMerchantId.
    * Please refer to your processor's documentation for more information. The number of parameters
-   * required and their names vary depending on the processor.
+   * required and their names vary depending on the processor. They are written to requests in the
+   * order they are declared in merchants.json.
    *
    * @value #PAYMENT_GATEWAY_TOKENIZATION_PARAMETERS
    */
   public static final HashMap<String, String> PAYMENT_GATEWAY_TOKENIZATION_PARAMETERS =
-      new HashMap<String, String>() {{
-        put("gateway", PAYMENT_GATEWAY_TOKENIZATION_NAME);
-        put("gatewayMerchantId", "exampleGatewayMerchantId");
-        // Your processor may require additional parameters.
+      new LinkedHashMap<String, String>() {{
+        for (int i = 0; i < DefaultMerchant.GATEWAY_PARAMETER_NAMES.length; i++) {
+          put(DefaultMerchant.GATEWAY_PARAMETER_NAMES[i],
+              DefaultMerchant.GATEWAY_PARAMETER_VALUES[i]);
+        }
       }};
 
   /**
@@ -135,7 +173,7 @@ public class Constants {
    * @value #DIRECT_TOKENIZATION_PARAMETERS
    */
   public static final HashMap<String, String> DIRECT_TOKENIZATION_PARAMETERS =
-      new HashMap<String, String>() {{
+      new LinkedHashMap<String, String>() {{
         put("protocolVersion", "ECv2");
         put("publicKey", DIRECT_TOKENIZATION_PUBLIC_KEY);
       }};
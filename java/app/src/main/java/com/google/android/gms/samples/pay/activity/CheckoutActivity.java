@@ -17,21 +17,32 @@
 package com.google.android.gms.samples.pay.activity;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.ProgressBar;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.text.HtmlCompat;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.google.android.gms.common.api.CommonStatusCodes;
 import com.google.android.gms.samples.pay.R;
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.HtmlText;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.data.ProductCatalog;
 import com.google.android.gms.samples.pay.databinding.ActivityCheckoutBinding;
-import com.google.android.gms.samples.pay.util.PaymentsUtil;
+import com.google.android.gms.samples.pay.image.ImageLoader;
+import com.google.android.gms.samples.pay.metrics.PhaseRecorder;
+import com.google.android.gms.samples.pay.util.PaymentConfiguration;
 import com.google.android.gms.samples.pay.viewmodel.CheckoutViewModel;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.wallet.PaymentData;
@@ -39,9 +50,6 @@ import com.google.android.gms.wallet.button.ButtonOptions;
 import com.google.android.gms.wallet.button.PayButton;
 import com.google.android.gms.wallet.contract.TaskResultContracts.GetPaymentDataResult;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.util.Locale;
 
 /**
@@ -49,16 +57,56 @@ import java.util.Locale;
  */
 public class CheckoutActivity extends AppCompatActivity {
 
+  /**
+   * The id of the merchant to pay, as listed in {@code res/raw/merchants.json}. The default
+   * merchant is paid if it is missing.
+   */
+  public static final String EXTRA_MERCHANT_ID = "com.google.android.gms.samples.pay.MERCHANT_ID";
+
+  // The product on display, set by newIntent().
+  private static final String EXTRA_PRODUCT_NAME =
+      "com.google.android.gms.samples.pay.PRODUCT_NAME";
+  private static final String EXTRA_PRODUCT_TITLE =
+      "com.google.android.gms.samples.pay.PRODUCT_TITLE";
+  private static final String EXTRA_PRODUCT_DESCRIPTION =
+      "com.google.android.gms.samples.pay.PRODUCT_DESCRIPTION";
+  private static final String EXTRA_PRODUCT_PRICE =
+      "com.google.android.gms.samples.pay.PRODUCT_PRICE";
+  private static final String EXTRA_PRODUCT_IMAGE =
+      "com.google.android.gms.samples.pay.PRODUCT_IMAGE";
+
+  // The item on display when no product is given, added to the cart when the screen is first
+  // shown.
+  private static final String ITEM_ID = "ts_10_11019a";
+  private static final long ITEM_PRICE_MINOR_UNITS = 5020;
+
   private CheckoutViewModel model;
 
+  // The product on display, added to the cart once the merchant to pay is known. Its price is in
+  // minor units of the catalog currency, and converted to the currency of that merchant.
+  private String itemId;
+  private String itemTitle;
+  private long itemPriceMinorUnits;
+
+  private TextView priceText;
+  private TextView totalText;
+
   private PayButton googlePayButton;
 
+  private ProgressBar paymentProgress;
+
+  // The payment methods the button was initialized with.
+  private String payButtonPaymentMethods;
+
   private final ActivityResultLauncher<Task<PaymentData>> paymentDataLauncher =
       registerForActivityResult(new GetPaymentDataResult(), result -> {
         int statusCode = result.getStatus().getStatusCode();
+        // Successful payment data is read by the model in the background.
+        model.onPaymentResult(
+            statusCode, statusCode == CommonStatusCodes.SUCCESS ? result.getResult() : null);
         switch (statusCode) {
           case CommonStatusCodes.SUCCESS:
-            handlePaymentSuccess(result.getResult());
+            // The outcome is shown once the model has read the payment data.
             break;
           //case CommonStatusCodes.CANCELED: The user canceled
           case CommonStatusCodes.DEVELOPER_ERROR:
@@ -79,11 +127,31 @@ public class CheckoutActivity extends AppCompatActivity {
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
+    recordFirstFrame();
+    model = new ViewModelProvider(this).get(CheckoutViewModel.class);
+
+    final int span = PhaseRecorder.getDefault().begin(PhaseRecorder.INITIALIZE_UI);
     initializeUi();
+    PhaseRecorder.getDefault().end(span);
 
     // Check Google Pay availability
-    model = new ViewModelProvider(this).get(CheckoutViewModel.class);
     model.canUseGooglePay.observe(this, this::setGooglePayAvailable);
+    model.paymentState.observe(this, this::updatePaymentState);
+    model.paymentConfiguration.observe(this, this::onMerchantResolved);
+    model.merchantUnavailable.observe(this, this::setMerchantUnavailable);
+    model.selectMerchant(getIntent().getStringExtra(EXTRA_MERCHANT_ID));
+  }
+
+  /**
+   * @return an intent to check out a product of the catalog.
+   */
+  public static Intent newIntent(Context context, ProductCatalog catalog, int index) {
+    return new Intent(context, CheckoutActivity.class)
+        .putExtra(EXTRA_PRODUCT_NAME, catalog.getName(index))
+        .putExtra(EXTRA_PRODUCT_TITLE, catalog.getTitle(index))
+        .putExtra(EXTRA_PRODUCT_DESCRIPTION, catalog.getDescription(index))
+        .putExtra(EXTRA_PRODUCT_PRICE, catalog.getPriceMinorUnits(index))
+        .putExtra(EXTRA_PRODUCT_IMAGE, catalog.getImageResId(index));
   }
 
   private void initializeUi() {
@@ -92,17 +160,104 @@ public class CheckoutActivity extends AppCompatActivity {
     ActivityCheckoutBinding layoutBinding = ActivityCheckoutBinding.inflate(getLayoutInflater());
     setContentView(layoutBinding.getRoot());
 
+    final Intent intent = getIntent();
+    itemId = ITEM_ID;
+    itemPriceMinorUnits = ITEM_PRICE_MINOR_UNITS;
+    int itemImage = R.drawable.ts_10_11019a;
+    if (intent.hasExtra(EXTRA_PRODUCT_NAME)) {
+      itemId = intent.getStringExtra(EXTRA_PRODUCT_NAME);
+      itemPriceMinorUnits = intent.getLongExtra(EXTRA_PRODUCT_PRICE, 0);
+      itemImage = intent.getIntExtra(EXTRA_PRODUCT_IMAGE, 0);
+      layoutBinding.detailTitle.setText(intent.getStringExtra(EXTRA_PRODUCT_TITLE));
+      // Descriptions are HTML, escaped once or more in the catalog.
+      layoutBinding.detailDescription.setText(HtmlCompat.fromHtml(
+          HtmlText.unescape(intent.getStringExtra(EXTRA_PRODUCT_DESCRIPTION)),
+          HtmlCompat.FROM_HTML_MODE_LEGACY));
+    }
+
+    itemTitle = layoutBinding.detailTitle.getText().toString();
+    priceText = layoutBinding.detailPrice;
+    totalText = layoutBinding.detailTotal;
+    if (itemImage != 0) {
+      ImageLoader.getInstance(this).load(itemImage, layoutBinding.detailImage);
+    }
+
     // The Google Pay button is a layout file – take the root view
     googlePayButton = layoutBinding.googlePayButton;
-    try {
-      googlePayButton.initialize(
-          ButtonOptions.newBuilder()
-              .setAllowedPaymentMethods(PaymentsUtil.getAllowedPaymentMethods().toString()).build()
-      );
-      googlePayButton.setOnClickListener(this::requestPayment);
-    } catch (JSONException e) {
-      // Keep Google Pay button hidden (consider logging this to your app analytics service)
+    paymentProgress = layoutBinding.paymentProgress;
+    googlePayButton.setOnClickListener(this::requestPayment);
+    // Nothing can be paid until the merchant is known.
+    googlePayButton.setEnabled(false);
+  }
+
+  /**
+   * Prices the product in the currency of the merchant to pay, shows what the cart will be charged
+   * and enables the Google Pay button.
+   * Also called again after the activity has been recreated.
+   */
+  private void onMerchantResolved(@Nullable PaymentConfiguration configuration) {
+    if (configuration == null) {
+      return;
+    }
+    final Cart cart = model.getCart();
+    final Money itemPrice = configuration.getProfile().toMerchantPrice(itemPriceMinorUnits);
+    if (cart.isEmpty()) {
+      cart.add(itemId, itemTitle, itemPrice, 1);
+    }
+    priceText.setText(itemPrice.toDisplayString());
+    // The payment sheet charges the whole cart, so the screen shows the same amount.
+    totalText.setText(getString(R.string.checkout_total, cart.getTotal().toDisplayString(),
+        cart.getTax().toDisplayString(), cart.getShipping().toDisplayString()));
+    initializePayButton(configuration);
+    showPaymentLoading(model.paymentState.getValue() != CheckoutViewModel.PaymentState.IDLE);
+  }
+
+  private void setMerchantUnavailable(boolean unavailable) {
+    if (unavailable) {
+      googlePayButton.setEnabled(false);
+      Toast.makeText(this, R.string.merchant_unavailable, Toast.LENGTH_LONG).show();
+    }
+  }
+
+  /**
+   * Sets up the Google Pay button with the payment methods of the selected merchant. Merchants
+   * that accept the same payment methods share the button as is.
+   */
+  private void initializePayButton(PaymentConfiguration configuration) {
+    final String allowedPaymentMethods = configuration.getAllowedPaymentMethods();
+    if (allowedPaymentMethods.equals(payButtonPaymentMethods)) {
+      return;
     }
+    payButtonPaymentMethods = allowedPaymentMethods;
+
+    final int span = PhaseRecorder.getDefault().begin(PhaseRecorder.PAY_BUTTON_INITIALIZE);
+    googlePayButton.initialize(
+        ButtonOptions.newBuilder()
+            .setAllowedPaymentMethods(allowedPaymentMethods).build()
+    );
+    PhaseRecorder.getDefault().end(span);
+  }
+
+  /**
+   * Measures the time until the first frame of the screen is drawn.
+   */
+  private void recordFirstFrame() {
+    final int span = PhaseRecorder.getDefault().beginAsync(PhaseRecorder.FIRST_FRAME);
+    if (span == PhaseRecorder.NO_SPAN) {
+      return;
+    }
+
+    final View decorView = getWindow().getDecorView();
+    decorView.getViewTreeObserver().addOnPreDrawListener(
+        new ViewTreeObserver.OnPreDrawListener() {
+          @Override
+          public boolean onPreDraw() {
+            decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+            // The frame has been drawn once the current message has been handled.
+            decorView.post(() -> PhaseRecorder.getDefault().end(span));
+            return true;
+          }
+        });
   }
 
   /**
@@ -116,49 +271,65 @@ public class CheckoutActivity extends AppCompatActivity {
   private void setGooglePayAvailable(boolean available) {
     if (available) {
       googlePayButton.setVisibility(View.VISIBLE);
+
+      final PhaseRecorder recorder = PhaseRecorder.getDefault();
+      if (recorder.isEnabled() && recorder.getPhase(PhaseRecorder.PAY_BUTTON_VISIBLE) == null) {
+        recorder.mark(PhaseRecorder.PAY_BUTTON_VISIBLE);
+        Log.i("PhaseRecorder", recorder.toString());
+      }
     } else {
+      // The button may have been shown from a cached answer that turned out to be outdated.
+      googlePayButton.setVisibility(View.GONE);
       Toast.makeText(this, R.string.google_pay_status_unavailable, Toast.LENGTH_LONG).show();
     }
   }
 
   public void requestPayment(View view) {
-    // The price provided to the API should include taxes and shipping.
-    final Task<PaymentData> task = model.getLoadPaymentDataTask("50.2");
-    task.addOnCompleteListener(paymentDataLauncher::launch);
+    // Taps while a payment session is in progress are ignored by the model.
+    model.requestPayment();
+  }
+
+  /**
+   * Reflects the payment session on the button, launches the payment sheet once the request has
+   * completed, and shows the outcome once the payment data has been read. Also called again after
+   * the activity has been recreated.
+   */
+  private void updatePaymentState(CheckoutViewModel.PaymentState state) {
+    showPaymentLoading(state != CheckoutViewModel.PaymentState.IDLE);
+    if (state == CheckoutViewModel.PaymentState.READY) {
+      final Task<PaymentData> task = model.takePaymentDataTask();
+      if (task != null) {
+        paymentDataLauncher.launch(task);
+      }
+    } else if (state == CheckoutViewModel.PaymentState.COMPLETED) {
+      final String billingName = model.takeCompletedPayment();
+      if (billingName != null) {
+        handlePaymentSuccess(billingName);
+      }
+    }
+  }
+
+  private void showPaymentLoading(boolean loading) {
+    googlePayButton.setEnabled(!loading && model.paymentConfiguration.getValue() != null);
+    googlePayButton.setAlpha(loading ? 0.5f : 1f);
+    paymentProgress.setVisibility(loading ? View.VISIBLE : View.GONE);
   }
 
   /**
    * PaymentData response object contains the payment information, as well as any additional
-   * requested information, such as billing and shipping address.
+   * requested information, such as billing and shipping address. It has been read by the model
+   * already, which also handed the token over to the backend.
    *
-   * @param paymentData A response object returned by Google after a payer approves payment.
+   * @param billingName the name of the payer, from the billing address of the response.
    * @see <a href="https://developers.google.com/pay/api/android/reference/
    * object#PaymentData">PaymentData</a>
    */
-  private void handlePaymentSuccess(PaymentData paymentData) {
-    final String paymentInfo = paymentData.toJson();
-
-    try {
-      JSONObject paymentMethodData = new JSONObject(paymentInfo).getJSONObject("paymentMethodData");
-      // If the gateway is set to "example", no payment information is returned - instead, the
-      // token will only consist of "examplePaymentMethodToken".
-
-      final JSONObject info = paymentMethodData.getJSONObject("info");
-      final String billingName = info.getJSONObject("billingAddress").getString("name");
-      Toast.makeText(
-          this, getString(R.string.payments_show_name, billingName),
-          Toast.LENGTH_LONG).show();
+  private void handlePaymentSuccess(String billingName) {
+    Toast.makeText(
+        this, getString(R.string.payments_show_name, billingName),
+        Toast.LENGTH_LONG).show();
 
-      // Logging token string.
-      Log.d("Google Pay token", paymentMethodData
-          .getJSONObject("tokenizationData")
-          .getString("token"));
-
-      startActivity(new Intent(this, CheckoutSuccessActivity.class));
-
-    } catch (JSONException e) {
-      Log.e("handlePaymentSuccess", "Error: " + e);
-    }
+    startActivity(new Intent(this, CheckoutSuccessActivity.class));
   }
 
   /**
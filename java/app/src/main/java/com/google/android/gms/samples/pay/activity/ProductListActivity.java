@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.activity;
+
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.gms.samples.pay.databinding.ActivityProductListBinding;
+import com.google.android.gms.samples.pay.image.ImageLoader;
+import com.google.android.gms.samples.pay.list.ProductListAdapter;
+import com.google.android.gms.samples.pay.list.ProductRow;
+import com.google.android.gms.samples.pay.viewmodel.ProductListViewModel;
+
+/**
+ * Lists the products of the catalog, or those matching the text typed in the search box. Tapping
+ * a product opens the checkout for it.
+ */
+public class ProductListActivity extends AppCompatActivity {
+
+  /**
+   * The number of products to list, made of copies of the bundled catalog, e.g. 100000 to check
+   * that the list stays smooth with a large catalog. The bundled catalog is listed as is if
+   * missing.
+   */
+  public static final String EXTRA_SYNTHETIC_SIZE =
+      "com.google.android.gms.samples.pay.SYNTHETIC_SIZE";
+
+  // Rows kept bound past the edges of the screen, for users scrolling back and forth.
+  private static final int ITEM_VIEW_CACHE_SIZE = 4;
+
+  private ProductListViewModel model;
+
+  @Override
+  protected void onCreate(Bundle savedInstanceState) {
+    super.onCreate(savedInstanceState);
+    model = new ViewModelProvider(this, new ProductListViewModel.Factory(
+        getApplication(), getIntent().getIntExtra(EXTRA_SYNTHETIC_SIZE, 0)))
+        .get(ProductListViewModel.class);
+
+    ActivityProductListBinding layoutBinding =
+        ActivityProductListBinding.inflate(getLayoutInflater());
+    setContentView(layoutBinding.getRoot());
+
+    final ProductListAdapter adapter =
+        new ProductListAdapter(ImageLoader.getInstance(this), this::openProduct);
+    // Rows about to scroll into view are created and bound ahead of time, in the idle time
+    // between frames, which also starts decoding their images.
+    final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+    layoutManager.setItemPrefetchEnabled(true);
+
+    final RecyclerView productList = layoutBinding.productList;
+    productList.setLayoutManager(layoutManager);
+    productList.setHasFixedSize(true);
+    productList.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
+    productList.setAdapter(adapter);
+    productList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+      @Override
+      public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        model.onScrolledTo(layoutManager.findLastVisibleItemPosition());
+      }
+    });
+
+    layoutBinding.searchQuery.addTextChangedListener(new TextWatcher() {
+      @Override
+      public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+      }
+
+      @Override
+      public void onTextChanged(CharSequence text, int start, int before, int count) {
+      }
+
+      @Override
+      public void afterTextChanged(Editable text) {
+        // Queries run in the background as the user types, and only the latest is shown.
+        model.setQuery(text.toString());
+      }
+    });
+
+    model.products.observe(this, products -> {
+      layoutBinding.catalogProgress.setVisibility(View.GONE);
+      adapter.submitList(products);
+    });
+  }
+
+  private void openProduct(ProductRow row) {
+    startActivity(CheckoutActivity.newIntent(this, row.getCatalog(), row.getIndex()));
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.backend;
+
+import com.google.android.gms.common.api.ApiException;
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.common.api.Status;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.wallet.PaymentData;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link PaymentsBackend} that answers locally, without Google Play services or a device.
+ *
+ * <p>Each operation is scripted with a latency distribution and a set of failures, each returned
+ * with some probability as an {@link ApiException} carrying the given status code. Successful
+ * {@code loadPaymentData} calls return a fixed PaymentData response. Tasks with no latency are
+ * completed before being returned; others are completed on a scheduler thread, so Tasks returned
+ * by a backend with latency must be listened to with an explicit executor when running outside of
+ * an Android app.
+ *
+ * <p>Randomness comes from a seeded generator, so a script replays the same sequence of outcomes
+ * and delays for the same sequence of calls.
+ */
+public class LocalPaymentsBackend implements PaymentsBackend {
+
+  /**
+   * A PaymentData response as returned in the test environment with the example gateway.
+   */
+  public static final String DEFAULT_PAYMENT_DATA_JSON = "{"
+      + "\"apiVersion\":2,\"apiVersionMinor\":0,"
+      + "\"paymentMethodData\":{"
+      + "\"description\":\"Visa •••• 1111\",\"type\":\"CARD\","
+      + "\"info\":{\"cardNetwork\":\"VISA\",\"cardDetails\":\"1111\","
+      + "\"billingAddress\":{\"name\":\"Jane Doe\",\"address1\":\"1600 Amphitheatre Parkway\","
+      + "\"locality\":\"Mountain View\",\"administrativeArea\":\"CA\",\"countryCode\":\"US\","
+      + "\"postalCode\":\"94043\"}},"
+      + "\"tokenizationData\":{\"type\":\"PAYMENT_GATEWAY\","
+      + "\"token\":\"examplePaymentMethodToken\"}},"
+      + "\"shippingAddress\":{\"name\":\"Jane Doe\",\"address1\":\"1600 Amphitheatre Parkway\","
+      + "\"locality\":\"Mountain View\",\"administrativeArea\":\"CA\",\"countryCode\":\"US\","
+      + "\"postalCode\":\"94043\"}}";
+
+  /**
+   * Draws the delay of each call.
+   */
+  public interface LatencyDistribution {
+
+    /**
+     * @return a delay in nanoseconds, 0 for none.
+     */
+    long sampleNanos(Random random);
+  }
+
+  public static LatencyDistribution noLatency() {
+    return random -> 0;
+  }
+
+  public static LatencyDistribution fixedLatency(long millis) {
+    final long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    return random -> nanos;
+  }
+
+  public static LatencyDistribution uniformLatency(long minMillis, long maxMillis) {
+    final long minNanos = TimeUnit.MILLISECONDS.toNanos(minMillis);
+    final long rangeNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis) - minNanos;
+    return random -> minNanos + (long) (random.nextDouble() * rangeNanos);
+  }
+
+  /**
+   * A long-tailed distribution, as typically seen for calls that go through IPC or the network.
+   *
+   * @param medianMillis the median delay.
+   * @param p99Millis    the 99th percentile of the delay, at least the median.
+   */
+  public static LatencyDistribution logNormalLatency(long medianMillis, long p99Millis) {
+    final double mu = Math.log(TimeUnit.MILLISECONDS.toNanos(medianMillis));
+    // 2.326 is the 99th percentile of the standard normal distribution.
+    final double sigma = Math.log((double) p99Millis / medianMillis) / 2.326;
+    return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+  }
+
+  private static final class Script {
+
+    private final LatencyDistribution latency;
+    private final int[] failureCodes;
+    private final double[] cumulativeProbabilities;
+
+    Script(LatencyDistribution latency, int[] failureCodes, double[] cumulativeProbabilities) {
+      this.latency = latency;
+      this.failureCodes = failureCodes;
+      this.cumulativeProbabilities = cumulativeProbabilities;
+    }
+
+    /**
+     * @return the status code of the failure to return, or {@code SUCCESS}.
+     */
+    int sampleStatusCode(Random random) {
+      final double value = random.nextDouble();
+      for (int i = 0; i < failureCodes.length; i++) {
+        if (value < cumulativeProbabilities[i]) {
+          return failureCodes[i];
+        }
+      }
+      return CommonStatusCodes.SUCCESS;
+    }
+  }
+
+  private final boolean ready;
+  private final Script readinessScript;
+  private final Script paymentDataScript;
+  private final String paymentDataJson;
+  private final Random random;
+  private final ScheduledExecutorService scheduler;
+
+  private final AtomicLong readinessCalls = new AtomicLong();
+  private final AtomicLong paymentDataCalls = new AtomicLong();
+
+  private LocalPaymentsBackend(Builder builder) {
+    this.ready = builder.ready;
+    this.readinessScript = builder.readinessScript.build();
+    this.paymentDataScript = builder.paymentDataScript.build();
+    this.paymentDataJson = builder.paymentDataJson;
+    this.random = new Random(builder.seed);
+    this.scheduler = builder.scheduler != null ? builder.scheduler : DefaultScheduler.INSTANCE;
+  }
+
+  @Override
+  public Task<Boolean> isReadyToPay(String isReadyToPayRequestJson) {
+    readinessCalls.incrementAndGet();
+    return respond(readinessScript, ready);
+  }
+
+  @Override
+  public Task<PaymentData> loadPaymentData(String paymentDataRequestJson) {
+    paymentDataCalls.incrementAndGet();
+    return respond(paymentDataScript, PaymentData.fromJson(paymentDataJson));
+  }
+
+  /**
+   * @return the number of {@code isReadyToPay} calls received so far.
+   */
+  public long getReadinessCallCount() {
+    return readinessCalls.get();
+  }
+
+  /**
+   * @return the number of {@code loadPaymentData} calls received so far.
+   */
+  public long getPaymentDataCallCount() {
+    return paymentDataCalls.get();
+  }
+
+  private <T> Task<T> respond(Script script, T result) {
+    final int statusCode;
+    final long delayNanos;
+    synchronized (random) {
+      statusCode = script.sampleStatusCode(random);
+      delayNanos = script.latency.sampleNanos(random);
+    }
+
+    final TaskCompletionSource<T> source = new TaskCompletionSource<>();
+    final Runnable complete = () -> {
+      if (statusCode == CommonStatusCodes.SUCCESS) {
+        source.setResult(result);
+      } else {
+        source.setException(new ApiException(new Status(statusCode)));
+      }
+    };
+    if (delayNanos <= 0) {
+      complete.run();
+    } else {
+      scheduler.schedule(complete, delayNanos, TimeUnit.NANOSECONDS);
+    }
+    return source.getTask();
+  }
+
+  private static final class DefaultScheduler {
+
+    static final ScheduledExecutorService INSTANCE = new ScheduledThreadPoolExecutor(1, runnable -> {
+      final Thread thread = new Thread(runnable, "LocalPaymentsBackend");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Scripts the behavior of a {@link LocalPaymentsBackend}. By default, the user can pay, every
+   * call succeeds immediately and {@link #DEFAULT_PAYMENT_DATA_JSON} is returned.
+   */
+  public static final class Builder {
+
+    private boolean ready = true;
+    private final ScriptBuilder readinessScript = new ScriptBuilder();
+    private final ScriptBuilder paymentDataScript = new ScriptBuilder();
+    private String paymentDataJson = DEFAULT_PAYMENT_DATA_JSON;
+    private long seed = 0;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Sets the answer of successful {@code isReadyToPay} calls.
+     */
+    public Builder setReady(boolean ready) {
+      this.ready = ready;
+      return this;
+    }
+
+    public Builder setReadinessLatency(LatencyDistribution latency) {
+      readinessScript.latency = latency;
+      return this;
+    }
+
+    /**
+     * Makes {@code isReadyToPay} fail with the given status code, with the given probability.
+     */
+    public Builder addReadinessFailure(int statusCode, double probability) {
+      readinessScript.addFailure(statusCode, probability);
+      return this;
+    }
+
+    /**
+     * Sets the time it takes to complete {@code loadPaymentData}, standing in for the time spent
+     * by the user on the payment sheet.
+     */
+    public Builder setPaymentDataLatency(LatencyDistribution latency) {
+      paymentDataScript.latency = latency;
+      return this;
+    }
+
+    /**
+     * Makes {@code loadPaymentData} fail with the given status code, with the given probability,
+     * e.g. {@link CommonStatusCodes#CANCELED} for users closing the payment sheet.
+     */
+    public Builder addPaymentDataFailure(int statusCode, double probability) {
+      paymentDataScript.addFailure(statusCode, probability);
+      return this;
+    }
+
+    /**
+     * Sets the PaymentData response returned by successful {@code loadPaymentData} calls.
+     */
+    public Builder setPaymentDataJson(String paymentDataJson) {
+      this.paymentDataJson = paymentDataJson;
+      return this;
+    }
+
+    public Builder setSeed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * Sets the executor that completes delayed calls. Defaults to a shared daemon thread.
+     */
+    public Builder setScheduler(ScheduledExecutorService scheduler) {
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    public LocalPaymentsBackend build() {
+      return new LocalPaymentsBackend(this);
+    }
+  }
+
+  private static final class ScriptBuilder {
+
+    private LatencyDistribution latency = noLatency();
+    private int[] failureCodes = new int[0];
+    private double[] cumulativeProbabilities = new double[0];
+
+    void addFailure(int statusCode, double probability) {
+      if (statusCode == CommonStatusCodes.SUCCESS || probability < 0) {
+        throw new IllegalArgumentException("Invalid failure " + statusCode + ": " + probability);
+      }
+      final int count = failureCodes.length;
+      final double total = (count == 0 ? 0 : cumulativeProbabilities[count - 1]) + probability;
+      if (total > 1) {
+        throw new IllegalArgumentException("Failure probabilities add up to more than 1");
+      }
+      failureCodes = Arrays.copyOf(failureCodes, count + 1);
+      cumulativeProbabilities = Arrays.copyOf(cumulativeProbabilities, count + 1);
+      failureCodes[count] = statusCode;
+      cumulativeProbabilities[count] = total;
+    }
+
+    Script build() {
+      return new Script(latency, failureCodes.clone(), cumulativeProbabilities.clone());
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.backend;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.wallet.PaymentData;
+
+/**
+ * The Google Pay operations used by the checkout flow.
+ *
+ * <p>Requests are passed as the JSON built by {@code PaymentsUtil} and
+ * {@code PaymentsJsonWriter}, so that callers don't depend on how they are turned into API
+ * objects. The app talks to Google Play services through {@link PaymentsClientBackend}; tests
+ * and load tests can use {@link LocalPaymentsBackend} instead.
+ */
+public interface PaymentsBackend {
+
+  /**
+   * Determines whether the user can pay with one of the allowed payment methods.
+   *
+   * @param isReadyToPayRequestJson a serialized IsReadyToPayRequest.
+   * @return a Task resolving to whether the Google Pay button should be shown.
+   */
+  Task<Boolean> isReadyToPay(String isReadyToPayRequestJson);
+
+  /**
+   * Shows the payment sheet and returns the payment information selected by the user.
+   *
+   * @param paymentDataRequestJson a serialized PaymentDataRequest.
+   * @return a Task to hand over to the {@code GetPaymentDataResult} activity result contract.
+   */
+  Task<PaymentData> loadPaymentData(String paymentDataRequestJson);
+}
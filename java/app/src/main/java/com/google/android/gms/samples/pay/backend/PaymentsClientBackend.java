@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.backend;
+
+import android.os.StrictMode;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.wallet.IsReadyToPayRequest;
+import com.google.android.gms.wallet.PaymentData;
+import com.google.android.gms.wallet.PaymentDataRequest;
+import com.google.android.gms.wallet.PaymentsClient;
+
+/**
+ * The production {@link PaymentsBackend}, backed by a {@link PaymentsClient}.
+ *
+ * <p>The client may still be in creation when the backend is constructed; calls made before it is
+ * ready are chained onto it rather than waiting for it.
+ */
+public class PaymentsClientBackend implements PaymentsBackend {
+
+  private final Task<PaymentsClient> paymentsClient;
+
+  // The last PaymentDataRequest, reused while the user taps the button again for the same cart.
+  private String lastPaymentDataRequestJson;
+  private PaymentDataRequest lastPaymentDataRequest;
+
+  public PaymentsClientBackend(Task<PaymentsClient> paymentsClient) {
+    this.paymentsClient = paymentsClient;
+  }
+
+  @Override
+  public Task<Boolean> isReadyToPay(String isReadyToPayRequestJson) {
+    final IsReadyToPayRequest request = IsReadyToPayRequest.fromJson(isReadyToPayRequestJson);
+    return paymentsClient.continueWithTask(client -> client.getResult().isReadyToPay(request));
+  }
+
+  @Override
+  public synchronized Task<PaymentData> loadPaymentData(String paymentDataRequestJson) {
+    if (!paymentDataRequestJson.equals(lastPaymentDataRequestJson)) {
+      // Parsing the request is too slow for the main thread.
+      StrictMode.noteSlowCall("PaymentDataRequest.fromJson");
+      lastPaymentDataRequest = PaymentDataRequest.fromJson(paymentDataRequestJson);
+      lastPaymentDataRequestJson = paymentDataRequestJson;
+    }
+    final PaymentDataRequest request = lastPaymentDataRequest;
+    return paymentsClient.continueWithTask(client -> client.getResult().loadPaymentData(request));
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.backend;
+
+import android.content.Context;
+
+import com.google.android.gms.samples.pay.util.PaymentsClientHolder;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.wallet.PaymentData;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link PaymentsBackend} that makes at most one {@code isReadyToPay} call at a time for the
+ * same request, however many screens ask for it.
+ *
+ * <p>Calls made while an identical request is in flight share its {@link Task}. Once it completes
+ * successfully, the answer is also handed out to later calls for a short while without going back
+ * to Google Play services. Failed answers are not kept, so the next call tries again. Payment data
+ * requests are passed through unchanged.
+ *
+ * <p>Answers only live as long as the process; {@code ReadinessCache} covers process restarts.
+ */
+public class ReadinessCoordinator implements PaymentsBackend {
+
+  /**
+   * How long a successful answer is shared by default.
+   */
+  public static final long DEFAULT_RESULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private static ReadinessCoordinator instance;
+
+  private static final class Entry {
+
+    final Task<Boolean> task;
+    // When the task completed successfully, on the System.nanoTime() clock.
+    long completedAtNanos;
+    boolean completed;
+
+    Entry(Task<Boolean> task) {
+      this.task = task;
+    }
+  }
+
+  private final PaymentsBackend backend;
+  private final long resultTtlNanos;
+
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private final AtomicLong backendCalls = new AtomicLong();
+  private final AtomicLong coalescedCalls = new AtomicLong();
+  private final AtomicLong cachedCalls = new AtomicLong();
+
+  /**
+   * @param backend         the backend that actually answers the requests.
+   * @param resultTtlMillis how long a successful answer is handed out after it was received.
+   */
+  public ReadinessCoordinator(PaymentsBackend backend, long resultTtlMillis) {
+    this.backend = backend;
+    this.resultTtlNanos = TimeUnit.MILLISECONDS.toNanos(resultTtlMillis);
+  }
+
+  /**
+   * Returns the coordinator shared by the whole process, backed by the shared
+   * {@link com.google.android.gms.wallet.PaymentsClient}.
+   *
+   * @param context any context; only the application context is retained.
+   */
+  public static synchronized ReadinessCoordinator getInstance(Context context) {
+    if (instance == null) {
+      instance = new ReadinessCoordinator(
+          new PaymentsClientBackend(PaymentsClientHolder.getClient(context)),
+          DEFAULT_RESULT_TTL_MILLIS);
+    }
+    return instance;
+  }
+
+  @Override
+  public Task<Boolean> isReadyToPay(String isReadyToPayRequestJson) {
+    final TaskCompletionSource<Boolean> source;
+    final Entry entry;
+    synchronized (entries) {
+      final Entry existing = entries.get(isReadyToPayRequestJson);
+      if (existing != null) {
+        if (!existing.completed) {
+          coalescedCalls.incrementAndGet();
+          return existing.task;
+        }
+        if (System.nanoTime() - existing.completedAtNanos <= resultTtlNanos) {
+          cachedCalls.incrementAndGet();
+          return existing.task;
+        }
+      }
+      source = new TaskCompletionSource<>();
+      entry = new Entry(source.getTask());
+      entries.put(isReadyToPayRequestJson, entry);
+    }
+
+    // Call the backend outside of the lock; callers arriving meanwhile already share the entry.
+    backendCalls.incrementAndGet();
+    final Task<Boolean> task;
+    try {
+      task = backend.isReadyToPay(isReadyToPayRequestJson);
+    } catch (RuntimeException e) {
+      complete(isReadyToPayRequestJson, entry, false);
+      source.setException(e);
+      return entry.task;
+    }
+    task.addOnCompleteListener(Runnable::run, completedTask -> {
+      complete(isReadyToPayRequestJson, entry, completedTask.isSuccessful());
+      if (completedTask.isSuccessful()) {
+        source.setResult(completedTask.getResult());
+      } else {
+        source.setException(completedTask.getException());
+      }
+    });
+    return entry.task;
+  }
+
+  private void complete(String isReadyToPayRequestJson, Entry entry, boolean successful) {
+    synchronized (entries) {
+      if (successful) {
+        entry.completed = true;
+        entry.completedAtNanos = System.nanoTime();
+      } else if (entries.get(isReadyToPayRequestJson) == entry) {
+        entries.remove(isReadyToPayRequestJson);
+      }
+    }
+  }
+
+  @Override
+  public Task<PaymentData> loadPaymentData(String paymentDataRequestJson) {
+    return backend.loadPaymentData(paymentDataRequestJson);
+  }
+
+  /**
+   * Forgets every answer received so far, e.g. after the user changed their payment methods.
+   * Requests in flight are still shared.
+   */
+  public void invalidate() {
+    synchronized (entries) {
+      entries.values().removeIf(entry -> entry.completed);
+    }
+  }
+
+  /**
+   * @return the number of {@code isReadyToPay} calls forwarded to the backend.
+   */
+  public long getBackendCallCount() {
+    return backendCalls.get();
+  }
+
+  /**
+   * @return the number of calls that joined an identical request in flight.
+   */
+  public long getCoalescedCallCount() {
+    return coalescedCalls.get();
+  }
+
+  /**
+   * @return the number of calls answered with a previous result.
+   */
+  public long getCachedCallCount() {
+    return cachedCalls.get();
+  }
+
+  /**
+   * @return the number of calls that didn't reach the backend.
+   */
+  public long getSavedCallCount() {
+    return coalescedCalls.get() + cachedCalls.get();
+  }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.data;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.samples.pay.Constants;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+
+/**
+ * The items the user is about to pay for.
+ *
+ * <p>The subtotal is updated as lines are added, changed and removed, so the totals are available
+ * in constant time no matter how many lines the cart holds. Every change also bumps a version
+ * number, which callers can use to tell whether anything derived from the cart, such as a
+ * serialized payment request, is still current.
+ *
+ * <p>All the amounts of a cart are in the currency of the merchant being paid, which is set when
+ * the cart is created.
+ *
+ * <p>This class is not thread-safe and is meant to be used from the main thread. Work on other
+ * threads should use a copy.
+ */
+public class Cart {
+
+  /**
+   * A product in the cart, with the quantity being purchased.
+   */
+  public static final class Line {
+
+    private final String id;
+    private final String label;
+    private final String currencyCode;
+    private final long unitPriceMinorUnits;
+    private int quantity;
+
+    Line(String id, String label, String currencyCode, long unitPriceMinorUnits, int quantity) {
+      this.id = id;
+      this.currencyCode = currencyCode;
+      this.label = label;
+      this.unitPriceMinorUnits = unitPriceMinorUnits;
+      this.quantity = quantity;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+
+    public Money getUnitPrice() {
+      return Money.ofMinor(unitPriceMinorUnits, currencyCode);
+    }
+
+    public int getQuantity() {
+      return quantity;
+    }
+
+    public Money getTotal() {
+      return Money.ofMinor(Money.multiplyExact(unitPriceMinorUnits, quantity), currencyCode);
+    }
+  }
+
+  private final LinkedHashMap<String, Line> lines = new LinkedHashMap<>();
+  private final Collection<Line> readOnlyLines = Collections.unmodifiableCollection(lines.values());
+
+  private final String currencyCode;
+  private final int taxRateBasisPoints;
+  private final long shippingMinorUnits;
+
+  private long subtotalMinorUnits;
+  private int itemCount;
+  private int version;
+
+  /**
+   * Creates an empty cart with the currency, tax rate and shipping fee from {@link Constants}.
+   */
+  public Cart() {
+    this(Constants.TAX_RATE_BASIS_POINTS, Constants.SHIPPING_PRICE_MINOR_UNITS);
+  }
+
+  /**
+   * Creates an empty cart in the currency from {@link Constants}.
+   *
+   * @see #Cart(String, int, long)
+   */
+  public Cart(int taxRateBasisPoints, long shippingMinorUnits) {
+    this(Constants.CURRENCY_CODE, taxRateBasisPoints, shippingMinorUnits);
+  }
+
+  /**
+   * @param currencyCode       the ISO 4217 code of the currency the merchant charges in.
+   * @param taxRateBasisPoints the tax applied to the subtotal, in 1/100th of a percent.
+   * @param shippingMinorUnits the flat shipping fee charged when the cart isn't empty, in minor
+   *                           units of the currency.
+   */
+  public Cart(String currencyCode, int taxRateBasisPoints, long shippingMinorUnits) {
+    if (taxRateBasisPoints < 0 || shippingMinorUnits < 0) {
+      throw new IllegalArgumentException("Tax rate and shipping must not be negative");
+    }
+    this.currencyCode = currencyCode;
+    this.taxRateBasisPoints = taxRateBasisPoints;
+    this.shippingMinorUnits = shippingMinorUnits;
+  }
+
+  /**
+   * Copies a cart, including its version, e.g. to hand it over to a background thread while the
+   * original keeps changing.
+   */
+  public Cart(Cart other) {
+    this(other, other.shippingMinorUnits);
+  }
+
+  /**
+   * Copies a cart, including its version, with another shipping fee, e.g. the fee of the shipping
+   * option selected on the payment sheet.
+   */
+  public Cart(Cart other, long shippingMinorUnits) {
+    this(other.currencyCode, other.taxRateBasisPoints, shippingMinorUnits);
+    for (Line line : other.lines.values()) {
+      lines.put(line.id, new Line(
+          line.id, line.label, currencyCode, line.unitPriceMinorUnits, line.quantity));
+    }
+    subtotalMinorUnits = other.subtotalMinorUnits;
+    itemCount = other.itemCount;
+    version = other.version;
+  }
+
+  /**
+   * Adds some quantity of a product, merging it with the existing line for the same product.
+   *
+   * @param id        a stable identifier of the product, e.g. its catalog name.
+   * @param label     the name shown on the payment sheet.
+   * @param unitPrice the price of a single unit, in the currency of the cart.
+   * @param quantity  the number of units to add.
+   * @throws IllegalArgumentException if the price is in another currency than the cart.
+   */
+  public void add(String id, String label, Money unitPrice, int quantity) {
+    checkQuantity(quantity);
+    unitPrice.requireCurrency(currencyCode);
+    if (unitPrice.getMinorUnits() < 0) {
+      throw new IllegalArgumentException("Negative price for " + id);
+    }
+    final Line line = lines.get(id);
+    if (line == null) {
+      if (quantity > 0) {
+        final Line newLine = new Line(id, label, currencyCode, unitPrice.getMinorUnits(), 0);
+        updateQuantity(newLine, quantity);
+        lines.put(id, newLine);
+      }
+    } else {
+      if (line.unitPriceMinorUnits != unitPrice.getMinorUnits()) {
+        throw new IllegalArgumentException("Price mismatch for " + id);
+      }
+      updateQuantity(line, Money.addExact(line.quantity, quantity));
+    }
+  }
+
+  /**
+   * Changes the quantity of a product already in the cart. A quantity of zero removes the line.
+   *
+   * @return {@code false} if the product isn't in the cart.
+   */
+  public boolean setQuantity(String id, int quantity) {
+    checkQuantity(quantity);
+    final Line line = lines.get(id);
+    if (line == null) {
+      return false;
+    }
+    if (quantity == 0) {
+      remove(id);
+    } else {
+      updateQuantity(line, quantity);
+    }
+    return true;
+  }
+
+  /**
+   * Removes a product from the cart.
+   *
+   * @return {@code false} if the product isn't in the cart.
+   */
+  public boolean remove(String id) {
+    final Line line = lines.remove(id);
+    if (line == null) {
+      return false;
+    }
+    subtotalMinorUnits -= line.unitPriceMinorUnits * line.quantity;
+    itemCount -= line.quantity;
+    version++;
+    return true;
+  }
+
+  /**
+   * Removes every line from the cart.
+   */
+  public void clear() {
+    if (!lines.isEmpty()) {
+      lines.clear();
+      subtotalMinorUnits = 0;
+      itemCount = 0;
+      version++;
+    }
+  }
+
+  private void updateQuantity(Line line, long quantity) {
+    if (quantity > Integer.MAX_VALUE) {
+      throw new ArithmeticException("Quantity overflow for " + line.id);
+    }
+    final long delta = quantity - line.quantity;
+    subtotalMinorUnits = Money.addExact(
+        subtotalMinorUnits, Money.multiplyExact(line.unitPriceMinorUnits, delta));
+    itemCount += (int) delta;
+    line.quantity = (int) quantity;
+    version++;
+  }
+
+  private static void checkQuantity(int quantity) {
+    if (quantity < 0) {
+      throw new IllegalArgumentException("Negative quantity: " + quantity);
+    }
+  }
+
+  /**
+   * @return the ISO 4217 code of the currency of every amount in the cart.
+   */
+  public String getCurrencyCode() {
+    return currencyCode;
+  }
+
+  /**
+   * A number that changes every time the content of the cart does.
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  public boolean isEmpty() {
+    return lines.isEmpty();
+  }
+
+  /**
+   * @return the number of distinct products in the cart.
+   */
+  public int getLineCount() {
+    return lines.size();
+  }
+
+  /**
+   * @return the number of units in the cart, across all products.
+   */
+  public int getItemCount() {
+    return itemCount;
+  }
+
+  /**
+   * @return the lines in the order the products were first added, as a read-only view.
+   */
+  public Collection<Line> getLines() {
+    return readOnlyLines;
+  }
+
+  @Nullable
+  public Line getLine(String id) {
+    return lines.get(id);
+  }
+
+  public Money getSubtotal() {
+    return Money.ofMinor(subtotalMinorUnits, currencyCode);
+  }
+
+  /**
+   * @return the tax on the subtotal, rounded half up to the nearest minor unit.
+   */
+  public Money getTax() {
+    return Money.ofMinor(
+        (Money.multiplyExact(subtotalMinorUnits, taxRateBasisPoints) + 5_000) / 10_000,
+        currencyCode);
+  }
+
+  public Money getShipping() {
+    return Money.ofMinor(lines.isEmpty() ? 0 : shippingMinorUnits, currencyCode);
+  }
+
+  /**
+   * @return the amount to charge, including tax and shipping.
+   */
+  public Money getTotal() {
+    return getSubtotal().plus(getTax()).plus(getShipping());
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.data;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.android.gms.samples.pay.R;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the product catalog bundled with the app ({@code res/raw/tshirts.json}).
+ *
+ * <p>The catalog is read once per process on a background thread. The build compiles the JSON
+ * catalog into a {@link CompiledCatalog}, which is mapped and read without parsing. If the app
+ * doesn't ship it, the JSON is parsed incrementally with a {@link JsonReader}, one product at a
+ * time, straight into a {@link ProductCatalog}, so the memory needed to load it is proportional to
+ * the products themselves rather than to a parsed document tree.
+ */
+public class CatalogRepository {
+
+  private static final String TAG = "CatalogRepository";
+
+  // Number of fraction digits of the prices in the catalog, which are expressed in dollars.
+  private static final int PRICE_FRACTION_DIGITS = 2;
+
+  private static CatalogRepository instance;
+
+  private final Context context;
+
+  private final MutableLiveData<ProductCatalog> catalog = new MutableLiveData<>();
+
+  private boolean loadStarted;
+
+  private CatalogRepository(Context context) {
+    this.context = context.getApplicationContext();
+  }
+
+  public static synchronized CatalogRepository getInstance(Context context) {
+    if (instance == null) {
+      instance = new CatalogRepository(context);
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the catalog, starting to load it in the background if needed. If the catalog can't be
+   * read, the LiveData holds {@link ProductCatalog#EMPTY}.
+   */
+  public LiveData<ProductCatalog> getCatalog() {
+    synchronized (this) {
+      if (!loadStarted) {
+        loadStarted = true;
+        new Thread(() -> {
+          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+          catalog.postValue(load());
+        }, "CatalogLoader").start();
+      }
+    }
+    return catalog;
+  }
+
+  @WorkerThread
+  private ProductCatalog load() {
+    final String packageName = context.getPackageName();
+    final ProductCatalog.ImageResolver imageResolver = imageName -> context.getResources()
+        .getIdentifier(imageName, "drawable", packageName);
+    try {
+      return ProductCatalog.of(CompiledCatalog.open(context), imageResolver);
+    } catch (IOException | IllegalStateException | IndexOutOfBoundsException e) {
+      Log.w(TAG, "Unable to open the compiled catalog, parsing the JSON catalog", e);
+    }
+
+    try (InputStream input =
+             new BufferedInputStream(context.getResources().openRawResource(R.raw.tshirts))) {
+      return parse(new InputStreamReader(input, StandardCharsets.UTF_8), imageResolver);
+    } catch (IOException | IllegalStateException | NumberFormatException e) {
+      Log.e(TAG, "Unable to load the product catalog", e);
+      return ProductCatalog.EMPTY;
+    }
+  }
+
+  /**
+   * Parses a catalog: a JSON array of products with {@code name}, {@code title},
+   * {@code category}, {@code price}, {@code description} and {@code image} fields. Unknown fields
+   * are skipped.
+   *
+   * @param source        the catalog JSON.
+   * @param imageResolver resolves image names to drawables.
+   * @throws IOException if the catalog is not valid JSON.
+   */
+  @WorkerThread
+  public static ProductCatalog parse(Reader source, ProductCatalog.ImageResolver imageResolver)
+      throws IOException {
+    final ProductCatalog.Builder builder = new ProductCatalog.Builder(64);
+
+    try (JsonReader reader = new JsonReader(source)) {
+      reader.beginArray();
+      while (reader.hasNext()) {
+        String name = "";
+        String title = "";
+        String category = "";
+        String description = "";
+        String image = "";
+        long price = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+          final String field = reader.nextName();
+          if (reader.peek() == JsonToken.NULL) {
+            reader.skipValue();
+            continue;
+          }
+          switch (field) {
+            case "name":
+              name = reader.nextString();
+              break;
+            case "title":
+              title = reader.nextString();
+              break;
+            case "category":
+              category = reader.nextString();
+              break;
+            case "price":
+              // Numbers are returned in their original form, so no precision is lost.
+              price = parseMinorUnits(reader.nextString(), PRICE_FRACTION_DIGITS);
+              break;
+            case "description":
+              description = reader.nextString();
+              break;
+            case "image":
+              image = reader.nextString();
+              break;
+            default:
+              reader.skipValue();
+              break;
+          }
+        }
+        reader.endObject();
+
+        builder.add(name, title, category, price, description, image);
+      }
+      reader.endArray();
+    }
+    return builder.build(imageResolver);
+  }
+
+  /**
+   * Converts a decimal amount such as {@code "14.75"} to minor units, without floating point.
+   * Digits beyond {@code fractionDigits} are truncated.
+   *
+   * @throws NumberFormatException if the amount is not a plain decimal number.
+   */
+  static long parseMinorUnits(String amount, int fractionDigits) {
+    long units = 0;
+    int digits = 0;
+    int fraction = -1;
+    boolean negative = false;
+
+    for (int i = 0; i < amount.length(); i++) {
+      final char c = amount.charAt(i);
+      if (c >= '0' && c <= '9') {
+        if (fraction < fractionDigits) {
+          units = units * 10 + (c - '0');
+          digits++;
+          if (fraction >= 0) {
+            fraction++;
+          }
+        }
+      } else if (c == '.' && fraction < 0) {
+        fraction = 0;
+      } else if (c == '-' && i == 0) {
+        negative = true;
+      } else {
+        throw new NumberFormatException("Not a decimal amount: " + amount);
+      }
+    }
+
+    // 18 digits always fit in a long, including the padding below.
+    if (digits == 0 || digits + fractionDigits - Math.max(fraction, 0) > 18) {
+      throw new NumberFormatException("Not a decimal amount: " + amount);
+    }
+    for (int i = Math.max(fraction, 0); i < fractionDigits; i++) {
+      units *= 10;
+    }
+    return negative ? -units : units;
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.data;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view of the catalog compiled by the {@code compileCatalog} task of the build
+ * ({@code assets/catalog.bin}).
+ *
+ * <p>The file is memory-mapped and read in place: opening it only checks its header, records are
+ * read at fixed offsets and strings are decoded from the string pool when they are asked for. The
+ * category and price indexes are computed at build time. See {@code CatalogCompiler} in
+ * {@code buildSrc} for the layout of the file.
+ *
+ * <p>Instances are safe to use from several threads.
+ */
+public final class CompiledCatalog {
+
+  public static final String ASSET_NAME = "catalog.bin";
+
+  private static final int MAGIC = 0x43544C47;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 40;
+  private static final int RECORD_SIZE = 32;
+  private static final int CATEGORY_SIZE = 12;
+
+  // Offsets of the fields of a record.
+  private static final int NAME_REF = 0;
+  private static final int TITLE_REF = 4;
+  private static final int DESCRIPTION_REF = 8;
+  private static final int IMAGE_REF = 12;
+  private static final int CATEGORY_INDEX = 16;
+  private static final int PRICE = 24;
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int categoryCount;
+  private final int recordsOffset;
+  private final int categoriesOffset;
+  private final int categoryProductsOffset;
+  private final int priceIndexOffset;
+  private final int stringsOffset;
+  private final int stringsLength;
+
+  private CompiledCatalog(ByteBuffer buffer) throws IOException {
+    // Only absolute reads are made, so the buffer is never modified and can be shared by threads.
+    this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    if (buffer.capacity() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a compiled catalog");
+    }
+    if (this.buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported catalog version " + this.buffer.getInt(4));
+    }
+    this.size = this.buffer.getInt(8);
+    this.categoryCount = this.buffer.getInt(12);
+    this.recordsOffset = this.buffer.getInt(16);
+    this.categoriesOffset = this.buffer.getInt(20);
+    this.categoryProductsOffset = this.buffer.getInt(24);
+    this.priceIndexOffset = this.buffer.getInt(28);
+    this.stringsOffset = this.buffer.getInt(32);
+    this.stringsLength = this.buffer.getInt(36);
+
+    checkSection(recordsOffset, (long) size * RECORD_SIZE);
+    checkSection(categoriesOffset, (long) categoryCount * CATEGORY_SIZE);
+    checkSection(categoryProductsOffset, (long) size * 4);
+    checkSection(priceIndexOffset, (long) size * 4);
+    checkSection(stringsOffset, stringsLength);
+  }
+
+  private void checkSection(int offset, long length) throws IOException {
+    if (offset < HEADER_SIZE || length < 0 || offset + length > buffer.capacity()) {
+      throw new IOException("Corrupt catalog");
+    }
+  }
+
+  /**
+   * Maps the catalog shipped in the app's assets. The asset must be stored uncompressed.
+   *
+   * @throws IOException if the app doesn't ship a compiled catalog, or it can't be read.
+   */
+  public static CompiledCatalog open(Context context) throws IOException {
+    try (AssetFileDescriptor descriptor = context.getAssets().openFd(ASSET_NAME);
+         FileInputStream input = descriptor.createInputStream()) {
+      // The mapping remains valid once the file is closed.
+      return wrap(input.getChannel().map(FileChannel.MapMode.READ_ONLY,
+          descriptor.getStartOffset(), descriptor.getLength()));
+    }
+  }
+
+  /**
+   * @param buffer the compiled catalog, from position 0.
+   * @throws IOException if the buffer doesn't hold a compiled catalog of a supported version.
+   */
+  public static CompiledCatalog wrap(ByteBuffer buffer) throws IOException {
+    return new CompiledCatalog(buffer);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String getName(int index) {
+    return getString(getRef(index, NAME_REF));
+  }
+
+  public String getTitle(int index) {
+    return getString(getRef(index, TITLE_REF));
+  }
+
+  /**
+   * @return the description of the product, HTML-escaped as it appears in the catalog.
+   */
+  public String getDescription(int index) {
+    return getString(getRef(index, DESCRIPTION_REF));
+  }
+
+  public String getImageName(int index) {
+    return getString(getImageRef(index));
+  }
+
+  public String getCategory(int index) {
+    return getString(buffer.getInt(getCategoryOffset(getCategoryIndex(index))));
+  }
+
+  /**
+   * @return the position of the product's category in {@link #getCategories()}.
+   */
+  public int getCategoryIndex(int index) {
+    return getRef(index, CATEGORY_INDEX);
+  }
+
+  /**
+   * @return the price of the product, in minor units of {@code Constants.CURRENCY_CODE}.
+   */
+  public long getPriceMinorUnits(int index) {
+    return buffer.getLong(getRecordOffset(index) + PRICE);
+  }
+
+  /**
+   * @return the distinct categories of the catalog, in order of first appearance.
+   */
+  public String[] getCategories() {
+    final String[] categories = new String[categoryCount];
+    for (int i = 0; i < categoryCount; i++) {
+      categories[i] = getString(buffer.getInt(getCategoryOffset(i)));
+    }
+    return categories;
+  }
+
+  /**
+   * @param category the position of the category in {@link #getCategories()}.
+   * @return the indexes of the products of the category, in catalog order.
+   */
+  public int[] getProductsInCategory(int category) {
+    final int offset = getCategoryOffset(category);
+    return readIndexes(categoryProductsOffset, buffer.getInt(offset + 4),
+        buffer.getInt(offset + 8));
+  }
+
+  /**
+   * @return the indexes of the products priced between {@code minMinorUnits} and
+   *     {@code maxMinorUnits} inclusive, from the cheapest to the most expensive.
+   */
+  public int[] getProductsByPrice(long minMinorUnits, long maxMinorUnits) {
+    if (minMinorUnits > maxMinorUnits) {
+      return new int[0];
+    }
+    final int from = findFirstPriceAtLeast(minMinorUnits);
+    final int to = maxMinorUnits == Long.MAX_VALUE
+        ? size : findFirstPriceAtLeast(maxMinorUnits + 1);
+    return readIndexes(priceIndexOffset, from, to - from);
+  }
+
+  /**
+   * @return the position in the price index of the first product priced at least
+   *     {@code minorUnits}.
+   */
+  private int findFirstPriceAtLeast(long minorUnits) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      final int product = buffer.getInt(priceIndexOffset + middle * 4);
+      if (getPriceMinorUnits(product) < minorUnits) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int[] readIndexes(int sectionOffset, int from, int count) {
+    final int[] indexes = new int[count];
+    for (int i = 0; i < count; i++) {
+      indexes[i] = buffer.getInt(sectionOffset + (from + i) * 4);
+    }
+    return indexes;
+  }
+
+  /**
+   * @return the reference of the product's image name in the string pool, equal for products
+   *     that share the same image.
+   */
+  int getImageRef(int index) {
+    return getRef(index, IMAGE_REF);
+  }
+
+  /**
+   * Decodes a string of the string pool.
+   */
+  String getString(int ref) {
+    if (ref < 0 || ref > stringsLength - 4) {
+      throw new IllegalStateException("Corrupt catalog, string " + ref);
+    }
+    final int offset = stringsOffset + ref;
+    final int length = buffer.getInt(offset);
+    if (length < 0 || length > stringsLength - ref - 4) {
+      throw new IllegalStateException("Corrupt catalog, string " + ref);
+    }
+    final byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(offset + 4 + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private int getRef(int index, int field) {
+    return buffer.getInt(getRecordOffset(index) + field);
+  }
+
+  private int getRecordOffset(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+    return recordsOffset + index * RECORD_SIZE;
+  }
+
+  private int getCategoryOffset(int category) {
+    if (category < 0 || category >= categoryCount) {
+      throw new IndexOutOfBoundsException("Category " + category + ", count " + categoryCount);
+    }
+    return categoriesOffset + category * CATEGORY_SIZE;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.data;
+
+/**
+ * Decodes the HTML entities of catalog text.
+ *
+ * <p>Titles and descriptions in the catalog are HTML, escaped once or more (e.g.
+ * {@code &amp;lt;div&amp;gt;}), so they are unescaped until no entity is left before being shown
+ * or indexed.
+ */
+public final class HtmlText {
+
+  // Enough for text that was escaped twice, with some margin.
+  private static final int MAX_UNESCAPES = 4;
+
+  private HtmlText() {
+  }
+
+  /**
+   * @return the HTML fragment with its entities decoded, repeatedly until it no longer changes.
+   */
+  public static String unescape(String html) {
+    String text = html;
+    for (int i = 0; i < MAX_UNESCAPES && text.indexOf('&') >= 0; i++) {
+      final String unescaped = unescapeOnce(text);
+      if (unescaped.equals(text)) {
+        break;
+      }
+      text = unescaped;
+    }
+    return text;
+  }
+
+  private static String unescapeOnce(String text) {
+    final StringBuilder builder = new StringBuilder(text.length());
+    int i = 0;
+    while (i < text.length()) {
+      final char c = text.charAt(i);
+      final int end = c == '&' ? text.indexOf(';', i) : -1;
+      final int decoded = end > i + 1 ? decodeEntity(text, i + 1, end) : -1;
+      if (decoded < 0) {
+        builder.append(c);
+        i++;
+      } else {
+        builder.appendCodePoint(decoded);
+        i = end + 1;
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * @return the code point of the entity between {@code start} and {@code end}, or -1 if it is not
+   * a known entity.
+   */
+  private static int decodeEntity(String text, int start, int end) {
+    if (text.charAt(start) == '#') {
+      final boolean hex = end > start + 1
+          && (text.charAt(start + 1) == 'x' || text.charAt(start + 1) == 'X');
+      try {
+        final int codePoint =
+            Integer.parseInt(text.substring(start + (hex ? 2 : 1), end), hex ? 16 : 10);
+        return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+    }
+    switch (text.substring(start, end)) {
+      case "amp":
+        return '&';
+      case "lt":
+        return '<';
+      case "gt":
+        return '>';
+      case "quot":
+        return '"';
+      case "apos":
+        return '\'';
+      case "nbsp":
+        return ' ';
+      default:
+        return -1;
+    }
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.data;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.samples.pay.Constants;
+
+import java.util.Currency;
+
+/**
+ * An amount of money, stored as a whole number of minor units (e.g. cents) of a currency.
+ *
+ * <p>Arithmetic is exact and fails with an {@link ArithmeticException} on overflow instead of
+ * wrapping around. Amounts are formatted by writing digits straight into a caller-provided
+ * {@link StringBuilder}, without going through {@code BigDecimal} or {@code String.format}. The
+ * decimal form (e.g. {@code 50.20}) is the one expected by the Google Pay API for
+ * {@code totalPrice}.
+ */
+public final class Money {
+
+  private static final Currency DEFAULT_CURRENCY = Currency.getInstance(Constants.CURRENCY_CODE);
+
+  private static final String DEFAULT_SYMBOL = DEFAULT_CURRENCY.getSymbol();
+
+  private static final int DEFAULT_FRACTION_DIGITS = fractionDigitsOf(DEFAULT_CURRENCY);
+
+  private final long minorUnits;
+  private final String currencyCode;
+  private final int fractionDigits;
+
+  private Money(long minorUnits, String currencyCode, int fractionDigits) {
+    this.minorUnits = minorUnits;
+    this.currencyCode = currencyCode;
+    this.fractionDigits = fractionDigits;
+  }
+
+  /**
+   * @param minorUnits the amount, in minor units of {@link Constants#CURRENCY_CODE}.
+   */
+  public static Money ofMinor(long minorUnits) {
+    return new Money(minorUnits, Constants.CURRENCY_CODE, DEFAULT_FRACTION_DIGITS);
+  }
+
+  /**
+   * @param minorUnits   the amount, in minor units of the currency.
+   * @param currencyCode the ISO 4217 code of the currency.
+   */
+  public static Money ofMinor(long minorUnits, String currencyCode) {
+    if (Constants.CURRENCY_CODE.equals(currencyCode)) {
+      return ofMinor(minorUnits);
+    }
+    return new Money(
+        minorUnits, currencyCode, fractionDigitsOf(Currency.getInstance(currencyCode)));
+  }
+
+  public static Money zero() {
+    return ofMinor(0);
+  }
+
+  private static int fractionDigitsOf(Currency currency) {
+    // Pseudo-currencies report -1.
+    return Math.max(currency.getDefaultFractionDigits(), 0);
+  }
+
+  public long getMinorUnits() {
+    return minorUnits;
+  }
+
+  public String getCurrencyCode() {
+    return currencyCode;
+  }
+
+  /**
+   * @return the number of digits after the decimal separator for this currency.
+   */
+  public int getFractionDigits() {
+    return fractionDigits;
+  }
+
+  public boolean isZero() {
+    return minorUnits == 0;
+  }
+
+  public Money plus(Money other) {
+    checkSameCurrency(other);
+    return withMinorUnits(addExact(minorUnits, other.minorUnits));
+  }
+
+  public Money minus(Money other) {
+    checkSameCurrency(other);
+    return withMinorUnits(addExact(minorUnits, negateExact(other.minorUnits)));
+  }
+
+  public Money times(long quantity) {
+    return withMinorUnits(multiplyExact(minorUnits, quantity));
+  }
+
+  private Money withMinorUnits(long newMinorUnits) {
+    return newMinorUnits == minorUnits
+        ? this : new Money(newMinorUnits, currencyCode, fractionDigits);
+  }
+
+  /**
+   * Checks that the amount is expressed in the given currency, e.g. before writing it next to that
+   * currency's code in a request: amounts are written without their currency.
+   *
+   * @return this amount, for chaining.
+   * @throws IllegalArgumentException if the amount is in another currency.
+   */
+  public Money requireCurrency(String currencyCode) {
+    if (!this.currencyCode.equals(currencyCode)) {
+      throw new IllegalArgumentException(
+          "Currency mismatch: " + this.currencyCode + " charged in " + currencyCode);
+    }
+    return this;
+  }
+
+  private void checkSameCurrency(Money other) {
+    if (!currencyCode.equals(other.currencyCode)) {
+      throw new IllegalArgumentException(
+          "Currency mismatch: " + currencyCode + " and " + other.currencyCode);
+    }
+  }
+
+  /**
+   * Appends the amount as a plain decimal number, e.g. {@code 50.20} or {@code -0.05}.
+   *
+   * @return the same builder, for chaining.
+   */
+  public StringBuilder appendDecimal(StringBuilder builder) {
+    return appendDecimal(builder, minorUnits, fractionDigits);
+  }
+
+  /**
+   * Appends the amount preceded by the currency symbol, e.g. {@code $50.20}.
+   *
+   * @return the same builder, for chaining.
+   */
+  public StringBuilder appendDisplay(StringBuilder builder) {
+    if (minorUnits < 0) {
+      builder.append('-');
+    }
+    builder.append(Constants.CURRENCY_CODE.equals(currencyCode)
+        ? DEFAULT_SYMBOL : Currency.getInstance(currencyCode).getSymbol());
+    return appendMagnitude(builder, minorUnits, fractionDigits);
+  }
+
+  /**
+   * Appends an amount given in minor units as a plain decimal number.
+   *
+   * @return the same builder, for chaining.
+   */
+  public static StringBuilder appendDecimal(
+      StringBuilder builder, long minorUnits, int fractionDigits) {
+    if (minorUnits < 0) {
+      builder.append('-');
+    }
+    return appendMagnitude(builder, minorUnits, fractionDigits);
+  }
+
+  /**
+   * Appends the absolute value of an amount given in minor units as a plain decimal number.
+   */
+  private static StringBuilder appendMagnitude(
+      StringBuilder builder, long minorUnits, int fractionDigits) {
+    // Long.MIN_VALUE can't be negated, so work with the negative magnitude instead.
+    final long negative = minorUnits < 0 ? minorUnits : -minorUnits;
+    long divisor = 1;
+    for (int i = 0; i < fractionDigits; i++) {
+      divisor *= 10;
+    }
+
+    final long whole = negative / divisor;
+    if (whole == Long.MIN_VALUE) {
+      builder.append("9223372036854775808");
+    } else {
+      builder.append(-whole);
+    }
+    if (fractionDigits > 0) {
+      builder.append('.');
+      final long fraction = -(negative % divisor);
+      for (long scale = divisor / 10; scale > 0; scale /= 10) {
+        builder.append((char) ('0' + (fraction / scale) % 10));
+      }
+    }
+    return builder;
+  }
+
+  /**
+   * @return the amount as a plain decimal number, e.g. {@code 50.20}.
+   */
+  public String toDecimalString() {
+    return appendDecimal(new StringBuilder(24)).toString();
+  }
+
+  /**
+   * @return the amount preceded by the currency symbol, e.g. {@code $50.20}.
+   */
+  public String toDisplayString() {
+    return appendDisplay(new StringBuilder(24)).toString();
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return toDecimalString() + " " + currencyCode;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Money)) {
+      return false;
+    }
+    final Money other = (Money) o;
+    return minorUnits == other.minorUnits && currencyCode.equals(other.currencyCode);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * currencyCode.hashCode() + (int) (minorUnits ^ (minorUnits >>> 32));
+  }
+
+  // Math.addExact and friends are only available from API level 24.
+
+  static long addExact(long a, long b) {
+    final long result = a + b;
+    if (((a ^ result) & (b ^ result)) < 0) {
+      throw new ArithmeticException("long overflow");
+    }
+    return result;
+  }
+
+  static long negateExact(long a) {
+    if (a == Long.MIN_VALUE) {
+      throw new ArithmeticException("long overflow");
+    }
+    return -a;
+  }
+
+  static long multiplyExact(long a, long b) {
+    final long result = a * b;
+    if ((Math.abs(a) | Math.abs(b)) >>> 31 != 0
+        && ((b != 0 && result / b != a) || (a == Long.MIN_VALUE && b == -1))) {
+      throw new ArithmeticException("long overflow");
+    }
+    return result;
+  }
+}
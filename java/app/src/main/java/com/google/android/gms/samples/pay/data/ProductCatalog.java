@@ -0,0 +1,297 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.data;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, column-oriented store for the products of the catalog.
+ *
+ * <p>Products are addressed by their position in the catalog. Rather than one object per
+ * product, each attribute is kept in its own array: categories are interned and stored as indexes
+ * into a small table, prices are kept as minor currency units in a {@code long[]} and image
+ * resource ids are resolved once, when the catalog is built.
+ *
+ * <p>A catalog read from a {@link CompiledCatalog} copies its categories and prices up front, and
+ * decodes the other strings of a product the first time they are asked for.
+ */
+public final class ProductCatalog {
+
+  /**
+   * Resolves the name of a product image to a drawable resource.
+   */
+  public interface ImageResolver {
+
+    /**
+     * @return the drawable resource id for the image, or 0 if the app doesn't ship it.
+     */
+    @DrawableRes
+    int resolve(String imageName);
+  }
+
+  public static final ProductCatalog EMPTY = new Builder(0).build(imageName -> 0);
+
+  private final int size;
+  private final String[] names;
+  private final String[] titles;
+  private final String[] descriptions;
+  private final String[] imageNames;
+  private final int[] imageResIds;
+  private final String[] categories;
+  private final int[] categoryIndexes;
+  private final long[] prices;
+
+  // The source of the strings that haven't been decoded yet, null if they are all in the arrays.
+  // Decoded strings are cached without locking: threads racing on a product may decode it twice,
+  // but Strings are immutable and safe to publish this way.
+  @Nullable
+  private final CompiledCatalog compiled;
+
+  private ProductCatalog(Builder builder, int[] imageResIds) {
+    this.compiled = null;
+    this.size = builder.size;
+    this.names = Arrays.copyOf(builder.names, size);
+    this.titles = Arrays.copyOf(builder.titles, size);
+    this.descriptions = Arrays.copyOf(builder.descriptions, size);
+    this.imageNames = Arrays.copyOf(builder.imageNames, size);
+    this.imageResIds = imageResIds;
+    this.categories = new String[builder.categoryIds.size()];
+    for (Map.Entry<String, Integer> category : builder.categoryIds.entrySet()) {
+      categories[category.getValue()] = category.getKey();
+    }
+    this.categoryIndexes = Arrays.copyOf(builder.categoryIndexes, size);
+    this.prices = Arrays.copyOf(builder.prices, size);
+  }
+
+  private ProductCatalog(CompiledCatalog compiled, ImageResolver imageResolver) {
+    this.compiled = compiled;
+    this.size = compiled.size();
+    this.names = new String[size];
+    this.titles = new String[size];
+    this.descriptions = new String[size];
+    this.imageNames = new String[size];
+    this.imageResIds = new int[size];
+    this.categories = compiled.getCategories();
+    this.categoryIndexes = new int[size];
+    this.prices = new long[size];
+
+    final Map<Integer, Integer> resolved = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      categoryIndexes[i] = compiled.getCategoryIndex(i);
+      prices[i] = compiled.getPriceMinorUnits(i);
+      // Products with the same image share the same string, so each image is resolved once.
+      final int imageRef = compiled.getImageRef(i);
+      Integer resId = resolved.get(imageRef);
+      if (resId == null) {
+        resId = imageResolver.resolve(compiled.getString(imageRef));
+        resolved.put(imageRef, resId);
+      }
+      imageResIds[i] = resId;
+    }
+  }
+
+  /**
+   * Reads a compiled catalog. The catalog must remain readable for as long as the returned one is
+   * used.
+   */
+  public static ProductCatalog of(CompiledCatalog compiled, ImageResolver imageResolver) {
+    return new ProductCatalog(compiled, imageResolver);
+  }
+
+  /**
+   * Builds a catalog of the given size by repeating the products of another one, e.g. to try the
+   * app with a much larger catalog than the one it ships. The copies share the strings of the
+   * source, so they only differ by their position.
+   */
+  public static ProductCatalog repeat(ProductCatalog source, int size) {
+    if (source.size == 0 && size > 0) {
+      throw new IllegalArgumentException("Can't repeat an empty catalog");
+    }
+    final Builder builder = new Builder(size);
+    final Map<String, Integer> imageResIds = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      final int index = i % source.size;
+      final String imageName = source.getImageName(index);
+      builder.add(source.getName(index), source.getTitle(index), source.getCategory(index),
+          source.prices[index], source.getDescription(index), imageName);
+      imageResIds.put(imageName, source.imageResIds[index]);
+    }
+    return builder.build(imageResIds::get);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the URL-friendly name that identifies the product.
+   */
+  public String getName(int index) {
+    String name = names[checkIndex(index)];
+    if (name == null && compiled != null) {
+      name = names[index] = compiled.getName(index);
+    }
+    return name;
+  }
+
+  public String getTitle(int index) {
+    String title = titles[checkIndex(index)];
+    if (title == null && compiled != null) {
+      title = titles[index] = compiled.getTitle(index);
+    }
+    return title;
+  }
+
+  /**
+   * @return the description of the product, HTML-escaped as it appears in the catalog.
+   */
+  public String getDescription(int index) {
+    String description = descriptions[checkIndex(index)];
+    if (description == null && compiled != null) {
+      description = descriptions[index] = compiled.getDescription(index);
+    }
+    return description;
+  }
+
+  public String getCategory(int index) {
+    return categories[categoryIndexes[checkIndex(index)]];
+  }
+
+  /**
+   * @return the position of the product's category in {@link #getCategories()}.
+   */
+  public int getCategoryIndex(int index) {
+    return categoryIndexes[checkIndex(index)];
+  }
+
+  /**
+   * @return the distinct categories of the catalog, in order of first appearance.
+   */
+  public String[] getCategories() {
+    return categories.clone();
+  }
+
+  /**
+   * @return the price of the product, in minor units of {@code Constants.CURRENCY_CODE}.
+   */
+  public long getPriceMinorUnits(int index) {
+    return prices[checkIndex(index)];
+  }
+
+  public String getImageName(int index) {
+    String imageName = imageNames[checkIndex(index)];
+    if (imageName == null && compiled != null) {
+      imageName = imageNames[index] = compiled.getImageName(index);
+    }
+    return imageName;
+  }
+
+  /**
+   * @return the drawable for the product image, or 0 if the app doesn't ship it.
+   */
+  @DrawableRes
+  public int getImageResId(int index) {
+    return imageResIds[checkIndex(index)];
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+    return index;
+  }
+
+  /**
+   * Accumulates products one by one, growing its arrays as needed.
+   */
+  public static final class Builder {
+
+    private int size;
+    private String[] names;
+    private String[] titles;
+    private String[] descriptions;
+    private String[] imageNames;
+    private int[] categoryIndexes;
+    private long[] prices;
+
+    // Interned categories, mapped to their index in order of first appearance.
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+
+    public Builder(int initialCapacity) {
+      names = new String[initialCapacity];
+      titles = new String[initialCapacity];
+      descriptions = new String[initialCapacity];
+      imageNames = new String[initialCapacity];
+      categoryIndexes = new int[initialCapacity];
+      prices = new long[initialCapacity];
+    }
+
+    public Builder add(String name, String title, String category, long priceMinorUnits,
+        String description, String imageName) {
+      if (size == names.length) {
+        grow();
+      }
+
+      Integer categoryIndex = categoryIds.get(category);
+      if (categoryIndex == null) {
+        categoryIndex = categoryIds.size();
+        categoryIds.put(category, categoryIndex);
+      }
+
+      names[size] = name;
+      titles[size] = title;
+      descriptions[size] = description;
+      imageNames[size] = imageName;
+      categoryIndexes[size] = categoryIndex;
+      prices[size] = priceMinorUnits;
+      size++;
+      return this;
+    }
+
+    private void grow() {
+      final int capacity = Math.max(16, names.length + (names.length >> 1));
+      names = Arrays.copyOf(names, capacity);
+      titles = Arrays.copyOf(titles, capacity);
+      descriptions = Arrays.copyOf(descriptions, capacity);
+      imageNames = Arrays.copyOf(imageNames, capacity);
+      categoryIndexes = Arrays.copyOf(categoryIndexes, capacity);
+      prices = Arrays.copyOf(prices, capacity);
+    }
+
+    /**
+     * Builds the catalog, resolving each distinct image name exactly once.
+     */
+    public ProductCatalog build(ImageResolver imageResolver) {
+      final Map<String, Integer> resolved = new HashMap<>();
+      final int[] imageResIds = new int[size];
+      for (int i = 0; i < size; i++) {
+        Integer resId = resolved.get(imageNames[i]);
+        if (resId == null) {
+          resId = imageResolver.resolve(imageNames[i]);
+          resolved.put(imageNames[i], resId);
+        }
+        imageResIds[i] = resId;
+      }
+      return new ProductCatalog(this, imageResIds);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.image;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bitmaps that are no longer displayed nor cached, kept to be decoded into again through
+ * {@link android.graphics.BitmapFactory.Options#inBitmap} instead of allocating new ones.
+ *
+ * <p>The pool is bounded by the bytes it holds; the oldest bitmaps are dropped first when it is
+ * full. Only mutable bitmaps can be reused, others are dropped right away.
+ */
+final class BitmapPool {
+
+  private final long maxBytes;
+
+  // Oldest first. Guarded by this.
+  private final List<Bitmap> bitmaps = new ArrayList<>();
+  private long bytes;
+
+  BitmapPool(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Offers a bitmap for reuse. The caller must not use it anymore.
+   */
+  synchronized void put(Bitmap bitmap) {
+    final int size = bitmap.getAllocationByteCount();
+    if (!bitmap.isMutable() || bitmap.isRecycled() || size > maxBytes) {
+      return;
+    }
+    bitmaps.add(bitmap);
+    bytes += size;
+    while (bytes > maxBytes) {
+      bytes -= bitmaps.remove(0).getAllocationByteCount();
+    }
+  }
+
+  /**
+   * Takes the smallest bitmap that a decoder can write an image of the given size into.
+   *
+   * @return a bitmap that the caller now owns, or {@code null} if none is large enough.
+   */
+  @Nullable
+  synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+    final long needed = (long) width * height * getBytesPerPixel(config);
+    int best = -1;
+    for (int i = 0; i < bitmaps.size(); i++) {
+      final int size = bitmaps.get(i).getAllocationByteCount();
+      if (size >= needed && (best < 0 || size < bitmaps.get(best).getAllocationByteCount())) {
+        best = i;
+      }
+    }
+    if (best < 0) {
+      return null;
+    }
+    final Bitmap bitmap = bitmaps.remove(best);
+    bytes -= bitmap.getAllocationByteCount();
+    return bitmap;
+  }
+
+  synchronized long getBytes() {
+    return bytes;
+  }
+
+  synchronized void clear() {
+    bitmaps.clear();
+    bytes = 0;
+  }
+
+  private static int getBytesPerPixel(Bitmap.Config config) {
+    if (config == Bitmap.Config.ALPHA_8) {
+      return 1;
+    } else if (config == Bitmap.Config.RGB_565) {
+      return 2;
+    }
+    return 4;
+  }
+}
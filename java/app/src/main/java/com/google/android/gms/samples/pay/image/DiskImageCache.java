@@ -0,0 +1,184 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.image;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.content.pm.PackageInfoCompat;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Downscaled images written to the app's cache directory, so that a product image is decoded at
+ * full resolution once rather than every time the process starts.
+ *
+ * <p>Each entry is a JPEG file named after its key. Entries are written to a temporary file of
+ * their own and renamed, so neither a crash nor two threads writing the same entry leave a
+ * truncated entry behind. Once the directory grows beyond its budget, the least recently used
+ * entries are deleted.
+ *
+ * <p>Entries live in a subdirectory named after the version code of the app, since an update can
+ * change the images behind the same keys. The directories of other versions, and temporary files
+ * left by a crash, are deleted the first time the cache is used.
+ */
+final class DiskImageCache {
+
+  private static final String TAG = "DiskImageCache";
+
+  private static final String SUFFIX = ".jpg";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int JPEG_QUALITY = 90;
+
+  private final Context context;
+  private final File root;
+  private final long maxBytes;
+
+  // Resolved on first use, as reading the app version is too slow for the main thread.
+  private File directory;
+
+  /**
+   * @param root     the directory holding one subdirectory per app version.
+   * @param maxBytes the budget of the current version.
+   */
+  DiskImageCache(Context context, File root, long maxBytes) {
+    this.context = context.getApplicationContext();
+    this.root = root;
+    this.maxBytes = maxBytes;
+  }
+
+  @WorkerThread
+  private synchronized File getDirectory() {
+    if (directory == null) {
+      final String version = String.valueOf(getAppVersion());
+      final File[] versions = root.listFiles();
+      if (versions != null) {
+        for (File other : versions) {
+          if (!other.getName().equals(version)) {
+            deleteRecursively(other);
+          }
+        }
+      }
+      directory = new File(root, version);
+      // Left behind by a previous process, as nothing has been written by this one yet.
+      final File[] leftovers = directory.listFiles((dir, name) -> name.endsWith(TMP_SUFFIX));
+      if (leftovers != null) {
+        for (File leftover : leftovers) {
+          leftover.delete();
+        }
+      }
+    }
+    return directory;
+  }
+
+  private long getAppVersion() {
+    try {
+      return PackageInfoCompat.getLongVersionCode(context.getPackageManager()
+          .getPackageInfo(context.getPackageName(), 0));
+    } catch (PackageManager.NameNotFoundException e) {
+      return -1;
+    }
+  }
+
+  private static void deleteRecursively(File file) {
+    final File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+
+  /**
+   * @return the file holding the entry, or {@code null} if there is none.
+   */
+  @Nullable
+  @WorkerThread
+  File get(String key) {
+    final File file = new File(getDirectory(), key + SUFFIX);
+    if (!file.isFile()) {
+      return null;
+    }
+    // Keeps recently read entries from being trimmed first.
+    file.setLastModified(System.currentTimeMillis());
+    return file;
+  }
+
+  @WorkerThread
+  void put(String key, Bitmap bitmap) {
+    final File directory = getDirectory();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Unable to create " + directory);
+      return;
+    }
+    final File file = new File(directory, key + SUFFIX);
+    final File tmp;
+    try {
+      // Unique, so that concurrent writers of the same key don't write into each other's file.
+      tmp = File.createTempFile(key, TMP_SUFFIX, directory);
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to write " + key, e);
+      return;
+    }
+    try (OutputStream output = new BufferedOutputStream(new FileOutputStream(tmp))) {
+      if (!bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, output)) {
+        throw new IOException("Unable to compress " + key);
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to write " + key, e);
+      tmp.delete();
+      return;
+    }
+    if (!tmp.renameTo(file)) {
+      tmp.delete();
+      return;
+    }
+    trim(directory);
+  }
+
+  private void trim(File directory) {
+    // Temporary files are left alone, they are being written by other threads.
+    final File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+    if (files == null) {
+      return;
+    }
+    long total = 0;
+    for (File file : files) {
+      total += file.length();
+    }
+    if (total <= maxBytes) {
+      return;
+    }
+    Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+    for (int i = 0; i < files.length && total > maxBytes; i++) {
+      final long length = files[i].length();
+      if (files[i].delete()) {
+        total -= length;
+      }
+    }
+  }
+}
@@ -0,0 +1,574 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.image;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.google.android.gms.samples.pay.R;
+import com.google.android.gms.samples.pay.metrics.LatencyHistogram;
+import com.google.android.gms.samples.pay.util.PaymentsExecutors;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads product images into {@link ImageView}s at the size they are displayed at.
+ *
+ * <p>Images are decoded on background threads, once however many views ask for the same image at
+ * the same time. The size of the source is read first with a bounds-only decode, and the image is
+ * then subsampled by the largest power of two that keeps it at least as large as the view. The decoded bitmaps are kept in a memory cache sized from the
+ * memory available to the app, and the downscaled variants are also written to a
+ * {@link DiskImageCache}, so that later processes don't decode the full image again. Bitmaps
+ * evicted from the memory cache and no longer displayed go to a {@link BitmapPool}, to be decoded
+ * into again instead of allocating new ones.
+ *
+ * <p>Views only hold a bitmap while they are attached to a window. A detached view gives its
+ * bitmap back and loads it again, usually from the memory cache, once it is attached again.
+ *
+ * <p>The memory cache and the bitmaps displayed by views are only touched on the main thread.
+ * Decode times, cache hits and the peak memory held by bitmaps are available from
+ * {@link #snapshotAndResetStats()}, e.g. once per product screen.
+ */
+public final class ImageLoader implements ComponentCallbacks2 {
+
+  private static final String TAG = "ImageLoader";
+
+  private static final int THREADS = 2;
+
+  // Share of the app's memory class used by the memory cache, and share of that for the pool.
+  private static final int MEMORY_CACHE_DIVISOR = 8;
+  private static final int POOL_DIVISOR = 4;
+
+  private static final long DISK_CACHE_BYTES = 20L * 1024 * 1024;
+
+  private static ImageLoader instance;
+
+  private final Resources resources;
+  private final LruCache<String, Bitmap> memoryCache;
+  private final BitmapPool pool;
+  private final DiskImageCache diskCache;
+  private final Executor decodeExecutor;
+  private final Executor mainExecutor = PaymentsExecutors.mainThread();
+
+  // Source sizes by resource id, read once with a bounds-only decode.
+  private final Map<Integer, int[]> sourceSizes = new ConcurrentHashMap<>();
+
+  // Views waiting for each decode in progress, so that concurrent loads of the same image are
+  // decoded, and written to the disk cache, once. Main thread only.
+  private final Map<String, List<ImageView>> pendingLoads = new HashMap<>();
+
+  // Number of views showing each bitmap, and the bitmaps evicted while shown. Main thread only.
+  private final Map<Bitmap, Integer> displayCounts = new IdentityHashMap<>();
+  private final Set<Bitmap> evictedWhileDisplayed =
+      Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+  private long evictedWhileDisplayedBytes;
+
+  // Added once to every view loaded into, so that detached views don't keep their bitmap.
+  private final View.OnAttachStateChangeListener attachListener =
+      new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View view) {
+          final Object request = view.getTag(R.id.image_loader_request);
+          if (request instanceof Integer && view.getTag(R.id.image_loader_bitmap) == null) {
+            load((Integer) request, (ImageView) view);
+          }
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View view) {
+          final Bitmap bitmap = (Bitmap) view.getTag(R.id.image_loader_bitmap);
+          if (bitmap != null) {
+            view.setTag(R.id.image_loader_bitmap, null);
+            ((ImageView) view).setImageDrawable(null);
+            release(bitmap);
+          }
+        }
+      };
+
+  private final LatencyHistogram decodeLatency = new LatencyHistogram();
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong sourceDecodes = new AtomicLong();
+  private final AtomicLong peakBitmapBytes = new AtomicLong();
+
+  private ImageLoader(Context context) {
+    final ActivityManager activityManager =
+        (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+    final int cacheBytes =
+        activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CACHE_DIVISOR;
+
+    this.resources = context.getResources();
+    this.pool = new BitmapPool(cacheBytes / POOL_DIVISOR);
+    this.diskCache = new DiskImageCache(
+        context, new File(context.getCacheDir(), "images"), DISK_CACHE_BYTES);
+    this.memoryCache = new LruCache<String, Bitmap>(cacheBytes) {
+      @Override
+      protected int sizeOf(String key, Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+      }
+
+      @Override
+      protected void entryRemoved(
+          boolean evicted, String key, Bitmap oldValue, @Nullable Bitmap newValue) {
+        if (displayCounts.containsKey(oldValue)) {
+          if (evictedWhileDisplayed.add(oldValue)) {
+            evictedWhileDisplayedBytes += oldValue.getAllocationByteCount();
+          }
+        } else {
+          pool.put(oldValue);
+        }
+      }
+    };
+    this.decodeExecutor = createDecodeExecutor();
+  }
+
+  public static synchronized ImageLoader getInstance(Context context) {
+    if (instance == null) {
+      final Context applicationContext = context.getApplicationContext();
+      instance = new ImageLoader(applicationContext);
+      applicationContext.registerComponentCallbacks(instance);
+    }
+    return instance;
+  }
+
+  private static Executor createDecodeExecutor() {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS,
+        30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> {
+          final Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+          }, "ImageDecoder-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Shows a drawable resource in a view, decoded at the size of the view. If the view isn't
+   * attached or hasn't been laid out yet, loading starts once it is. Loading another image into the
+   * same view cancels this one.
+   */
+  @MainThread
+  public void load(@DrawableRes int resId, ImageView view) {
+    view.setTag(R.id.image_loader_request, resId);
+    if (view.getTag(R.id.image_loader_attach_listener) == null) {
+      view.setTag(R.id.image_loader_attach_listener, attachListener);
+      view.addOnAttachStateChangeListener(attachListener);
+    }
+    if (!view.isAttachedToWindow()) {
+      return;
+    }
+    final int width = view.getWidth();
+    final int height = view.getHeight();
+    if (width == 0 || height == 0) {
+      view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+          view.getViewTreeObserver().removeOnPreDrawListener(this);
+          if (isCurrentRequest(view, resId) && view.getWidth() > 0 && view.getHeight() > 0) {
+            load(resId, view);
+          }
+          return true;
+        }
+      });
+      return;
+    }
+
+    // The source size is read once per resource, then the load starts over on the main thread.
+    final int[] sourceSize = sourceSizes.get(resId);
+    if (sourceSize == null) {
+      readSourceSize(resId, view);
+      return;
+    }
+
+    // Served synchronously if the image is already decoded, or attached to its pending decode.
+    final int sampleSize = getSampleSize(sourceSize, width, height);
+    final String key = getKey(resId, sampleSize);
+    final Bitmap cached = memoryCache.get(key);
+    if (cached != null) {
+      memoryHits.incrementAndGet();
+      display(view, cached);
+      return;
+    }
+    final List<ImageView> waiting = pendingLoads.get(key);
+    if (waiting != null) {
+      if (!waiting.contains(view)) {
+        waiting.add(view);
+      }
+      return;
+    }
+
+    final List<ImageView> views = new ArrayList<>(1);
+    views.add(view);
+    pendingLoads.put(key, views);
+    try {
+      decodeExecutor.execute(() -> {
+        final Bitmap bitmap = decode(resId, sourceSize, sampleSize);
+        mainExecutor.execute(() -> onDecoded(resId, key, bitmap));
+      });
+    } catch (RejectedExecutionException e) {
+      pendingLoads.remove(key);
+      Log.e(TAG, "Unable to load image " + resId, e);
+    }
+  }
+
+  @MainThread
+  private void readSourceSize(int resId, ImageView view) {
+    try {
+      decodeExecutor.execute(() -> {
+        if (getSourceSize(resId) != null) {
+          mainExecutor.execute(() -> {
+            if (isCurrentRequest(view, resId)) {
+              load(resId, view);
+            }
+          });
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      Log.e(TAG, "Unable to load image " + resId, e);
+    }
+  }
+
+  /**
+   * Caches a decoded bitmap and shows it in every view that still wants it.
+   */
+  @MainThread
+  private void onDecoded(int resId, String key, @Nullable Bitmap bitmap) {
+    final List<ImageView> views = pendingLoads.remove(key);
+    if (bitmap == null) {
+      return;
+    }
+    if (memoryCache.get(key) == null) {
+      memoryCache.put(key, bitmap);
+    }
+    for (ImageView view : views) {
+      if (isCurrentRequest(view, resId) && view.isAttachedToWindow()) {
+        display(view, memoryCache.get(key));
+      }
+    }
+    updatePeak();
+  }
+
+  /**
+   * Stops loading into a view and removes its image, e.g. when a list recycles the view.
+   */
+  @MainThread
+  public void clear(ImageView view) {
+    final Bitmap previous = (Bitmap) view.getTag(R.id.image_loader_bitmap);
+    view.setTag(R.id.image_loader_request, null);
+    view.setTag(R.id.image_loader_bitmap, null);
+    view.setImageDrawable(null);
+    if (previous != null) {
+      release(previous);
+    }
+  }
+
+  private static boolean isCurrentRequest(ImageView view, int resId) {
+    final Object request = view.getTag(R.id.image_loader_request);
+    return request instanceof Integer && (Integer) request == resId;
+  }
+
+  @MainThread
+  private void display(ImageView view, Bitmap bitmap) {
+    final Bitmap previous = (Bitmap) view.getTag(R.id.image_loader_bitmap);
+    if (previous == bitmap) {
+      return;
+    }
+    view.setImageBitmap(bitmap);
+    view.setTag(R.id.image_loader_bitmap, bitmap);
+
+    final Integer count = displayCounts.get(bitmap);
+    displayCounts.put(bitmap, count == null ? 1 : count + 1);
+    if (previous != null) {
+      release(previous);
+    }
+  }
+
+  @MainThread
+  private void release(Bitmap bitmap) {
+    final Integer count = displayCounts.get(bitmap);
+    if (count == null) {
+      return;
+    }
+    if (count > 1) {
+      displayCounts.put(bitmap, count - 1);
+      return;
+    }
+    displayCounts.remove(bitmap);
+    if (evictedWhileDisplayed.remove(bitmap)) {
+      evictedWhileDisplayedBytes -= bitmap.getAllocationByteCount();
+      pool.put(bitmap);
+    }
+  }
+
+  /**
+   * Decodes a drawable resource at a size of at least {@code width} by {@code height} pixels,
+   * without involving the memory cache.
+   *
+   * @return the bitmap, or {@code null} if the resource can't be decoded.
+   */
+  @Nullable
+  @WorkerThread
+  public Bitmap decode(@DrawableRes int resId, int width, int height) {
+    final int[] size = getSourceSize(resId);
+    return size != null ? decode(resId, size, getSampleSize(size, width, height)) : null;
+  }
+
+  @Nullable
+  @WorkerThread
+  private Bitmap decode(int resId, int[] sourceSize, int sampleSize) {
+    final long startNanos = System.nanoTime();
+    final String key = getKey(resId, sampleSize);
+    final int width = (sourceSize[0] + sampleSize - 1) / sampleSize;
+    final int height = (sourceSize[1] + sampleSize - 1) / sampleSize;
+
+    Bitmap bitmap = null;
+    final File file = sampleSize > 1 ? diskCache.get(key) : null;
+    if (file != null) {
+      bitmap = decodeFile(file, width, height);
+      if (bitmap != null) {
+        diskHits.incrementAndGet();
+      }
+    }
+    if (bitmap == null) {
+      bitmap = decodeResource(resId, sampleSize, width, height);
+      if (bitmap == null) {
+        return null;
+      }
+      sourceDecodes.incrementAndGet();
+      if (sampleSize > 1) {
+        diskCache.put(key, bitmap);
+      }
+    }
+    decodeLatency.record(System.nanoTime() - startNanos);
+    return bitmap;
+  }
+
+  @Nullable
+  private Bitmap decodeResource(int resId, int sampleSize, int width, int height) {
+    final BitmapFactory.Options options = createOptions(width, height);
+    options.inSampleSize = sampleSize;
+    try {
+      return decodeResource(resId, options);
+    } catch (IllegalArgumentException e) {
+      // The pooled bitmap can't hold the image after all.
+      options.inBitmap = null;
+      return decodeResource(resId, options);
+    }
+  }
+
+  @Nullable
+  private Bitmap decodeResource(int resId, BitmapFactory.Options options) {
+    try (InputStream input = resources.openRawResource(resId)) {
+      return BitmapFactory.decodeStream(input, null, options);
+    } catch (IOException | Resources.NotFoundException e) {
+      Log.e(TAG, "Unable to decode image " + resId, e);
+      return null;
+    }
+  }
+
+  @Nullable
+  private Bitmap decodeFile(File file, int width, int height) {
+    final BitmapFactory.Options options = createOptions(width, height);
+    try {
+      return BitmapFactory.decodeFile(file.getPath(), options);
+    } catch (IllegalArgumentException e) {
+      options.inBitmap = null;
+      return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+  }
+
+  private BitmapFactory.Options createOptions(int width, int height) {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    // Mutable bitmaps can be reused once they are evicted.
+    options.inMutable = true;
+    options.inBitmap = pool.get(width, height, Bitmap.Config.ARGB_8888);
+    return options;
+  }
+
+  /**
+   * @return the width and height of the resource, or {@code null} if it can't be read.
+   */
+  @Nullable
+  @WorkerThread
+  private int[] getSourceSize(int resId) {
+    int[] size = sourceSizes.get(resId);
+    if (size == null) {
+      final BitmapFactory.Options options = new BitmapFactory.Options();
+      options.inJustDecodeBounds = true;
+      decodeResource(resId, options);
+      if (options.outWidth <= 0 || options.outHeight <= 0) {
+        return null;
+      }
+      size = new int[] {options.outWidth, options.outHeight};
+      sourceSizes.put(resId, size);
+    }
+    return size;
+  }
+
+  /**
+   * @return the largest power of two that keeps a source of the given size at least as large as
+   * the target in both dimensions.
+   */
+  static int getSampleSize(int[] sourceSize, int width, int height) {
+    int sampleSize = 1;
+    while (sourceSize[0] / (sampleSize * 2) >= width
+        && sourceSize[1] / (sampleSize * 2) >= height) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  private String getKey(int resId, int sampleSize) {
+    return resources.getResourceEntryName(resId) + "_" + sampleSize;
+  }
+
+  @MainThread
+  private void updatePeak() {
+    final long bytes = memoryCache.size() + evictedWhileDisplayedBytes + pool.getBytes();
+    long peak;
+    while (bytes > (peak = peakBitmapBytes.get()) && !peakBitmapBytes.compareAndSet(peak, bytes)) {
+      // Lost a race with snapshotAndResetStats(); try again.
+    }
+  }
+
+  /**
+   * Returns the decode times, cache hits and peak bitmap memory since the last call, e.g. to
+   * measure a product screen, and starts measuring again.
+   */
+  @MainThread
+  public Stats snapshotAndResetStats() {
+    final Stats stats = new Stats(decodeLatency.snapshotAndReset(), memoryHits.getAndSet(0),
+        diskHits.getAndSet(0), sourceDecodes.getAndSet(0), peakBitmapBytes.getAndSet(0));
+    updatePeak();
+    return stats;
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    if (level >= TRIM_MEMORY_BACKGROUND) {
+      memoryCache.evictAll();
+      pool.clear();
+    } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+      memoryCache.trimToSize(memoryCache.maxSize() / 2);
+    }
+  }
+
+  @Override
+  public void onLowMemory() {
+    onTrimMemory(TRIM_MEMORY_COMPLETE);
+  }
+
+  @Override
+  public void onConfigurationChanged(@NonNull Configuration newConfig) {
+  }
+
+  /**
+   * What loading images cost over a period of time.
+   */
+  public static final class Stats {
+
+    private final LatencyHistogram.Snapshot decodeLatency;
+    private final long memoryHits;
+    private final long diskHits;
+    private final long sourceDecodes;
+    private final long peakBitmapBytes;
+
+    Stats(LatencyHistogram.Snapshot decodeLatency, long memoryHits, long diskHits,
+        long sourceDecodes, long peakBitmapBytes) {
+      this.decodeLatency = decodeLatency;
+      this.memoryHits = memoryHits;
+      this.diskHits = diskHits;
+      this.sourceDecodes = sourceDecodes;
+      this.peakBitmapBytes = peakBitmapBytes;
+    }
+
+    /**
+     * @return the time taken by decodes, from the disk cache or from the resources.
+     */
+    public LatencyHistogram.Snapshot getDecodeLatency() {
+      return decodeLatency;
+    }
+
+    public long getMemoryHits() {
+      return memoryHits;
+    }
+
+    public long getDiskHits() {
+      return diskHits;
+    }
+
+    public long getSourceDecodes() {
+      return sourceDecodes;
+    }
+
+    /**
+     * @return the most memory held at once by cached, displayed and pooled bitmaps.
+     */
+    public long getPeakBitmapBytes() {
+      return peakBitmapBytes;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "ImageLoader.Stats{decodes=" + decodeLatency.getCount()
+          + ", meanDecodeMs=" + TimeUnit.NANOSECONDS.toMillis(decodeLatency.getMeanNanos())
+          + ", maxDecodeMs=" + TimeUnit.NANOSECONDS.toMillis(decodeLatency.getMaxNanos())
+          + ", memoryHits=" + memoryHits + ", diskHits=" + diskHits
+          + ", sourceDecodes=" + sourceDecodes
+          + ", peakBitmapKb=" + peakBitmapBytes / 1024 + "}";
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.list;
+
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Some products of a catalog in a given order, e.g. search results, as an immutable list of
+ * {@link ProductRow}s.
+ */
+public final class CatalogSelection extends AbstractList<ProductRow> implements RandomAccess {
+
+  private final ProductCatalog catalog;
+  private final int[] indexes;
+
+  /**
+   * @param indexes the positions of the products in the catalog. Positions past the end of the
+   *                catalog are left out.
+   */
+  public CatalogSelection(ProductCatalog catalog, int[] indexes) {
+    this.catalog = catalog;
+    int size = 0;
+    final int[] valid = new int[indexes.length];
+    for (int index : indexes) {
+      if (index >= 0 && index < catalog.size()) {
+        valid[size++] = index;
+      }
+    }
+    this.indexes = size == indexes.length ? valid : Arrays.copyOf(valid, size);
+  }
+
+  @Override
+  public ProductRow get(int index) {
+    return new ProductRow(catalog, indexes[index]);
+  }
+
+  @Override
+  public int size() {
+    return indexes.length;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.list;
+
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The first products of a catalog, as an immutable list of {@link ProductRow}s.
+ *
+ * <p>A new row is created every time one is read and is not retained, so growing the window by a
+ * page costs the same at the end of a catalog of 100,000 products as at its start, and the window
+ * holds no memory per product.
+ */
+public final class CatalogWindow extends AbstractList<ProductRow> implements RandomAccess {
+
+  private final ProductCatalog catalog;
+  private final int size;
+
+  /**
+   * @param size the number of products of the catalog in the window.
+   */
+  public CatalogWindow(ProductCatalog catalog, int size) {
+    if (size < 0 || size > catalog.size()) {
+      throw new IndexOutOfBoundsException("Size " + size + ", catalog size " + catalog.size());
+    }
+    this.catalog = catalog;
+    this.size = size;
+  }
+
+  public ProductCatalog getCatalog() {
+    return catalog;
+  }
+
+  /**
+   * @return whether the window holds every product of the catalog.
+   */
+  public boolean isComplete() {
+    return size == catalog.size();
+  }
+
+  @Override
+  public ProductRow get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+    return new ProductRow(catalog, index);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
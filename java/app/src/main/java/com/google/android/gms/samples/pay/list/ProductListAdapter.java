@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.list;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.databinding.ItemProductBinding;
+import com.google.android.gms.samples.pay.image.ImageLoader;
+
+/**
+ * Shows {@link ProductRow}s in a {@link RecyclerView}.
+ *
+ * <p>New lists are diffed against the current one on a background thread by the
+ * {@link ListAdapter}, and only the rows that changed are rebound. Rows of the same catalog have
+ * stable ids, so the RecyclerView keeps their views across pages and searches and can animate
+ * them.
+ */
+public class ProductListAdapter extends ListAdapter<ProductRow, ProductListAdapter.ViewHolder> {
+
+  /**
+   * Notified when a product is tapped.
+   */
+  public interface OnProductClickListener {
+
+    void onProductClick(ProductRow row);
+  }
+
+  private static final DiffUtil.ItemCallback<ProductRow> DIFF_CALLBACK =
+      new DiffUtil.ItemCallback<ProductRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ProductRow oldRow, @NonNull ProductRow newRow) {
+          return oldRow.getId() == newRow.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ProductRow oldRow, @NonNull ProductRow newRow) {
+          return oldRow.hasSameContents(newRow);
+        }
+      };
+
+  private final ImageLoader imageLoader;
+  private final OnProductClickListener listener;
+
+  public ProductListAdapter(ImageLoader imageLoader, OnProductClickListener listener) {
+    super(DIFF_CALLBACK);
+    this.imageLoader = imageLoader;
+    this.listener = listener;
+    setHasStableIds(true);
+  }
+
+  @Override
+  public long getItemId(int position) {
+    return getItem(position).getId();
+  }
+
+  @NonNull
+  @Override
+  public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    final ItemProductBinding binding =
+        ItemProductBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+    final ViewHolder holder = new ViewHolder(binding);
+    binding.getRoot().setOnClickListener(view -> {
+      final int position = holder.getBindingAdapterPosition();
+      if (position != RecyclerView.NO_POSITION) {
+        listener.onProductClick(getItem(position));
+      }
+    });
+    return holder;
+  }
+
+  @Override
+  public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+    final ProductRow row = getItem(position);
+    holder.binding.productTitle.setText(row.getTitle());
+    holder.binding.productCategory.setText(row.getCategory());
+    holder.binding.productPrice.setText(Money.ofMinor(row.getPriceMinorUnits()).toDisplayString());
+    if (row.getImageResId() != 0) {
+      imageLoader.load(row.getImageResId(), holder.binding.productImage);
+    } else {
+      imageLoader.clear(holder.binding.productImage);
+    }
+  }
+
+  @Override
+  public void onViewRecycled(@NonNull ViewHolder holder) {
+    // Lets the bitmap be reused once no other row shows it.
+    imageLoader.clear(holder.binding.productImage);
+  }
+
+  static final class ViewHolder extends RecyclerView.ViewHolder {
+
+    final ItemProductBinding binding;
+
+    ViewHolder(ItemProductBinding binding) {
+      super(binding.getRoot());
+      this.binding = binding;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.list;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+
+/**
+ * A product shown in the product list: a position in a {@link ProductCatalog}, read from the
+ * catalog when bound rather than copied.
+ */
+public final class ProductRow {
+
+  private final ProductCatalog catalog;
+  private final int index;
+
+  ProductRow(ProductCatalog catalog, int index) {
+    this.catalog = catalog;
+    this.index = index;
+  }
+
+  public ProductCatalog getCatalog() {
+    return catalog;
+  }
+
+  /**
+   * @return the position of the product in its catalog.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return an id that stays the same for the product across pages and search results of the same
+   * catalog. Ids are positions in the catalog, so another catalog may give them to other products.
+   */
+  public long getId() {
+    return index;
+  }
+
+  public String getTitle() {
+    return catalog.getTitle(index);
+  }
+
+  public String getCategory() {
+    return catalog.getCategory(index);
+  }
+
+  public long getPriceMinorUnits() {
+    return catalog.getPriceMinorUnits(index);
+  }
+
+  @DrawableRes
+  public int getImageResId() {
+    return catalog.getImageResId(index);
+  }
+
+  /**
+   * @return whether the other row would be displayed the same way.
+   */
+  boolean hasSameContents(ProductRow other) {
+    if (catalog == other.catalog && index == other.index) {
+      return true;
+    }
+    return getPriceMinorUnits() == other.getPriceMinorUnits()
+        && getImageResId() == other.getImageResId()
+        && getTitle().equals(other.getTitle())
+        && getCategory().equals(other.getCategory());
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return "ProductRow{" + index + ", " + getTitle() + "}";
+  }
+}
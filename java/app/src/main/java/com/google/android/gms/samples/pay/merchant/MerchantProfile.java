@@ -0,0 +1,287 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.merchant;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.samples.pay.Constants;
+import com.google.android.gms.samples.pay.data.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The merchant-specific parts of the Google Pay requests: who is paid, through which gateway, and
+ * in which country and currency.
+ *
+ * <p>Profiles are immutable and validated when they are built, so that a misconfigured merchant
+ * is reported when the profiles are loaded rather than when a user taps the payment button.
+ *
+ * <p>The product catalog is priced in {@link Constants#CURRENCY_CODE}. A merchant charging in
+ * another currency must declare the rate its prices are converted at.
+ */
+public final class MerchantProfile {
+
+  private static final List<String> KNOWN_CARD_NETWORKS = Arrays.asList(
+      "AMEX", "DISCOVER", "ELECTRON", "ELO", "ELO_DEBIT", "INTERAC", "JCB", "MAESTRO",
+      "MASTERCARD", "VISA");
+
+  private static final List<String> KNOWN_AUTH_METHODS = Arrays.asList(
+      "PAN_ONLY", "CRYPTOGRAM_3DS");
+
+  /**
+   * The merchant configured in {@link Constants}.
+   */
+  public static final MerchantProfile DEFAULT = new Builder("default")
+      .setMerchantName(Constants.MERCHANT_NAME)
+      .setGatewayParameters(Constants.PAYMENT_GATEWAY_TOKENIZATION_PARAMETERS)
+      .setCountryCode(Constants.COUNTRY_CODE)
+      .setCurrencyCode(Constants.CURRENCY_CODE)
+      .setAllowedCardNetworks(Constants.SUPPORTED_NETWORKS)
+      .setAllowedAuthMethods(Constants.SUPPORTED_METHODS)
+      .setShippingCountries(Constants.SHIPPING_SUPPORTED_COUNTRIES)
+      .build();
+
+  private final String id;
+  private final String merchantName;
+  private final Map<String, String> gatewayParameters;
+  private final String countryCode;
+  private final String currencyCode;
+  private final List<String> allowedCardNetworks;
+  private final List<String> allowedAuthMethods;
+  private final List<String> shippingCountries;
+  private final BigDecimal catalogExchangeRate;
+
+  private MerchantProfile(Builder builder) {
+    this.id = builder.id;
+    this.merchantName = builder.merchantName;
+    this.gatewayParameters =
+        Collections.unmodifiableMap(new LinkedHashMap<>(builder.gatewayParameters));
+    this.countryCode = builder.countryCode;
+    this.currencyCode = builder.currencyCode;
+    this.allowedCardNetworks =
+        Collections.unmodifiableList(new ArrayList<>(builder.allowedCardNetworks));
+    this.allowedAuthMethods =
+        Collections.unmodifiableList(new ArrayList<>(builder.allowedAuthMethods));
+    this.shippingCountries =
+        Collections.unmodifiableList(new ArrayList<>(builder.shippingCountries));
+    this.catalogExchangeRate = builder.catalogExchangeRate;
+  }
+
+  /**
+   * @return the identifier the profile is looked up by.
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @return the name shown to the user on the payment sheet.
+   */
+  public String getMerchantName() {
+    return merchantName;
+  }
+
+  /**
+   * @return the {@code PAYMENT_GATEWAY} tokenization parameters, in the order they are written.
+   */
+  public Map<String, String> getGatewayParameters() {
+    return gatewayParameters;
+  }
+
+  public String getCountryCode() {
+    return countryCode;
+  }
+
+  public String getCurrencyCode() {
+    return currencyCode;
+  }
+
+  public List<String> getAllowedCardNetworks() {
+    return allowedCardNetworks;
+  }
+
+  public List<String> getAllowedAuthMethods() {
+    return allowedAuthMethods;
+  }
+
+  public List<String> getShippingCountries() {
+    return shippingCountries;
+  }
+
+  /**
+   * Converts a catalog price to the currency of the merchant, rounding half up to the minor unit.
+   *
+   * @param catalogMinorUnits a price in minor units of {@link Constants#CURRENCY_CODE}.
+   * @return the price in the currency of the merchant.
+   * @throws ArithmeticException if the converted price doesn't fit in a long.
+   */
+  public Money toMerchantPrice(long catalogMinorUnits) {
+    final Money catalogPrice = Money.ofMinor(catalogMinorUnits);
+    if (catalogExchangeRate == null) {
+      return catalogPrice;
+    }
+    final int fractionDigits = Money.ofMinor(0, currencyCode).getFractionDigits();
+    final BigDecimal converted = BigDecimal.valueOf(catalogMinorUnits,
+        catalogPrice.getFractionDigits()).multiply(catalogExchangeRate);
+    return Money.ofMinor(converted.setScale(fractionDigits, RoundingMode.HALF_UP)
+        .movePointRight(fractionDigits).longValueExact(), currencyCode);
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return "MerchantProfile{" + id + ", " + merchantName + ", " + countryCode + ", "
+        + currencyCode + "}";
+  }
+
+  public static final class Builder {
+
+    private final String id;
+    private String merchantName;
+    private Map<String, String> gatewayParameters = Collections.emptyMap();
+    private String countryCode;
+    private String currencyCode;
+    private List<String> allowedCardNetworks = Collections.emptyList();
+    private List<String> allowedAuthMethods = Collections.emptyList();
+    private List<String> shippingCountries = Collections.emptyList();
+    private BigDecimal catalogExchangeRate;
+
+    public Builder(String id) {
+      this.id = id;
+    }
+
+    public Builder setMerchantName(String merchantName) {
+      this.merchantName = merchantName;
+      return this;
+    }
+
+    /**
+     * Sets the tokenization parameters of the payment gateway, which must include
+     * {@code gateway}. They are written in the iteration order of the map.
+     */
+    public Builder setGatewayParameters(Map<String, String> gatewayParameters) {
+      this.gatewayParameters = gatewayParameters;
+      return this;
+    }
+
+    /**
+     * Sets the ISO 3166-1 alpha-2 country code of the merchant.
+     */
+    public Builder setCountryCode(String countryCode) {
+      this.countryCode = countryCode;
+      return this;
+    }
+
+    /**
+     * Sets the ISO 4217 code of the currency prices are charged in.
+     */
+    public Builder setCurrencyCode(String currencyCode) {
+      this.currencyCode = currencyCode;
+      return this;
+    }
+
+    public Builder setAllowedCardNetworks(List<String> allowedCardNetworks) {
+      this.allowedCardNetworks = allowedCardNetworks;
+      return this;
+    }
+
+    public Builder setAllowedAuthMethods(List<String> allowedAuthMethods) {
+      this.allowedAuthMethods = allowedAuthMethods;
+      return this;
+    }
+
+    /**
+     * Sets the ISO 3166-1 alpha-2 codes of the countries that can be shipped to.
+     */
+    public Builder setShippingCountries(List<String> shippingCountries) {
+      this.shippingCountries = shippingCountries;
+      return this;
+    }
+
+    /**
+     * Sets how many units of the merchant currency one unit of {@link Constants#CURRENCY_CODE}
+     * is worth, as a decimal number such as {@code 0.79}. Required if, and only if, the merchant
+     * charges in another currency than the catalog.
+     */
+    public Builder setCatalogExchangeRate(BigDecimal catalogExchangeRate) {
+      this.catalogExchangeRate = catalogExchangeRate;
+      return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the profile is incomplete or invalid.
+     */
+    public MerchantProfile build() {
+      require(id != null && !id.isEmpty(), "Missing merchant id");
+      require(merchantName != null && !merchantName.isEmpty(), "Missing merchant name");
+      final String gateway = gatewayParameters.get("gateway");
+      require(gateway != null && !gateway.isEmpty(), "Missing gateway");
+      for (Map.Entry<String, String> parameter : gatewayParameters.entrySet()) {
+        require(parameter.getKey() != null && parameter.getValue() != null,
+            "Invalid gateway parameter " + parameter);
+      }
+      require(isCode(countryCode, 2), "Invalid country code " + countryCode);
+      require(isCode(currencyCode, 3), "Invalid currency code " + currencyCode);
+      requireSubset(allowedCardNetworks, KNOWN_CARD_NETWORKS, "card network");
+      requireSubset(allowedAuthMethods, KNOWN_AUTH_METHODS, "auth method");
+      for (String country : shippingCountries) {
+        require(isCode(country, 2), "Invalid shipping country " + country);
+      }
+      if (Constants.CURRENCY_CODE.equals(currencyCode)) {
+        require(catalogExchangeRate == null,
+            "Exchange rate set for catalog currency " + currencyCode);
+      } else {
+        require(catalogExchangeRate != null && catalogExchangeRate.signum() > 0,
+            "Missing or invalid exchange rate from " + Constants.CURRENCY_CODE + " to "
+                + currencyCode);
+      }
+      return new MerchantProfile(this);
+    }
+
+    private void require(boolean condition, String message) {
+      if (!condition) {
+        throw new IllegalArgumentException(id + ": " + message);
+      }
+    }
+
+    private void requireSubset(List<String> values, List<String> known, String kind) {
+      require(!values.isEmpty(), "No " + kind);
+      for (String value : values) {
+        require(known.contains(value), "Unknown " + kind + " " + value);
+      }
+    }
+
+    private static boolean isCode(String code, int length) {
+      if (code == null || code.length() != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (code.charAt(i) < 'A' || code.charAt(i) > 'Z') {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
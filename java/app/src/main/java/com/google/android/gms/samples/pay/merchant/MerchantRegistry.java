@@ -0,0 +1,301 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.merchant;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.JsonReader;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.google.android.gms.samples.pay.R;
+import com.google.android.gms.samples.pay.util.PaymentConfiguration;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The merchants the app can take payments for, loaded from {@code res/raw/merchants.json}.
+ *
+ * <p>The profiles are read, validated and serialized into a {@link PaymentConfiguration} each
+ * once per process, on a background thread started by {@link MerchantRegistryInitializer}.
+ * Looking up a merchant afterwards is a hash map lookup, so switching storefronts does not build
+ * anything on the way to the payment sheet. If the file can't be read or any profile in it is
+ * invalid, no merchant is available: {@link #getInstance(Context)} reports the error rather than
+ * taking payments for another merchant than the one the user chose.
+ */
+public final class MerchantRegistry {
+
+  private static final String TAG = "MerchantRegistry";
+
+  private static FutureTask<MerchantRegistry> loadTask;
+
+  private final Map<String, PaymentConfiguration> configurations;
+  private final PaymentConfiguration defaultConfiguration;
+
+  /**
+   * @param profiles         the merchants, with unique ids.
+   * @param defaultMerchantId the id of the merchant used when none is selected.
+   * @throws IllegalArgumentException if ids are duplicated, the default merchant is unknown or
+   * a request can't be serialized.
+   */
+  public MerchantRegistry(List<MerchantProfile> profiles, String defaultMerchantId) {
+    final Map<String, PaymentConfiguration> configurations = new HashMap<>(profiles.size() * 2);
+    for (MerchantProfile profile : profiles) {
+      if (configurations.put(profile.getId(), PaymentConfiguration.of(profile)) != null) {
+        throw new IllegalArgumentException("Duplicate merchant " + profile.getId());
+      }
+    }
+    final PaymentConfiguration defaultConfiguration = configurations.get(defaultMerchantId);
+    if (defaultConfiguration == null) {
+      throw new IllegalArgumentException("Unknown default merchant " + defaultMerchantId);
+    }
+    this.configurations = configurations;
+    this.defaultConfiguration = defaultConfiguration;
+  }
+
+  /**
+   * Starts loading the registry on a background thread, if that has not happened yet.
+   *
+   * @param context any context; only the application context is retained.
+   */
+  public static void warmUp(Context context) {
+    final FutureTask<MerchantRegistry> task = getLoadTask(context);
+    if (task.isDone()) {
+      return;
+    }
+
+    final Thread thread = new Thread(() -> {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      task.run();
+    }, "MerchantRegistryLoader");
+    thread.start();
+  }
+
+  /**
+   * Returns the registry, loading it on the calling thread if the warm-up has not started, or
+   * waiting for the warm-up to finish.
+   *
+   * @param context any context; only the application context is retained.
+   * @throws IllegalStateException if the merchants couldn't be loaded.
+   */
+  @WorkerThread
+  public static MerchantRegistry getInstance(Context context) {
+    final FutureTask<MerchantRegistry> task = getLoadTask(context);
+
+    // No-op if the task has already completed or is running on the warm-up thread.
+    task.run();
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading the merchants", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to load the merchants", e.getCause());
+    }
+  }
+
+  private static synchronized FutureTask<MerchantRegistry> getLoadTask(Context context) {
+    if (loadTask == null) {
+      final Context applicationContext = context.getApplicationContext();
+      loadTask = new FutureTask<>(() -> load(applicationContext));
+    }
+    return loadTask;
+  }
+
+  @WorkerThread
+  private static MerchantRegistry load(Context context) throws IOException {
+    try (InputStream input = new BufferedInputStream(
+        context.getResources().openRawResource(R.raw.merchants))) {
+      final MerchantRegistry registry =
+          parse(new InputStreamReader(input, StandardCharsets.UTF_8));
+      Log.i(TAG, "Loaded " + registry.size() + " merchants");
+      return registry;
+    } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+      Log.e(TAG, "Unable to load the merchants", e);
+      throw e;
+    }
+  }
+
+  /**
+   * Parses a registry: an object with a {@code defaultMerchantId} and a {@code merchants} array
+   * of profiles, whose fields are named after the setters of {@link MerchantProfile.Builder}.
+   * Unknown fields are skipped.
+   *
+   * @throws IOException              if the file is not valid JSON.
+   * @throws IllegalArgumentException if a profile is invalid.
+   */
+  @WorkerThread
+  public static MerchantRegistry parse(Reader source) throws IOException {
+    final List<MerchantProfile> profiles = new ArrayList<>();
+    String defaultMerchantId = null;
+
+    try (JsonReader reader = new JsonReader(source)) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case "defaultMerchantId":
+            defaultMerchantId = reader.nextString();
+            break;
+          case "merchants":
+            reader.beginArray();
+            while (reader.hasNext()) {
+              profiles.add(readProfile(reader));
+            }
+            reader.endArray();
+            break;
+          default:
+            reader.skipValue();
+            break;
+        }
+      }
+      reader.endObject();
+    }
+    return new MerchantRegistry(profiles, defaultMerchantId);
+  }
+
+  private static MerchantProfile readProfile(JsonReader reader) throws IOException {
+    MerchantProfile.Builder builder = null;
+    String merchantName = null;
+    Map<String, String> gatewayParameters = Collections.emptyMap();
+    String countryCode = null;
+    String currencyCode = null;
+    List<String> allowedCardNetworks = Collections.emptyList();
+    List<String> allowedAuthMethods = Collections.emptyList();
+    List<String> shippingCountries = Collections.emptyList();
+    BigDecimal catalogExchangeRate = null;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          builder = new MerchantProfile.Builder(reader.nextString());
+          break;
+        case "merchantName":
+          merchantName = reader.nextString();
+          break;
+        case "gatewayParameters":
+          gatewayParameters = readStringMap(reader);
+          break;
+        case "countryCode":
+          countryCode = reader.nextString();
+          break;
+        case "currencyCode":
+          currencyCode = reader.nextString();
+          break;
+        case "allowedCardNetworks":
+          allowedCardNetworks = readStringList(reader);
+          break;
+        case "allowedAuthMethods":
+          allowedAuthMethods = readStringList(reader);
+          break;
+        case "shippingCountries":
+          shippingCountries = readStringList(reader);
+          break;
+        case "catalogExchangeRate":
+          catalogExchangeRate = readDecimal(reader);
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+
+    if (builder == null) {
+      throw new IllegalArgumentException("Missing merchant id");
+    }
+    return builder
+        .setMerchantName(merchantName)
+        .setGatewayParameters(gatewayParameters)
+        .setCountryCode(countryCode)
+        .setCurrencyCode(currencyCode)
+        .setAllowedCardNetworks(allowedCardNetworks)
+        .setAllowedAuthMethods(allowedAuthMethods)
+        .setShippingCountries(shippingCountries)
+        .setCatalogExchangeRate(catalogExchangeRate)
+        .build();
+  }
+
+  private static BigDecimal readDecimal(JsonReader reader) throws IOException {
+    // Read as a string so that the rate isn't rounded through a double.
+    final String value = reader.nextString();
+    try {
+      return new BigDecimal(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid decimal " + value, e);
+    }
+  }
+
+  private static List<String> readStringList(JsonReader reader) throws IOException {
+    final List<String> values = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      values.add(reader.nextString());
+    }
+    reader.endArray();
+    return values;
+  }
+
+  private static Map<String, String> readStringMap(JsonReader reader) throws IOException {
+    // Kept in file order, which is the order the parameters are written to requests.
+    final Map<String, String> values = new LinkedHashMap<>();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      values.put(reader.nextName(), reader.nextString());
+    }
+    reader.endObject();
+    return values;
+  }
+
+  /**
+   * @return the configuration of the given merchant, or {@code null} if it is unknown.
+   */
+  @Nullable
+  public PaymentConfiguration get(String merchantId) {
+    return configurations.get(merchantId);
+  }
+
+  /**
+   * @return the configuration of the merchant used when none is selected.
+   */
+  public PaymentConfiguration getDefault() {
+    return defaultConfiguration;
+  }
+
+  /**
+   * @return the number of merchants.
+   */
+  public int size() {
+    return configurations.size();
+  }
+}
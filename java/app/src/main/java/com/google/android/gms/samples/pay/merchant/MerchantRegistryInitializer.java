@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.merchant;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.startup.Initializer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Starts loading the {@link MerchantRegistry} when the application starts, so that the merchant
+ * profiles are ready by the time the checkout screen needs them. Registered with App Startup in
+ * the manifest.
+ */
+public class MerchantRegistryInitializer implements Initializer<Void> {
+
+  @NonNull
+  @Override
+  public Void create(@NonNull Context context) {
+    MerchantRegistry.warmUp(context);
+    return null;
+  }
+
+  @NonNull
+  @Override
+  public List<Class<? extends Initializer<?>>> dependencies() {
+    return Collections.emptyList();
+  }
+}
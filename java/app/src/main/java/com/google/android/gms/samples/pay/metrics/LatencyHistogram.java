@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds, safe to record into from any thread without
+ * locking or allocating.
+ *
+ * <p>Buckets are log-linear: every power of two is split into {@value #SUB_BUCKETS} buckets of
+ * equal width, so percentiles read back from a {@link Snapshot} are within 12.5% of the recorded
+ * values across the whole range of {@code long}.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  // Values below SUB_BUCKETS get a bucket each, then each power of two up to 2^62 gets
+  // SUB_BUCKETS buckets.
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records one duration. Negative durations, e.g. from an unset start time, are recorded as 0.
+   */
+  public void record(long nanos) {
+    final long value = Math.max(nanos, 0);
+    buckets.incrementAndGet(bucketIndex(value));
+    sum.addAndGet(value);
+    long currentMax;
+    while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+      // Lost a race with another thread recording a larger value; try again.
+    }
+  }
+
+  /**
+   * @return a copy of the current distribution.
+   */
+  public Snapshot snapshot() {
+    final long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return new Snapshot(counts, sum.get(), max.get());
+  }
+
+  /**
+   * Returns the current distribution and clears the histogram. Every recorded duration is counted
+   * in the buckets of exactly one snapshot, even while other threads keep recording. The sum and
+   * the maximum are cleared separately though, so a duration recorded meanwhile may be added to
+   * the sum or maximum of the snapshot before or after the one that counts it.
+   */
+  public Snapshot snapshotAndReset() {
+    final long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.getAndSet(i, 0);
+    }
+    return new Snapshot(counts, sum.getAndSet(0), max.getAndSet(0));
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int shift = exponent - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) | (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * @return the middle of the range of values that fall into the given bucket.
+   */
+  static long bucketMidpoint(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    final long lowerBound = (long) (SUB_BUCKETS | (index & (SUB_BUCKETS - 1))) << shift;
+    return lowerBound + ((1L << shift) >>> 1);
+  }
+
+  /**
+   * An immutable copy of a histogram.
+   */
+  public static final class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    Snapshot(long[] counts, long sum, long max) {
+      long total = 0;
+      for (long bucketCount : counts) {
+        total += bucketCount;
+      }
+      this.counts = counts;
+      this.count = total;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMaxNanos() {
+      return max;
+    }
+
+    public long getMeanNanos() {
+      return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @param percentile a value between 0 and 100, e.g. 99 for the 99th percentile.
+     * @return the approximate duration below which the given percentage of durations fall, or 0
+     * if nothing was recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(bucketMidpoint(i), max);
+        }
+      }
+      return max;
+    }
+  }
+}
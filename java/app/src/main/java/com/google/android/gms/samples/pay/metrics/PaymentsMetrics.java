@@ -0,0 +1,202 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.metrics;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.common.api.ApiException;
+import com.google.android.gms.common.api.CommonStatusCodes;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distributions and outcome counts for each interaction with the Google Pay API.
+ *
+ * <p>Outcomes are counted by status code, as found in {@link CommonStatusCodes}. Codes outside of
+ * the range tracked individually, such as {@code WalletConstants.ERROR_CODE_*}, are counted
+ * together. Recording never locks or allocates; reading the metrics back does, through
+ * {@link #snapshot()} and {@link #snapshotAndReset()}.
+ */
+public final class PaymentsMetrics {
+
+  /**
+   * The interactions being measured.
+   */
+  public enum Interaction {
+    /** The {@code isReadyToPay} round trip. */
+    IS_READY_TO_PAY,
+    /** From the tap on the Google Pay button until the payment sheet result is received. */
+    LOAD_PAYMENT_DATA,
+    /** Building the PaymentDataRequest JSON for the cart. */
+    BUILD_REQUEST,
+    /** Reading the fields needed by the app out of the PaymentData response. */
+    PARSE_RESPONSE,
+    /** Answering a change of shipping address or option made on the payment sheet. */
+    PAYMENT_DATA_CHANGED
+  }
+
+  // Status codes from 0 to OTHER_STATUS_CODE - 1 are counted individually, which covers all of
+  // CommonStatusCodes.
+  private static final int OTHER_STATUS_CODE = 32;
+
+  private static final PaymentsMetrics INSTANCE = new PaymentsMetrics();
+
+  private final LatencyHistogram[] latencies;
+  private final StripedCounter[] outcomes;
+
+  public PaymentsMetrics() {
+    final Interaction[] interactions = Interaction.values();
+    latencies = new LatencyHistogram[interactions.length];
+    outcomes = new StripedCounter[interactions.length];
+    for (Interaction interaction : interactions) {
+      latencies[interaction.ordinal()] = new LatencyHistogram();
+      outcomes[interaction.ordinal()] = new StripedCounter(OTHER_STATUS_CODE + 1);
+    }
+  }
+
+  /**
+   * The metrics shared by the whole app.
+   */
+  public static PaymentsMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Records an interaction that started at {@code startNanos} on the {@link System#nanoTime()}
+   * clock and ended now.
+   *
+   * @param statusCode the outcome, one of {@link CommonStatusCodes} or another API status code.
+   */
+  public void record(Interaction interaction, long startNanos, int statusCode) {
+    latencies[interaction.ordinal()].record(System.nanoTime() - startNanos);
+    recordOutcome(interaction, statusCode);
+  }
+
+  /**
+   * Records the outcome of an interaction whose duration is unknown.
+   */
+  public void recordOutcome(Interaction interaction, int statusCode) {
+    outcomes[interaction.ordinal()].increment(
+        statusCode >= 0 && statusCode < OTHER_STATUS_CODE ? statusCode : OTHER_STATUS_CODE);
+  }
+
+  /**
+   * @return the status code of a failed Task, as used by {@link #record}.
+   */
+  public static int getStatusCode(Exception exception) {
+    return exception instanceof ApiException
+        ? ((ApiException) exception).getStatusCode() : CommonStatusCodes.INTERNAL_ERROR;
+  }
+
+  /**
+   * @return a copy of the metrics recorded so far.
+   */
+  public Snapshot snapshot() {
+    return takeSnapshot(false);
+  }
+
+  /**
+   * Returns the metrics recorded since the last reset and starts over, e.g. to export them
+   * periodically.
+   */
+  public Snapshot snapshotAndReset() {
+    return takeSnapshot(true);
+  }
+
+  private Snapshot takeSnapshot(boolean reset) {
+    final Map<Interaction, LatencyHistogram.Snapshot> latencySnapshots =
+        new EnumMap<>(Interaction.class);
+    final Map<Interaction, long[]> outcomeSnapshots = new EnumMap<>(Interaction.class);
+    for (Interaction interaction : Interaction.values()) {
+      final int index = interaction.ordinal();
+      latencySnapshots.put(interaction,
+          reset ? latencies[index].snapshotAndReset() : latencies[index].snapshot());
+      outcomeSnapshots.put(interaction,
+          reset ? outcomes[index].snapshotAndReset() : outcomes[index].snapshot());
+    }
+    return new Snapshot(latencySnapshots, outcomeSnapshots);
+  }
+
+  /**
+   * The metrics of every interaction at a point in time.
+   */
+  public static final class Snapshot {
+
+    private final Map<Interaction, LatencyHistogram.Snapshot> latencies;
+    private final Map<Interaction, long[]> outcomes;
+
+    Snapshot(Map<Interaction, LatencyHistogram.Snapshot> latencies,
+        Map<Interaction, long[]> outcomes) {
+      this.latencies = latencies;
+      this.outcomes = outcomes;
+    }
+
+    public LatencyHistogram.Snapshot getLatency(Interaction interaction) {
+      return latencies.get(interaction);
+    }
+
+    /**
+     * @return how many times the interaction ended with the given status code.
+     */
+    public long getOutcomeCount(Interaction interaction, int statusCode) {
+      final long[] counts = outcomes.get(interaction);
+      return statusCode >= 0 && statusCode < OTHER_STATUS_CODE ? counts[statusCode] : 0;
+    }
+
+    /**
+     * @return how many times the interaction ended with a status code that is not tracked
+     * individually.
+     */
+    public long getOtherOutcomeCount(Interaction interaction) {
+      return outcomes.get(interaction)[OTHER_STATUS_CODE];
+    }
+
+    /**
+     * Formats the snapshot as one line per interaction, with its p50, p99 and outcomes.
+     */
+    @NonNull
+    @Override
+    public String toString() {
+      final StringBuilder builder = new StringBuilder();
+      for (Interaction interaction : Interaction.values()) {
+        final LatencyHistogram.Snapshot latency = latencies.get(interaction);
+        builder.append(String.format(Locale.US, "%s count=%d p50=%.1fms p99=%.1fms max=%.1fms",
+            interaction, latency.getCount(), toMillis(latency.getPercentileNanos(50)),
+            toMillis(latency.getPercentileNanos(99)), toMillis(latency.getMaxNanos())));
+
+        final long[] counts = outcomes.get(interaction);
+        for (int statusCode = 0; statusCode < counts.length; statusCode++) {
+          if (counts[statusCode] > 0) {
+            builder.append(' ')
+                .append(statusCode == OTHER_STATUS_CODE
+                    ? "OTHER" : CommonStatusCodes.getStatusCodeString(statusCode))
+                .append('=').append(counts[statusCode]);
+          }
+        }
+        builder.append('\n');
+      }
+      return builder.toString();
+    }
+
+    private static double toMillis(long nanos) {
+      return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+  }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.metrics;
+
+import android.os.Build;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long the named phases of app startup take, such as inflating the checkout screen or
+ * waiting for {@code isReadyToPay}, up to the moment the Google Pay button becomes visible.
+ *
+ * <p>Timestamps come from the monotonic {@link System#nanoTime()} clock and are stored relative to
+ * an origin, by default the start of the process. Each phase is also emitted as a
+ * {@link Trace} section, so it shows up in system traces next to the framework's own sections.
+ * The recorded phases can be read back with {@link #getPhases()}, e.g. from tests that check
+ * their order or time budgets.
+ *
+ * <p>A disabled recorder does nothing beyond reading a volatile flag, and returns
+ * {@link #NO_SPAN} from {@code begin} calls. Recording stops silently once the fixed capacity is
+ * reached, so that nothing is allocated while the app is starting.
+ */
+public final class PhaseRecorder {
+
+  public static final String INITIALIZE_UI = "initializeUi";
+  public static final String PAY_BUTTON_INITIALIZE = "googlePayButton.initialize";
+  public static final String CREATE_PAYMENTS_CLIENT = "createPaymentsClient";
+  public static final String IS_READY_TO_PAY = "isReadyToPay";
+  public static final String FIRST_FRAME = "firstFrame";
+  public static final String PAY_BUTTON_VISIBLE = "payButtonVisible";
+
+  /**
+   * Returned instead of a span when the recorder is disabled or full. Safe to pass to
+   * {@link #end(int)}.
+   */
+  public static final int NO_SPAN = -1;
+
+  // A span packs the index of its phase, whether it is async, and the generation of the recorder
+  // it was opened in, so that spans opened before reset() can't end the phases reusing their index.
+  private static final int INDEX_BITS = 16;
+  private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+  private static final int ASYNC_BIT = 1 << INDEX_BITS;
+  private static final int GENERATION_SHIFT = INDEX_BITS + 1;
+  private static final int GENERATION_MASK = (1 << (31 - GENERATION_SHIFT)) - 1;
+
+  private static final PhaseRecorder DEFAULT = new PhaseRecorder(64, true);
+
+  /**
+   * A phase, with times in nanoseconds since the origin of the recorder.
+   */
+  public static final class Phase {
+
+    private final String name;
+    private final long startNanos;
+    private final long endNanos;
+
+    Phase(String name, long startNanos, long endNanos) {
+      this.name = name;
+      this.startNanos = startNanos;
+      this.endNanos = endNanos;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getStartNanos() {
+      return startNanos;
+    }
+
+    /**
+     * @return the end of the phase, or -1 if it has not ended yet.
+     */
+    public long getEndNanos() {
+      return endNanos;
+    }
+
+    public boolean isFinished() {
+      return endNanos >= 0;
+    }
+
+    /**
+     * @return the duration of the phase, or -1 if it has not ended yet.
+     */
+    public long getDurationNanos() {
+      return isFinished() ? endNanos - startNanos : -1;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return name + " @" + TimeUnit.NANOSECONDS.toMillis(startNanos) + "ms"
+          + (isFinished() ? " +" + TimeUnit.NANOSECONDS.toMillis(getDurationNanos()) + "ms" : "");
+    }
+  }
+
+  private final boolean traceSections;
+
+  private final String[] names;
+  private final long[] starts;
+  private final long[] ends;
+  private final boolean[] async;
+  private int count;
+  // Incremented by reset(), wrapping around after GENERATION_MASK resets.
+  private int generation;
+
+  private volatile boolean enabled;
+  private volatile long originNanos;
+
+  /**
+   * @param capacity      the maximum number of phases recorded, at most 65536.
+   * @param traceSections whether to emit {@link Trace} sections, which requires the Android
+   *                      framework.
+   */
+  public PhaseRecorder(int capacity, boolean traceSections) {
+    if (capacity < 0 || capacity > INDEX_MASK + 1) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    this.traceSections = traceSections;
+    this.names = new String[capacity];
+    this.starts = new long[capacity];
+    this.ends = new long[capacity];
+    this.async = new boolean[capacity];
+    this.originNanos = System.nanoTime();
+  }
+
+  /**
+   * The recorder used by the app, enabled on debuggable builds by
+   * {@link PhaseRecorderInitializer}.
+   */
+  public static PhaseRecorder getDefault() {
+    return DEFAULT;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Sets the instant, on the {@link System#nanoTime()} clock, that phase times are relative to.
+   */
+  public void setOriginNanos(long originNanos) {
+    this.originNanos = originNanos;
+  }
+
+  /**
+   * Starts a phase that ends on the same thread, before any enclosing phase ends.
+   *
+   * @return the span to pass to {@link #end(int)}.
+   */
+  public int begin(String name) {
+    if (!enabled) {
+      return NO_SPAN;
+    }
+    final int span = open(name, false);
+    if (span != NO_SPAN && traceSections) {
+      Trace.beginSection(name);
+    }
+    return span;
+  }
+
+  /**
+   * Starts a phase that may end on another thread or after unrelated work, such as a round trip
+   * to Google Play services.
+   *
+   * @return the span to pass to {@link #end(int)}.
+   */
+  public int beginAsync(String name) {
+    if (!enabled) {
+      return NO_SPAN;
+    }
+    final int span = open(name, true);
+    if (span != NO_SPAN && traceSections && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+      Trace.beginAsyncSection(name, span);
+    }
+    return span;
+  }
+
+  /**
+   * Ends a phase started with {@link #begin(String)} or {@link #beginAsync(String)}. A span started
+   * before {@link #reset()} is no longer recorded, but the {@link Trace} section of a phase begun
+   * with {@link #begin(String)} is still ended, as only the thread that began it can end it.
+   */
+  public void end(int span) {
+    if (span == NO_SPAN) {
+      return;
+    }
+    final long now = System.nanoTime();
+    final int index = span & INDEX_MASK;
+    final boolean isAsync = (span & ASYNC_BIT) != 0;
+    final String name;
+    synchronized (this) {
+      if ((span >>> GENERATION_SHIFT) != generation) {
+        // Async sections of earlier generations have been ended by reset().
+        name = null;
+      } else if (index >= count || ends[index] >= 0) {
+        return;
+      } else {
+        ends[index] = now;
+        name = names[index];
+      }
+    }
+
+    if (traceSections) {
+      if (!isAsync) {
+        Trace.endSection();
+      } else if (name != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+        Trace.endAsyncSection(name, span);
+      }
+    }
+  }
+
+  /**
+   * Records an instant, such as the Google Pay button becoming visible, as a phase of no duration.
+   */
+  public void mark(String name) {
+    if (!enabled) {
+      return;
+    }
+    final long now = System.nanoTime();
+    synchronized (this) {
+      if (count < names.length) {
+        names[count] = name;
+        starts[count] = now;
+        ends[count] = now;
+        async[count] = false;
+        count++;
+      }
+    }
+  }
+
+  private synchronized int open(String name, boolean isAsync) {
+    if (count == names.length) {
+      return NO_SPAN;
+    }
+    names[count] = name;
+    starts[count] = System.nanoTime();
+    ends[count] = -1;
+    async[count] = isAsync;
+    return toSpan(count++, isAsync);
+  }
+
+  private int toSpan(int index, boolean isAsync) {
+    return (generation << GENERATION_SHIFT) | (isAsync ? ASYNC_BIT : 0) | index;
+  }
+
+  /**
+   * @return the recorded phases, in the order they started.
+   */
+  public synchronized List<Phase> getPhases() {
+    final List<Phase> phases = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      phases.add(toPhase(i));
+    }
+    return Collections.unmodifiableList(phases);
+  }
+
+  /**
+   * @return the first phase with the given name, or {@code null} if there is none.
+   */
+  @Nullable
+  public synchronized Phase getPhase(String name) {
+    for (int i = 0; i < count; i++) {
+      if (names[i].equals(name)) {
+        return toPhase(i);
+      }
+    }
+    return null;
+  }
+
+  private Phase toPhase(int index) {
+    final long origin = originNanos;
+    return new Phase(
+        names[index], starts[index] - origin, ends[index] < 0 ? -1 : ends[index] - origin);
+  }
+
+  /**
+   * Forgets every recorded phase. The {@link Trace} sections of async phases that are still open
+   * are ended; those of other phases end when their span does, on the thread that began them.
+   * Spans that are still open no longer affect the phases recorded from now on.
+   */
+  public synchronized void reset() {
+    for (int i = 0; i < count; i++) {
+      if (traceSections && async[i] && ends[i] < 0
+          && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+        Trace.endAsyncSection(names[i], toSpan(i, true));
+      }
+      names[i] = null;
+    }
+    count = 0;
+    generation = (generation + 1) & GENERATION_MASK;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return "PhaseRecorder" + getPhases();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.metrics;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.startup.Initializer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enables the default {@link PhaseRecorder} on debuggable builds, with the start of the process
+ * as the origin of its timings. Registered with App Startup in the manifest.
+ */
+public class PhaseRecorderInitializer implements Initializer<PhaseRecorder> {
+
+  @NonNull
+  @Override
+  public PhaseRecorder create(@NonNull Context context) {
+    final PhaseRecorder recorder = PhaseRecorder.getDefault();
+    if ((context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+      recorder.setOriginNanos(getProcessStartNanos());
+      recorder.setEnabled(true);
+    }
+    return recorder;
+  }
+
+  /**
+   * Returns the start of the process on the {@link System#nanoTime()} clock, or the current time
+   * where the platform doesn't report it.
+   */
+  private static long getProcessStartNanos() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+      // Uptime is based on the same monotonic clock as System.nanoTime().
+      return TimeUnit.MILLISECONDS.toNanos(Process.getStartUptimeMillis());
+    } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+      return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(
+          SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime());
+    }
+    return System.nanoTime();
+  }
+
+  @NonNull
+  @Override
+  public List<Class<? extends Initializer<?>>> dependencies() {
+    return Collections.emptyList();
+  }
+}
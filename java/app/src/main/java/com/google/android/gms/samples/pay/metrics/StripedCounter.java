@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed set of counters that threads can increment concurrently without contending on the same
+ * memory.
+ *
+ * <p>Each thread is mapped to one of several stripes, and every stripe holds its own copy of the
+ * counters, padded to a separate cache line. Reading a counter sums it across stripes.
+ */
+public final class StripedCounter {
+
+  // Longs per 64-byte cache line, used to keep stripes from sharing a line.
+  private static final int LONGS_PER_CACHE_LINE = 8;
+
+  private final int size;
+  private final int stride;
+  private final int stripeMask;
+  private final AtomicLongArray cells;
+
+  /**
+   * @param size the number of counters, indexed from 0.
+   */
+  public StripedCounter(int size) {
+    this.size = size;
+    this.stride = (size + LONGS_PER_CACHE_LINE - 1) / LONGS_PER_CACHE_LINE * LONGS_PER_CACHE_LINE
+        + LONGS_PER_CACHE_LINE;
+    int stripes = 1;
+    while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 8) {
+      stripes <<= 1;
+    }
+    this.stripeMask = stripes - 1;
+    this.cells = new AtomicLongArray(stripes * stride);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Adds one to the counter at the given index.
+   */
+  public void increment(int index) {
+    add(index, 1);
+  }
+
+  public void add(int index, long delta) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Counter " + index + " out of " + size);
+    }
+    final int stripe = (int) Thread.currentThread().getId() & stripeMask;
+    cells.addAndGet(stripe * stride + index, delta);
+  }
+
+  /**
+   * @return the current value of the counter at the given index.
+   */
+  public long get(int index) {
+    long total = 0;
+    for (int offset = index; offset < cells.length(); offset += stride) {
+      total += cells.get(offset);
+    }
+    return total;
+  }
+
+  /**
+   * Returns the value of every counter and sets them back to zero. Every increment is reported by
+   * exactly one call, even while other threads keep counting.
+   */
+  public long[] snapshotAndReset() {
+    final long[] values = new long[size];
+    for (int index = 0; index < size; index++) {
+      for (int offset = index; offset < cells.length(); offset += stride) {
+        values[index] += cells.getAndSet(offset, 0);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * @return the value of every counter.
+   */
+  public long[] snapshot() {
+    final long[] values = new long[size];
+    for (int index = 0; index < size; index++) {
+      values[index] = get(index);
+    }
+    return values;
+  }
+}
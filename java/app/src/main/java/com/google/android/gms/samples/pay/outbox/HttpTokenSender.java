@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.outbox;
+
+import com.google.android.gms.samples.pay.util.JsonStringWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Posts batches of tokens to an HTTP endpoint of the merchant backend, as a JSON object of the
+ * form {@code {"tokens":[{"id":1,"idempotencyKey":"...","createdAt":1700000000000,
+ * "token":"..."}]}}.
+ *
+ * <p>Any 2xx response acknowledges the batch. The {@code idempotencyKey} is a UUID stored with the
+ * entry, which the backend can use to drop duplicates. The {@code id} is the sequence number of the
+ * entry in the outbox; it only orders the tokens of one installation, as every installation
+ * numbers its tokens from 1.
+ */
+public class HttpTokenSender implements TokenSender {
+
+  private final SubmissionClient client;
+
+  /**
+   * @param client the client posting to the token endpoint.
+   */
+  public HttpTokenSender(SubmissionClient client) {
+    this.client = client;
+  }
+
+  @Override
+  public void send(List<TokenOutbox.Entry> entries) throws IOException {
+    final SubmissionClient.Response response = client.post(
+        toJson(entries).getBytes(StandardCharsets.UTF_8), "application/json; charset=utf-8");
+    if (!response.isSuccessful()) {
+      throw new IOException("Token delivery failed with HTTP " + response.getStatusCode());
+    }
+  }
+
+  static String toJson(List<TokenOutbox.Entry> entries) {
+    final JsonStringWriter writer = new JsonStringWriter(256 * entries.size());
+    writer.beginObject()
+        .name("tokens").beginArray();
+    for (TokenOutbox.Entry entry : entries) {
+      writer.beginObject()
+          .name("id").value(entry.getSequence())
+          .name("idempotencyKey").value(entry.getIdempotencyKey().toString())
+          .name("createdAt").value(entry.getCreatedAtMillis())
+          .name("token").value(entry.getToken())
+          .endObject();
+    }
+    return writer.endArray()
+        .endObject()
+        .toString();
+  }
+}
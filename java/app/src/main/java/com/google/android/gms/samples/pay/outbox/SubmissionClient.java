@@ -0,0 +1,218 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.outbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Posts request bodies to a single endpoint of the merchant backend over persistent connections.
+ *
+ * <p>Connections are kept alive and pooled by {@link HttpURLConnection}, which reuses a connection
+ * once the previous response has been read to the end. This client always reads responses fully,
+ * and caps the number of requests in flight at the number of idle connections the platform keeps
+ * per host ({@code http.maxConnections}, 5 by default), so that every connection it opens can go
+ * back to the pool instead of being closed. Bodies above a size threshold are compressed with
+ * gzip and sent with {@code Content-Encoding: gzip}.
+ *
+ * <p>Instances are thread-safe and meant to be shared.
+ */
+public final class SubmissionClient {
+
+  private static final byte[] EMPTY = new byte[0];
+
+  /**
+   * The status and body of a response.
+   */
+  public static final class Response {
+
+    private final int statusCode;
+    private final byte[] body;
+
+    Response(int statusCode, byte[] body) {
+      this.statusCode = statusCode;
+      this.body = body;
+    }
+
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    public byte[] getBody() {
+      return body;
+    }
+
+    /**
+     * @return whether the status code is in the 2xx range.
+     */
+    public boolean isSuccessful() {
+      return statusCode / 100 == 2;
+    }
+  }
+
+  private final URL endpoint;
+  private final int timeoutMillis;
+  private final int gzipThresholdBytes;
+  private final Semaphore connections;
+
+  private SubmissionClient(Builder builder) {
+    this.endpoint = builder.endpoint;
+    this.timeoutMillis = builder.timeoutMillis;
+    this.gzipThresholdBytes = builder.gzipThresholdBytes;
+    this.connections = new Semaphore(builder.maxConnections, true);
+  }
+
+  public URL getEndpoint() {
+    return endpoint;
+  }
+
+  /**
+   * Posts a body to the endpoint, waiting for a connection to become available if as many
+   * requests as the pool allows are already in flight.
+   *
+   * @param body        the request body.
+   * @param contentType the media type of the body, before compression.
+   * @return the response, whatever its status code.
+   * @throws IOException if no response could be received.
+   */
+  public Response post(byte[] body, String contentType) throws IOException {
+    try {
+      connections.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a connection");
+    }
+    try {
+      return execute(body, contentType);
+    } finally {
+      connections.release();
+    }
+  }
+
+  private Response execute(byte[] body, String contentType) throws IOException {
+    final boolean compress = body.length >= gzipThresholdBytes;
+    final byte[] payload = compress ? gzip(body) : body;
+
+    final HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+    boolean reusable = false;
+    try {
+      connection.setRequestMethod("POST");
+      connection.setConnectTimeout(timeoutMillis);
+      connection.setReadTimeout(timeoutMillis);
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(payload.length);
+      connection.setRequestProperty("Content-Type", contentType);
+      if (compress) {
+        connection.setRequestProperty("Content-Encoding", "gzip");
+      }
+      try (OutputStream output = connection.getOutputStream()) {
+        output.write(payload);
+      }
+
+      final int statusCode = connection.getResponseCode();
+      final InputStream input =
+          statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+      final byte[] responseBody = input != null ? readFully(input) : EMPTY;
+      reusable = true;
+      return new Response(statusCode, responseBody);
+    } finally {
+      if (!reusable) {
+        // Don't return a connection in an unknown state to the pool.
+        connection.disconnect();
+      }
+    }
+  }
+
+  private static byte[] gzip(byte[] body) throws IOException {
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2 + 32);
+    try (GZIPOutputStream output = new GZIPOutputStream(compressed, 1024)) {
+      output.write(body);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static byte[] readFully(InputStream input) throws IOException {
+    try {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+      final byte[] buffer = new byte[1024];
+      for (int count = input.read(buffer); count >= 0; count = input.read(buffer)) {
+        output.write(buffer, 0, count);
+      }
+      return output.toByteArray();
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Configures a {@link SubmissionClient}.
+   */
+  public static final class Builder {
+
+    private final URL endpoint;
+    private int timeoutMillis = 15_000;
+    private int gzipThresholdBytes = 512;
+    private int maxConnections = Integer.getInteger("http.maxConnections", 5);
+
+    /**
+     * @param endpoint the URL that bodies are posted to.
+     */
+    public Builder(URL endpoint) {
+      this.endpoint = endpoint;
+    }
+
+    /**
+     * Sets the connect and read timeout of each request.
+     */
+    public Builder setTimeoutMillis(int timeoutMillis) {
+      this.timeoutMillis = timeoutMillis;
+      return this;
+    }
+
+    /**
+     * Sets the size from which bodies are compressed. Smaller bodies gain too little to be worth
+     * the CPU time.
+     */
+    public Builder setGzipThresholdBytes(int gzipThresholdBytes) {
+      this.gzipThresholdBytes = gzipThresholdBytes;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of requests in flight. Going beyond the size of the platform's
+     * connection pool makes connections get closed after each request instead of reused.
+     */
+    public Builder setMaxConnections(int maxConnections) {
+      if (maxConnections < 1) {
+        throw new IllegalArgumentException("Invalid connection count " + maxConnections);
+      }
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    public SubmissionClient build() {
+      return new SubmissionClient(this);
+    }
+  }
+}
@@ -0,0 +1,695 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.outbox;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.samples.pay.Constants;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A crash-safe queue of payment tokens waiting to be delivered to the merchant backend.
+ *
+ * <p>Tokens are appended to a log file before {@link #enqueue(String)} reports them as stored, so
+ * they survive the process being killed before delivery. Each record is prefixed with its length
+ * and a CRC32 checksum; a record that was only partially written when the process died is dropped,
+ * together with anything after it, the next time the log is opened. Tokens added at the same time
+ * are written together and made durable with a single {@code fsync}.
+ *
+ * <p>Every token is stored with a random idempotency key, which is kept across restarts and
+ * retries, so that the backend can recognize a token it has already received even from another
+ * installation whose sequence numbers overlap.
+ *
+ * <p>Stored tokens are handed to a {@link TokenSender} in batches, in the order they were added.
+ * A failed batch is retried with exponential backoff. Delivered tokens are acknowledged with a
+ * record in the same log, and once enough of the log is acknowledged, it is rewritten with only
+ * the tokens still waiting.
+ *
+ * <p>The log is only touched from a single background thread, and network calls run on another
+ * one, so that a slow backend never holds up new tokens being stored.
+ */
+public final class TokenOutbox {
+
+  private static final String TAG = "TokenOutbox";
+
+  static final String LOG_FILE_NAME = "outbox.log";
+  private static final String COMPACTION_FILE_NAME = "outbox.log.tmp";
+
+  private static final byte TYPE_ACK = 2;
+  private static final byte TYPE_TOKEN = 3;
+
+  // Length and CRC32 of the payload.
+  private static final int HEADER_BYTES = 8;
+  // Type and sequence number.
+  private static final int ACK_PAYLOAD_BYTES = 9;
+  // Type, sequence number, creation time and idempotency key, followed by the token.
+  private static final int TOKEN_PAYLOAD_PREFIX_BYTES = 33;
+  private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+
+  private static TokenOutbox instance;
+
+  /**
+   * A token stored in the outbox.
+   */
+  public static final class Entry {
+
+    private final long sequence;
+    private final long createdAtMillis;
+    private final UUID idempotencyKey;
+    private final String token;
+    // Size of the record in the log, counted while the entry is waiting.
+    final int recordBytes;
+
+    Entry(long sequence, long createdAtMillis, UUID idempotencyKey, String token,
+        int recordBytes) {
+      this.sequence = sequence;
+      this.createdAtMillis = createdAtMillis;
+      this.idempotencyKey = idempotencyKey;
+      this.token = token;
+      this.recordBytes = recordBytes;
+    }
+
+    /**
+     * @return the position of the entry in the outbox, unique across restarts of this installation
+     * only.
+     */
+    public long getSequence() {
+      return sequence;
+    }
+
+    /**
+     * @return a random key identifying the entry, stored with it and the same every time it is
+     * delivered.
+     */
+    public UUID getIdempotencyKey() {
+      return idempotencyKey;
+    }
+
+    public long getCreatedAtMillis() {
+      return createdAtMillis;
+    }
+
+    public String getToken() {
+      return token;
+    }
+  }
+
+  private static final class Append {
+
+    final String token;
+    final byte[] tokenBytes;
+    final long createdAtMillis;
+    final TaskCompletionSource<Long> source = new TaskCompletionSource<>();
+
+    Append(String token, long createdAtMillis) {
+      this.token = token;
+      this.tokenBytes = token.getBytes(StandardCharsets.UTF_8);
+      this.createdAtMillis = createdAtMillis;
+    }
+  }
+
+  private final File directory;
+  private final TokenSender sender;
+  private final int batchSize;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final long compactionThresholdBytes;
+
+  private final ScheduledExecutorService io;
+  private final ExecutorService delivery;
+
+  // Tokens waiting to be written, shared with the threads calling enqueue. Guards closed too.
+  private final List<Append> appends = new ArrayList<>();
+  private boolean writeScheduled;
+  private boolean closed;
+
+  // The state below is only accessed on the io thread.
+  private FileChannel channel;
+  private IOException openFailure;
+  private final ArrayDeque<Entry> waiting = new ArrayDeque<>();
+  private long nextSequence = 1;
+  private long acknowledgedSequence;
+  private long fileBytes;
+  private long waitingBytes;
+  private boolean delivering;
+  private int failedAttempts;
+  private ScheduledFuture<?> retry;
+  private final Random random = new Random();
+
+  private volatile int waitingCount;
+  private volatile long deliveredCount;
+
+  private TokenOutbox(Builder builder) {
+    this.directory = builder.directory;
+    this.sender = builder.sender;
+    this.batchSize = builder.batchSize;
+    this.initialBackoffMillis = builder.initialBackoffMillis;
+    this.maxBackoffMillis = builder.maxBackoffMillis;
+    this.compactionThresholdBytes = builder.compactionThresholdBytes;
+
+    final ScheduledThreadPoolExecutor io =
+        new ScheduledThreadPoolExecutor(1, runnable -> newThread(runnable, TAG + "-io"));
+    io.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    this.io = io;
+    this.delivery = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), runnable -> newThread(runnable, TAG + "-delivery"));
+
+    io.execute(() -> {
+      open();
+      deliver();
+    });
+  }
+
+  private static Thread newThread(Runnable runnable, String name) {
+    final Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Returns the outbox of the app, which posts tokens to
+   * {@link Constants#MERCHANT_TOKENS_ENDPOINT}. Tokens left over by a previous process are
+   * delivered as soon as it is created.
+   *
+   * @param context any context; only used to locate the app's files directory.
+   * @return the outbox, or {@code null} if no endpoint is configured.
+   */
+  @Nullable
+  public static synchronized TokenOutbox getInstance(Context context) {
+    if (instance == null && !Constants.MERCHANT_TOKENS_ENDPOINT.isEmpty()) {
+      final URL endpoint;
+      try {
+        endpoint = new URL(Constants.MERCHANT_TOKENS_ENDPOINT);
+      } catch (MalformedURLException e) {
+        throw new IllegalStateException("Invalid MERCHANT_TOKENS_ENDPOINT", e);
+      }
+      final SubmissionClient client = new SubmissionClient.Builder(endpoint).build();
+      instance = new Builder(new File(context.getFilesDir(), "outbox"),
+          new HttpTokenSender(client)).build();
+    }
+    return instance;
+  }
+
+  /**
+   * Stores a token to be delivered to the backend.
+   *
+   * @return a Task that completes with the sequence number of the token once it has been written
+   * to storage, or fails if it couldn't be, e.g. because the outbox has been closed or the token
+   * is too large to be stored. A rejected token doesn't affect the others.
+   */
+  public Task<Long> enqueue(@NonNull String token) {
+    final Append append = new Append(token, System.currentTimeMillis());
+    if (TOKEN_PAYLOAD_PREFIX_BYTES + append.tokenBytes.length > MAX_PAYLOAD_BYTES) {
+      append.source.setException(
+          new IOException("Token too large: " + append.tokenBytes.length + " bytes"));
+      return append.source.getTask();
+    }
+    synchronized (appends) {
+      if (closed) {
+        append.source.setException(new IOException("The outbox is closed"));
+        return append.source.getTask();
+      }
+      appends.add(append);
+      if (!writeScheduled) {
+        writeScheduled = true;
+        io.execute(this::writeAppends);
+      }
+    }
+    return append.source.getTask();
+  }
+
+  /**
+   * Retries delivery right away instead of waiting for the backoff to expire, e.g. once the
+   * device is back online.
+   */
+  public void deliverNow() {
+    runOnIo(() -> {
+      if (retry != null) {
+        retry.cancel(false);
+        retry = null;
+      }
+      deliver();
+    });
+  }
+
+  /**
+   * @return the number of stored tokens that haven't been acknowledged by the backend yet.
+   */
+  public int getWaitingCount() {
+    return waitingCount;
+  }
+
+  /**
+   * @return the number of tokens acknowledged by the backend since the outbox was created.
+   */
+  public long getDeliveredCount() {
+    return deliveredCount;
+  }
+
+  /**
+   * Stops delivering tokens and closes the log, waiting for pending writes to finish. Stored tokens
+   * are delivered by the next outbox opened on the same directory. Tokens enqueued afterwards are
+   * rejected. Calling this again has no effect.
+   */
+  public void close() {
+    synchronized (appends) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    delivery.shutdownNow();
+    io.execute(this::closeChannel);
+    io.shutdown();
+    try {
+      io.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Everything below runs on the io thread.
+
+  private void open() {
+    try {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Can't create " + directory);
+      }
+      final File logFile = new File(directory, LOG_FILE_NAME);
+      final long validBytes = logFile.exists() ? recover(logFile) : 0;
+      channel = new RandomAccessFile(logFile, "rw").getChannel();
+      if (channel.size() > validBytes) {
+        Log.w(TAG, "Dropping " + (channel.size() - validBytes) + " bytes of incomplete records");
+        channel.truncate(validBytes);
+        channel.force(false);
+      }
+      channel.position(validBytes);
+      fileBytes = validBytes;
+      waitingCount = waiting.size();
+    } catch (IOException e) {
+      Log.e(TAG, "Can't open the outbox", e);
+      openFailure = e;
+      closeChannel();
+    }
+  }
+
+  /**
+   * Reads the log back into memory.
+   *
+   * @return the length of the log up to the last complete record.
+   */
+  private long recover(File logFile) throws IOException {
+    long validBytes = 0;
+    final CRC32 crc = new CRC32();
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(logFile), 16 * 1024))) {
+      while (true) {
+        final int length;
+        final int checksum;
+        final byte[] payload;
+        try {
+          length = input.readInt();
+          checksum = input.readInt();
+          if (length < ACK_PAYLOAD_BYTES || length > MAX_PAYLOAD_BYTES) {
+            break;
+          }
+          payload = new byte[length];
+          input.readFully(payload);
+        } catch (EOFException e) {
+          break;
+        }
+        crc.reset();
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(payload);
+        final byte type = buffer.get();
+        final long sequence = buffer.getLong();
+        if (type == TYPE_TOKEN && length >= TOKEN_PAYLOAD_PREFIX_BYTES) {
+          final long createdAtMillis = buffer.getLong();
+          final UUID idempotencyKey = new UUID(buffer.getLong(), buffer.getLong());
+          final String token = new String(payload, TOKEN_PAYLOAD_PREFIX_BYTES,
+              length - TOKEN_PAYLOAD_PREFIX_BYTES, StandardCharsets.UTF_8);
+          if (sequence > acknowledgedSequence) {
+            waiting.add(new Entry(
+                sequence, createdAtMillis, idempotencyKey, token, HEADER_BYTES + length));
+            waitingBytes += HEADER_BYTES + length;
+          }
+        } else if (type == TYPE_ACK) {
+          acknowledge(sequence);
+        } else {
+          break;
+        }
+        nextSequence = Math.max(nextSequence, sequence + 1);
+        validBytes += HEADER_BYTES + length;
+      }
+    }
+    return validBytes;
+  }
+
+  private void writeAppends() {
+    final List<Append> batch;
+    synchronized (appends) {
+      batch = new ArrayList<>(appends);
+      appends.clear();
+      writeScheduled = false;
+    }
+
+    final List<Entry> entries = new ArrayList<>(batch.size());
+    try {
+      if (channel == null) {
+        throw new IOException("The outbox is not available", openFailure);
+      }
+      // Tokens were checked against MAX_PAYLOAD_BYTES by enqueue.
+      int totalBytes = 0;
+      for (Append append : batch) {
+        totalBytes += HEADER_BYTES + TOKEN_PAYLOAD_PREFIX_BYTES + append.tokenBytes.length;
+      }
+
+      final ByteBuffer buffer = ByteBuffer.allocate(totalBytes);
+      long sequence = nextSequence;
+      for (int i = 0; i < batch.size(); i++) {
+        final Append append = batch.get(i);
+        final UUID idempotencyKey = UUID.randomUUID();
+        final int start = buffer.position();
+        putTokenRecord(
+            buffer, sequence, append.createdAtMillis, idempotencyKey, append.tokenBytes);
+        entries.add(new Entry(sequence, append.createdAtMillis, idempotencyKey, append.token,
+            buffer.position() - start));
+        sequence++;
+      }
+      buffer.flip();
+      writeFully(channel, buffer);
+      // One sync for every token in the batch.
+      channel.force(false);
+
+      nextSequence = sequence;
+      fileBytes += totalBytes;
+      for (Entry entry : entries) {
+        waiting.add(entry);
+        waitingBytes += entry.recordBytes;
+      }
+      waitingCount = waiting.size();
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to store " + batch.size() + " tokens", e);
+      rollBack();
+      for (Append append : batch) {
+        append.source.setException(e);
+      }
+      return;
+    }
+
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).source.setResult(entries.get(i).sequence);
+    }
+    deliver();
+  }
+
+  /**
+   * Drops whatever part of a failed write made it to the log.
+   */
+  private void rollBack() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.truncate(fileBytes);
+      channel.position(fileBytes);
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to roll back the outbox", e);
+      closeChannel();
+    }
+  }
+
+  private void deliver() {
+    if (delivering || retry != null || waiting.isEmpty() || channel == null) {
+      return;
+    }
+    delivering = true;
+
+    final List<Entry> batch = new ArrayList<>(Math.min(batchSize, waiting.size()));
+    final Iterator<Entry> iterator = waiting.iterator();
+    while (batch.size() < batchSize && iterator.hasNext()) {
+      batch.add(iterator.next());
+    }
+    delivery.execute(() -> {
+      try {
+        sender.send(batch);
+        runOnIo(() -> onDelivered(batch.get(batch.size() - 1).sequence, batch.size()));
+      } catch (IOException | RuntimeException e) {
+        Log.w(TAG, "Failed to deliver " + batch.size() + " tokens", e);
+        runOnIo(this::onDeliveryFailed);
+      }
+    });
+  }
+
+  private void runOnIo(Runnable runnable) {
+    try {
+      io.execute(runnable);
+    } catch (RejectedExecutionException e) {
+      // Closed while the batch was being delivered; it is delivered again by the next outbox.
+    }
+  }
+
+  private void onDelivered(long lastSequence, int count) {
+    delivering = false;
+    failedAttempts = 0;
+    if (channel == null) {
+      return;
+    }
+    try {
+      final ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + ACK_PAYLOAD_BYTES);
+      putAckRecord(buffer, lastSequence);
+      buffer.flip();
+      writeFully(channel, buffer);
+      channel.force(false);
+      fileBytes += HEADER_BYTES + ACK_PAYLOAD_BYTES;
+    } catch (IOException e) {
+      // The batch is delivered again after a restart.
+      Log.e(TAG, "Failed to acknowledge tokens", e);
+      rollBack();
+    }
+    acknowledge(lastSequence);
+    waitingCount = waiting.size();
+    deliveredCount += count;
+
+    if (fileBytes - waitingBytes >= compactionThresholdBytes) {
+      compact();
+    }
+    deliver();
+  }
+
+  private void acknowledge(long sequence) {
+    acknowledgedSequence = Math.max(acknowledgedSequence, sequence);
+    while (!waiting.isEmpty() && waiting.peekFirst().sequence <= acknowledgedSequence) {
+      waitingBytes -= waiting.pollFirst().recordBytes;
+    }
+  }
+
+  private void onDeliveryFailed() {
+    delivering = false;
+    failedAttempts++;
+    // Exponential backoff, randomized so that many devices don't retry in lockstep.
+    final long maxDelay = Math.min(maxBackoffMillis,
+        initialBackoffMillis << Math.min(failedAttempts - 1, 30));
+    final long delay = maxDelay / 2 + (long) (random.nextDouble() * (maxDelay / 2));
+    retry = io.schedule(() -> {
+      retry = null;
+      deliver();
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Rewrites the log with only the tokens that are still waiting.
+   */
+  private void compact() {
+    final File compacted = new File(directory, COMPACTION_FILE_NAME);
+    try {
+      final ByteBuffer buffer = ByteBuffer.allocate(
+          (int) (HEADER_BYTES + ACK_PAYLOAD_BYTES + waitingBytes));
+      // Carries the acknowledged sequence number over, so that numbers keep increasing even once
+      // every token has been delivered.
+      putAckRecord(buffer, acknowledgedSequence);
+      for (Entry entry : waiting) {
+        putTokenRecord(buffer, entry.sequence, entry.createdAtMillis, entry.idempotencyKey,
+            entry.token.getBytes(StandardCharsets.UTF_8));
+      }
+      buffer.flip();
+      try (FileChannel output = new RandomAccessFile(compacted, "rw").getChannel()) {
+        output.truncate(0);
+        writeFully(output, buffer);
+        output.force(false);
+      }
+      if (!compacted.renameTo(new File(directory, LOG_FILE_NAME))) {
+        throw new IOException("Can't replace the log");
+      }
+    } catch (IOException e) {
+      // The current log is still complete.
+      Log.w(TAG, "Failed to compact the outbox", e);
+      compacted.delete();
+      return;
+    }
+
+    closeChannel();
+    try {
+      channel = new RandomAccessFile(new File(directory, LOG_FILE_NAME), "rw").getChannel();
+      fileBytes = channel.size();
+      channel.position(fileBytes);
+    } catch (IOException e) {
+      Log.e(TAG, "Can't reopen the outbox", e);
+      openFailure = e;
+      closeChannel();
+    }
+  }
+
+  private void closeChannel() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        Log.w(TAG, "Failed to close the outbox", e);
+      }
+      channel = null;
+    }
+  }
+
+  private static void putTokenRecord(ByteBuffer buffer, long sequence, long createdAtMillis,
+      UUID idempotencyKey, byte[] token) {
+    final int start = buffer.position();
+    final int length = TOKEN_PAYLOAD_PREFIX_BYTES + token.length;
+    buffer.putInt(length).putInt(0)
+        .put(TYPE_TOKEN).putLong(sequence).putLong(createdAtMillis)
+        .putLong(idempotencyKey.getMostSignificantBits())
+        .putLong(idempotencyKey.getLeastSignificantBits())
+        .put(token);
+    putChecksum(buffer, start, length);
+  }
+
+  private static void putAckRecord(ByteBuffer buffer, long sequence) {
+    final int start = buffer.position();
+    buffer.putInt(ACK_PAYLOAD_BYTES).putInt(0)
+        .put(TYPE_ACK).putLong(sequence);
+    putChecksum(buffer, start, ACK_PAYLOAD_BYTES);
+  }
+
+  private static void putChecksum(ByteBuffer buffer, int recordStart, int length) {
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.array(), buffer.arrayOffset() + recordStart + HEADER_BYTES, length);
+    buffer.putInt(recordStart + 4, (int) crc.getValue());
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Configures a {@link TokenOutbox}.
+   */
+  public static final class Builder {
+
+    private final File directory;
+    private final TokenSender sender;
+    private int batchSize = 50;
+    private long initialBackoffMillis = TimeUnit.SECONDS.toMillis(1);
+    private long maxBackoffMillis = TimeUnit.MINUTES.toMillis(5);
+    private long compactionThresholdBytes = 64 * 1024;
+
+    /**
+     * @param directory the directory holding the log, created if needed. Only one outbox may use
+     *                  it at a time.
+     * @param sender    delivers the tokens to the backend.
+     */
+    public Builder(File directory, TokenSender sender) {
+      this.directory = directory;
+      this.sender = sender;
+    }
+
+    /**
+     * Sets the maximum number of tokens handed to the sender at once.
+     */
+    public Builder setBatchSize(int batchSize) {
+      if (batchSize < 1) {
+        throw new IllegalArgumentException("Invalid batch size " + batchSize);
+      }
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * Sets the delay before the first retry of a failed batch, and the limit it doubles up to with
+     * every further failure.
+     */
+    public Builder setBackoff(long initialBackoffMillis, long maxBackoffMillis) {
+      if (initialBackoffMillis < 1 || maxBackoffMillis < initialBackoffMillis) {
+        throw new IllegalArgumentException(
+            "Invalid backoff " + initialBackoffMillis + ".." + maxBackoffMillis);
+      }
+      this.initialBackoffMillis = initialBackoffMillis;
+      this.maxBackoffMillis = maxBackoffMillis;
+      return this;
+    }
+
+    /**
+     * Sets how many bytes of acknowledged records the log may hold before it is rewritten.
+     */
+    public Builder setCompactionThresholdBytes(long compactionThresholdBytes) {
+      this.compactionThresholdBytes = compactionThresholdBytes;
+      return this;
+    }
+
+    public TokenOutbox build() {
+      return new TokenOutbox(this);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Delivers payment tokens from a {@link TokenOutbox} to the merchant backend.
+ */
+public interface TokenSender {
+
+  /**
+   * Delivers a batch of tokens. Called on a background thread, one batch at a time.
+   *
+   * <p>Returning normally acknowledges every entry of the batch, which is then removed from the
+   * outbox. An entry may be delivered again after a failure or a crash, so the backend should
+   * ignore idempotency keys it has already seen.
+   *
+   * @param entries the tokens to deliver, in the order they were added.
+   * @throws IOException if the batch could not be delivered; it is retried later.
+   */
+  void send(List<TokenOutbox.Entry> entries) throws IOException;
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.search;
+
+import android.os.Process;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+import com.google.android.gms.samples.pay.util.PaymentsExecutors;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Full-text search over the products of the catalog.
+ *
+ * <p>The index is built and updated on a background thread, and published as an immutable
+ * {@link SearchIndex} that queries read without locking, from any thread. Updates only analyze
+ * the products that changed, so indexing a new version of the catalog costs in proportion to what
+ * changed in it.
+ */
+public final class ProductSearch {
+
+  /**
+   * Notified on the main thread when a new version of the index is published.
+   */
+  public interface Listener {
+
+    @MainThread
+    void onIndexUpdated(SearchIndex index);
+  }
+
+  private static ProductSearch instance;
+
+  private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(() -> {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      runnable.run();
+    }, "SearchIndexer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // Only used on the indexer thread.
+  private final SearchIndex.Builder builder = new SearchIndex.Builder();
+
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  private volatile SearchIndex index = SearchIndex.EMPTY;
+
+  private ProductSearch() {
+  }
+
+  public static synchronized ProductSearch getInstance() {
+    if (instance == null) {
+      instance = new ProductSearch();
+    }
+    return instance;
+  }
+
+  /**
+   * @return the latest version of the index.
+   */
+  @AnyThread
+  public SearchIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Finds products in the latest version of the index.
+   *
+   * @see SearchIndex#search(String, int)
+   */
+  @AnyThread
+  public int[] search(String query, int limit) {
+    return index.search(query, limit);
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Indexes the products of a catalog in the background, by their position in it. Products of
+   * the previous catalog that are past the end of this one are removed.
+   */
+  @AnyThread
+  public void indexCatalog(ProductCatalog catalog) {
+    update(() -> {
+      boolean changed = false;
+      for (int i = 0; i < catalog.size(); i++) {
+        changed |= builder.put(
+            i, catalog.getTitle(i), catalog.getCategory(i), catalog.getDescription(i));
+      }
+      return builder.removeFrom(catalog.size()) || changed;
+    });
+  }
+
+  /**
+   * Indexes a product in the background, replacing the previous version with the same id.
+   *
+   * @param description the description, which may be HTML.
+   */
+  @AnyThread
+  public void put(int id, String title, String category, String description) {
+    update(() -> builder.put(id, title, category, description));
+  }
+
+  /**
+   * Removes a product from the index in the background.
+   */
+  @AnyThread
+  public void remove(int id) {
+    update(() -> builder.remove(id));
+  }
+
+  private interface Update {
+
+    /**
+     * @return whether the index changed.
+     */
+    boolean apply();
+  }
+
+  private void update(Update update) {
+    indexer.execute(() -> {
+      if (!update.apply()) {
+        return;
+      }
+      final SearchIndex updated = builder.build();
+      index = updated;
+      PaymentsExecutors.mainThread().execute(() -> {
+        for (Listener listener : listeners) {
+          listener.onIndexUpdated(updated);
+        }
+      });
+    });
+  }
+}
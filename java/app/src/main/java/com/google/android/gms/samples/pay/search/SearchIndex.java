@@ -0,0 +1,643 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.search;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable inverted index over the titles, categories and descriptions of products.
+ *
+ * <p>Terms are kept sorted, so the terms that start with a prefix form a range found by binary
+ * search. Each term maps to an {@code int[]} of postings sorted by product id. A posting is the
+ * product id shifted left by {@link #SCORE_BITS}, combined with the score of the term in the
+ * product, which depends on the fields the term appears in, titles first.
+ *
+ * <p>Queries match products that contain every term of the query, the last one being matched as a
+ * prefix as the user types it. Whole terms score twice as much as longer terms sharing the prefix.
+ * The postings of all the terms sharing a prefix are merged the first time the prefix is searched,
+ * keeping the best score of each product, and kept with the index. The postings of the tokens are
+ * then intersected by walking the shortest one and skipping ahead in the others, and the best
+ * products are kept in a heap of the size of the results. Long postings also come with their
+ * first {@link #RANKED_HEAD_SIZE} postings by rank, which answer queries of a single token
+ * without reading the rest.
+ */
+public final class SearchIndex {
+
+  static final int TITLE = 1;
+  static final int CATEGORY = 1 << 1;
+  static final int DESCRIPTION = 1 << 2;
+
+  static final int SCORE_BITS = 5;
+  private static final int SCORE_MASK = (1 << SCORE_BITS) - 1;
+
+  // The largest product id that fits in a posting.
+  static final int MAX_ID = Integer.MAX_VALUE >>> SCORE_BITS;
+
+  // Number of best postings kept in rank order for long postings.
+  static final int RANKED_HEAD_SIZE = 256;
+
+  // Number of merged prefixes kept with the index.
+  private static final int MAX_CACHED_PREFIXES = 64;
+
+  public static final SearchIndex EMPTY =
+      new SearchIndex(new String[0], new int[0][], new int[0][], 0);
+
+  // Working memory for merging prefixes, reused by the queries of a thread.
+  private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+    @Override
+    protected Scratch initialValue() {
+      return new Scratch();
+    }
+  };
+
+  private final String[] terms;
+  private final int[][] postings;
+  private final int[][] rankedHeads;
+  private final int idLimit;
+
+  // The merged postings of prefixes, and their ranked heads.
+  private final Map<String, int[][]> prefixPostings = new ConcurrentHashMap<>();
+
+  /**
+   * @param terms       the terms, sorted.
+   * @param postings    the postings of each term.
+   * @param rankedHeads the ranked heads of the postings of each term, null for short postings.
+   * @param idLimit     one more than the largest product id.
+   */
+  SearchIndex(String[] terms, int[][] postings, int[][] rankedHeads, int idLimit) {
+    this.terms = terms;
+    this.postings = postings;
+    this.rankedHeads = rankedHeads;
+    this.idLimit = idLimit;
+  }
+
+  /**
+   * @return the score of a whole term found in the given fields.
+   */
+  static int getScore(int fields) {
+    final int weight = ((fields & TITLE) != 0 ? 8 : 0)
+        + ((fields & CATEGORY) != 0 ? 4 : 0)
+        + ((fields & DESCRIPTION) != 0 ? 1 : 0);
+    // Halved for prefix matches.
+    return weight * 2;
+  }
+
+  public int getTermCount() {
+    return terms.length;
+  }
+
+  /**
+   * Finds the products matching a query, best first.
+   *
+   * @param query the text typed by the user.
+   * @param limit the maximum number of products to return.
+   * @return the ids of the products found.
+   */
+  @AnyThread
+  public int[] search(String query, int limit) {
+    final List<String> tokens = TextAnalyzer.tokenize(query);
+    if (tokens.isEmpty() || limit <= 0 || idLimit == 0) {
+      return new int[0];
+    }
+
+    final int[][] tokenPostings = new int[tokens.size()][];
+    int[] rankedHead = null;
+    // The best score a product can get.
+    int maxScore = 0;
+    for (int token = 0; token < tokens.size(); token++) {
+      final int[][] found = token == tokens.size() - 1
+          ? getPrefixPostings(tokens.get(token)) : getTermPostings(tokens.get(token));
+      if (found == null) {
+        return new int[0];
+      }
+      tokenPostings[token] = found[0];
+      rankedHead = found[1];
+      maxScore += getMaxScore(found[0], rankedHead);
+    }
+
+    if (tokens.size() == 1 && rankedHead != null && limit <= rankedHead.length) {
+      final int[] ids = new int[limit];
+      for (int i = 0; i < limit; i++) {
+        ids[i] = rankedHead[i] >>> SCORE_BITS;
+      }
+      return ids;
+    }
+    // Only the products of the shortest postings can match every token.
+    Arrays.sort(tokenPostings, (a, b) -> a.length - b.length);
+
+    final TopProducts top = new TopProducts(Math.min(limit, tokenPostings[0].length));
+    final int[] positions = new int[tokenPostings.length];
+    products:
+    for (int posting : tokenPostings[0]) {
+      final int id = posting >>> SCORE_BITS;
+      int score = posting & SCORE_MASK;
+      for (int token = 1; token < tokenPostings.length; token++) {
+        final int[] other = tokenPostings[token];
+        int position = positions[token];
+        if (other[position] >>> SCORE_BITS < id) {
+          position = seek(other, position, id);
+          if (position == other.length) {
+            break products;
+          }
+          positions[token] = position;
+        }
+        if (other[position] >>> SCORE_BITS != id) {
+          continue products;
+        }
+        score += other[position] & SCORE_MASK;
+      }
+      top.offer(id, score);
+      if (top.isFull() && top.getMinScore() == maxScore) {
+        // Products further on can at best tie, and lose to the smaller ids.
+        break;
+      }
+    }
+    return top.toIds();
+  }
+
+  /**
+   * @return the postings of a term and their ranked head, or null if the term is not indexed.
+   */
+  @Nullable
+  private int[][] getTermPostings(String term) {
+    final int index = lowerBound(term);
+    return index < terms.length && terms[index].equals(term)
+        ? new int[][] {postings[index], rankedHeads[index]} : null;
+  }
+
+  /**
+   * @return the merged postings of the terms starting with a prefix and their ranked head, or null
+   * if there is no such term.
+   */
+  @Nullable
+  private int[][] getPrefixPostings(String prefix) {
+    final int from = lowerBound(prefix);
+    // Terms never contain the last char, so every term starting with the prefix sorts before.
+    final int to = lowerBound(prefix + Character.MAX_VALUE);
+    if (to == from) {
+      return null;
+    }
+    if (to == from + 1 && terms[from].equals(prefix)) {
+      return new int[][] {postings[from], rankedHeads[from]};
+    }
+
+    int[][] merged = prefixPostings.get(prefix);
+    if (merged == null) {
+      final Scratch scratch = SCRATCH.get();
+      scratch.ensureCapacity(idLimit);
+      try {
+        for (int term = from; term < to; term++) {
+          scratch.keepBest(postings[term], terms[term].length() == prefix.length());
+        }
+        final int[] byId = scratch.toPostings(idLimit);
+        merged = new int[][] {byId, getRankedHead(byId, byId.length)};
+      } finally {
+        scratch.clear();
+      }
+      if (prefixPostings.size() >= MAX_CACHED_PREFIXES) {
+        prefixPostings.clear();
+      }
+      prefixPostings.put(prefix, merged);
+    }
+    return merged;
+  }
+
+  private int lowerBound(String text) {
+    int low = 0;
+    int high = terms.length;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (terms[middle].compareTo(text) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the first {@link #RANKED_HEAD_SIZE} postings by score, highest first, and then by
+   * product id, or null if the postings are short enough to be read whole.
+   */
+  @Nullable
+  static int[] getRankedHead(int[] byId, int size) {
+    if (size <= RANKED_HEAD_SIZE) {
+      return null;
+    }
+    // A counting sort by score, which keeps postings with the same score sorted by id.
+    final int[] starts = new int[SCORE_MASK + 2];
+    for (int i = 0; i < size; i++) {
+      starts[SCORE_MASK - (byId[i] & SCORE_MASK) + 1]++;
+    }
+    for (int rank = 1; rank < starts.length; rank++) {
+      starts[rank] += starts[rank - 1];
+    }
+    final int[] head = new int[RANKED_HEAD_SIZE];
+    for (int i = 0; i < size; i++) {
+      final int position = starts[SCORE_MASK - (byId[i] & SCORE_MASK)]++;
+      if (position < RANKED_HEAD_SIZE) {
+        head[position] = byId[i];
+      }
+    }
+    return head;
+  }
+
+  private static int getMaxScore(int[] byId, @Nullable int[] rankedHead) {
+    if (rankedHead != null) {
+      return rankedHead[0] & SCORE_MASK;
+    }
+    int maxScore = 0;
+    for (int posting : byId) {
+      maxScore = Math.max(maxScore, posting & SCORE_MASK);
+    }
+    return maxScore;
+  }
+
+  /**
+   * @return the position of the first posting at or after {@code from} with an id of at least
+   * {@code id}, or the length of the postings if there is none.
+   */
+  private static int seek(int[] postings, int from, int id) {
+    // Gallops ahead, so skipping far costs a logarithmic number of steps.
+    int low = from;
+    int step = 1;
+    while (low < postings.length && postings[low] >>> SCORE_BITS < id) {
+      final int next = low + step;
+      if (next >= postings.length || postings[next] >>> SCORE_BITS >= id) {
+        int high = Math.min(next, postings.length);
+        low++;
+        while (low < high) {
+          final int middle = (low + high) >>> 1;
+          if (postings[middle] >>> SCORE_BITS < id) {
+            low = middle + 1;
+          } else {
+            high = middle;
+          }
+        }
+        return low;
+      }
+      low = next;
+      step <<= 1;
+    }
+    return low;
+  }
+
+  /**
+   * The best products offered so far, by score and then by smallest id, in a min-heap.
+   */
+  private static final class TopProducts {
+
+    private final long[] heap;
+    private int size;
+
+    TopProducts(int capacity) {
+      heap = new long[capacity];
+    }
+
+    boolean isFull() {
+      return size == heap.length;
+    }
+
+    /**
+     * @return the score of the worst product kept.
+     */
+    int getMinScore() {
+      return (int) (heap[0] >>> 32);
+    }
+
+    void offer(int id, int score) {
+      final long key = (long) score << 32 | (MAX_ID - id);
+      if (size < heap.length) {
+        heap[size] = key;
+        siftUp(size++);
+      } else if (size > 0 && key > heap[0]) {
+        heap[0] = key;
+        siftDown(size);
+      }
+    }
+
+    /**
+     * @return the ids of the products, best first. Empties the heap.
+     */
+    int[] toIds() {
+      final int[] ids = new int[size];
+      for (int i = size - 1; i >= 0; i--) {
+        ids[i] = MAX_ID - (int) heap[0];
+        heap[0] = heap[i];
+        siftDown(i);
+      }
+      size = 0;
+      return ids;
+    }
+
+    private void siftUp(int index) {
+      final long key = heap[index];
+      while (index > 0) {
+        final int parent = (index - 1) >>> 1;
+        if (heap[parent] <= key) {
+          break;
+        }
+        heap[index] = heap[parent];
+        index = parent;
+      }
+      heap[index] = key;
+    }
+
+    private void siftDown(int size) {
+      final long key = heap[0];
+      int index = 0;
+      while (true) {
+        int child = 2 * index + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && heap[child + 1] < heap[child]) {
+          child++;
+        }
+        if (key <= heap[child]) {
+          break;
+        }
+        heap[index] = heap[child];
+        index = child;
+      }
+      heap[index] = key;
+    }
+  }
+
+  /**
+   * Merges the postings of the terms sharing a prefix. Only the products touched by a merge are
+   * cleared after it.
+   */
+  private static final class Scratch {
+
+    private int[] scores = new int[0];
+    private int[] touched = new int[64];
+    private int touchedCount;
+
+    void ensureCapacity(int idLimit) {
+      if (scores.length < idLimit) {
+        scores = new int[idLimit];
+      }
+    }
+
+    /**
+     * Keeps the best score of each product over the postings of several terms.
+     *
+     * @param wholeTerm whether the term is the whole prefix being searched.
+     */
+    void keepBest(int[] postings, boolean wholeTerm) {
+      for (int posting : postings) {
+        final int id = posting >>> SCORE_BITS;
+        // Offset by one, so that 0 means untouched.
+        final int score = 1 + (wholeTerm ? posting & SCORE_MASK : (posting & SCORE_MASK) >>> 1);
+        if (scores[id] == 0) {
+          if (touchedCount == touched.length) {
+            touched = Arrays.copyOf(touched, touchedCount * 2);
+          }
+          touched[touchedCount++] = id;
+          scores[id] = score;
+        } else if (score > scores[id]) {
+          scores[id] = score;
+        }
+      }
+    }
+
+    /**
+     * @return the best scores kept by {@link #keepBest}, as postings sorted by product id.
+     */
+    int[] toPostings(int idLimit) {
+      final int[] merged;
+      if (touchedCount < idLimit / 8) {
+        merged = Arrays.copyOf(touched, touchedCount);
+        Arrays.sort(merged);
+      } else {
+        // Cheaper than sorting when most products were touched.
+        merged = new int[touchedCount];
+        int size = 0;
+        for (int id = 0; id < idLimit; id++) {
+          if (scores[id] != 0) {
+            merged[size++] = id;
+          }
+        }
+      }
+      for (int i = 0; i < merged.length; i++) {
+        merged[i] = merged[i] << SCORE_BITS | (scores[merged[i]] - 1);
+      }
+      return merged;
+    }
+
+    void clear() {
+      for (int i = 0; i < touchedCount; i++) {
+        scores[touched[i]] = 0;
+      }
+      touchedCount = 0;
+    }
+  }
+
+  /**
+   * Maintains the postings of an index as products are added, changed and removed, and
+   * builds immutable snapshots of them.
+   *
+   * <p>Only the products that change are analyzed again. Snapshots share the posting arrays of the
+   * terms that didn't change since the previous snapshot, and the sorted terms if no term was added
+   * or removed. Not thread-safe.
+   */
+  public static final class Builder {
+
+    /**
+     * The postings of a term, sorted by product id.
+     */
+    private static final class Postings {
+
+      int[] values = new int[4];
+      int size;
+      // The postings as of the last snapshot and their ranked head, if they haven't changed since.
+      int[] frozen;
+      int[] frozenHead;
+
+      void add(int posting) {
+        final int id = posting >>> SCORE_BITS;
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        // Products are mostly indexed in order of their id.
+        int index = size;
+        if (size > 0 && values[size - 1] >>> SCORE_BITS > id) {
+          index = indexOf(id);
+          index = index < 0 ? -index - 1 : index;
+          System.arraycopy(values, index, values, index + 1, size - index);
+        }
+        values[index] = posting;
+        size++;
+        frozen = null;
+      }
+
+      void remove(int id) {
+        final int index = indexOf(id);
+        if (index >= 0) {
+          System.arraycopy(values, index + 1, values, index, size - index - 1);
+          size--;
+          frozen = null;
+        }
+      }
+
+      int[] freeze() {
+        if (frozen == null) {
+          frozen = Arrays.copyOf(values, size);
+          frozenHead = getRankedHead(frozen, size);
+        }
+        return frozen;
+      }
+
+      private int indexOf(int id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+          final int middle = (low + high) >>> 1;
+          final int middleId = values[middle] >>> SCORE_BITS;
+          if (middleId < id) {
+            low = middle + 1;
+          } else if (middleId > id) {
+            high = middle - 1;
+          } else {
+            return middle;
+          }
+        }
+        return -(low + 1);
+      }
+    }
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    // The fields of each indexed product, to detect changes and remove its postings.
+    private String[][] fields = new String[16][];
+    private int idLimit;
+
+    private String[] sortedTerms = new String[0];
+    private boolean termsChanged;
+
+    /**
+     * Indexes a product, replacing its previous version if any.
+     *
+     * @return whether the index changed.
+     */
+    public boolean put(int id, String title, String category, String description) {
+      if (id < 0 || id > MAX_ID) {
+        throw new IllegalArgumentException("Invalid product id " + id);
+      }
+      final String[] current = id < idLimit ? fields[id] : null;
+      if (current != null && current[0].equals(title) && current[1].equals(category)
+          && current[2].equals(description)) {
+        return false;
+      }
+      remove(id);
+
+      for (Map.Entry<String, Integer> term : analyze(title, category, description).entrySet()) {
+        Postings termPostings = postings.get(term.getKey());
+        if (termPostings == null) {
+          termPostings = new Postings();
+          postings.put(term.getKey(), termPostings);
+          termsChanged = true;
+        }
+        termPostings.add(id << SCORE_BITS | getScore(term.getValue()));
+      }
+
+      if (id >= fields.length) {
+        fields = Arrays.copyOf(fields, Math.max(id + 1, fields.length + (fields.length >> 1)));
+      }
+      fields[id] = new String[] {title, category, description};
+      idLimit = Math.max(idLimit, id + 1);
+      return true;
+    }
+
+    /**
+     * @return whether the index changed.
+     */
+    public boolean remove(int id) {
+      final String[] current = id >= 0 && id < idLimit ? fields[id] : null;
+      if (current == null) {
+        return false;
+      }
+      for (String term : analyze(current[0], current[1], current[2]).keySet()) {
+        final Postings termPostings = postings.get(term);
+        termPostings.remove(id);
+        if (termPostings.size == 0) {
+          postings.remove(term);
+          termsChanged = true;
+        }
+      }
+      fields[id] = null;
+      return true;
+    }
+
+    /**
+     * Removes the products with an id of {@code fromId} or more.
+     *
+     * @return whether the index changed.
+     */
+    public boolean removeFrom(int fromId) {
+      boolean changed = false;
+      for (int id = Math.max(fromId, 0); id < idLimit; id++) {
+        changed |= remove(id);
+      }
+      idLimit = Math.max(0, Math.min(idLimit, fromId));
+      return changed;
+    }
+
+    public SearchIndex build() {
+      if (termsChanged) {
+        sortedTerms = postings.keySet().toArray(new String[0]);
+        Arrays.sort(sortedTerms);
+        termsChanged = false;
+      }
+      final int[][] termPostings = new int[sortedTerms.length][];
+      final int[][] rankedHeads = new int[sortedTerms.length][];
+      for (int i = 0; i < sortedTerms.length; i++) {
+        final Postings frozen = postings.get(sortedTerms[i]);
+        termPostings[i] = frozen.freeze();
+        rankedHeads[i] = frozen.frozenHead;
+      }
+      return new SearchIndex(sortedTerms, termPostings, rankedHeads, idLimit);
+    }
+
+    /**
+     * @return the terms of a product, mapped to the fields they appear in.
+     */
+    private static Map<String, Integer> analyze(String title, String category, String description) {
+      final Map<String, Integer> terms = new HashMap<>();
+      addTerms(terms, TextAnalyzer.toPlainText(title), TITLE);
+      addTerms(terms, category, CATEGORY);
+      addTerms(terms, TextAnalyzer.toPlainText(description), DESCRIPTION);
+      return terms;
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int field) {
+      for (String term : TextAnalyzer.tokenize(text)) {
+        final Integer fields = terms.get(term);
+        terms.put(term, fields == null ? field : fields | field);
+      }
+    }
+  }
+}
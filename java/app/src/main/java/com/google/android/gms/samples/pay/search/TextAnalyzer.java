@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.search;
+
+import com.google.android.gms.samples.pay.data.HtmlText;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns product text into the terms of the search index.
+ *
+ * <p>Catalog text is HTML, escaped once or more, so it is unescaped by {@link HtmlText} and its
+ * tags are then dropped. Terms are the lower-cased runs of letters and digits of the text.
+ */
+final class TextAnalyzer {
+
+  private TextAnalyzer() {
+  }
+
+  /**
+   * @return the text of an HTML fragment, unescaped and without its tags.
+   */
+  static String toPlainText(String html) {
+    return stripTags(HtmlText.unescape(html));
+  }
+
+  /**
+   * @return the terms of the text, in order, with repetitions.
+   */
+  static List<String> tokenize(String text) {
+    final List<String> tokens = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      final boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  private static String stripTags(String text) {
+    if (text.indexOf('<') < 0) {
+      return text.trim();
+    }
+    final StringBuilder builder = new StringBuilder(text.length());
+    boolean inTag = false;
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (c == '<') {
+        inTag = true;
+      } else if (c == '>' && inTag) {
+        inTag = false;
+        // Tags such as <br> and <div> separate words.
+        builder.append(' ');
+      } else if (!inTag) {
+        builder.append(c);
+      }
+    }
+    return builder.toString().trim();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.shipping;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.samples.pay.metrics.PaymentsMetrics;
+import com.google.android.gms.wallet.IntermediatePaymentData;
+import com.google.android.gms.wallet.callback.BasePaymentDataCallbacks;
+import com.google.android.gms.wallet.callback.BasePaymentDataCallbacksService;
+import com.google.android.gms.wallet.callback.OnCompleteListener;
+import com.google.android.gms.wallet.callback.PaymentDataRequestUpdate;
+
+import java.io.IOException;
+
+/**
+ * Called by Google Pay when the user changes the shipping address or option on the payment
+ * sheet, for the {@code callbackIntents} of the PaymentDataRequest. Registered in the manifest.
+ *
+ * <p>The answers come from the {@link PaymentDataChangeHandler} of the current payment session,
+ * without network calls. The time taken to answer is recorded as
+ * {@link PaymentsMetrics.Interaction#PAYMENT_DATA_CHANGED}.
+ */
+public class PaymentDataCallbacksService extends BasePaymentDataCallbacksService {
+
+  private static final String TAG = "PaymentDataCallbacks";
+
+  @NonNull
+  @Override
+  protected BasePaymentDataCallbacks createPaymentDataCallbacks() {
+    return new BasePaymentDataCallbacks() {
+      @Override
+      public void onPaymentDataChanged(@NonNull IntermediatePaymentData intermediatePaymentData,
+          @NonNull OnCompleteListener<PaymentDataRequestUpdate> listener) {
+        final long startNanos = System.nanoTime();
+        final String json = intermediatePaymentData.toJson();
+        String update;
+        int statusCode = CommonStatusCodes.SUCCESS;
+        try {
+          update = PaymentDataChangeHandler.getInstance().onPaymentDataChanged(json);
+        } catch (IOException | IllegalStateException e) {
+          Log.e(TAG, "Unable to read the payment data", e);
+          update = PaymentDataChangeHandler.getOtherError(json);
+          statusCode = CommonStatusCodes.INTERNAL_ERROR;
+        }
+        listener.complete(PaymentDataRequestUpdate.fromJson(update));
+        PaymentsMetrics.getInstance().record(
+            PaymentsMetrics.Interaction.PAYMENT_DATA_CHANGED, startNanos, statusCode);
+      }
+    };
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.shipping;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.merchant.MerchantProfile;
+import com.google.android.gms.samples.pay.util.JsonStringWriter;
+import com.google.android.gms.samples.pay.util.PaymentsJsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers the changes of shipping address and option made on the payment sheet with the new
+ * totals of the order.
+ *
+ * <p>The payment sheet waits for the answer, so it is prepared ahead of time: when a payment
+ * session starts, the update sent back for every country and shipping option is serialized from
+ * the cart and the {@link ShippingRates}. A callback then only reads the country and option out
+ * of the intermediate payment data and returns the matching update. When the rates of a country
+ * change during a session, only the updates of that country are serialized again. The handler
+ * only listens to the rates while a session is in progress.
+ */
+public final class PaymentDataChangeHandler implements ShippingRates.Listener {
+
+  static final String ERROR_UNSERVICEABLE_ADDRESS = "{\"error\":{"
+      + "\"reason\":\"SHIPPING_ADDRESS_UNSERVICEABLE\","
+      + "\"message\":\"Cannot ship to the selected address\","
+      + "\"intent\":\"SHIPPING_ADDRESS\"}}";
+
+  // The intent of an error must be the one whose callback failed.
+  static final String ERROR_OTHER_SHIPPING_ADDRESS = "{\"error\":{"
+      + "\"reason\":\"OTHER_ERROR\","
+      + "\"message\":\"Unable to update the order\","
+      + "\"intent\":\"SHIPPING_ADDRESS\"}}";
+
+  static final String ERROR_OTHER_SHIPPING_OPTION = "{\"error\":{"
+      + "\"reason\":\"OTHER_ERROR\","
+      + "\"message\":\"Unable to update the order\","
+      + "\"intent\":\"SHIPPING_OPTION\"}}";
+
+  private static final PaymentDataChangeHandler INSTANCE = new PaymentDataChangeHandler(null);
+
+  /**
+   * The updates of a country, by shipping option id.
+   */
+  private static final class CountryUpdates {
+
+    final String defaultOptionId;
+    final Map<String, String> updates;
+
+    CountryUpdates(String defaultOptionId, Map<String, String> updates) {
+      this.defaultOptionId = defaultOptionId;
+      this.updates = updates;
+    }
+  }
+
+  private static final class Session {
+
+    final Cart cart;
+    final MerchantProfile profile;
+    final ShippingRates rates;
+    final ConcurrentHashMap<String, CountryUpdates> countries = new ConcurrentHashMap<>();
+
+    Session(Cart cart, MerchantProfile profile, ShippingRates rates) {
+      this.cart = cart;
+      this.profile = profile;
+      this.rates = rates;
+    }
+  }
+
+  // The rates of every session, or null for the default rates of each merchant.
+  @Nullable
+  private final ShippingRates rates;
+
+  // Replaced by startSession, read without locking by callbacks.
+  private volatile Session session;
+
+  /**
+   * @param rates the rates of every session, or {@code null} to use the
+   *              {@link ShippingRates#getDefault(MerchantProfile) default rates} of each merchant.
+   */
+  public PaymentDataChangeHandler(@Nullable ShippingRates rates) {
+    this.rates = rates;
+  }
+
+  /**
+   * The handler used by {@link PaymentDataCallbacksService}, which reads the default rates.
+   */
+  public static PaymentDataChangeHandler getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Prepares the updates for a payment session, replacing the previous session if any.
+   *
+   * @param cart    the content of the order, which must not change anymore.
+   * @param profile the merchant being paid.
+   * @throws IllegalArgumentException if the cart or the rates are in another currency than the one
+   *                                  the merchant charges in.
+   */
+  public synchronized void startSession(Cart cart, MerchantProfile profile) {
+    endSession();
+    final ShippingRates sessionRates =
+        rates != null ? rates : ShippingRates.getDefault(profile);
+    final Session session = new Session(cart, profile, sessionRates);
+    sessionRates.addListener(this);
+    try {
+      for (String countryCode : sessionRates.getCountryCodes()) {
+        prepare(session, countryCode);
+      }
+    } catch (RuntimeException e) {
+      sessionRates.removeListener(this);
+      throw e;
+    }
+    this.session = session;
+  }
+
+  /**
+   * Forgets the current session and stops listening to its rates. Callbacks received afterwards
+   * are answered with an error.
+   */
+  public synchronized void endSession() {
+    if (session != null) {
+      session.rates.removeListener(this);
+      session = null;
+    }
+  }
+
+  @Override
+  public synchronized void onRatesChanged(String countryCode) {
+    final Session session = this.session;
+    if (session != null) {
+      prepare(session, countryCode);
+    }
+  }
+
+  private void prepare(Session session, String countryCode) {
+    final List<ShippingOption> options = session.rates.getOptions(countryCode);
+    if (options == null) {
+      session.countries.remove(countryCode);
+      return;
+    }
+
+    final Map<String, String> updates = new HashMap<>(options.size() * 2);
+    for (ShippingOption option : options) {
+      final Cart cart = new Cart(session.cart,
+          option.getPrice().requireCurrency(session.cart.getCurrencyCode()).getMinorUnits());
+      final JsonStringWriter writer = new JsonStringWriter(1024)
+          .beginObject()
+          .name("newTransactionInfo");
+      PaymentsJsonWriter.writeTransactionInfo(writer, session.profile, cart)
+          .name("newShippingOptionParameters");
+      PaymentsJsonWriter.writeShippingOptionParameters(writer, options, option.getId())
+          .endObject();
+      updates.put(option.getId(), writer.toString());
+    }
+    session.countries.put(countryCode, new CountryUpdates(options.get(0).getId(), updates));
+  }
+
+  /**
+   * Returns the update for a change made on the payment sheet. The default option of a country
+   * is selected when the address changes, as the options offered may be different.
+   *
+   * @param intermediatePaymentDataJson the IntermediatePaymentData received from the sheet.
+   * @return the PaymentDataRequestUpdate to send back, possibly an error.
+   * @throws IOException if the payment data is not valid JSON.
+   */
+  public String onPaymentDataChanged(String intermediatePaymentDataJson) throws IOException {
+    final Session session = this.session;
+    final Change change = Change.parse(intermediatePaymentDataJson);
+    if (session == null) {
+      return getOtherErrorFor(change.trigger);
+    }
+
+    final CountryUpdates country =
+        change.countryCode != null ? session.countries.get(change.countryCode) : null;
+    if (country == null) {
+      return ERROR_UNSERVICEABLE_ADDRESS;
+    }
+    String update = null;
+    if ("SHIPPING_OPTION".equals(change.trigger) && change.optionId != null) {
+      update = country.updates.get(change.optionId);
+    }
+    return update != null ? update : country.updates.get(country.defaultOptionId);
+  }
+
+  /**
+   * Returns the error to send back when a change can't be answered, e.g. because the payment data
+   * can't be read. The error is reported on the shipping address unless the payment data says the
+   * shipping option changed.
+   *
+   * @param intermediatePaymentDataJson the IntermediatePaymentData received from the sheet.
+   */
+  public static String getOtherError(String intermediatePaymentDataJson) {
+    String trigger;
+    try {
+      trigger = Change.parse(intermediatePaymentDataJson).trigger;
+    } catch (IOException | IllegalStateException e) {
+      trigger = null;
+    }
+    return getOtherErrorFor(trigger);
+  }
+
+  private static String getOtherErrorFor(@Nullable String trigger) {
+    return "SHIPPING_OPTION".equals(trigger)
+        ? ERROR_OTHER_SHIPPING_OPTION : ERROR_OTHER_SHIPPING_ADDRESS;
+  }
+
+  /**
+   * The fields of IntermediatePaymentData needed to pick an update.
+   */
+  private static final class Change {
+
+    String trigger;
+    String countryCode;
+    String optionId;
+
+    static Change parse(String json) throws IOException {
+      final Change change = new Change();
+      try (JsonReader reader = new JsonReader(new StringReader(json))) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          switch (reader.nextName()) {
+            case "callbackTrigger":
+              change.trigger = nextString(reader);
+              break;
+            case "shippingAddress":
+              change.countryCode = readField(reader, "countryCode");
+              break;
+            case "shippingOptionData":
+              change.optionId = readField(reader, "id");
+              break;
+            default:
+              reader.skipValue();
+              break;
+          }
+        }
+        reader.endObject();
+      }
+      return change;
+    }
+
+    @Nullable
+    private static String readField(JsonReader reader, String name) throws IOException {
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+        reader.skipValue();
+        return null;
+      }
+      String value = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (reader.nextName().equals(name)) {
+          value = nextString(reader);
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+      return value;
+    }
+
+    @Nullable
+    private static String nextString(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonToken.STRING) {
+        return reader.nextString();
+      }
+      reader.skipValue();
+      return null;
+    }
+  }
+}
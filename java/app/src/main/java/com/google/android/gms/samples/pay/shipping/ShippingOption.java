@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.shipping;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.samples.pay.data.Money;
+
+/**
+ * A way of shipping an order, as offered on the payment sheet.
+ */
+public final class ShippingOption {
+
+  private final String id;
+  private final String label;
+  private final String description;
+  private final Money price;
+
+  /**
+   * @param id          identifies the option in callbacks; unique within a country.
+   * @param label       the name shown on the payment sheet.
+   * @param description details shown below the label, such as the delivery time.
+   * @param price       the shipping fee charged for a non-empty cart.
+   */
+  public ShippingOption(String id, String label, String description, Money price) {
+    this.id = id;
+    this.label = label;
+    this.description = description;
+    this.price = price;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public Money getPrice() {
+    return price;
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return id + " (" + price + ")";
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.shipping;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.samples.pay.Constants;
+import com.google.android.gms.samples.pay.merchant.MerchantProfile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The shipping options offered in each country the merchant ships to, priced in the currency the
+ * merchant charges in.
+ *
+ * <p>Each country has its own immutable list of options, replaced as a whole by
+ * {@link #update(String, List)}. Reading the options of a country never blocks, so they can be
+ * looked up from payment sheet callbacks. Listeners are told which country changed, so that
+ * anything derived from the rates only needs to be recomputed for that country. Anything derived
+ * from the rates of every country can compare {@link #getVersion()} instead.
+ */
+public final class ShippingRates {
+
+  /**
+   * Notified after the options of a country have been replaced or removed.
+   */
+  public interface Listener {
+
+    void onRatesChanged(String countryCode);
+  }
+
+  // The default rates of each merchant, created on first use and dropped with the profile.
+  // Guarded by itself.
+  private static final Map<MerchantProfile, ShippingRates> DEFAULTS = new WeakHashMap<>();
+
+  private final String currencyCode;
+  private final ConcurrentHashMap<String, List<ShippingOption>> options =
+      new ConcurrentHashMap<>();
+  private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+  private final AtomicInteger version = new AtomicInteger();
+
+  /**
+   * Creates rates without any country, in the currency from {@link Constants}.
+   */
+  public ShippingRates() {
+    this(Constants.CURRENCY_CODE);
+  }
+
+  /**
+   * Creates rates without any country.
+   *
+   * @param currencyCode the ISO 4217 code of the currency every option is priced in.
+   */
+  public ShippingRates(String currencyCode) {
+    this.currencyCode = currencyCode;
+  }
+
+  /**
+   * The default rates of the merchant configured in {@link Constants}.
+   *
+   * @see #getDefault(MerchantProfile)
+   */
+  public static ShippingRates getDefault() {
+    return getDefault(MerchantProfile.DEFAULT);
+  }
+
+  /**
+   * Standard and express shipping to every country the merchant ships to, standard being the flat
+   * fee charged by carts. The fees from {@link Constants} are converted to the currency of the
+   * merchant like catalog prices are.
+   *
+   * <p>Every caller gets the same rates for the same profile, so that the cart shown to the user,
+   * the PaymentDataRequest and the payment sheet updates are priced alike.
+   */
+  public static ShippingRates getDefault(MerchantProfile profile) {
+    synchronized (DEFAULTS) {
+      ShippingRates rates = DEFAULTS.get(profile);
+      if (rates == null) {
+        rates = createDefault(profile);
+        DEFAULTS.put(profile, rates);
+      }
+      return rates;
+    }
+  }
+
+  private static ShippingRates createDefault(MerchantProfile profile) {
+    final ShippingRates rates = new ShippingRates(profile.getCurrencyCode());
+    final List<ShippingOption> options = Arrays.asList(
+        new ShippingOption("standard", "Standard shipping", "5-7 business days",
+            profile.toMerchantPrice(Constants.SHIPPING_PRICE_MINOR_UNITS)),
+        new ShippingOption("express", "Express shipping", "1-2 business days",
+            profile.toMerchantPrice(Constants.EXPRESS_SHIPPING_PRICE_MINOR_UNITS)));
+    for (String countryCode : profile.getShippingCountries()) {
+      rates.update(countryCode, options);
+    }
+    return rates;
+  }
+
+  /**
+   * @return the ISO 4217 code of the currency the options are priced in.
+   */
+  public String getCurrencyCode() {
+    return currencyCode;
+  }
+
+  /**
+   * A number that changes every time the options of any country do.
+   */
+  public int getVersion() {
+    return version.get();
+  }
+
+  /**
+   * @return the options offered in a country, the first one being selected by default, or
+   * {@code null} if the country isn't shipped to.
+   */
+  @Nullable
+  public List<ShippingOption> getOptions(String countryCode) {
+    return options.get(countryCode);
+  }
+
+  /**
+   * @return the countries that are shipped to.
+   */
+  public Set<String> getCountryCodes() {
+    return Collections.unmodifiableSet(new HashSet<>(options.keySet()));
+  }
+
+  /**
+   * Replaces the options offered in a country.
+   *
+   * @param options the options, the first one being selected by default.
+   * @throws IllegalArgumentException if there are no options, their ids aren't unique or they are
+   *                                  priced in another currency than the rates.
+   */
+  public void update(String countryCode, List<ShippingOption> options) {
+    final Set<String> ids = new HashSet<>();
+    for (ShippingOption option : options) {
+      option.getPrice().requireCurrency(currencyCode);
+      if (!ids.add(option.getId())) {
+        throw new IllegalArgumentException("Duplicate shipping option " + option.getId());
+      }
+    }
+    if (ids.isEmpty()) {
+      throw new IllegalArgumentException("No shipping option for " + countryCode);
+    }
+    this.options.put(countryCode, Collections.unmodifiableList(new ArrayList<>(options)));
+    notifyListeners(countryCode);
+  }
+
+  /**
+   * Stops shipping to a country.
+   */
+  public void remove(String countryCode) {
+    if (options.remove(countryCode) != null) {
+      notifyListeners(countryCode);
+    }
+  }
+
+  public void addListener(Listener listener) {
+    listeners.addIfAbsent(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  private void notifyListeners(String countryCode) {
+    version.incrementAndGet();
+    for (Listener listener : listeners) {
+      listener.onRatesChanged(countryCode);
+    }
+  }
+}
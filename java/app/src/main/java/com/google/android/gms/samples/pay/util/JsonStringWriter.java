@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+import com.google.android.gms.samples.pay.data.Money;
+
+/**
+ * Minimal streaming JSON writer that emits compact JSON into a reusable buffer.
+ *
+ * <p>Unlike {@code JSONObject}, no intermediate tree is built: names and values are written to the
+ * buffer as they are emitted. Strings are escaped with the same rules as {@code JSONObject}, so the
+ * output of equivalent calls is byte-for-byte the same. The writer does not validate the structure
+ * of what it writes; callers are expected to balance {@code begin*} and {@code end*} calls.
+ *
+ * <p>Instances are not thread-safe. Call {@link #reset()} to reuse the buffer for a new document.
+ */
+public final class JsonStringWriter {
+
+  private final StringBuilder buffer;
+
+  // Whether the next name or value needs to be preceded by a comma.
+  private boolean needsSeparator;
+
+  public JsonStringWriter() {
+    this(512);
+  }
+
+  public JsonStringWriter(int initialCapacity) {
+    buffer = new StringBuilder(initialCapacity);
+  }
+
+  /**
+   * Clears the buffer, keeping its capacity, so that a new document can be written.
+   */
+  public JsonStringWriter reset() {
+    buffer.setLength(0);
+    needsSeparator = false;
+    return this;
+  }
+
+  public JsonStringWriter beginObject() {
+    return open('{');
+  }
+
+  public JsonStringWriter endObject() {
+    return close('}');
+  }
+
+  public JsonStringWriter beginArray() {
+    return open('[');
+  }
+
+  public JsonStringWriter endArray() {
+    return close(']');
+  }
+
+  public JsonStringWriter name(String name) {
+    separate();
+    JsonStrings.appendQuoted(buffer, name);
+    buffer.append(':');
+    needsSeparator = false;
+    return this;
+  }
+
+  public JsonStringWriter value(String value) {
+    separate();
+    JsonStrings.appendQuoted(buffer, value);
+    needsSeparator = true;
+    return this;
+  }
+
+  public JsonStringWriter value(long value) {
+    separate();
+    buffer.append(value);
+    needsSeparator = true;
+    return this;
+  }
+
+  public JsonStringWriter value(boolean value) {
+    separate();
+    buffer.append(value);
+    needsSeparator = true;
+    return this;
+  }
+
+  /**
+   * Writes an amount as a decimal string, e.g. {@code "50.20"}, as expected by the Google Pay API.
+   * Only the amount is written: callers writing it next to a currency code check that they match
+   * with {@link Money#requireCurrency(String)}.
+   */
+  public JsonStringWriter value(Money amount) {
+    separate();
+    buffer.append('"');
+    amount.appendDecimal(buffer).append('"');
+    needsSeparator = true;
+    return this;
+  }
+
+  /**
+   * Writes an array with the given strings as elements.
+   */
+  public JsonStringWriter value(Iterable<String> values) {
+    beginArray();
+    for (String value : values) {
+      value(value);
+    }
+    return endArray();
+  }
+
+  /**
+   * Writes a value that has already been serialized, such as a cached JSON fragment.
+   *
+   * @param json a complete, valid JSON value.
+   */
+  public JsonStringWriter rawValue(CharSequence json) {
+    separate();
+    buffer.append(json);
+    needsSeparator = true;
+    return this;
+  }
+
+  /**
+   * Returns the length of the JSON written so far.
+   */
+  public int length() {
+    return buffer.length();
+  }
+
+  /**
+   * Copies the JSON written so far to the end of the given builder.
+   */
+  public StringBuilder appendTo(StringBuilder builder) {
+    return builder.append(buffer);
+  }
+
+  @Override
+  public String toString() {
+    return buffer.toString();
+  }
+
+  private JsonStringWriter open(char bracket) {
+    separate();
+    buffer.append(bracket);
+    needsSeparator = false;
+    return this;
+  }
+
+  private JsonStringWriter close(char bracket) {
+    buffer.append(bracket);
+    needsSeparator = true;
+    return this;
+  }
+
+  private void separate() {
+    if (needsSeparator) {
+      buffer.append(',');
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+/**
+ * Escapes JSON strings with the same rules as {@code JSONObject.toString()}.
+ *
+ * <p>This class has no dependencies, as it is also compiled into {@code buildSrc}, so that the
+ * requests precompiled at build time are escaped exactly like the ones written at runtime by
+ * {@link JsonStringWriter}.
+ */
+public final class JsonStrings {
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private JsonStrings() {
+  }
+
+  /**
+   * Writes a JSON string literal, including its quotes.
+   */
+  public static void appendQuoted(StringBuilder builder, String value) {
+    builder.append('"');
+    for (int i = 0, length = value.length(); i < length; i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+          builder.append('\\').append(c);
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        case '\b':
+          builder.append("\\b");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\f':
+          builder.append("\\f");
+          break;
+        default:
+          if (c <= 0x1F) {
+            builder.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+          } else {
+            builder.append(c);
+          }
+          break;
+      }
+    }
+    builder.append('"');
+  }
+}
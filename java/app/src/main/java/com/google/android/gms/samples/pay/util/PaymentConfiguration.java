@@ -0,0 +1,270 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.merchant.MerchantProfile;
+import com.google.android.gms.samples.pay.shipping.ShippingOption;
+import com.google.android.gms.samples.pay.shipping.ShippingRates;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of the Google Pay requests of a merchant that never change while the app is running,
+ * serialized once.
+ *
+ * <p>The same card payment method is needed to initialize the payment button, to ask
+ * {@code isReadyToPay} and to load payment data. Instead of building it again for each of them,
+ * every caller copies the strings held here. A configuration is immutable; the one of
+ * {@link MerchantProfile#DEFAULT} is built on first use, others by
+ * {@link com.google.android.gms.samples.pay.merchant.MerchantRegistry} when profiles are loaded.
+ *
+ * <p>The payment methods and the {@code IsReadyToPayRequest} of the merchants of
+ * {@code res/raw/merchants.json} are serialized at build time into
+ * {@link PrecompiledPaymentRequests}, and used for any profile with the same payment methods and
+ * gateway parameters, such as the default one when it matches a merchant of the file. Other
+ * profiles are serialized when their configuration is created.
+ *
+ * <p>The PaymentDataRequest also lists the shipping options of the merchant's country, which can
+ * change at runtime. Its template is compiled again the first time it is needed after the
+ * {@link ShippingRates} of the merchant's currency have changed.
+ */
+public final class PaymentConfiguration {
+
+  /**
+   * Total price used to compile the PaymentDataRequest template. It must not appear anywhere else
+   * in the request.
+   */
+  private static final String TEMPLATE_PRICE_PLACEHOLDER = "__TOTAL_PRICE__";
+
+  /**
+   * A template, with the version of the shipping rates it lists.
+   */
+  private static final class CompiledTemplate {
+
+    final int ratesVersion;
+    final PaymentDataRequestTemplate template;
+
+    CompiledTemplate(int ratesVersion, PaymentDataRequestTemplate template) {
+      this.ratesVersion = ratesVersion;
+      this.template = template;
+    }
+  }
+
+  private final MerchantProfile profile;
+  private final ShippingRates shippingRates;
+  private final String baseAllowedPaymentMethods;
+  private final String allowedPaymentMethods;
+  private final String isReadyToPayRequest;
+  private final boolean precompiled;
+
+  // Replaced when the shipping rates change, racing threads may both compile it.
+  private volatile CompiledTemplate compiledTemplate;
+
+  private PaymentConfiguration(MerchantProfile profile) {
+    this.profile = profile;
+    this.shippingRates = ShippingRates.getDefault(profile);
+    final int index = indexOfPrecompiled(profile);
+    this.precompiled = index >= 0;
+    if (precompiled) {
+      this.baseAllowedPaymentMethods =
+          PrecompiledPaymentRequests.BASE_ALLOWED_PAYMENT_METHODS[index];
+      this.allowedPaymentMethods = PrecompiledPaymentRequests.ALLOWED_PAYMENT_METHODS[index];
+      this.isReadyToPayRequest = PrecompiledPaymentRequests.IS_READY_TO_PAY_REQUESTS[index];
+    } else {
+      this.baseAllowedPaymentMethods = PaymentsJsonWriter.writeBaseAllowedPaymentMethods(
+          new JsonStringWriter(256), profile).toString();
+      this.allowedPaymentMethods = PaymentsJsonWriter.writeAllowedPaymentMethods(
+          new JsonStringWriter(512), profile).toString();
+      this.isReadyToPayRequest = PaymentsJsonWriter.writeIsReadyToPayRequest(
+          new JsonStringWriter(baseAllowedPaymentMethods.length() + 64),
+          baseAllowedPaymentMethods).toString();
+    }
+
+    // Compiled eagerly so that a profile which can't be templated is rejected right away.
+    this.compiledTemplate = compileTemplate();
+  }
+
+  /**
+   * Serializes the PaymentDataRequest with the current shipping rates. The transaction info is
+   * filled in at runtime.
+   */
+  private CompiledTemplate compileTemplate() {
+    // Read first, so that rates changing while compiling cause another compilation.
+    final int ratesVersion = shippingRates.getVersion();
+    final String transactionInfo = PaymentsJsonWriter.writeTransactionInfo(
+        new JsonStringWriter(256), profile, TEMPLATE_PRICE_PLACEHOLDER).toString();
+    final StringBuilder quotedPrice = new StringBuilder();
+    JsonStrings.appendQuoted(quotedPrice, TEMPLATE_PRICE_PLACEHOLDER);
+    return new CompiledTemplate(ratesVersion, PaymentDataRequestTemplate.compile(
+        PaymentsJsonWriter.writePaymentDataRequest(new JsonStringWriter(1024), profile,
+            allowedPaymentMethods, TEMPLATE_PRICE_PLACEHOLDER).toString(),
+        transactionInfo,
+        quotedPrice.toString(),
+        profile.getCurrencyCode()));
+  }
+
+  /**
+   * @return the index of the profile's requests in {@link PrecompiledPaymentRequests}, or -1 if
+   * they weren't generated at build time.
+   */
+  private static int indexOfPrecompiled(MerchantProfile profile) {
+    final String key = getPrecompiledKey(profile);
+    for (int i = 0; i < PrecompiledPaymentRequests.KEYS.length; i++) {
+      if (PrecompiledPaymentRequests.KEYS[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Identifies the precompiled requests of a profile by the fields they depend on, so that they
+   * are never used for a profile configured differently from the one they were generated for.
+   * Must be kept in sync with {@code PaymentRequestGenerator.getKey} in {@code buildSrc}.
+   */
+  static String getPrecompiledKey(MerchantProfile profile) {
+    final StringBuilder key = new StringBuilder(256);
+    key.append(profile.getAllowedAuthMethods().size()).append(';');
+    for (String method : profile.getAllowedAuthMethods()) {
+      appendKeyPart(key, method);
+    }
+    key.append(profile.getAllowedCardNetworks().size()).append(';');
+    for (String network : profile.getAllowedCardNetworks()) {
+      appendKeyPart(key, network);
+    }
+    key.append(profile.getGatewayParameters().size()).append(';');
+    for (Map.Entry<String, String> parameter : profile.getGatewayParameters().entrySet()) {
+      appendKeyPart(key, parameter.getKey());
+      appendKeyPart(key, parameter.getValue());
+    }
+    return key.toString();
+  }
+
+  private static void appendKeyPart(StringBuilder key, String value) {
+    key.append(value.length()).append(':').append(value);
+  }
+
+  private static final class Holder {
+
+    static final PaymentConfiguration INSTANCE = new PaymentConfiguration(MerchantProfile.DEFAULT);
+  }
+
+  /**
+   * @return the configuration of {@link MerchantProfile#DEFAULT}.
+   */
+  public static PaymentConfiguration getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  /**
+   * Serializes the requests of a merchant.
+   *
+   * @throws IllegalArgumentException if the request template can't be compiled, e.g. because
+   * the placeholder price appears in the merchant name.
+   */
+  public static PaymentConfiguration of(MerchantProfile profile) {
+    return profile == MerchantProfile.DEFAULT ? getInstance() : new PaymentConfiguration(profile);
+  }
+
+  public MerchantProfile getProfile() {
+    return profile;
+  }
+
+  /**
+   * @return whether the payment methods of the merchant were serialized at build time.
+   */
+  public boolean isPrecompiled() {
+    return precompiled;
+  }
+
+  /**
+   * @return the card payment methods without tokenization specification, as used in
+   * {@code IsReadyToPayRequest}.
+   * @see PaymentsUtil#getIsReadyToPayRequest()
+   */
+  public String getBaseAllowedPaymentMethods() {
+    return baseAllowedPaymentMethods;
+  }
+
+  /**
+   * @return the tokenized card payment methods, as used by the payment button and in
+   * {@code PaymentDataRequest}.
+   * @see PaymentsUtil#getAllowedPaymentMethods()
+   */
+  public String getAllowedPaymentMethods() {
+    return allowedPaymentMethods;
+  }
+
+  /**
+   * @return the complete {@code IsReadyToPayRequest}.
+   * @see PaymentsUtil#getIsReadyToPayRequest()
+   */
+  public String getIsReadyToPayRequest() {
+    return isReadyToPayRequest;
+  }
+
+  /**
+   * @return the rates of the shipping options listed in the PaymentDataRequest.
+   */
+  public ShippingRates getShippingRates() {
+    return shippingRates;
+  }
+
+  /**
+   * @return the price of the shipping option selected by default in the merchant's country.
+   * @throws IllegalArgumentException if the merchant's country isn't shipped to anymore.
+   */
+  public Money getDefaultShippingPrice() {
+    final List<ShippingOption> options = shippingRates.getOptions(profile.getCountryCode());
+    if (options == null) {
+      throw new IllegalArgumentException("No shipping options for " + profile.getCountryCode());
+    }
+    return options.get(0).getPrice();
+  }
+
+  /**
+   * @return the PaymentDataRequest of the merchant, with a hole for the price. A new template is
+   * returned after the shipping rates have changed.
+   */
+  public PaymentDataRequestTemplate getPaymentDataRequestTemplate() {
+    CompiledTemplate compiled = compiledTemplate;
+    if (compiled.ratesVersion != shippingRates.getVersion()) {
+      compiled = compileTemplate();
+      compiledTemplate = compiled;
+    }
+    return compiled.template;
+  }
+
+  /**
+   * Serializes the PaymentDataRequest for the content of a cart. The transaction info is
+   * streamed, and the rest of the request is copied from the template. The cart is charged the
+   * shipping fee it holds, which the caller keeps at {@link #getDefaultShippingPrice()} so that the
+   * amount shown to the user is the amount charged.
+   *
+   * @see PaymentsUtil#getPaymentDataRequest(Cart)
+   */
+  public String getPaymentDataRequestJson(Cart cart) {
+    final PaymentDataRequestTemplate template = getPaymentDataRequestTemplate();
+    final JsonStringWriter transactionInfo =
+        new JsonStringWriter(256 + 64 * cart.getLineCount());
+    PaymentsJsonWriter.writeTransactionInfo(transactionInfo, profile, cart);
+    return template.renderWithTransactionInfo(transactionInfo);
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Reads the fields the app needs from a PaymentData response without parsing it into a tree.
+ *
+ * <p>The response is scanned with a {@link JsonReader}: only the objects on the path to
+ * {@code paymentMethodData.info.billingAddress.name} and
+ * {@code paymentMethodData.tokenizationData.token} are entered, every other value is skipped, and
+ * reading stops as soon as both fields have been found.
+ *
+ * @see <a href="https://developers.google.com/pay/api/android/reference/response-objects#PaymentData">PaymentData</a>
+ */
+public class PaymentDataExtractor {
+
+  private static final String[] BILLING_NAME_PATH = {"billingAddress", "name"};
+  private static final String[] TOKEN_PATH = {"token"};
+
+  /**
+   * The fields extracted from a PaymentData response.
+   */
+  public static final class Result {
+
+    @Nullable
+    private final String billingName;
+
+    @Nullable
+    private final String token;
+
+    Result(@Nullable String billingName, @Nullable String token) {
+      this.billingName = billingName;
+      this.token = token;
+    }
+
+    /**
+     * @return {@code paymentMethodData.info.billingAddress.name}, or {@code null} if absent.
+     */
+    @Nullable
+    public String getBillingName() {
+      return billingName;
+    }
+
+    /**
+     * @return {@code paymentMethodData.tokenizationData.token}, or {@code null} if absent.
+     */
+    @Nullable
+    public String getToken() {
+      return token;
+    }
+  }
+
+  /**
+   * Extracts the billing name and payment token from a PaymentData response.
+   *
+   * @param paymentDataJson the response, as returned by {@code PaymentData.toJson()}.
+   * @return the extracted fields; fields missing from the response are {@code null}.
+   * @throws IOException if the response is not a valid JSON object.
+   */
+  public static Result extract(String paymentDataJson) throws IOException {
+    String billingName = null;
+    String token = null;
+
+    try (JsonReader reader = new JsonReader(new StringReader(paymentDataJson))) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (!"paymentMethodData".equals(reader.nextName())
+            || reader.peek() != JsonToken.BEGIN_OBJECT) {
+          reader.skipValue();
+          continue;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+          final String name = reader.nextName();
+          if (billingName == null && "info".equals(name)) {
+            billingName = readString(reader, BILLING_NAME_PATH, 0);
+          } else if (token == null && "tokenizationData".equals(name)) {
+            token = readString(reader, TOKEN_PATH, 0);
+          } else {
+            reader.skipValue();
+          }
+
+          if (billingName != null && token != null) {
+            // Everything else in the response is irrelevant, so don't bother reading it.
+            return new Result(billingName, token);
+          }
+        }
+        reader.endObject();
+      }
+    } catch (IllegalStateException e) {
+      // Thrown by JsonReader when the document doesn't have the expected structure.
+      throw new IOException("Unexpected PaymentData structure", e);
+    }
+    return new Result(billingName, token);
+  }
+
+  /**
+   * Reads the string found by following {@code path} from the value at the reader's position.
+   * The whole value is consumed, so the reader is left at the following name or value.
+   *
+   * @return the string, or {@code null} if the path does not lead to a string.
+   */
+  @Nullable
+  private static String readString(JsonReader reader, String[] path, int depth)
+      throws IOException {
+    if (depth == path.length) {
+      if (reader.peek() == JsonToken.STRING) {
+        return reader.nextString();
+      }
+      reader.skipValue();
+      return null;
+    }
+
+    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+      reader.skipValue();
+      return null;
+    }
+
+    String result = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      final String name = reader.nextName();
+      if (result == null && path[depth].equals(name)) {
+        result = readString(reader, path, depth + 1);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return result;
+  }
+}
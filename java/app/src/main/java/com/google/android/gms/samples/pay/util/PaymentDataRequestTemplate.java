@@ -0,0 +1,149 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+import com.google.android.gms.samples.pay.data.Money;
+
+/**
+ * A PaymentDataRequest serialized ahead of time with a hole where the price goes.
+ *
+ * <p>Everything except the {@code totalPrice} of the transaction info is identical between taps
+ * on the payment button, so the request is serialized once with a placeholder price and split
+ * around it. Rendering a request then only needs to copy the cached fragments and escape the
+ * price, producing the same bytes as calling {@code toString()} on the object built by
+ * {@link PaymentsUtil#getPaymentDataRequest(String)}.
+ */
+public final class PaymentDataRequestTemplate {
+
+  private final String requestPrefix;
+  private final String transactionInfoPrefix;
+  private final String transactionInfoSuffix;
+  private final String requestSuffix;
+  private final String currencyCode;
+
+  private final int fixedLength;
+
+  private PaymentDataRequestTemplate(String requestPrefix, String transactionInfoPrefix,
+      String transactionInfoSuffix, String requestSuffix, String currencyCode) {
+    this.requestPrefix = requestPrefix;
+    this.transactionInfoPrefix = transactionInfoPrefix;
+    this.transactionInfoSuffix = transactionInfoSuffix;
+    this.requestSuffix = requestSuffix;
+    this.currencyCode = currencyCode;
+    this.fixedLength = requestPrefix.length() + transactionInfoPrefix.length()
+        + transactionInfoSuffix.length() + requestSuffix.length();
+  }
+
+  /**
+   * Splits a serialized request into reusable fragments.
+   *
+   * @param request the serialized PaymentDataRequest, built with a placeholder total price.
+   * @param transactionInfo the serialized transaction info object nested in {@code request}.
+   * @param quotedPrice the placeholder price, as it appears quoted in {@code transactionInfo}.
+   * @param currencyCode the currency of the transaction info.
+   * @return a template that can render the request for any price.
+   * @throws IllegalArgumentException if the placeholders can't be located unambiguously.
+   */
+  static PaymentDataRequestTemplate compile(
+      String request, String transactionInfo, String quotedPrice, String currencyCode) {
+    final int transactionInfoStart = indexOfUnique(request, transactionInfo);
+    final int priceStart = indexOfUnique(transactionInfo, quotedPrice);
+
+    return new PaymentDataRequestTemplate(
+        request.substring(0, transactionInfoStart),
+        transactionInfo.substring(0, priceStart),
+        transactionInfo.substring(priceStart + quotedPrice.length()),
+        request.substring(transactionInfoStart + transactionInfo.length()),
+        currencyCode);
+  }
+
+  private static int indexOfUnique(String source, String fragment) {
+    final int index = source.indexOf(fragment);
+    if (index < 0 || source.indexOf(fragment, index + 1) >= 0) {
+      throw new IllegalArgumentException("Expected exactly one occurrence of " + fragment);
+    }
+    return index;
+  }
+
+  /**
+   * Renders the full PaymentDataRequest for the given price.
+   *
+   * @param price the total price of the transaction.
+   * @return the request JSON, ready to be passed to {@code PaymentDataRequest.fromJson}.
+   */
+  public String render(String price) {
+    // Reserve room for the price plus a few escape characters to avoid growing the buffer.
+    final StringBuilder builder = new StringBuilder(fixedLength + price.length() + 8);
+    return appendTo(builder, price).toString();
+  }
+
+  /**
+   * Renders the full PaymentDataRequest for the given price.
+   *
+   * @param price the total price of the transaction.
+   * @return the request JSON, ready to be passed to {@code PaymentDataRequest.fromJson}.
+   */
+  public String render(Money price) {
+    // A decimal amount is at most 21 characters long, plus the quotes.
+    final StringBuilder builder = new StringBuilder(fixedLength + 24);
+    return appendTo(builder, price).toString();
+  }
+
+  /**
+   * Appends the PaymentDataRequest for the given price to an existing buffer.
+   *
+   * <p>The amount is written straight into the buffer; it never needs escaping.
+   *
+   * @param builder the buffer to write the request to.
+   * @param price the total price of the transaction.
+   * @return the same buffer, for chaining.
+   * @throws IllegalArgumentException if the price is in another currency than the request.
+   */
+  public StringBuilder appendTo(StringBuilder builder, Money price) {
+    price.requireCurrency(currencyCode);
+    builder.append(requestPrefix).append(transactionInfoPrefix).append('"');
+    price.appendDecimal(builder);
+    return builder.append('"').append(transactionInfoSuffix).append(requestSuffix);
+  }
+
+  /**
+   * Renders the full PaymentDataRequest around a transaction info object written separately, for
+   * requests that carry more than a total price, such as display items.
+   *
+   * @param transactionInfo a writer holding a complete TransactionInfo object.
+   * @return the request JSON, ready to be passed to {@code PaymentDataRequest.fromJson}.
+   */
+  public String renderWithTransactionInfo(JsonStringWriter transactionInfo) {
+    final StringBuilder builder = new StringBuilder(
+        requestPrefix.length() + transactionInfo.length() + requestSuffix.length());
+    builder.append(requestPrefix);
+    return transactionInfo.appendTo(builder).append(requestSuffix).toString();
+  }
+
+  /**
+   * Appends the PaymentDataRequest for the given price to an existing buffer.
+   *
+   * @param builder the buffer to write the request to.
+   * @param price the total price of the transaction.
+   * @return the same buffer, for chaining.
+   */
+  public StringBuilder appendTo(StringBuilder builder, String price) {
+    builder.append(requestPrefix).append(transactionInfoPrefix);
+    JsonStrings.appendQuoted(builder, price);
+    return builder.append(transactionInfoSuffix).append(requestSuffix);
+  }
+}
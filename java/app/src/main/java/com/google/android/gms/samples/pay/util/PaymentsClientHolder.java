@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.samples.pay.metrics.PhaseRecorder;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.wallet.PaymentsClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the single {@link PaymentsClient} shared by every screen of the app.
+ *
+ * <p>The client is created on a background thread as soon as the process starts (see
+ * {@link PaymentsClientInitializer}), so that it is usually ready by the time the checkout screen
+ * asks for it. Callers receive it through a {@link Task}, so that the main thread never waits for
+ * the warm-up thread, which runs at background priority.
+ */
+public final class PaymentsClientHolder {
+
+  private static final String TAG = "PaymentsClientHolder";
+
+  private static TaskCompletionSource<PaymentsClient> clientSource;
+
+  private static volatile long initializationTimeNanos = -1;
+
+  private PaymentsClientHolder() {
+  }
+
+  /**
+   * Starts creating the shared client on a background thread, if that has not happened yet.
+   *
+   * @param context any context; only the application context is retained.
+   */
+  public static void warmUp(Context context) {
+    getClient(context);
+  }
+
+  /**
+   * Returns the shared client, starting the warm-up if it has not started yet.
+   *
+   * <p>The returned Task completes on the warm-up thread; continuations added without an
+   * executor run on the main thread.
+   *
+   * @param context any context; only the application context is retained.
+   */
+  public static synchronized Task<PaymentsClient> getClient(Context context) {
+    if (clientSource == null) {
+      final TaskCompletionSource<PaymentsClient> source = new TaskCompletionSource<>();
+      final Context applicationContext = context.getApplicationContext();
+      final Thread thread = new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        try {
+          source.setResult(createClient(applicationContext));
+        } catch (RuntimeException e) {
+          source.setException(e);
+        }
+      }, "PaymentsClientWarmUp");
+      thread.start();
+      clientSource = source;
+    }
+    return clientSource.getTask();
+  }
+
+  /**
+   * Time it took to create the shared client, in milliseconds.
+   *
+   * @return the initialization time, or -1 if the client has not been created yet.
+   */
+  public static long getInitializationTimeMillis() {
+    final long nanos = initializationTimeNanos;
+    return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static PaymentsClient createClient(Context applicationContext) {
+    final long startNanos = SystemClock.elapsedRealtimeNanos();
+    final int span = PhaseRecorder.getDefault().begin(PhaseRecorder.CREATE_PAYMENTS_CLIENT);
+    final PaymentsClient client = PaymentsUtil.createPaymentsClient(applicationContext);
+    PhaseRecorder.getDefault().end(span);
+    initializationTimeNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+    Log.i(TAG, "PaymentsClient created in " + getInitializationTimeMillis() + " ms on "
+        + Thread.currentThread().getName());
+    return client;
+  }
+}
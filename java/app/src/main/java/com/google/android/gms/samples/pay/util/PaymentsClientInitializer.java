@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.startup.Initializer;
+
+import com.google.android.gms.samples.pay.metrics.PhaseRecorderInitializer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Starts warming up the shared {@link com.google.android.gms.wallet.PaymentsClient} when the
+ * application starts. Registered with App Startup in the manifest.
+ */
+public class PaymentsClientInitializer implements Initializer<Void> {
+
+  @NonNull
+  @Override
+  public Void create(@NonNull Context context) {
+    PaymentsClientHolder.warmUp(context);
+    return null;
+  }
+
+  @NonNull
+  @Override
+  public List<Class<? extends Initializer<?>>> dependencies() {
+    // Set up the recorder first, so that creating the client is measured.
+    return Collections.<Class<? extends Initializer<?>>>singletonList(
+        PhaseRecorderInitializer.class);
+  }
+}
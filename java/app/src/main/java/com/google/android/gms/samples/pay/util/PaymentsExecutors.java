@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executors used to keep JSON work off the main thread.
+ *
+ * <p>Building payment requests and parsing responses runs on a small pool of background threads,
+ * and only the resulting UI updates are posted back to the main thread. The pool holds at most
+ * two threads, which time out when idle, and a bounded queue: the app has at most one payment in
+ * progress, so a full queue means something is wrong and is reported by a
+ * {@link java.util.concurrent.RejectedExecutionException} rather than by growing without limit.
+ */
+public final class PaymentsExecutors {
+
+  private static final int THREADS = 2;
+  private static final int QUEUE_CAPACITY = 32;
+
+  private static final Executor BACKGROUND = createBackgroundExecutor();
+
+  private static volatile Executor mainThread;
+
+  private PaymentsExecutors() {
+  }
+
+  /**
+   * @return the executor for request building and response parsing.
+   */
+  public static Executor background() {
+    return BACKGROUND;
+  }
+
+  /**
+   * @return an executor that posts to the main thread.
+   */
+  public static Executor mainThread() {
+    if (mainThread == null) {
+      final Handler handler = new Handler(Looper.getMainLooper());
+      mainThread = handler::post;
+    }
+    return mainThread;
+  }
+
+  private static Executor createBackgroundExecutor() {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS,
+        30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), runnable -> {
+          final Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+          }, "PaymentsWorker-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
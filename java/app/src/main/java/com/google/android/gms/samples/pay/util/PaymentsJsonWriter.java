@@ -0,0 +1,329 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.merchant.MerchantProfile;
+import com.google.android.gms.samples.pay.shipping.ShippingOption;
+import com.google.android.gms.samples.pay.shipping.ShippingRates;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming counterpart of the request builders in {@link PaymentsUtil}.
+ *
+ * <p>The requests are written straight into a {@link JsonStringWriter} instead of being assembled
+ * as {@code JSONObject} trees first. Merchant-specific values come from a {@link MerchantProfile},
+ * {@link MerchantProfile#DEFAULT} unless stated otherwise. The structure mirrors
+ * {@link PaymentsUtil} method by method, which remains the reference implementation: any change to
+ * a request there must be made here too.
+ */
+public class PaymentsJsonWriter {
+
+  // One reusable buffer per thread, so that serializing a request only allocates the result.
+  private static final ThreadLocal<JsonStringWriter> WRITER = new ThreadLocal<JsonStringWriter>() {
+    @Override
+    protected JsonStringWriter initialValue() {
+      return new JsonStringWriter(1024);
+    }
+  };
+
+  private static JsonStringWriter writer() {
+    return WRITER.get().reset();
+  }
+
+  /**
+   * @see PaymentsUtil#getIsReadyToPayRequest()
+   */
+  public static String getIsReadyToPayRequest() {
+    return writeIsReadyToPayRequest(writer()).toString();
+  }
+
+  /**
+   * @see PaymentsUtil#getAllowedPaymentMethods()
+   */
+  public static String getAllowedPaymentMethods() {
+    return writeAllowedPaymentMethods(writer()).toString();
+  }
+
+  /**
+   * @see PaymentsUtil#getPaymentDataRequest(String)
+   */
+  public static String getPaymentDataRequest(String priceLabel) {
+    return writePaymentDataRequest(writer(), priceLabel).toString();
+  }
+
+  /**
+   * @see PaymentsUtil#getPaymentDataRequest(String)
+   */
+  public static String getPaymentDataRequest(Money price) {
+    return writePaymentDataRequest(writer(), price).toString();
+  }
+
+  private static JsonStringWriter writeBaseRequestFields(JsonStringWriter writer) {
+    return writer
+        .name("apiVersion").value(2)
+        .name("apiVersionMinor").value(0);
+  }
+
+  private static JsonStringWriter writeGatewayTokenizationSpecification(
+      JsonStringWriter writer, MerchantProfile profile) {
+    writer.beginObject()
+        .name("type").value("PAYMENT_GATEWAY")
+        .name("parameters").beginObject();
+    for (Map.Entry<String, String> parameter : profile.getGatewayParameters().entrySet()) {
+      writer.name(parameter.getKey()).value(parameter.getValue());
+    }
+    return writer.endObject()
+        .endObject();
+  }
+
+  private static JsonStringWriter writeBaseCardPaymentMethodFields(
+      JsonStringWriter writer, MerchantProfile profile) {
+    return writer
+        .name("type").value("CARD")
+        .name("parameters").beginObject()
+        .name("allowedAuthMethods").value(profile.getAllowedAuthMethods())
+        .name("allowedCardNetworks").value(profile.getAllowedCardNetworks())
+        .name("billingAddressRequired").value(true)
+        .name("billingAddressParameters").beginObject()
+        .name("format").value("FULL")
+        .endObject()
+        .endObject();
+  }
+
+  /**
+   * Writes the array returned by {@link PaymentsUtil#getAllowedPaymentMethods()}.
+   */
+  public static JsonStringWriter writeAllowedPaymentMethods(JsonStringWriter writer) {
+    return writeAllowedPaymentMethods(writer, MerchantProfile.DEFAULT);
+  }
+
+  /**
+   * Writes the tokenized payment methods of the given merchant.
+   *
+   * @see #writeAllowedPaymentMethods(JsonStringWriter)
+   */
+  public static JsonStringWriter writeAllowedPaymentMethods(
+      JsonStringWriter writer, MerchantProfile profile) {
+    writer.beginArray().beginObject();
+    writeBaseCardPaymentMethodFields(writer, profile)
+        .name("tokenizationSpecification");
+    writeGatewayTokenizationSpecification(writer, profile);
+    return writer.endObject().endArray();
+  }
+
+  /**
+   * Writes the {@code allowedPaymentMethods} array of
+   * {@link PaymentsUtil#getIsReadyToPayRequest()} for the given merchant.
+   */
+  public static JsonStringWriter writeBaseAllowedPaymentMethods(
+      JsonStringWriter writer, MerchantProfile profile) {
+    writer.beginArray().beginObject();
+    return writeBaseCardPaymentMethodFields(writer, profile)
+        .endObject().endArray();
+  }
+
+  /**
+   * Writes the object returned by {@link PaymentsUtil#getIsReadyToPayRequest()}.
+   */
+  public static JsonStringWriter writeIsReadyToPayRequest(JsonStringWriter writer) {
+    writer.beginObject();
+    writeBaseRequestFields(writer)
+        .name("allowedPaymentMethods");
+    return writeBaseAllowedPaymentMethods(writer, MerchantProfile.DEFAULT)
+        .endObject();
+  }
+
+  /**
+   * Writes the object returned by {@link PaymentsUtil#getIsReadyToPayRequest()} around payment
+   * methods serialized beforehand.
+   */
+  static JsonStringWriter writeIsReadyToPayRequest(
+      JsonStringWriter writer, String baseAllowedPaymentMethods) {
+    writer.beginObject();
+    return writeBaseRequestFields(writer)
+        .name("allowedPaymentMethods").rawValue(baseAllowedPaymentMethods)
+        .endObject();
+  }
+
+  static JsonStringWriter writeTransactionInfo(
+      JsonStringWriter writer, MerchantProfile profile, String price) {
+    writer.beginObject()
+        .name("totalPrice").value(price);
+    return writeTransactionInfoFields(writer, profile)
+        .endObject();
+  }
+
+  private static JsonStringWriter writeTransactionInfo(JsonStringWriter writer, Money price) {
+    price.requireCurrency(MerchantProfile.DEFAULT.getCurrencyCode());
+    writer.beginObject()
+        .name("totalPrice").value(price);
+    return writeTransactionInfoFields(writer, MerchantProfile.DEFAULT)
+        .endObject();
+  }
+
+  /**
+   * Writes the transaction info of {@link PaymentsUtil#getPaymentDataRequest(Cart)}.
+   */
+  public static JsonStringWriter writeTransactionInfo(JsonStringWriter writer, Cart cart) {
+    return writeTransactionInfo(writer, MerchantProfile.DEFAULT, cart);
+  }
+
+  /**
+   * Writes the transaction info of a cart, charged by the given merchant.
+   *
+   * @throws IllegalArgumentException if the cart is in another currency than the one the merchant
+   *                                  charges in.
+   * @see #writeTransactionInfo(JsonStringWriter, Cart)
+   */
+  public static JsonStringWriter writeTransactionInfo(
+      JsonStringWriter writer, MerchantProfile profile, Cart cart) {
+    cart.getTotal().requireCurrency(profile.getCurrencyCode());
+    writer.beginObject()
+        .name("totalPrice").value(cart.getTotal());
+    writeTransactionInfoFields(writer, profile)
+        .name("totalPriceLabel").value(PaymentsUtil.TOTAL_PRICE_LABEL)
+        .name("displayItems").beginArray();
+    for (Cart.Line line : cart.getLines()) {
+      writeDisplayItem(
+          writer, PaymentsUtil.getDisplayItemLabel(line), "LINE_ITEM", line.getTotal());
+    }
+    writeDisplayItem(writer, PaymentsUtil.SUBTOTAL_LABEL, "SUBTOTAL", cart.getSubtotal());
+    writeDisplayItem(writer, PaymentsUtil.TAX_LABEL, "TAX", cart.getTax());
+    writeDisplayItem(writer, PaymentsUtil.SHIPPING_LABEL, "SHIPPING_OPTION", cart.getShipping());
+    return writer.endArray()
+        .endObject();
+  }
+
+  private static JsonStringWriter writeTransactionInfoFields(
+      JsonStringWriter writer, MerchantProfile profile) {
+    return writer
+        .name("totalPriceStatus").value("FINAL")
+        .name("countryCode").value(profile.getCountryCode())
+        .name("currencyCode").value(profile.getCurrencyCode())
+        .name("checkoutOption").value("COMPLETE_IMMEDIATE_PURCHASE");
+  }
+
+  private static void writeDisplayItem(
+      JsonStringWriter writer, String label, String type, Money price) {
+    writer.beginObject()
+        .name("label").value(label)
+        .name("type").value(type)
+        .name("price").value(price)
+        .endObject();
+  }
+
+  private static JsonStringWriter writeMerchantInfo(
+      JsonStringWriter writer, MerchantProfile profile) {
+    return writer.beginObject()
+        .name("merchantName").value(profile.getMerchantName())
+        .endObject();
+  }
+
+  /**
+   * Writes the object returned by {@link PaymentsUtil#getPaymentDataRequest(String)}.
+   */
+  public static JsonStringWriter writePaymentDataRequest(
+      JsonStringWriter writer, String priceLabel) {
+    final PaymentConfiguration configuration = PaymentConfiguration.getInstance();
+    return writePaymentDataRequest(writer, configuration.getProfile(),
+        configuration.getAllowedPaymentMethods(), priceLabel);
+  }
+
+  /**
+   * Writes the PaymentDataRequest of the given merchant around its payment methods serialized
+   * beforehand.
+   */
+  static JsonStringWriter writePaymentDataRequest(JsonStringWriter writer,
+      MerchantProfile profile, String allowedPaymentMethods, String priceLabel) {
+    writePaymentDataRequestHead(writer, allowedPaymentMethods);
+    writeTransactionInfo(writer, profile, priceLabel);
+    return writePaymentDataRequestTail(writer, profile);
+  }
+
+  /**
+   * Writes the object returned by {@link PaymentsUtil#getPaymentDataRequest(String)}.
+   */
+  public static JsonStringWriter writePaymentDataRequest(JsonStringWriter writer, Money price) {
+    writePaymentDataRequestHead(
+        writer, PaymentConfiguration.getInstance().getAllowedPaymentMethods());
+    writeTransactionInfo(writer, price);
+    return writePaymentDataRequestTail(writer, MerchantProfile.DEFAULT);
+  }
+
+  private static void writePaymentDataRequestHead(
+      JsonStringWriter writer, String allowedPaymentMethods) {
+    writer.beginObject();
+    writeBaseRequestFields(writer)
+        .name("allowedPaymentMethods").rawValue(allowedPaymentMethods)
+        .name("transactionInfo");
+  }
+
+  private static JsonStringWriter writePaymentDataRequestTail(
+      JsonStringWriter writer, MerchantProfile profile) {
+    writer.name("merchantInfo");
+    writeMerchantInfo(writer, profile)
+        .name("shippingAddressRequired").value(true)
+        .name("shippingAddressParameters").beginObject()
+        .name("phoneNumberRequired").value(false)
+        .name("allowedCountryCodes").value(profile.getShippingCountries())
+        .endObject()
+        .name("shippingOptionRequired").value(true)
+        .name("shippingOptionParameters");
+    writeShippingOptionParameters(writer, getShippingOptions(profile), null)
+        .name("callbackIntents").value(PaymentsUtil.CALLBACK_INTENTS);
+    return writer.endObject();
+  }
+
+  private static List<ShippingOption> getShippingOptions(MerchantProfile profile) {
+    final List<ShippingOption> options =
+        ShippingRates.getDefault(profile).getOptions(profile.getCountryCode());
+    if (options == null) {
+      throw new IllegalArgumentException("No shipping options for " + profile.getCountryCode());
+    }
+    return options;
+  }
+
+  /**
+   * Writes the shipping option parameters of a PaymentDataRequest, or of an update sent back to
+   * the payment sheet.
+   *
+   * @param options    the options offered, the first one being the default.
+   * @param selectedId the option to select, or {@code null} for the default one.
+   */
+  public static JsonStringWriter writeShippingOptionParameters(
+      JsonStringWriter writer, List<ShippingOption> options, @Nullable String selectedId) {
+    writer.beginObject()
+        .name("defaultSelectedOptionId")
+        .value(selectedId != null ? selectedId : options.get(0).getId())
+        .name("shippingOptions").beginArray();
+    for (ShippingOption option : options) {
+      writer.beginObject()
+          .name("id").value(option.getId())
+          .name("label").value(PaymentsUtil.getShippingOptionLabel(option))
+          .name("description").value(option.getDescription())
+          .endObject();
+    }
+    return writer.endArray()
+        .endObject();
+  }
+}
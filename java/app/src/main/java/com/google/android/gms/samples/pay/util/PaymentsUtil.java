@@ -19,6 +19,10 @@ package com.google.android.gms.samples.pay.util;
 import android.content.Context;
 
 import com.google.android.gms.samples.pay.Constants;
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.shipping.ShippingOption;
+import com.google.android.gms.samples.pay.shipping.ShippingRates;
 import com.google.android.gms.wallet.PaymentsClient;
 import com.google.android.gms.wallet.Wallet;
 
@@ -26,9 +30,8 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Contains helper static methods for dealing with the Payments API.
@@ -39,6 +42,16 @@ import java.math.RoundingMode;
  */
 public class PaymentsUtil {
 
+  static final String TOTAL_PRICE_LABEL = "Total";
+  static final String SUBTOTAL_LABEL = "Subtotal";
+  static final String TAX_LABEL = "Tax";
+  static final String SHIPPING_LABEL = "Shipping";
+
+  /**
+   * The changes on the payment sheet that the app is called back for.
+   */
+  static final List<String> CALLBACK_INTENTS = Arrays.asList("SHIPPING_ADDRESS", "SHIPPING_OPTION");
+
   /**
    * Create a Google Pay API base request object with properties used in all requests.
    *
@@ -79,10 +92,7 @@ public class PaymentsUtil {
   private static JSONObject getGatewayTokenizationSpecification() throws JSONException {
     return new JSONObject()
         .put("type", "PAYMENT_GATEWAY")
-        .put("parameters", new JSONObject()
-            .put("gateway", "example")
-            .put("gatewayMerchantId", "exampleGatewayMerchantId")
-        );
+        .put("parameters", new JSONObject(Constants.PAYMENT_GATEWAY_TOKENIZATION_PARAMETERS));
   }
 
   /**
@@ -212,6 +222,74 @@ public class PaymentsUtil {
         .put("checkoutOption", "COMPLETE_IMMEDIATE_PURCHASE");
   }
 
+  /**
+   * Provide Google Pay API with the total of a cart, along with a breakdown of its lines, subtotal,
+   * tax and shipping shown on the payment sheet.
+   *
+   * @return information about the requested payment.
+   * @throws JSONException if the object is malformed.
+   * @see <a
+   * href="https://developers.google.com/pay/api/android/reference/object#DisplayItem">DisplayItem</a>
+   */
+  private static JSONObject getTransactionInfo(Cart cart) throws JSONException {
+    cart.getTotal().requireCurrency(Constants.CURRENCY_CODE);
+    final JSONArray displayItems = new JSONArray();
+    for (Cart.Line line : cart.getLines()) {
+      displayItems.put(getDisplayItem(getDisplayItemLabel(line), "LINE_ITEM", line.getTotal()));
+    }
+    displayItems
+        .put(getDisplayItem(SUBTOTAL_LABEL, "SUBTOTAL", cart.getSubtotal()))
+        .put(getDisplayItem(TAX_LABEL, "TAX", cart.getTax()))
+        .put(getDisplayItem(SHIPPING_LABEL, "SHIPPING_OPTION", cart.getShipping()));
+
+    return getTransactionInfo(cart.getTotal().toDecimalString())
+        .put("totalPriceLabel", TOTAL_PRICE_LABEL)
+        .put("displayItems", displayItems);
+  }
+
+  private static JSONObject getDisplayItem(String label, String type, Money price)
+      throws JSONException {
+    return new JSONObject()
+        .put("label", label)
+        .put("type", type)
+        .put("price", price.toDecimalString());
+  }
+
+  static String getDisplayItemLabel(Cart.Line line) {
+    return line.getQuantity() == 1 ? line.getLabel() : line.getLabel() + " x" + line.getQuantity();
+  }
+
+  /**
+   * The shipping options offered in a country, and the one selected to begin with.
+   *
+   * @return the shipping option parameters, listing the options of the default
+   * {@link ShippingRates}.
+   * @throws JSONException if the country isn't shipped to.
+   * @see <a
+   * href="https://developers.google.com/pay/api/android/reference/object#ShippingOptionParameters">ShippingOptionParameters</a>
+   */
+  private static JSONObject getShippingOptionParameters(String countryCode)
+      throws JSONException {
+    final List<ShippingOption> options = ShippingRates.getDefault().getOptions(countryCode);
+    if (options == null) {
+      throw new JSONException("No shipping options for " + countryCode);
+    }
+    final JSONArray shippingOptions = new JSONArray();
+    for (ShippingOption option : options) {
+      shippingOptions.put(new JSONObject()
+          .put("id", option.getId())
+          .put("label", getShippingOptionLabel(option))
+          .put("description", option.getDescription()));
+    }
+    return new JSONObject()
+        .put("defaultSelectedOptionId", options.get(0).getId())
+        .put("shippingOptions", shippingOptions);
+  }
+
+  static String getShippingOptionLabel(ShippingOption option) {
+    return option.getPrice().toDisplayString() + ": " + option.getLabel();
+  }
+
   /**
    * Information about the merchant requesting payment information
    *
@@ -221,7 +299,7 @@ public class PaymentsUtil {
    * href="https://developers.google.com/pay/api/android/reference/object#MerchantInfo">MerchantInfo</a>
    */
   private static JSONObject getMerchantInfo() throws JSONException {
-    return new JSONObject().put("merchantName", "Example Merchant");
+    return new JSONObject().put("merchantName", Constants.MERCHANT_NAME);
   }
 
   /**
@@ -233,18 +311,84 @@ public class PaymentsUtil {
    */
   public static JSONObject getPaymentDataRequest(String priceLabel) {
     try {
-      return PaymentsUtil.getBaseRequest()
-          .put("allowedPaymentMethods", getAllowedPaymentMethods())
-          .put("transactionInfo", getTransactionInfo(priceLabel))
-          .put("merchantInfo", getMerchantInfo())
-          .put("shippingAddressRequired", true)
-          .put("shippingAddressParameters", new JSONObject()
-              .put("phoneNumberRequired", false)
-              .put("allowedCountryCodes", new JSONArray(Constants.SHIPPING_SUPPORTED_COUNTRIES))
-          );
+      return getPaymentDataRequest(getTransactionInfo(priceLabel));
+    } catch (JSONException e) {
+      return null;
+    }
+  }
 
+  /**
+   * An object describing information requested in a Google Pay payment sheet, for the content of
+   * a cart.
+   *
+   * @return Payment data expected by your app.
+   * @see <a
+   * href="https://developers.google.com/pay/api/android/reference/object#PaymentDataRequest">PaymentDataRequest</a>
+   */
+  public static JSONObject getPaymentDataRequest(Cart cart) {
+    try {
+      return getPaymentDataRequest(getTransactionInfo(cart));
     } catch (JSONException e) {
       return null;
     }
   }
+
+  private static JSONObject getPaymentDataRequest(JSONObject transactionInfo)
+      throws JSONException {
+    return PaymentsUtil.getBaseRequest()
+        .put("allowedPaymentMethods", getAllowedPaymentMethods())
+        .put("transactionInfo", transactionInfo)
+        .put("merchantInfo", getMerchantInfo())
+        .put("shippingAddressRequired", true)
+        .put("shippingAddressParameters", new JSONObject()
+            .put("phoneNumberRequired", false)
+            .put("allowedCountryCodes", new JSONArray(Constants.SHIPPING_SUPPORTED_COUNTRIES))
+        )
+        .put("shippingOptionRequired", true)
+        .put("shippingOptionParameters", getShippingOptionParameters(Constants.COUNTRY_CODE))
+        // Totals are updated by PaymentDataCallbacksService as the user changes these.
+        .put("callbackIntents", new JSONArray(CALLBACK_INTENTS));
+  }
+
+  /**
+   * Returns the precompiled {@link PaymentDataRequestTemplate} of the default merchant. It is
+   * streamed by {@link PaymentsJsonWriter}, reusing the payment methods already serialized in
+   * {@link PaymentConfiguration}, and is identical to {@link #getPaymentDataRequest(String)}.
+   *
+   * @return the template, or {@code null} if the request could not be built.
+   */
+  public static PaymentDataRequestTemplate getPaymentDataRequestTemplate() {
+    return PaymentConfiguration.getInstance().getPaymentDataRequestTemplate();
+  }
+
+  /**
+   * Serialized equivalent of {@link #getPaymentDataRequest(String)}, rendered from the
+   * precompiled template so that only the price is written on every call.
+   *
+   * @return Payment data expected by your app, as a JSON string.
+   * @see <a
+   * href="https://developers.google.com/pay/api/android/reference/object#PaymentDataRequest">PaymentDataRequest</a>
+   */
+  public static String getPaymentDataRequestJson(String priceLabel) {
+    final PaymentDataRequestTemplate template = getPaymentDataRequestTemplate();
+    return template != null ? template.render(priceLabel) : null;
+  }
+
+  /**
+   * @see #getPaymentDataRequestJson(String)
+   */
+  public static String getPaymentDataRequestJson(Money price) {
+    final PaymentDataRequestTemplate template = getPaymentDataRequestTemplate();
+    return template != null ? template.render(price) : null;
+  }
+
+  /**
+   * Serialized equivalent of {@link #getPaymentDataRequest(Cart)}. The transaction info is
+   * streamed, and the rest of the request is copied from the precompiled template.
+   *
+   * @see #getPaymentDataRequestJson(String)
+   */
+  public static String getPaymentDataRequestJson(Cart cart) {
+    return PaymentConfiguration.getInstance().getPaymentDataRequestJson(cart);
+  }
 }
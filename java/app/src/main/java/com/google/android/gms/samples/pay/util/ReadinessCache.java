@@ -0,0 +1,175 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.pm.PackageInfoCompat;
+
+import com.google.android.gms.common.GoogleApiAvailability;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists the last answers to {@code isReadyToPay} so the Google Pay button can be shown right
+ * away on the next launch, while the answer is revalidated in the background.
+ *
+ * <p>There is one entry per IsReadyToPayRequest, e.g. per merchant, keyed by a hash of its JSON, so
+ * that switching merchants doesn't overwrite the answer of another one. An entry is discarded when
+ * it is older than the configured time to live or when Google Play services is updated. At most
+ * {@link #MAX_ENTRIES} entries are kept, the oldest ones being dropped first.
+ */
+public class ReadinessCache {
+
+  /**
+   * How long a cached answer is trusted by default.
+   */
+  public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+  /**
+   * How many requests have an answer stored at most.
+   */
+  public static final int MAX_ENTRIES = 8;
+
+  private static final String PREFERENCES_NAME = "google_pay_readiness";
+  // Each key is prefixed with the hash of the request and a dot.
+  private static final String KEY_PLAY_SERVICES_VERSION = ".playServicesVersion";
+  private static final String KEY_READY = ".ready";
+  private static final String KEY_TIMESTAMP = ".timestamp";
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final SharedPreferences preferences;
+  private final long playServicesVersion;
+  private final long ttlMillis;
+
+  /**
+   * @param context   any context, used to access the preferences and the package manager.
+   * @param ttlMillis how long an answer remains valid after it was stored.
+   */
+  public ReadinessCache(Context context, long ttlMillis) {
+    this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    this.playServicesVersion = getPlayServicesVersion(context);
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Returns the cached answer for the given request.
+   *
+   * @param isReadyToPayJson the serialized IsReadyToPayRequest.
+   * @return the last known answer, or {@code null} if there is none or it is no longer valid.
+   */
+  @Nullable
+  public Boolean get(String isReadyToPayJson) {
+    final String hash = hash(isReadyToPayJson);
+    if (!preferences.contains(hash + KEY_READY)
+        || preferences.getLong(hash + KEY_PLAY_SERVICES_VERSION, -1) != playServicesVersion) {
+      return null;
+    }
+
+    // Entries written in the future are treated as stale, in case the clock was moved back.
+    final long age = System.currentTimeMillis() - preferences.getLong(hash + KEY_TIMESTAMP, 0);
+    if (age < 0 || age > ttlMillis) {
+      return null;
+    }
+    return preferences.getBoolean(hash + KEY_READY, false);
+  }
+
+  /**
+   * Stores the answer to {@code isReadyToPay} for the given request, replacing any previous answer
+   * for the same request and dropping the oldest entries beyond {@link #MAX_ENTRIES}.
+   *
+   * @param isReadyToPayJson the serialized IsReadyToPayRequest.
+   * @param ready            the answer returned by the API.
+   */
+  public synchronized void put(String isReadyToPayJson, boolean ready) {
+    final String hash = hash(isReadyToPayJson);
+    final SharedPreferences.Editor editor = preferences.edit()
+        .putLong(hash + KEY_PLAY_SERVICES_VERSION, playServicesVersion)
+        .putBoolean(hash + KEY_READY, ready)
+        .putLong(hash + KEY_TIMESTAMP, System.currentTimeMillis());
+
+    // The timestamps of the other entries, oldest first.
+    final List<Map.Entry<String, ?>> others = new ArrayList<>();
+    for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+      if (entry.getKey().endsWith(KEY_TIMESTAMP) && entry.getValue() instanceof Long
+          && !entry.getKey().equals(hash + KEY_TIMESTAMP)) {
+        others.add(entry);
+      }
+    }
+    if (others.size() >= MAX_ENTRIES) {
+      Collections.sort(others, (a, b) -> Long.compare((Long) a.getValue(), (Long) b.getValue()));
+      for (int i = 0; i <= others.size() - MAX_ENTRIES; i++) {
+        final String key = others.get(i).getKey();
+        remove(editor, key.substring(0, key.length() - KEY_TIMESTAMP.length()));
+      }
+    }
+    editor.apply();
+  }
+
+  /**
+   * Removes the cached answer for the given request, if any. Other requests keep theirs.
+   *
+   * @param isReadyToPayJson the serialized IsReadyToPayRequest.
+   */
+  public synchronized void invalidate(String isReadyToPayJson) {
+    final SharedPreferences.Editor editor = preferences.edit();
+    remove(editor, hash(isReadyToPayJson));
+    editor.apply();
+  }
+
+  private static void remove(SharedPreferences.Editor editor, String hash) {
+    editor.remove(hash + KEY_PLAY_SERVICES_VERSION)
+        .remove(hash + KEY_READY)
+        .remove(hash + KEY_TIMESTAMP);
+  }
+
+  private static long getPlayServicesVersion(Context context) {
+    try {
+      return PackageInfoCompat.getLongVersionCode(context.getPackageManager()
+          .getPackageInfo(GoogleApiAvailability.GOOGLE_PLAY_SERVICES_PACKAGE, 0));
+    } catch (PackageManager.NameNotFoundException e) {
+      return -1;
+    }
+  }
+
+  private static String hash(String value) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(value.getBytes(StandardCharsets.UTF_8));
+      final char[] hex = new char[digest.length * 2];
+      for (int i = 0; i < digest.length; i++) {
+        hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+        hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+      }
+      return new String(hex);
+    } catch (NoSuchAlgorithmException e) {
+      // SHA-256 is available on every Android version.
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -17,79 +17,611 @@
 package com.google.android.gms.samples.pay.viewmodel;
 
 import android.app.Application;
+import android.os.StrictMode;
 import android.util.Log;
 
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import com.google.android.gms.samples.pay.util.PaymentsUtil;
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.samples.pay.Constants;
+import com.google.android.gms.samples.pay.backend.PaymentsBackend;
+import com.google.android.gms.samples.pay.backend.ReadinessCoordinator;
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.CatalogRepository;
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+import com.google.android.gms.samples.pay.merchant.MerchantRegistry;
+import com.google.android.gms.samples.pay.metrics.PaymentsMetrics;
+import com.google.android.gms.samples.pay.metrics.PhaseRecorder;
+import com.google.android.gms.samples.pay.outbox.TokenOutbox;
+import com.google.android.gms.samples.pay.shipping.PaymentDataCallbacksService;
+import com.google.android.gms.samples.pay.shipping.PaymentDataChangeHandler;
+import com.google.android.gms.samples.pay.shipping.ShippingRates;
+import com.google.android.gms.samples.pay.util.PaymentConfiguration;
+import com.google.android.gms.samples.pay.util.PaymentDataExtractor;
+import com.google.android.gms.samples.pay.util.PaymentDataRequestTemplate;
+import com.google.android.gms.samples.pay.util.PaymentsExecutors;
+import com.google.android.gms.samples.pay.util.ReadinessCache;
 import com.google.android.gms.tasks.Task;
-import com.google.android.gms.wallet.IsReadyToPayRequest;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.gms.wallet.PaymentData;
-import com.google.android.gms.wallet.PaymentDataRequest;
-import com.google.android.gms.wallet.PaymentsClient;
 
-import org.json.JSONObject;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class CheckoutViewModel extends AndroidViewModel {
 
-    // A client for interacting with the Google Pay API.
-    private final PaymentsClient paymentsClient;
+    // How long a payment may wait for its token to be written to storage.
+    private static final long STORE_TOKEN_TIMEOUT_SECONDS = 10;
+
+    /**
+     * The stages of a payment session. At most one session is in progress at a time.
+     */
+    public enum PaymentState {
+        // No payment in progress; the button can be tapped.
+        IDLE,
+        // loadPaymentData has been called and hasn't completed yet.
+        LOADING,
+        // The result of loadPaymentData is waiting to be handed to the payment sheet.
+        READY,
+        // The payment sheet has been launched and its result hasn't been received yet.
+        SHOWING,
+        // The payment data has been received and is being read.
+        PROCESSING,
+        // The payment went through; the payer's name is waiting to be shown.
+        COMPLETED
+    }
+
+    // Interacts with the Google Pay API, through the PaymentsClient shared across the process.
+    private final PaymentsBackend paymentsBackend;
+
+    // Last known answer to isReadyToPay, persisted across process restarts. Opening it reads
+    // preferences and queries the package manager, so it is created on first use by the
+    // background executor. Guarded by this.
+    private ReadinessCache readinessCache;
+
+    // The IsReadyToPayRequest the current value of _canUseGooglePay was answered for by the API,
+    // so that a cached answer read later doesn't replace it. Main thread only.
+    private String answeredReadinessRequest;
 
     // LiveData with the result of whether the user can pay using Google Pay
     private final MutableLiveData<Boolean> _canUseGooglePay = new MutableLiveData<>();
 
+    // The items being purchased, kept across configuration changes. Created in the currency of
+    // the merchant once it has been resolved.
+    private Cart cart;
+
+    // The payment session, kept across configuration changes.
+    private final MutableLiveData<PaymentState> _paymentState =
+            new MutableLiveData<>(PaymentState.IDLE);
+    private Task<PaymentData> paymentDataTask;
+    private String payerName;
+    // When the current session started, on the System.nanoTime() clock, or 0.
+    private long paymentStartNanos;
+
+    // JSON work runs on the background executor, UI updates are posted to the main one.
+    private final Executor backgroundExecutor = PaymentsExecutors.background();
+    private final Executor mainExecutor = PaymentsExecutors.mainThread();
+
+    // The merchant being paid, switched on the main thread and read by the background executor.
+    // Unset until the merchant requested by selectMerchant() has been resolved.
+    private final MutableLiveData<PaymentConfiguration> _paymentConfiguration =
+            new MutableLiveData<>();
+    private volatile PaymentConfiguration selectedConfiguration;
+
+    // Reprices the cart when the shipping rates of the merchant being paid change. Called on any
+    // thread.
+    private final ShippingRates.Listener shippingRatesListener =
+            countryCode -> mainExecutor.execute(this::updateShipping);
+
+    // Set when the requested merchant is unknown or the merchants couldn't be loaded.
+    private final MutableLiveData<Boolean> _merchantUnavailable = new MutableLiveData<>(false);
+
+    // The request for the cart as of paymentDataRequestVersion, rebuilt only when it, its shipping
+    // fee, the merchant or the shipping rates change, the last two replacing the template.
+    // Guarded by this.
+    private String paymentDataRequestJson;
+    private int paymentDataRequestVersion;
+    private long paymentDataRequestShipping;
+    private PaymentDataRequestTemplate paymentDataRequestTemplate;
+
     public CheckoutViewModel(@NonNull Application application) {
-        super(application);
-        paymentsClient = PaymentsUtil.createPaymentsClient(application);
+        this(application, ReadinessCoordinator.getInstance(application));
+    }
 
-        fetchCanUseGooglePay();
+    /**
+     * Creates a ViewModel that uses the given backend instead of Google Play services, e.g. a
+     * {@link com.google.android.gms.samples.pay.backend.LocalPaymentsBackend} in tests.
+     */
+    public CheckoutViewModel(@NonNull Application application, PaymentsBackend paymentsBackend) {
+        super(application);
+        this.paymentsBackend = paymentsBackend;
     }
 
     public final LiveData<Boolean> canUseGooglePay = _canUseGooglePay;
 
+    // LiveData with the stage of the current payment session
+    public final LiveData<PaymentState> paymentState = _paymentState;
+
+    // LiveData with the requests of the merchant being paid, once it has been resolved
+    public final LiveData<PaymentConfiguration> paymentConfiguration = _paymentConfiguration;
+
+    // LiveData that turns true if the merchant to pay couldn't be resolved
+    public final LiveData<Boolean> merchantUnavailable = _merchantUnavailable;
+
+    /**
+     * The products that can be purchased, loaded in the background.
+     *
+     * @return a LiveData that receives the catalog once it has been read.
+     */
+    public LiveData<ProductCatalog> getCatalog() {
+        return CatalogRepository.getInstance(getApplication()).getCatalog();
+    }
+
+    /**
+     * The items the user is about to pay for, in the currency of the merchant being paid, to be
+     * changed on the main thread only. Changes are picked up by the next payment session.
+     *
+     * <p>The cart is replaced, with the same items, when the merchant or its shipping rates
+     * change, and {@link #paymentConfiguration} is then set again: read it anew from there.
+     *
+     * @return the cart, or {@code null} until {@link #paymentConfiguration} has been set.
+     */
+    @MainThread
+    @Nullable
+    public Cart getCart() {
+        return cart;
+    }
+
+    /**
+     * Switches to the storefront of another merchant. The merchant is looked up in the
+     * {@link MerchantRegistry} in the background, then {@link #paymentConfiguration} is updated on
+     * the main thread; payment sessions started from then on pay that merchant. If the merchant
+     * can't be resolved, {@link #merchantUnavailable} turns true instead and no payment can be
+     * started until another merchant has been selected.
+     *
+     * @param merchantId the merchant to pay, or {@code null} for the default one of the registry.
+     */
+    @MainThread
+    public void selectMerchant(@Nullable String merchantId) {
+        try {
+            backgroundExecutor.execute(() -> {
+                PaymentConfiguration selected;
+                try {
+                    final MerchantRegistry registry =
+                            MerchantRegistry.getInstance(getApplication());
+                    selected = merchantId != null
+                            ? registry.get(merchantId) : registry.getDefault();
+                    if (selected == null) {
+                        Log.e("selectMerchant", "Unknown merchant " + merchantId);
+                    }
+                } catch (IllegalStateException e) {
+                    Log.e("selectMerchant", "Error: " + e);
+                    selected = null;
+                }
+                final PaymentConfiguration configuration = selected;
+                mainExecutor.execute(() -> setPaymentConfiguration(configuration));
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e("selectMerchant", "Error: " + e);
+            setPaymentConfiguration(null);
+        }
+    }
+
+    @MainThread
+    private void setPaymentConfiguration(@Nullable PaymentConfiguration configuration) {
+        final PaymentConfiguration previous = selectedConfiguration;
+        _merchantUnavailable.setValue(configuration == null);
+        if (configuration == previous) {
+            return;
+        }
+        selectedConfiguration = configuration;
+        if (previous != null) {
+            previous.getShippingRates().removeListener(shippingRatesListener);
+        }
+        if (configuration == null) {
+            _paymentConfiguration.setValue(null);
+            return;
+        }
+        configuration.getShippingRates().addListener(shippingRatesListener);
+
+        // Prices of one currency can't be charged in another, so the cart starts over. Observers
+        // are notified once the cart is in the currency of the merchant.
+        final String currencyCode = configuration.getProfile().getCurrencyCode();
+        // Otherwise, the items are kept and charged the shipping fee of the new merchant.
+        final long shippingMinorUnits = configuration.getDefaultShippingPrice().getMinorUnits();
+        cart = cart == null || !cart.getCurrencyCode().equals(currencyCode)
+                ? new Cart(currencyCode, Constants.TAX_RATE_BASIS_POINTS, shippingMinorUnits)
+                : new Cart(cart, shippingMinorUnits);
+        _paymentConfiguration.setValue(configuration);
+
+        // Readiness only depends on the payment methods, which merchants often share.
+        final String isReadyToPayJson = configuration.getIsReadyToPayRequest();
+        if (previous == null || !isReadyToPayJson.equals(previous.getIsReadyToPayRequest())) {
+            fetchCanUseGooglePay();
+        }
+    }
+
+    /**
+     * Charges the cart the current price of the default shipping option of the merchant, from the
+     * same rates as the PaymentDataRequest, and notifies observers so that the screen shows it.
+     */
+    @MainThread
+    private void updateShipping() {
+        final PaymentConfiguration configuration = selectedConfiguration;
+        if (configuration == null || cart == null) {
+            return;
+        }
+        final long shippingMinorUnits;
+        try {
+            shippingMinorUnits = configuration.getDefaultShippingPrice().getMinorUnits();
+        } catch (IllegalArgumentException e) {
+            // The merchant's country isn't shipped to anymore, payments will fail to start.
+            Log.e("updateShipping", "Error: " + e);
+            return;
+        }
+        cart = new Cart(cart, shippingMinorUnits);
+        _paymentConfiguration.setValue(configuration);
+    }
+
     /**
      * Determine the user's ability to pay with a payment method supported by your app and display
      * a Google Pay payment button.
      */
     private void fetchCanUseGooglePay() {
-        final JSONObject isReadyToPayJson = PaymentsUtil.getIsReadyToPayRequest();
-        if (isReadyToPayJson == null) {
-            _canUseGooglePay.setValue(false);
-            return;
-        }
+        final String isReadyToPayJson = selectedConfiguration.getIsReadyToPayRequest();
+
+        // Show the last known answer as soon as it has been read. It is still revalidated below.
+        runInBackground("fetchCanUseGooglePay", () -> {
+            final Boolean cachedCanUseGooglePay = getReadinessCache().get(isReadyToPayJson);
+            if (cachedCanUseGooglePay != null) {
+                mainExecutor.execute(() -> {
+                    if (isCurrentReadinessRequest(isReadyToPayJson)
+                            && !isReadyToPayJson.equals(answeredReadinessRequest)) {
+                        updateCanUseGooglePay(cachedCanUseGooglePay);
+                    }
+                });
+            }
+        });
 
         // The call to isReadyToPay is asynchronous and returns a Task. We need to provide an
         // OnCompleteListener to be triggered when the result of the call is known.
-        IsReadyToPayRequest request = IsReadyToPayRequest.fromJson(isReadyToPayJson.toString());
-        Task<Boolean> task = paymentsClient.isReadyToPay(request);
+        final int span = PhaseRecorder.getDefault().beginAsync(PhaseRecorder.IS_READY_TO_PAY);
+        final long startNanos = System.nanoTime();
+        Task<Boolean> task = paymentsBackend.isReadyToPay(isReadyToPayJson);
         task.addOnCompleteListener(
                 completedTask -> {
+                    PhaseRecorder.getDefault().end(span);
                     if (completedTask.isSuccessful()) {
-                        _canUseGooglePay.setValue(completedTask.getResult());
+                        PaymentsMetrics.getInstance().record(
+                                PaymentsMetrics.Interaction.IS_READY_TO_PAY, startNanos,
+                                CommonStatusCodes.SUCCESS);
+                        final boolean canUseGooglePay = completedTask.getResult();
+                        runInBackground("isReadyToPay", () ->
+                                getReadinessCache().put(isReadyToPayJson, canUseGooglePay));
+                        if (isCurrentReadinessRequest(isReadyToPayJson)) {
+                            answeredReadinessRequest = isReadyToPayJson;
+                            updateCanUseGooglePay(canUseGooglePay);
+                        }
                     } else {
+                        PaymentsMetrics.getInstance().record(
+                                PaymentsMetrics.Interaction.IS_READY_TO_PAY, startNanos,
+                                PaymentsMetrics.getStatusCode(completedTask.getException()));
                         Log.w("isReadyToPay failed", completedTask.getException());
-                        _canUseGooglePay.setValue(false);
+                        runInBackground("isReadyToPay",
+                                () -> getReadinessCache().invalidate(isReadyToPayJson));
+                        if (isCurrentReadinessRequest(isReadyToPayJson)) {
+                            answeredReadinessRequest = isReadyToPayJson;
+                            updateCanUseGooglePay(false);
+                        }
+                    }
+                });
+    }
+
+    @WorkerThread
+    private synchronized ReadinessCache getReadinessCache() {
+        if (readinessCache == null) {
+            readinessCache =
+                    new ReadinessCache(getApplication(), ReadinessCache.DEFAULT_TTL_MILLIS);
+        }
+        return readinessCache;
+    }
+
+    private void runInBackground(String tag, Runnable runnable) {
+        try {
+            backgroundExecutor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            Log.e(tag, "Error: " + e);
+        }
+    }
+
+    /**
+     * Whether an answer to isReadyToPay still applies, i.e. the merchant hasn't been switched to
+     * one with other payment methods while it was pending.
+     */
+    private boolean isCurrentReadinessRequest(String isReadyToPayJson) {
+        final PaymentConfiguration configuration = selectedConfiguration;
+        return configuration != null
+                && isReadyToPayJson.equals(configuration.getIsReadyToPayRequest());
+    }
+
+    /**
+     * Publishes the readiness answer, unless observers already received the same value from the
+     * cache.
+     */
+    private void updateCanUseGooglePay(boolean canUseGooglePay) {
+        final Boolean current = _canUseGooglePay.getValue();
+        if (current == null || current != canUseGooglePay) {
+            _canUseGooglePay.setValue(canUseGooglePay);
+        }
+    }
+
+    /**
+     * Starts a payment session for the content of the cart, unless one is already in progress. The
+     * request is built and passed to Google Pay on a background thread. Once {@link #paymentState}
+     * turns to {@link PaymentState#READY}, the result is available from
+     * {@link #takePaymentDataTask()}.
+     *
+     * @return whether a new session was started; repeated taps while a session is in progress are
+     * ignored, as are taps before the merchant has been resolved.
+     */
+    @MainThread
+    public boolean requestPayment() {
+        if (_paymentState.getValue() != PaymentState.IDLE) {
+            Log.d("requestPayment", "Ignored, payment session already " + _paymentState.getValue());
+            return false;
+        }
+        if (selectedConfiguration == null) {
+            Log.w("requestPayment", "Ignored, no merchant to pay");
+            return false;
+        }
+
+        // Observers see the new state immediately, before the request has been built.
+        paymentStartNanos = System.nanoTime();
+        _paymentState.setValue(PaymentState.LOADING);
+        final Cart snapshot = new Cart(cart);
+        try {
+            backgroundExecutor.execute(() -> loadPaymentData(snapshot));
+        } catch (RejectedExecutionException e) {
+            Log.e("requestPayment", "Error: " + e);
+            endPaymentSession();
+            return false;
+        }
+        return true;
+    }
+
+    @WorkerThread
+    private void loadPaymentData(Cart snapshot) {
+        final Task<PaymentData> task;
+        try {
+            final String json = getPaymentDataRequestJson(snapshot);
+            prepareShippingUpdates(snapshot);
+            task = json != null ? paymentsBackend.loadPaymentData(json) : null;
+        } catch (RuntimeException e) {
+            Log.e("requestPayment", "Error: " + e);
+            mainExecutor.execute(this::endPaymentSession);
+            return;
+        }
+        if (task == null) {
+            mainExecutor.execute(this::endPaymentSession);
+            return;
+        }
+        task.addOnCompleteListener(mainExecutor, completedTask -> {
+            paymentDataTask = completedTask;
+            _paymentState.setValue(PaymentState.READY);
+        });
+    }
+
+    private void endPaymentSession() {
+        PaymentDataChangeHandler.getInstance().endSession();
+        paymentStartNanos = 0;
+        paymentDataTask = null;
+        payerName = null;
+        _paymentState.setValue(PaymentState.IDLE);
+    }
+
+    /**
+     * Hands over the completed loadPaymentData Task to be shown in the payment sheet. Only the first
+     * call after the session became {@link PaymentState#READY} receives it, so that the sheet is
+     * launched once even if the screen is recreated in between.
+     *
+     * @return the Task to launch the payment sheet with, or {@code null} if there is none.
+     */
+    @MainThread
+    @Nullable
+    public Task<PaymentData> takePaymentDataTask() {
+        if (_paymentState.getValue() != PaymentState.READY) {
+            return null;
+        }
+        final Task<PaymentData> task = paymentDataTask;
+        paymentDataTask = null;
+        _paymentState.setValue(PaymentState.SHOWING);
+        return task;
+    }
+
+    /**
+     * Continues the payment session with the result delivered by the payment sheet. Successful
+     * payment data is read on a background thread, after which the session turns to
+     * {@link PaymentState#COMPLETED}.
+     *
+     * @param statusCode  the status of the result, from CommonStatusCodes.
+     * @param paymentData the payment data, if the payment succeeded.
+     */
+    @MainThread
+    public void onPaymentResult(int statusCode, @Nullable PaymentData paymentData) {
+        // The payment sheet is closed, it won't call back anymore.
+        PaymentDataChangeHandler.getInstance().endSession();
+        final PaymentsMetrics metrics = PaymentsMetrics.getInstance();
+        if (paymentStartNanos != 0) {
+            metrics.record(
+                    PaymentsMetrics.Interaction.LOAD_PAYMENT_DATA, paymentStartNanos, statusCode);
+            paymentStartNanos = 0;
+        } else {
+            // The process was recreated while the payment sheet was showing.
+            metrics.recordOutcome(PaymentsMetrics.Interaction.LOAD_PAYMENT_DATA, statusCode);
+        }
+
+        if (statusCode != CommonStatusCodes.SUCCESS || paymentData == null) {
+            endPaymentSession();
+            return;
+        }
+        _paymentState.setValue(PaymentState.PROCESSING);
+        try {
+            backgroundExecutor.execute(() -> {
+                final String name = handlePaymentSuccess(paymentData);
+                mainExecutor.execute(() -> {
+                    if (name == null) {
+                        endPaymentSession();
+                    } else {
+                        payerName = name;
+                        _paymentState.setValue(PaymentState.COMPLETED);
                     }
                 });
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e("handlePaymentSuccess", "Error: " + e);
+            endPaymentSession();
+        }
     }
 
     /**
-     * Creates a Task that starts the payment process with the transaction details included.
+     * Reads the payment data and hands the token over to the backend.
      *
-     * @param priceLabel the price to show on the payment sheet.
-     * @return a Task with the payment information.
+     * @return the name of the payer, or {@code null} if the payment data couldn't be read.
      */
-    public Task<PaymentData> getLoadPaymentDataTask(String priceLabel) {
-        JSONObject paymentDataRequestJson = PaymentsUtil.getPaymentDataRequest(priceLabel);
-        if (paymentDataRequestJson == null) {
+    @WorkerThread
+    private String handlePaymentSuccess(PaymentData paymentData) {
+        // Serializing and reading the response is too slow for the main thread.
+        StrictMode.noteSlowCall("handlePaymentSuccess");
+        final long startNanos = System.nanoTime();
+        try {
+            // Only the fields needed below are read from the response.
+            final PaymentDataExtractor.Result result =
+                    PaymentDataExtractor.extract(paymentData.toJson());
+            final String billingName = result.getBillingName();
+            final String token = result.getToken();
+            if (billingName == null || token == null) {
+                PaymentsMetrics.getInstance().record(PaymentsMetrics.Interaction.PARSE_RESPONSE,
+                        startNanos, CommonStatusCodes.INTERNAL_ERROR);
+                Log.e("handlePaymentSuccess", "Error: billing name or token missing");
+                return null;
+            }
+            PaymentsMetrics.getInstance().record(
+                    PaymentsMetrics.Interaction.PARSE_RESPONSE, startNanos,
+                    CommonStatusCodes.SUCCESS);
+
+            // Logging token string. If the gateway is set to "example", no payment information is
+            // returned - instead, the token will only consist of "examplePaymentMethodToken".
+            Log.d("Google Pay token", token);
+
+            // Hand the token over to the backend. It is stored before being sent, so it isn't lost
+            // if the process dies first.
+            final TokenOutbox outbox = TokenOutbox.getInstance(getApplication());
+            if (outbox != null && !storeToken(outbox, token)) {
+                return null;
+            }
+            return billingName;
+        } catch (IOException e) {
+            PaymentsMetrics.getInstance().record(PaymentsMetrics.Interaction.PARSE_RESPONSE,
+                    startNanos, CommonStatusCodes.INTERNAL_ERROR);
+            Log.e("handlePaymentSuccess", "Error: " + e);
             return null;
         }
+    }
 
-        PaymentDataRequest request =
-                PaymentDataRequest.fromJson(paymentDataRequestJson.toString());
-        return paymentsClient.loadPaymentData(request);
+    /**
+     * Waits for the token to be written to the outbox. The payment isn't reported as completed if
+     * it couldn't be, as the backend would never receive the token.
+     *
+     * @return whether the token has been stored.
+     */
+    @WorkerThread
+    private static boolean storeToken(TokenOutbox outbox, String token) {
+        try {
+            Tasks.await(outbox.enqueue(token), STORE_TOKEN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            Log.e("handlePaymentSuccess", "Unable to store the token: " + e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Hands over the name of the payer once the payment has {@link PaymentState#COMPLETED}, and
+     * ends the session. Only the first call receives it.
+     *
+     * @return the name of the payer, or {@code null} if there is none.
+     */
+    @MainThread
+    @Nullable
+    public String takeCompletedPayment() {
+        if (_paymentState.getValue() != PaymentState.COMPLETED) {
+            return null;
+        }
+        final String name = payerName;
+        endPaymentSession();
+        return name;
+    }
+
+    /**
+     * Prepares the answers to the shipping changes the user can make on the payment sheet, so
+     * that {@link PaymentDataCallbacksService} doesn't need to build anything while the sheet
+     * waits.
+     *
+     * @param snapshot a copy of the cart, which must not change anymore.
+     */
+    @WorkerThread
+    private void prepareShippingUpdates(Cart snapshot) {
+        PaymentDataChangeHandler.getInstance()
+                .startSession(snapshot, selectedConfiguration.getProfile());
+    }
+
+    /**
+     * Serializing the request is proportional to the size of the cart, so the request is only
+     * rebuilt after the cart has changed.
+     */
+    private synchronized String getPaymentDataRequestJson(Cart cart) {
+        StrictMode.noteSlowCall("getPaymentDataRequestJson");
+        final PaymentConfiguration configuration = selectedConfiguration;
+        final PaymentDataRequestTemplate template = configuration.getPaymentDataRequestTemplate();
+        // Repricing the shipping copies the cart with its version, so the fee is compared too.
+        if (paymentDataRequestJson == null || paymentDataRequestVersion != cart.getVersion()
+                || paymentDataRequestShipping != cart.getShipping().getMinorUnits()
+                || paymentDataRequestTemplate != template) {
+            final long startNanos = System.nanoTime();
+            final String json = configuration.getPaymentDataRequestJson(cart);
+            if (json == null) {
+                PaymentsMetrics.getInstance().record(PaymentsMetrics.Interaction.BUILD_REQUEST,
+                        startNanos, CommonStatusCodes.DEVELOPER_ERROR);
+                return null;
+            }
+            paymentDataRequestJson = json;
+            paymentDataRequestVersion = cart.getVersion();
+            paymentDataRequestShipping = cart.getShipping().getMinorUnits();
+            paymentDataRequestTemplate = template;
+            PaymentsMetrics.getInstance().record(PaymentsMetrics.Interaction.BUILD_REQUEST,
+                    startNanos, CommonStatusCodes.SUCCESS);
+        }
+        return paymentDataRequestJson;
+    }
+
+    @Override
+    protected void onCleared() {
+        final PaymentConfiguration configuration = selectedConfiguration;
+        if (configuration != null) {
+            configuration.getShippingRates().removeListener(shippingRatesListener);
+        }
     }
-}
\ No newline at end of file
+}
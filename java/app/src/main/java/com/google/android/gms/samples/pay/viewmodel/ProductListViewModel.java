@@ -0,0 +1,236 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.viewmodel;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.google.android.gms.samples.pay.data.CatalogRepository;
+import com.google.android.gms.samples.pay.data.ProductCatalog;
+import com.google.android.gms.samples.pay.list.CatalogSelection;
+import com.google.android.gms.samples.pay.list.CatalogWindow;
+import com.google.android.gms.samples.pay.list.ProductRow;
+import com.google.android.gms.samples.pay.search.ProductSearch;
+import com.google.android.gms.samples.pay.search.SearchIndex;
+import com.google.android.gms.samples.pay.util.PaymentsExecutors;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Pages through the product catalog for the product list.
+ *
+ * <p>The list starts with one page of products and grows by a page whenever the user scrolls to
+ * within {@link #PREFETCH_DISTANCE} products of its end, so the adapter never diffs or lays out
+ * more products than the user has come close to seeing.
+ *
+ * <p>The size of the catalog is passed to the constructor through a {@link Factory}, as the
+ * bundled catalog may already be loaded, and is then delivered while the model is created.
+ */
+public class ProductListViewModel extends AndroidViewModel {
+
+    /**
+     * Creates models listing a catalog of the given size.
+     */
+    public static final class Factory implements ViewModelProvider.Factory {
+
+        private final Application application;
+        private final int syntheticSize;
+
+        /**
+         * @param syntheticSize the number of products to list, made of copies of the bundled
+         *                      products to check that the list scales to large catalogs, or 0 to
+         *                      list the bundled catalog as is.
+         */
+        public Factory(@NonNull Application application, int syntheticSize) {
+            this.application = application;
+            this.syntheticSize = syntheticSize;
+        }
+
+        @NonNull
+        @Override
+        public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+            if (!modelClass.isAssignableFrom(ProductListViewModel.class)) {
+                throw new IllegalArgumentException("Unknown model " + modelClass);
+            }
+            return modelClass.cast(new ProductListViewModel(application, syntheticSize));
+        }
+    }
+
+    private static final String TAG = "ProductListViewModel";
+
+    public static final int PAGE_SIZE = 100;
+
+    // How close to the end of the loaded products the next page is loaded.
+    public static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
+
+    public static final int MAX_SEARCH_RESULTS = 200;
+
+    private final MutableLiveData<List<ProductRow>> _products = new MutableLiveData<>();
+
+    private final LiveData<ProductCatalog> bundledCatalog;
+
+    private final Observer<ProductCatalog> bundledCatalogObserver = this::onCatalogLoaded;
+
+    private final ProductSearch.Listener searchListener = this::onIndexUpdated;
+
+    // The number of products to show, 0 for the bundled catalog as is.
+    private final int syntheticSize;
+
+    // The products loaded so far, null until the catalog has been read.
+    private CatalogWindow window;
+
+    private String query = "";
+
+    // Bumped whenever the products to show change, so that the results of a search that is no
+    // longer current are dropped.
+    private int searchGeneration;
+
+    public ProductListViewModel(@NonNull Application application) {
+        this(application, 0);
+    }
+
+    /**
+     * @see Factory#Factory(Application, int)
+     */
+    public ProductListViewModel(@NonNull Application application, int syntheticSize) {
+        super(application);
+        this.syntheticSize = syntheticSize;
+        bundledCatalog = CatalogRepository.getInstance(application).getCatalog();
+        bundledCatalog.observeForever(bundledCatalogObserver);
+        ProductSearch.getInstance().addListener(searchListener);
+    }
+
+    // LiveData with the products to list, unset until the catalog has been read
+    public final LiveData<List<ProductRow>> products = _products;
+
+    /**
+     * Loads the next page if the user has scrolled close enough to the end of the products loaded
+     * so far.
+     *
+     * @param lastVisiblePosition the position of the last product on screen.
+     */
+    @MainThread
+    public void onScrolledTo(int lastVisiblePosition) {
+        if (window == null || window.isComplete() || !query.isEmpty()
+                || lastVisiblePosition < window.size() - PREFETCH_DISTANCE) {
+            return;
+        }
+        final ProductCatalog catalog = window.getCatalog();
+        window = new CatalogWindow(catalog, Math.min(window.size() + PAGE_SIZE, catalog.size()));
+        _products.setValue(window);
+    }
+
+    /**
+     * Lists the products matching a query, or all of them if it is empty.
+     */
+    @MainThread
+    public void setQuery(String query) {
+        final String trimmed = query.trim();
+        if (trimmed.equals(this.query)) {
+            return;
+        }
+        this.query = trimmed;
+        if (window == null) {
+            return;
+        }
+        if (trimmed.isEmpty()) {
+            searchGeneration++;
+            _products.setValue(window);
+        } else {
+            showResults(ProductSearch.getInstance().getIndex());
+        }
+    }
+
+    @MainThread
+    private void onIndexUpdated(SearchIndex index) {
+        if (window != null && !query.isEmpty()) {
+            showResults(index);
+        }
+    }
+
+    /**
+     * Searches the index on a background thread, and shows the results unless the query or the
+     * catalog has changed in the meantime.
+     */
+    @MainThread
+    private void showResults(SearchIndex index) {
+        final ProductCatalog catalog = window.getCatalog();
+        final String query = this.query;
+        final int generation = ++searchGeneration;
+        try {
+            PaymentsExecutors.background().execute(() -> {
+                final int[] results = index.search(query, MAX_SEARCH_RESULTS);
+                PaymentsExecutors.mainThread().execute(() -> {
+                    if (generation == searchGeneration) {
+                        _products.setValue(new CatalogSelection(catalog, results));
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Unable to search the catalog", e);
+        }
+    }
+
+    @MainThread
+    private void onCatalogLoaded(ProductCatalog catalog) {
+        if (window != null) {
+            return;
+        }
+        if (syntheticSize <= 0 || catalog.size() == 0) {
+            showCatalog(catalog);
+            return;
+        }
+
+        final int size = syntheticSize;
+        try {
+            PaymentsExecutors.background().execute(() -> {
+                final ProductCatalog synthetic = ProductCatalog.repeat(catalog, size);
+                PaymentsExecutors.mainThread().execute(() -> showCatalog(synthetic));
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Unable to build the synthetic catalog", e);
+            showCatalog(catalog);
+        }
+    }
+
+    @MainThread
+    private void showCatalog(ProductCatalog catalog) {
+        window = new CatalogWindow(catalog, Math.min(PAGE_SIZE, catalog.size()));
+        ProductSearch.getInstance().indexCatalog(catalog);
+        if (query.isEmpty()) {
+            _products.setValue(window);
+        } else {
+            showResults(ProductSearch.getInstance().getIndex());
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        bundledCatalog.removeObserver(bundledCatalogObserver);
+        ProductSearch.getInstance().removeListener(searchListener);
+    }
+}
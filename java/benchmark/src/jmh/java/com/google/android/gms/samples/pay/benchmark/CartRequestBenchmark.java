@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.benchmark;
+
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.util.PaymentsUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing the PaymentDataRequest of carts of increasing size, with one display item
+ * per line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CartRequestBenchmark {
+
+  @Param({"1", "50", "500"})
+  public int lineCount;
+
+  private Cart cart;
+
+  @Setup
+  public void setUp() {
+    cart = new Cart();
+    for (int i = 0; i < lineCount; i++) {
+      cart.add("item" + i, "Men's Tech Shell Full-Zip #" + i, Money.ofMinor(1000 + i), 1 + i % 3);
+    }
+    PaymentsUtil.getPaymentDataRequestTemplate();
+  }
+
+  @Benchmark
+  public String jsonObject() {
+    return PaymentsUtil.getPaymentDataRequest(cart).toString();
+  }
+
+  @Benchmark
+  public String streamed() {
+    return PaymentsUtil.getPaymentDataRequestJson(cart);
+  }
+
+  @Benchmark
+  public Money totals() {
+    return cart.getTotal();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.benchmark;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.samples.pay.backend.LocalPaymentsBackend;
+import com.google.android.gms.samples.pay.data.Cart;
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.util.PaymentDataExtractor;
+import com.google.android.gms.samples.pay.util.PaymentsUtil;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.wallet.PaymentData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives complete checkout flows against a {@link LocalPaymentsBackend} to measure the throughput
+ * of the app's own code: building the request for a changed cart, loading the payment data and
+ * reading the token out of the response.
+ *
+ * <p>The backend answers without latency, so the flows are limited only by the app code. Run
+ * with more threads, e.g. {@code -t 8}, to look for contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class CheckoutFlowBenchmark {
+
+  @Param({"0", "0.1"})
+  public double cancelRate;
+
+  private LocalPaymentsBackend backend;
+
+  @State(Scope.Thread)
+  public static class Checkout {
+
+    final Cart cart = new Cart();
+    int quantity;
+
+    @Setup
+    public void setUp() {
+      for (int i = 0; i < 10; i++) {
+        cart.add("item" + i, "Men's Tech Shell Full-Zip #" + i, Money.ofMinor(5020 + i), 1);
+      }
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    backend = new LocalPaymentsBackend.Builder()
+        .addPaymentDataFailure(CommonStatusCodes.CANCELED, cancelRate)
+        .build();
+    PaymentsUtil.getPaymentDataRequestTemplate();
+  }
+
+  @Benchmark
+  public String checkout(Checkout checkout) throws IOException {
+    // Change the cart so that the request has to be built again, as after adding an item.
+    checkout.cart.setQuantity("item0", 1 + (++checkout.quantity & 3));
+    final String request = PaymentsUtil.getPaymentDataRequestJson(checkout.cart);
+
+    // Without latency, the Task is already complete when it is returned.
+    final Task<PaymentData> task = backend.loadPaymentData(request);
+    if (!task.isSuccessful()) {
+      return null;
+    }
+    return PaymentDataExtractor.extract(task.getResult().toJson()).getToken();
+  }
+}
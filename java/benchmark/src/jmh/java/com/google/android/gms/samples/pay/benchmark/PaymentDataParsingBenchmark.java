@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.benchmark;
+
+import com.google.android.gms.samples.pay.util.PaymentDataExtractor;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading the billing name and token out of a PaymentData response, as done when a
+ * payment succeeds. The response is a realistic one, with an encrypted ECv2 gateway token.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentDataParsingBenchmark {
+
+  private String paymentData;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream in = PaymentDataParsingBenchmark.class.getResourceAsStream(
+        "/payment_data.json")) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        out.write(buffer, 0, read);
+      }
+      paymentData = new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Benchmark
+  public void jsonObjectTree(Blackhole blackhole) throws JSONException {
+    final JSONObject paymentMethodData =
+        new JSONObject(paymentData).getJSONObject("paymentMethodData");
+    blackhole.consume(paymentMethodData
+        .getJSONObject("info").getJSONObject("billingAddress").getString("name"));
+    blackhole.consume(paymentMethodData
+        .getJSONObject("tokenizationData").getString("token"));
+  }
+
+  @Benchmark
+  public PaymentDataExtractor.Result streamingExtractor() throws IOException {
+    return PaymentDataExtractor.extract(paymentData);
+  }
+}
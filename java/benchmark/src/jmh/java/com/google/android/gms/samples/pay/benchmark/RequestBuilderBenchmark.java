@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.benchmark;
+
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.util.PaymentsJsonWriter;
+import com.google.android.gms.samples.pay.util.PaymentsUtil;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code JSONObject} request builders in {@link PaymentsUtil} with their streamed
+ * and precompiled counterparts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestBuilderBenchmark {
+
+  private static final Money PRICE = Money.ofMinor(5020);
+
+  private String priceLabel;
+
+  @Setup
+  public void setUp() {
+    priceLabel = PRICE.toDecimalString();
+    // Compiled once per process in the app, so keep it out of the measurements.
+    PaymentsUtil.getPaymentDataRequestTemplate();
+  }
+
+  @Benchmark
+  public String paymentDataRequestJsonObject() {
+    return PaymentsUtil.getPaymentDataRequest(priceLabel).toString();
+  }
+
+  @Benchmark
+  public String paymentDataRequestTemplate() {
+    return PaymentsUtil.getPaymentDataRequestJson(PRICE);
+  }
+
+  @Benchmark
+  public String paymentDataRequestStreamed() {
+    return PaymentsJsonWriter.getPaymentDataRequest(PRICE);
+  }
+
+  @Benchmark
+  public String isReadyToPayRequestJsonObject() {
+    return PaymentsUtil.getIsReadyToPayRequest().toString();
+  }
+
+  @Benchmark
+  public String isReadyToPayRequestStreamed() {
+    return PaymentsJsonWriter.getIsReadyToPayRequest();
+  }
+
+  @Benchmark
+  public String allowedPaymentMethodsJsonObject() throws JSONException {
+    return PaymentsUtil.getAllowedPaymentMethods().toString();
+  }
+
+  @Benchmark
+  public String allowedPaymentMethodsStreamed() {
+    return PaymentsJsonWriter.getAllowedPaymentMethods();
+  }
+}
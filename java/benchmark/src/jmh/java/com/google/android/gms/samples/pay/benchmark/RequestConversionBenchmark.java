@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.benchmark;
+
+import com.google.android.gms.samples.pay.data.Money;
+import com.google.android.gms.samples.pay.util.PaymentsJsonWriter;
+import com.google.android.gms.wallet.IsReadyToPayRequest;
+import com.google.android.gms.wallet.PaymentDataRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning serialized requests into the objects passed to {@code PaymentsClient}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestConversionBenchmark {
+
+  private String isReadyToPayJson;
+  private String paymentDataRequestJson;
+
+  @Setup
+  public void setUp() {
+    isReadyToPayJson = PaymentsJsonWriter.getIsReadyToPayRequest();
+    paymentDataRequestJson = PaymentsJsonWriter.getPaymentDataRequest(Money.ofMinor(5020));
+  }
+
+  @Benchmark
+  public IsReadyToPayRequest isReadyToPayRequestFromJson() {
+    return IsReadyToPayRequest.fromJson(isReadyToPayJson);
+  }
+
+  @Benchmark
+  public PaymentDataRequest paymentDataRequestFromJson() {
+    return PaymentDataRequest.fromJson(paymentDataRequestJson);
+  }
+}
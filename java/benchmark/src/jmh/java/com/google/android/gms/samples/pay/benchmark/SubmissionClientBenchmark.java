@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.benchmark;
+
+import com.google.android.gms.samples.pay.outbox.SubmissionClient;
+import com.google.android.gms.samples.pay.util.JsonStringWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Posts batches of payment tokens with {@link SubmissionClient} to a stand-in backend running in
+ * the same JVM, from several threads at once.
+ *
+ * <p>{@code requestsPerSecond} reports the throughput and {@code latency} the distribution of
+ * request times, including the p99 and p99.9, as seen by callers queuing for a connection. The
+ * server decompresses and reads every body, and can add a delay to stand in for the network.
+ */
+@State(Scope.Benchmark)
+@Threads(8)
+public class SubmissionClientBenchmark {
+
+  private static final byte[] RESPONSE = "{\"accepted\":true}".getBytes(StandardCharsets.UTF_8);
+
+  @Param({"1", "5"})
+  public int maxConnections;
+
+  // One token is sent uncompressed, 50 are above the gzip threshold.
+  @Param({"1", "50"})
+  public int tokensPerRequest;
+
+  @Param({"0", "2"})
+  public int serverDelayMillis;
+
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+  private SubmissionClient client;
+  private byte[] body;
+
+  @Setup
+  public void setUp() throws IOException {
+    // Without TCP_NODELAY, the stand-in's small responses wait out delayed ACKs and every request
+    // takes about 40ms, hiding the cost of the client.
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 64);
+    serverExecutor = Executors.newFixedThreadPool(16, runnable -> {
+      final Thread thread = new Thread(runnable, "StandInBackend");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(serverExecutor);
+    server.createContext("/tokens", this::handle);
+    server.start();
+
+    client = new SubmissionClient.Builder(
+        new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/tokens"))
+        .setMaxConnections(maxConnections)
+        .build();
+
+    final JsonStringWriter writer = new JsonStringWriter();
+    writer.beginObject()
+        .name("tokens").beginArray();
+    for (int i = 0; i < tokensPerRequest; i++) {
+      writer.beginObject()
+          .name("id").value(i + 1)
+          .name("createdAt").value(1_700_000_000_000L + i)
+          .name("token").value("{\"signature\":\"MEUCIQCexamplePaymentMethodToken" + i + "\"}")
+          .endObject();
+    }
+    body = writer.endArray()
+        .endObject()
+        .toString()
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    InputStream input = exchange.getRequestBody();
+    if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+      input = new GZIPInputStream(input);
+    }
+    final byte[] buffer = new byte[4096];
+    while (input.read(buffer) >= 0) {
+      // Read the whole body, as a real backend would.
+    }
+    input.close();
+
+    if (serverDelayMillis > 0) {
+      try {
+        Thread.sleep(serverDelayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    exchange.sendResponseHeaders(200, RESPONSE.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(RESPONSE);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public int requestsPerSecond() throws IOException {
+    return submit();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int latency() throws IOException {
+    return submit();
+  }
+
+  private int submit() throws IOException {
+    final SubmissionClient.Response response = client.post(body, "application/json");
+    if (!response.isSuccessful()) {
+      throw new IOException("HTTP " + response.getStatusCode());
+    }
+    return response.getBody().length;
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.catalog;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the product catalog into the binary format read by the app's {@code CompiledCatalog},
+ * so the app can map it into memory instead of parsing JSON at startup.
+ *
+ * <p>All numbers are big-endian. The file starts with a header of {@link #HEADER_SIZE} bytes:
+ * <pre>
+ *   int magic, int version, int productCount, int categoryCount,
+ *   int recordsOffset, int categoriesOffset, int categoryProductsOffset, int priceIndexOffset,
+ *   int stringsOffset, int stringsLength
+ * </pre>
+ * followed by:
+ * <ul>
+ * <li>the records, one per product, of {@link #RECORD_SIZE} bytes: the string references of the
+ *     name, title, description and image, the category index, 4 bytes of padding, and the price in
+ *     minor units as a long.
+ * <li>the categories, in order of first appearance: the string reference of the name, and the
+ *     position and number of their products in the category products.
+ * <li>the category products: the product indexes grouped by category, in catalog order.
+ * <li>the price index: the product indexes sorted by price, and then by index.
+ * <li>the string pool: each distinct string once, as an int length followed by its UTF-8 bytes.
+ *     String references are offsets into the pool.
+ * </ul>
+ *
+ * <p>Keep in sync with {@code CompiledCatalog}.
+ */
+public final class CatalogCompiler {
+
+  public static final String ASSET_NAME = "catalog.bin";
+
+  static final int MAGIC = 0x43544C47;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 40;
+  static final int RECORD_SIZE = 32;
+  static final int CATEGORY_SIZE = 12;
+
+  // Number of fraction digits of the prices in the catalog, which are expressed in dollars.
+  private static final int PRICE_FRACTION_DIGITS = 2;
+
+  private CatalogCompiler() {
+  }
+
+  /**
+   * Compiles a catalog.
+   *
+   * @param products the products, as parsed from the JSON catalog: maps with {@code name},
+   *                 {@code title}, {@code category}, {@code price}, {@code description} and
+   *                 {@code image} entries. Missing entries are written as empty strings, or a
+   *                 price of 0.
+   * @param output   receives the compiled catalog.
+   */
+  public static void compile(List<? extends Map<String, ?>> products, OutputStream output)
+      throws IOException {
+    final int count = products.size();
+    final StringPool strings = new StringPool();
+    final Map<String, Integer> categoryIds = new LinkedHashMap<>();
+    final int[][] refs = new int[count][];
+    final int[] categories = new int[count];
+    final long[] prices = new long[count];
+
+    for (int i = 0; i < count; i++) {
+      final Map<String, ?> product = products.get(i);
+      refs[i] = new int[] {
+          strings.add(getString(product, "name")),
+          strings.add(getString(product, "title")),
+          strings.add(getString(product, "description")),
+          strings.add(getString(product, "image")),
+      };
+      final String category = getString(product, "category");
+      Integer categoryId = categoryIds.get(category);
+      if (categoryId == null) {
+        categoryId = categoryIds.size();
+        categoryIds.put(category, categoryId);
+        strings.add(category);
+      }
+      categories[i] = categoryId;
+      prices[i] = getMinorUnits(product.get("price"));
+    }
+
+    // Products grouped by category, keeping their order within a category.
+    final int categoryCount = categoryIds.size();
+    final int[] categoryStarts = new int[categoryCount + 1];
+    for (int category : categories) {
+      categoryStarts[category + 1]++;
+    }
+    for (int category = 0; category < categoryCount; category++) {
+      categoryStarts[category + 1] += categoryStarts[category];
+    }
+    final int[] categoryProducts = new int[count];
+    final int[] next = Arrays.copyOf(categoryStarts, categoryCount);
+    for (int i = 0; i < count; i++) {
+      categoryProducts[next[categories[i]]++] = i;
+    }
+
+    final Integer[] byPrice = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      byPrice[i] = i;
+    }
+    Arrays.sort(byPrice, (a, b) -> prices[a] != prices[b]
+        ? Long.compare(prices[a], prices[b]) : Integer.compare(a, b));
+
+    final int recordsOffset = HEADER_SIZE;
+    final int categoriesOffset = recordsOffset + count * RECORD_SIZE;
+    final int categoryProductsOffset = categoriesOffset + categoryCount * CATEGORY_SIZE;
+    final int priceIndexOffset = categoryProductsOffset + count * 4;
+    final int stringsOffset = priceIndexOffset + count * 4;
+
+    final DataOutputStream out = new DataOutputStream(output);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(count);
+    out.writeInt(categoryCount);
+    out.writeInt(recordsOffset);
+    out.writeInt(categoriesOffset);
+    out.writeInt(categoryProductsOffset);
+    out.writeInt(priceIndexOffset);
+    out.writeInt(stringsOffset);
+    out.writeInt(strings.length);
+
+    for (int i = 0; i < count; i++) {
+      for (int ref : refs[i]) {
+        out.writeInt(ref);
+      }
+      out.writeInt(categories[i]);
+      out.writeInt(0);
+      out.writeLong(prices[i]);
+    }
+    for (Map.Entry<String, Integer> category : categoryIds.entrySet()) {
+      final int id = category.getValue();
+      out.writeInt(strings.add(category.getKey()));
+      out.writeInt(categoryStarts[id]);
+      out.writeInt(categoryStarts[id + 1] - categoryStarts[id]);
+    }
+    for (int product : categoryProducts) {
+      out.writeInt(product);
+    }
+    for (int product : byPrice) {
+      out.writeInt(product);
+    }
+    for (byte[] bytes : strings.values) {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+    out.flush();
+  }
+
+  private static String getString(Map<String, ?> product, String key) {
+    final Object value = product.get(key);
+    return value != null ? value.toString() : "";
+  }
+
+  /**
+   * Converts a price in dollars to minor units, truncating digits beyond the cents as the app's
+   * JSON parser does.
+   */
+  static long getMinorUnits(Object price) {
+    if (price == null) {
+      return 0;
+    }
+    // The decimal string of the number, so that no precision is lost to floating point.
+    return new BigDecimal(price.toString())
+        .setScale(PRICE_FRACTION_DIGITS, RoundingMode.DOWN)
+        .movePointRight(PRICE_FRACTION_DIGITS)
+        .longValueExact();
+  }
+
+  /**
+   * Distinct strings, in order of first appearance, with their offset in the pool.
+   */
+  private static final class StringPool {
+
+    final List<byte[]> values = new ArrayList<>();
+    final Map<String, Integer> offsets = new HashMap<>();
+    int length;
+
+    int add(String value) {
+      Integer offset = offsets.get(value);
+      if (offset == null) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        offset = length;
+        offsets.put(value, offset);
+        values.add(bytes);
+        length += 4 + bytes.length;
+      }
+      return offset;
+    }
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.requests;
+
+import com.google.android.gms.samples.pay.util.JsonStrings;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the Java source of {@code PrecompiledPaymentRequests}: the parts of the Google Pay
+ * requests of each merchant that only depend on its configuration, serialized at build time as
+ * string constants.
+ *
+ * <p>The payment methods are written exactly as {@code PaymentsJsonWriter} writes them at
+ * runtime, which remains the reference: any change to a request there must be made here too.
+ * Each merchant is identified by a key computed from the fields the payment methods depend on, as
+ * {@code PaymentConfiguration.getPrecompiledKey} computes it, so a profile configured in code with
+ * the same values as one of the file shares its precompiled requests.
+ *
+ * <p>The default merchant of the file is also generated, as {@code DefaultMerchant}, which
+ * {@code Constants} reads its merchant configuration from, so that the file is the only place the
+ * default merchant is configured.
+ */
+public final class PaymentRequestGenerator {
+
+  public static final String PACKAGE_NAME = "com.google.android.gms.samples.pay.util";
+  public static final String CLASS_NAME = "PrecompiledPaymentRequests";
+
+  public static final String DEFAULT_MERCHANT_PACKAGE_NAME = "com.google.android.gms.samples.pay";
+  public static final String DEFAULT_MERCHANT_CLASS_NAME = "DefaultMerchant";
+
+  private PaymentRequestGenerator() {
+  }
+
+  /**
+   * Generates the requests of the merchants of a registry.
+   *
+   * @param registry the merchant registry, as parsed from {@code res/raw/merchants.json}: an object
+   *                 with a {@code merchants} array of profiles.
+   * @param source   the name of the registry file, mentioned in the generated source.
+   * @param output   receives the Java source.
+   */
+  public static void generate(Map<String, ?> registry, String source, Appendable output)
+      throws IOException {
+    final List<String> keys = new ArrayList<>();
+    final List<String> baseAllowedPaymentMethods = new ArrayList<>();
+    final List<String> allowedPaymentMethods = new ArrayList<>();
+    final List<String> isReadyToPayRequests = new ArrayList<>();
+
+    for (Map<String, ?> merchant : getObjects(registry, "merchants")) {
+      final List<String> authMethods = getList(merchant, "allowedAuthMethods", String.class);
+      final List<String> cardNetworks = getList(merchant, "allowedCardNetworks", String.class);
+      final Map<String, ?> gatewayParameters = getMap(merchant, "gatewayParameters");
+
+      final String key = getKey(authMethods, cardNetworks, gatewayParameters);
+      if (keys.contains(key)) {
+        continue;
+      }
+      final String baseCardPaymentMethod =
+          writeBaseCardPaymentMethodFields(authMethods, cardNetworks);
+      final String base = "[{" + baseCardPaymentMethod + "}]";
+      keys.add(key);
+      baseAllowedPaymentMethods.add(base);
+      allowedPaymentMethods.add("[{" + baseCardPaymentMethod + ",\"tokenizationSpecification\":"
+          + writeGatewayTokenizationSpecification(gatewayParameters) + "}]");
+      isReadyToPayRequests.add(
+          "{\"apiVersion\":2,\"apiVersionMinor\":0,\"allowedPaymentMethods\":" + base + "}");
+    }
+
+    appendHeader(output, source, PACKAGE_NAME);
+    output.append("/**\n")
+        .append(" * The requests of the merchants of the registry that only depend on their ")
+        .append("configuration,\n")
+        .append(" * serialized at build time. Entries at the same index belong to the same ")
+        .append("merchant.\n")
+        .append(" */\n")
+        .append("final class ").append(CLASS_NAME).append(" {\n");
+    appendArray(output, "KEYS", keys);
+    appendArray(output, "BASE_ALLOWED_PAYMENT_METHODS", baseAllowedPaymentMethods);
+    appendArray(output, "ALLOWED_PAYMENT_METHODS", allowedPaymentMethods);
+    appendArray(output, "IS_READY_TO_PAY_REQUESTS", isReadyToPayRequests);
+    output.append("\n  private ").append(CLASS_NAME).append("() {\n  }\n}\n");
+  }
+
+  /**
+   * Generates the configuration of the default merchant of a registry.
+   *
+   * @param registry the merchant registry, as parsed from {@code res/raw/merchants.json}, whose
+   *                 {@code defaultMerchantId} names one of its {@code merchants}.
+   * @param source   the name of the registry file, mentioned in the generated source.
+   * @param output   receives the Java source.
+   * @throws IllegalArgumentException if the default merchant isn't in the registry, or has no
+   *                                  gateway.
+   */
+  public static void generateDefaultMerchant(Map<String, ?> registry, String source,
+      Appendable output) throws IOException {
+    final Object defaultId = registry.get("defaultMerchantId");
+    Map<String, ?> merchant = null;
+    for (Map<String, ?> candidate : getObjects(registry, "merchants")) {
+      if (candidate.get("id") != null && candidate.get("id").equals(defaultId)) {
+        merchant = candidate;
+        break;
+      }
+    }
+    if (merchant == null) {
+      throw new IllegalArgumentException("Unknown default merchant " + defaultId);
+    }
+    final Map<String, ?> gatewayParameters = getMap(merchant, "gatewayParameters");
+    if (gatewayParameters.get("gateway") == null) {
+      throw new IllegalArgumentException("Missing gateway for " + defaultId);
+    }
+    final List<String> parameterNames = new ArrayList<>();
+    final List<String> parameterValues = new ArrayList<>();
+    for (Map.Entry<String, ?> parameter : gatewayParameters.entrySet()) {
+      parameterNames.add(parameter.getKey());
+      parameterValues.add(String.valueOf(parameter.getValue()));
+    }
+
+    appendHeader(output, source, DEFAULT_MERCHANT_PACKAGE_NAME);
+    output.append("/**\n")
+        .append(" * The merchant of the registry paid by default, read by {@link Constants}.\n")
+        .append(" */\n")
+        .append("final class ").append(DEFAULT_MERCHANT_CLASS_NAME).append(" {\n");
+    appendConstant(output, "MERCHANT_NAME", getString(merchant, "merchantName"));
+    appendConstant(output, "COUNTRY_CODE", getString(merchant, "countryCode"));
+    appendConstant(output, "CURRENCY_CODE", getString(merchant, "currencyCode"));
+    appendConstant(output, "GATEWAY", String.valueOf(gatewayParameters.get("gateway")));
+    appendArray(output, "ALLOWED_CARD_NETWORKS",
+        getList(merchant, "allowedCardNetworks", String.class));
+    appendArray(output, "ALLOWED_AUTH_METHODS",
+        getList(merchant, "allowedAuthMethods", String.class));
+    appendArray(output, "SHIPPING_COUNTRIES",
+        getList(merchant, "shippingCountries", String.class));
+    appendArray(output, "GATEWAY_PARAMETER_NAMES", parameterNames);
+    appendArray(output, "GATEWAY_PARAMETER_VALUES", parameterValues);
+    output.append("\n  private ").append(DEFAULT_MERCHANT_CLASS_NAME)
+        .append("() {\n  }\n}\n");
+  }
+
+  private static void appendHeader(Appendable output, String source, String packageName)
+      throws IOException {
+    output.append("// Generated from ").append(source)
+        .append(" by the generatePaymentRequests task.\n")
+        .append("// Do not edit.\n\n")
+        .append("package ").append(packageName).append(";\n\n");
+  }
+
+  private static String writeBaseCardPaymentMethodFields(
+      List<String> authMethods, List<String> cardNetworks) {
+    final StringBuilder json = new StringBuilder("\"type\":\"CARD\",\"parameters\":{");
+    json.append("\"allowedAuthMethods\":");
+    appendStringArray(json, authMethods);
+    json.append(",\"allowedCardNetworks\":");
+    appendStringArray(json, cardNetworks);
+    return json.append(",\"billingAddressRequired\":true")
+        .append(",\"billingAddressParameters\":{\"format\":\"FULL\"}}")
+        .toString();
+  }
+
+  private static String writeGatewayTokenizationSpecification(Map<String, ?> parameters) {
+    final StringBuilder json = new StringBuilder("{\"type\":\"PAYMENT_GATEWAY\",\"parameters\":{");
+    boolean first = true;
+    for (Map.Entry<String, ?> parameter : parameters.entrySet()) {
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      JsonStrings.appendQuoted(json, parameter.getKey());
+      json.append(':');
+      JsonStrings.appendQuoted(json, String.valueOf(parameter.getValue()));
+    }
+    return json.append("}}").toString();
+  }
+
+  /**
+   * Mirrors {@code PaymentConfiguration.getPrecompiledKey}.
+   */
+  static String getKey(List<String> authMethods, List<String> cardNetworks,
+      Map<String, ?> gatewayParameters) {
+    final StringBuilder key = new StringBuilder();
+    appendKeyPart(key, authMethods.size());
+    for (String method : authMethods) {
+      appendKeyPart(key, method);
+    }
+    appendKeyPart(key, cardNetworks.size());
+    for (String network : cardNetworks) {
+      appendKeyPart(key, network);
+    }
+    appendKeyPart(key, gatewayParameters.size());
+    for (Map.Entry<String, ?> parameter : gatewayParameters.entrySet()) {
+      appendKeyPart(key, parameter.getKey());
+      appendKeyPart(key, String.valueOf(parameter.getValue()));
+    }
+    return key.toString();
+  }
+
+  private static void appendKeyPart(StringBuilder key, int count) {
+    key.append(count).append(';');
+  }
+
+  private static void appendKeyPart(StringBuilder key, String value) {
+    key.append(value.length()).append(':').append(value);
+  }
+
+  private static void appendStringArray(StringBuilder json, List<String> values) {
+    json.append('[');
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      JsonStrings.appendQuoted(json, values.get(i));
+    }
+    json.append(']');
+  }
+
+  private static void appendConstant(Appendable output, String name, String value)
+      throws IOException {
+    output.append("\n  static final String ").append(name).append(" = ");
+    appendJavaLiteral(output, value);
+    output.append(";\n");
+  }
+
+  private static void appendArray(Appendable output, String name, List<String> values)
+      throws IOException {
+    output.append("\n  static final String[] ").append(name).append(" = {\n");
+    for (String value : values) {
+      output.append("      ");
+      appendJavaLiteral(output, value);
+      output.append(",\n");
+    }
+    output.append("  };\n");
+  }
+
+  /**
+   * Writes a Java string literal, escaping anything outside of printable ASCII so that the
+   * generated source doesn't depend on the encoding it is compiled with. Control characters are
+   * written as escape sequences rather than Unicode escapes, which the compiler translates before
+   * parsing, so that the Unicode escape of a line feed would end the literal.
+   */
+  static void appendJavaLiteral(Appendable output, String value) throws IOException {
+    output.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        output.append('\\').append(c);
+      } else if (c == '\n') {
+        output.append("\\n");
+      } else if (c == '\r') {
+        output.append("\\r");
+      } else if (c == '\t') {
+        output.append("\\t");
+      } else if (c < 0x20 || c == 0x7F) {
+        output.append(String.format("\\%03o", (int) c));
+      } else if (c > 0x7F) {
+        output.append(String.format("\\u%04x", (int) c));
+      } else {
+        output.append(c);
+      }
+    }
+    output.append('"');
+  }
+
+  private static String getString(Map<String, ?> object, String key) {
+    final Object value = object.get(key);
+    if (!(value instanceof String)) {
+      throw new IllegalArgumentException("Expected a string for " + key + ": " + value);
+    }
+    return (String) value;
+  }
+
+  private static List<Map<String, ?>> getObjects(Map<String, ?> object, String key) {
+    final List<Map<String, ?>> objects = new ArrayList<>();
+    for (Map<?, ?> element : getList(object, key, Map.class)) {
+      objects.add(asObject(element));
+    }
+    return objects;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, ?> asObject(Map<?, ?> value) {
+    for (Object name : value.keySet()) {
+      if (!(name instanceof String)) {
+        throw new IllegalArgumentException("Unexpected name " + name);
+      }
+    }
+    return (Map<String, ?>) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> List<T> getList(Map<String, ?> object, String key, Class<? super T> type) {
+    final Object value = object.get(key);
+    if (value == null) {
+      return Collections.emptyList();
+    }
+    if (!(value instanceof List)) {
+      throw new IllegalArgumentException("Expected an array for " + key + ": " + value);
+    }
+    for (Object element : (List<?>) value) {
+      if (!type.isInstance(element)) {
+        throw new IllegalArgumentException("Unexpected element of " + key + ": " + element);
+      }
+    }
+    return (List<T>) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, ?> getMap(Map<String, ?> object, String key) {
+    final Object value = object.get(key);
+    if (value == null) {
+      return Collections.emptyMap();
+    }
+    if (!(value instanceof Map)) {
+      throw new IllegalArgumentException("Expected an object for " + key + ": " + value);
+    }
+    return (Map<String, ?>) value;
+  }
+}
@@ -17,7 +17,6 @@
 package com.google.android.gms.samples.pay.activity
 
 import android.os.Bundle
-import android.util.Log
 import androidx.activity.ComponentActivity
 import androidx.activity.compose.setContent
 import androidx.activity.viewModels
@@ -38,10 +37,8 @@ class CheckoutActivity : ComponentActivity() {
     private val paymentDataLauncher = registerForActivityResult(GetPaymentDataResult()) { taskResult ->
         when (taskResult.status.statusCode) {
             CommonStatusCodes.SUCCESS -> {
-                taskResult.result!!.let {
-                    Log.i("Google Pay result:", it.toJson())
-                    model.setPaymentData(it)
-                }
+                // The result is serialized and read in the background by the model.
+                model.setPaymentData(taskResult.result!!)
             }
             //CommonStatusCodes.CANCELED -> The user canceled
             //CommonStatusCodes.DEVELOPER_ERROR -> The API returned an error (it.status: Status)
@@ -67,7 +64,9 @@ class CheckoutActivity : ComponentActivity() {
     }
 
     private fun requestPayment() {
-        val task = model.getLoadPaymentDataTask(priceLabel = "50.2")
-        task.addOnCompleteListener(paymentDataLauncher::launch)
+        lifecycleScope.launch {
+            val task = model.getLoadPaymentDataTask(priceLabel = "50.2")
+            task.addOnCompleteListener(paymentDataLauncher::launch)
+        }
     }
 }
\ No newline at end of file
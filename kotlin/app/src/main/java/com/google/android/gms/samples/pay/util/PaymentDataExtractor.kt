@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gms.samples.pay.util
+
+import android.util.JsonReader
+import android.util.JsonToken
+import java.io.IOException
+import java.io.StringReader
+
+/**
+ * Reads the fields the app needs from a PaymentData response without parsing it into a tree.
+ *
+ * The response is scanned with a [JsonReader]: only the objects on the path to
+ * `paymentMethodData.info.billingAddress.name` and `paymentMethodData.tokenizationData.token` are
+ * entered, every other value is skipped, and reading stops as soon as both fields have been found.
+ *
+ * See [PaymentData](https://developers.google.com/pay/api/android/reference/response-objects#PaymentData)
+ */
+object PaymentDataExtractor {
+
+    private val billingNamePath = arrayOf("billingAddress", "name")
+    private val tokenPath = arrayOf("token")
+
+    /**
+     * The fields extracted from a PaymentData response. Fields missing from the response are null.
+     */
+    class Result(val billingName: String?, val token: String?)
+
+    /**
+     * Extracts the billing name and payment token from a PaymentData response.
+     *
+     * @param paymentDataJson the response, as returned by `PaymentData.toJson()`.
+     * @throws IOException if the response is not a valid JSON object.
+     */
+    @Throws(IOException::class)
+    fun extract(paymentDataJson: String): Result {
+        var billingName: String? = null
+        var token: String? = null
+
+        try {
+            JsonReader(StringReader(paymentDataJson)).use { reader ->
+                reader.beginObject()
+                while (reader.hasNext()) {
+                    if (reader.nextName() != "paymentMethodData"
+                        || reader.peek() != JsonToken.BEGIN_OBJECT
+                    ) {
+                        reader.skipValue()
+                        continue
+                    }
+
+                    reader.beginObject()
+                    while (reader.hasNext()) {
+                        val name = reader.nextName()
+                        when {
+                            billingName == null && name == "info" ->
+                                billingName = readString(reader, billingNamePath, 0)
+                            token == null && name == "tokenizationData" ->
+                                token = readString(reader, tokenPath, 0)
+                            else -> reader.skipValue()
+                        }
+
+                        if (billingName != null && token != null) {
+                            // Everything else in the response is irrelevant, so don't read it.
+                            return Result(billingName, token)
+                        }
+                    }
+                    reader.endObject()
+                }
+            }
+        } catch (e: IllegalStateException) {
+            // Thrown by JsonReader when the document doesn't have the expected structure.
+            throw IOException("Unexpected PaymentData structure", e)
+        }
+        return Result(billingName, token)
+    }
+
+    /**
+     * Reads the string found by following [path] from the value at the reader's position. The
+     * whole value is consumed, so the reader is left at the following name or value.
+     */
+    private fun readString(reader: JsonReader, path: Array<String>, depth: Int): String? {
+        if (depth == path.size) {
+            if (reader.peek() == JsonToken.STRING) {
+                return reader.nextString()
+            }
+            reader.skipValue()
+            return null
+        }
+
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue()
+            return null
+        }
+
+        var result: String? = null
+        reader.beginObject()
+        while (reader.hasNext()) {
+            val name = reader.nextName()
+            if (result == null && name == path[depth]) {
+                result = readString(reader, path, depth + 1)
+            } else {
+                reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return result
+    }
+}
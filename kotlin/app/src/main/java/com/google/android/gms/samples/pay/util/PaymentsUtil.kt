@@ -23,8 +23,6 @@ import com.google.android.gms.wallet.Wallet
 import org.json.JSONArray
 import org.json.JSONException
 import org.json.JSONObject
-import java.math.BigDecimal
-import java.math.RoundingMode
 
 /**
  * Contains helper static methods for dealing with the Payments API.
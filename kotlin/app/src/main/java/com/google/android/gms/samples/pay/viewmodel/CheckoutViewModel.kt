@@ -22,6 +22,7 @@ import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.viewModelScope
 import com.google.android.gms.common.api.ApiException
 import com.google.android.gms.common.api.CommonStatusCodes
+import com.google.android.gms.samples.pay.util.PaymentDataExtractor
 import com.google.android.gms.samples.pay.util.PaymentsUtil
 import com.google.android.gms.tasks.CancellationTokenSource
 import com.google.android.gms.tasks.Task
@@ -29,6 +30,9 @@ import com.google.android.gms.wallet.IsReadyToPayRequest
 import com.google.android.gms.wallet.PaymentData
 import com.google.android.gms.wallet.PaymentDataRequest
 import com.google.android.gms.wallet.PaymentsClient
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
@@ -36,8 +40,8 @@ import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.suspendCancellableCoroutine
 import kotlinx.coroutines.tasks.await
-import org.json.JSONException
-import org.json.JSONObject
+import kotlinx.coroutines.withContext
+import java.io.IOException
 import java.util.concurrent.Executor
 import kotlin.coroutines.resume
 
@@ -50,6 +54,11 @@ class CheckoutViewModel(application: Application) : AndroidViewModel(application
     // A client for interacting with the Google Pay API.
     private val paymentsClient: PaymentsClient = PaymentsUtil.createPaymentsClient(application)
 
+    // Builds requests and parses responses off the main thread. A couple of threads are enough for
+    // the few requests in flight at any time, and leave the rest of the default pool to others.
+    @OptIn(ExperimentalCoroutinesApi::class)
+    private val jsonDispatcher: CoroutineDispatcher = Dispatchers.Default.limitedParallelism(2)
+
     init {
         viewModelScope.launch {
             verifyGooglePayReadiness()
@@ -78,21 +87,25 @@ class CheckoutViewModel(application: Application) : AndroidViewModel(application
      * Determine the user's ability to pay with a payment method supported by your app.
     ) */
     private suspend fun fetchCanUseGooglePay(): Boolean {
-        val request = IsReadyToPayRequest.fromJson(PaymentsUtil.isReadyToPayRequest().toString())
+        val request = withContext(jsonDispatcher) {
+            IsReadyToPayRequest.fromJson(PaymentsUtil.isReadyToPayRequest().toString())
+        }
         return paymentsClient.isReadyToPay(request).await()
     }
 
     /**
-     * Creates a [Task] that starts the payment process with the transaction details included.
+     * Creates a [Task] that starts the payment process with the transaction details included. The
+     * request is built on a background thread.
      *
      * @return a [Task] with the payment information.
      * @see [PaymentDataRequest](https://developers.google.com/android/reference/com/google/android/gms/wallet/PaymentsClient#loadPaymentData(com.google.android.gms.wallet.PaymentDataRequest)
     ) */
-    fun getLoadPaymentDataTask(priceLabel: String): Task<PaymentData> {
-        val paymentDataRequestJson = PaymentsUtil.getPaymentDataRequest(priceLabel)
-        val request = PaymentDataRequest.fromJson(paymentDataRequestJson.toString())
-        return paymentsClient.loadPaymentData(request)
-    }
+    suspend fun getLoadPaymentDataTask(priceLabel: String): Task<PaymentData> =
+        withContext(jsonDispatcher) {
+            val paymentDataRequestJson = PaymentsUtil.getPaymentDataRequest(priceLabel)
+            val request = PaymentDataRequest.fromJson(paymentDataRequestJson.toString())
+            paymentsClient.loadPaymentData(request)
+        }
 
     /**
      * At this stage, the user has already seen a popup informing them an error occurred. Normally,
@@ -108,33 +121,38 @@ class CheckoutViewModel(application: Application) : AndroidViewModel(application
     }
 
     fun setPaymentData(paymentData: PaymentData) {
-        val payState = extractPaymentBillingName(paymentData)?.let {
-            PaymentUiState.PaymentCompleted(payerName = it)
-        } ?: PaymentUiState.Error(CommonStatusCodes.INTERNAL_ERROR)
+        viewModelScope.launch {
+            // Only the resulting state is published from the main thread.
+            val payState = withContext(jsonDispatcher) {
+                extractPaymentBillingName(paymentData)?.let {
+                    PaymentUiState.PaymentCompleted(payerName = it)
+                } ?: PaymentUiState.Error(CommonStatusCodes.INTERNAL_ERROR)
+            }
 
-        _paymentUiState.update { payState }
+            _paymentUiState.update { payState }
+        }
     }
 
     private fun extractPaymentBillingName(paymentData: PaymentData): String? {
         val paymentInformation = paymentData.toJson()
+        Log.i("Google Pay result:", paymentInformation)
 
         try {
-            // Token will be null if PaymentDataRequest was not constructed using fromJson(String).
-            val paymentMethodData =
-                JSONObject(paymentInformation).getJSONObject("paymentMethodData")
-            val billingName = paymentMethodData.getJSONObject("info")
-                .getJSONObject("billingAddress").getString("name")
+            // Only the fields needed below are read from the response.
+            val result = PaymentDataExtractor.extract(paymentInformation)
+            val billingName = result.billingName
+            val token = result.token
+            if (billingName == null || token == null) {
+                Log.e("handlePaymentSuccess", "Error: billing name or token missing")
+                return null
+            }
             Log.d("BillingName", billingName)
 
             // Logging token string.
-            Log.d(
-                "Google Pay token", paymentMethodData
-                    .getJSONObject("tokenizationData")
-                    .getString("token")
-            )
+            Log.d("Google Pay token", token)
 
             return billingName
-        } catch (error: JSONException) {
+        } catch (error: IOException) {
             Log.e("handlePaymentSuccess", "Error: $error")
         }
 